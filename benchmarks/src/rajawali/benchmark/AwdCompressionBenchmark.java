@@ -0,0 +1,73 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rajawali.Object3D;
+import rajawali.benchmark.MeshFiles.AwdCompression;
+import rajawali.parser.LoaderAWD;
+import rajawali.parser.ParsingException;
+
+/**
+ * Measures loading the same AWD model uncompressed, ZLIB and LZMA compressed. The size of each
+ * file is printed when it is generated, so that load times can be weighed against file sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class AwdCompressionBenchmark {
+	@Param({ "10000", "1000000" })
+	public int triangles;
+
+	@Param({ "NONE", "ZLIB", "LZMA" })
+	public AwdCompression compression;
+
+	private File mFile;
+
+	@Setup
+	public void setup() throws IOException {
+		mFile = File.createTempFile("rajawali-bench", ".awd");
+		MeshFiles.writeAwd(mFile, triangles, compression);
+		System.out.println("AWD " + compression + " with " + triangles + " triangles: " + mFile.length()
+				+ " bytes");
+	}
+
+	@TearDown
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	@Benchmark
+	public Object3D parseAwd() throws ParsingException {
+		return new LoaderAWD(mFile).parse().getParsedObject();
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rajawali.Frustum;
+import rajawali.bounds.BoundingBox;
+import rajawali.math.Matrix4;
+import rajawali.math.vector.Vector3;
+
+/**
+ * Measures frustum culling of a flat list of bounding boxes, the way the scene culls its
+ * children when no scene graph is used. Scores are per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CullingBenchmark {
+	@Param({ "10000" })
+	public int objects;
+
+	private final Frustum mFrustum = new Frustum();
+	private final Matrix4 mViewProjection = new Matrix4();
+	private BoundingBox[] mBoxes;
+	private Matrix4[] mModelMatrices;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(42);
+		final Matrix4 view = new Matrix4().setToLookAt(new Vector3(0, 20, 100), new Vector3(), Vector3.Y);
+		mViewProjection.setToPerspective(1, 500, 45, 16.0 / 9.0).multiply(view);
+		mFrustum.update(mViewProjection);
+
+		mBoxes = new BoundingBox[objects];
+		mModelMatrices = new Matrix4[objects];
+		final Vector3[] corners = new Vector3[8];
+		for (int i = 0; i < objects; ++i) {
+			final double size = 0.5 + random.nextDouble() * 2;
+			corners[0] = new Vector3(-size, -size, -size);
+			corners[1] = new Vector3(size, size, size);
+			mBoxes[i] = new BoundingBox(corners);
+			mBoxes[i].calculatePoints();
+			// -- Spread the objects over a volume which is partly outside the frustum
+			mModelMatrices[i] = new Matrix4().translate(random.nextDouble() * 400 - 200,
+					random.nextDouble() * 100 - 50, random.nextDouble() * 400 - 300);
+			mBoxes[i].transform(mModelMatrices[i]);
+		}
+	}
+
+	/**
+	 * Tests every box against the frustum.
+	 */
+	@Benchmark
+	public int boundsInFrustum() {
+		int visible = 0;
+		for (int i = 0; i < mBoxes.length; ++i) {
+			final BoundingBox box = mBoxes[i];
+			if (mFrustum.boundsInFrustum(box)) ++visible;
+		}
+		return visible;
+	}
+
+	/**
+	 * Classifies the transformed bounds of every box against the frustum.
+	 */
+	@Benchmark
+	public int classifyBounds() {
+		int visible = 0;
+		for (int i = 0; i < mBoxes.length; ++i) {
+			final BoundingBox box = mBoxes[i];
+			if (mFrustum.classifyBounds(box.getTransformedMin(), box.getTransformedMax()) != Frustum.OUTSIDE)
+				++visible;
+		}
+		return visible;
+	}
+
+	/**
+	 * Moves every box into world space, which has to happen for each object that moved before it
+	 * can be culled.
+	 */
+	@Benchmark
+	public BoundingBox[] transformBounds() {
+		for (int i = 0; i < mBoxes.length; ++i)
+			mBoxes[i].transform(mModelMatrices[i]);
+		return mBoxes;
+	}
+}
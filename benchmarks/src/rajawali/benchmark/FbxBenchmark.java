@@ -0,0 +1,89 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rajawali.Object3D;
+import rajawali.parser.ParsingException;
+import rajawali.parser.fbx.LoaderFBX;
+
+/**
+ * Measures loading an FBX ASCII file generated by {@link MeshFiles}. Besides the number of
+ * files loaded per second, the size of the files loaded per second is reported as the
+ * {@code megabytes} counter, which is the parse throughput in MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class FbxBenchmark {
+	@Param({ "10000", "1000000" })
+	public int triangles;
+
+	private File mFile;
+	private double mMegabytes;
+
+	/**
+	 * Counts the megabytes parsed during an iteration. JMH reports it per second.
+	 */
+	@AuxCounters
+	@State(Scope.Thread)
+	public static class Bytes {
+		public double megabytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			megabytes = 0;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		mFile = File.createTempFile("rajawali-bench", ".fbx");
+		MeshFiles.writeFbx(mFile, triangles);
+		mMegabytes = mFile.length() / (1024.0 * 1024.0);
+		System.out.println("FBX with " + triangles + " triangles: " + mFile.length() + " bytes");
+	}
+
+	@TearDown
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	@Benchmark
+	public Object3D parseFbx(Bytes bytes) throws ParsingException {
+		final Object3D object = new LoaderFBX(mFile).parse().getParsedObject();
+		bytes.megabytes += mMegabytes;
+		return object;
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import rajawali.Camera;
+import rajawali.Object3D;
+import rajawali.animation.Animation3D;
+import rajawali.animation.Animation3D.RepeatMode;
+import rajawali.animation.EllipticalOrbitAnimation3D;
+import rajawali.animation.RotateAnimation3D;
+import rajawali.animation.TranslateAnimation3D;
+import rajawali.materials.Material;
+import rajawali.materials.MaterialManager;
+import rajawali.math.vector.Vector3;
+import rajawali.math.vector.Vector3.Axis;
+import rajawali.primitives.Cube;
+import rajawali.renderer.GLStateManager;
+import rajawali.renderer.RajawaliRenderer;
+import rajawali.scene.RajawaliScene;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.VMOption;
+
+/**
+ * Checks that the steady-state frame allocates nothing. Every frame renders the current scene of a
+ * {@link RajawaliRenderer} the way {@link RajawaliRenderer#onDrawFrame} does, with 500 animated, frustum tested
+ * objects. The frame tasks, animations, camera matrices and frustum, culling, {@link Object3D#render} and the
+ * {@link Material} parameter and draw calls are therefore all part of the check. The GL calls go to the benchmark
+ * stub of {@code GLES20}, which does nothing.
+ * <p>
+ * The allocated bytes are read from the allocation counter of the thread. Escape analysis of the server compiler
+ * removes allocations which do not escape a compiled method, while the Dalvik VM allocates all of them, so the check
+ * refuses to run with escape analysis enabled. It exits with status 1 if any frame allocated, so it can run as part
+ * of a build.
+ */
+public final class FrameAllocationCheck {
+	private static final int OBJECTS = 500;
+	private static final int WARMUP_FRAMES = 20000;
+	private static final int FRAMES = 10000;
+	private static final double FRAME_TIME = 1.0 / 60.0;
+
+	private final CheckRenderer mRenderer = new CheckRenderer();
+	private final RajawaliScene mScene = mRenderer.getCurrentScene();
+	private final Object3D[] mObjects = new Object3D[OBJECTS];
+
+	/**
+	 * Renderer without a surface. The surface callbacks need a GL10 and a window, so the check registers the
+	 * renderer with the managers itself and renders the frames directly.
+	 */
+	private static final class CheckRenderer extends RajawaliRenderer {
+		public CheckRenderer() {
+			super(null);
+		}
+
+		@Override
+		public double getRefreshRate() {
+			return 60;
+		}
+
+		public void frame() {
+			mFrameProfiler.beginFrame();
+			GLStateManager.getInstance().beginFrame();
+			onRender(FRAME_TIME);
+			mFrameProfiler.endFrame();
+		}
+	}
+
+	private FrameAllocationCheck() {
+		final Random random = new Random(42);
+		MaterialManager.getInstance().registerRenderer(mRenderer);
+		mScene.resetGLState();
+		final Camera camera = mScene.getCamera();
+		camera.setPosition(0, 20, 100);
+		camera.setLookAt(0, 0, 0);
+		camera.setProjectionMatrix(1280, 720);
+
+		final Material material = new Material();
+		for (int i = 0; i < OBJECTS; ++i) {
+			final Object3D object = new Cube(0.5f + random.nextFloat() * 2);
+			object.setMaterial(material);
+			object.setColor(random.nextInt());
+			object.setFrustumTest(true);
+			// -- The bounding box the frustum test needs is created on first access
+			object.getGeometry().getBoundingBox();
+			object.setPosition(random.nextDouble() * 400 - 200, random.nextDouble() * 100 - 50,
+					random.nextDouble() * 400 - 300);
+			mScene.addChild(object);
+			mObjects[i] = object;
+
+			final Animation3D animation;
+			switch (i % 3) {
+			case 0:
+				animation = new RotateAnimation3D(Axis.Y, 360);
+				break;
+			case 1:
+				animation = new EllipticalOrbitAnimation3D(object.getPosition().clone(), object.getPosition().clone()
+						.add(10, 0, 0), 0.5, 360);
+				break;
+			default:
+				animation = new TranslateAnimation3D(object.getPosition().clone().add(0, 10, 0));
+				break;
+			}
+			animation.setTransformable3D(object);
+			play(animation, i);
+		}
+
+		// The camera orbits the scene
+		final Animation3D orbit = new EllipticalOrbitAnimation3D(new Vector3(), new Vector3(0, 20, 100), 0, 360);
+		orbit.setTransformable3D(camera);
+		play(orbit, OBJECTS);
+	}
+
+	private void play(Animation3D animation, int index) {
+		animation.setDuration(2000 + index);
+		animation.setRepeatMode(RepeatMode.INFINITE);
+		animation.play();
+		mScene.registerAnimation(animation);
+	}
+
+	private void frame() {
+		mRenderer.frame();
+	}
+
+	private int countVisible() {
+		int visible = 0;
+		for (int i = 0; i < OBJECTS; ++i)
+			if (mObjects[i].isInFrustum())
+				++visible;
+		return visible;
+	}
+
+	/**
+	 * Checks whether the server compiler may remove allocations by escape analysis.
+	 * 
+	 * @return boolean True if escape analysis is enabled.
+	 */
+	private static boolean isEscapeAnalysisEnabled() {
+		try {
+			final HotSpotDiagnosticMXBean diagnostics = ManagementFactory.newPlatformMXBeanProxy(
+					ManagementFactory.getPlatformMBeanServer(), "com.sun.management:type=HotSpotDiagnostic",
+					HotSpotDiagnosticMXBean.class);
+			final VMOption option = diagnostics.getVMOption("DoEscapeAnalysis");
+			return Boolean.parseBoolean(option.getValue());
+		} catch (IllegalArgumentException e) {
+			// -- The VM has no server compiler and therefore no escape analysis
+			return false;
+		} catch (Exception e) {
+			System.err.println("Could not read the DoEscapeAnalysis option: " + e);
+			return true;
+		}
+	}
+
+	public static void main(String[] args) {
+		if (isEscapeAnalysisEnabled()) {
+			System.err.println("Escape analysis hides allocations, run the check with -XX:-DoEscapeAnalysis.");
+			System.exit(2);
+		}
+		final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			System.err.println("Allocation counters are not supported by this JVM.");
+			System.exit(2);
+		}
+		final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		if (!allocations.isThreadAllocatedMemorySupported()) {
+			System.err.println("Allocation counters are not supported by this JVM.");
+			System.exit(2);
+		}
+		allocations.setThreadAllocatedMemoryEnabled(true);
+		final long thread = Thread.currentThread().getId();
+
+		final FrameAllocationCheck check = new FrameAllocationCheck();
+		// -- Run the frame tasks, compile the program and create all lazily created state
+		for (int i = 0; i < WARMUP_FRAMES; ++i)
+			check.frame();
+
+		// -- Reading the counter may allocate itself, which is measured without any frames
+		long start = allocations.getThreadAllocatedBytes(thread);
+		final long overhead = allocations.getThreadAllocatedBytes(thread) - start;
+
+		start = allocations.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < FRAMES; ++i)
+			check.frame();
+		final long allocated = allocations.getThreadAllocatedBytes(thread) - start - overhead;
+
+		System.out.println(FRAMES + " frames with " + OBJECTS + " objects, " + check.countVisible()
+				+ " visible: " + allocated + " bytes allocated");
+		if (allocated > 0) {
+			System.err.println("The frame allocates " + (double) allocated / FRAMES + " bytes on average.");
+			System.exit(1);
+		}
+	}
+}
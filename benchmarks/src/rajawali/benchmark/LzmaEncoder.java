@@ -0,0 +1,307 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A small LZMA encoder which writes the .lzma format read by {@link rajawali.util.LzmaInputStream}.
+ * It finds matches greedily with a single hash table entry per position, so it compresses worse
+ * and faster than the LZMA SDK, which is enough to produce compressed benchmark files.
+ */
+final class LzmaEncoder {
+	private static final int LC = 3;
+	private static final int LP = 0;
+	private static final int PB = 2;
+	private static final int DICTIONARY_SIZE = 1 << 22;
+	private static final int MATCH_MIN_LEN = 2;
+	private static final int MATCH_MAX_LEN = 273;
+	private static final int HASH_BITS = 16;
+
+	private static final int NUM_STATES = 12;
+	private static final int POS_STATES = 1 << PB;
+	private static final int END_POS_MODEL_INDEX = 14;
+	private static final int NUM_FULL_DISTANCES = 1 << (END_POS_MODEL_INDEX >>> 1);
+
+	private final RangeEncoder mRc;
+	private final short[] mLiteralProbs = init(new short[0x300 << (LC + LP)]);
+	private final short[] mIsMatch = init(new short[NUM_STATES << 4]);
+	private final short[] mIsRep = init(new short[NUM_STATES]);
+	private final short[] mIsRepG0 = init(new short[NUM_STATES]);
+	private final short[] mIsRepG1 = init(new short[NUM_STATES]);
+	private final short[] mIsRepG2 = init(new short[NUM_STATES]);
+	private final short[] mIsRep0Long = init(new short[NUM_STATES << 4]);
+	private final short[][] mPosSlot = new short[4][];
+	private final short[] mPosEncoders = init(new short[1 + NUM_FULL_DISTANCES - END_POS_MODEL_INDEX]);
+	private final short[] mAlign = init(new short[16]);
+	private final LengthEncoder mLenEncoder = new LengthEncoder();
+	private final LengthEncoder mRepLenEncoder = new LengthEncoder();
+
+	private int mState;
+	private int mRep0;
+
+	private LzmaEncoder(OutputStream out) {
+		mRc = new RangeEncoder(out);
+		for (int i = 0; i < mPosSlot.length; ++i)
+			mPosSlot[i] = init(new short[1 << 6]);
+	}
+
+	/**
+	 * Compresses data into the .lzma format with an unknown uncompressed size and an end marker.
+	 * 
+	 * @param data byte[] The data to compress.
+	 * @param out {@link OutputStream} The stream to write to.
+	 * @throws IOException
+	 */
+	static void encode(byte[] data, OutputStream out) throws IOException {
+		out.write((PB * 5 + LP) * 9 + LC);
+		for (int i = 0; i < 4; ++i)
+			out.write(DICTIONARY_SIZE >>> (8 * i));
+		for (int i = 0; i < 8; ++i)
+			out.write(0xFF);
+		new LzmaEncoder(out).encode(data);
+	}
+
+	private void encode(byte[] data) throws IOException {
+		final int[] head = new int[1 << HASH_BITS];
+		for (int i = 0; i < head.length; ++i)
+			head[i] = -1;
+
+		int pos = 0;
+		while (pos < data.length) {
+			final int posState = pos & (POS_STATES - 1);
+			final int maxLength = Math.min(MATCH_MAX_LEN, data.length - pos);
+
+			// -- Prefer repeating the last distance, it is the cheapest to encode
+			final int repLength = pos > mRep0 ? matchLength(data, pos - mRep0 - 1, pos, maxLength) : 0;
+			int matchLength = 0;
+			int matchDistance = 0;
+			if (maxLength >= 3) {
+				final int hash = hash(data, pos);
+				final int candidate = head[hash];
+				head[hash] = pos;
+				if (candidate >= 0 && pos - candidate <= DICTIONARY_SIZE) {
+					matchLength = matchLength(data, candidate, pos, maxLength);
+					matchDistance = pos - candidate - 1;
+				}
+			}
+
+			int length;
+			if (repLength >= MATCH_MIN_LEN && repLength + 1 >= matchLength) {
+				mRc.encodeBit(mIsMatch, (mState << 4) + posState, 1);
+				mRc.encodeBit(mIsRep, mState, 1);
+				mRc.encodeBit(mIsRepG0, mState, 0);
+				mRc.encodeBit(mIsRep0Long, (mState << 4) + posState, 1);
+				mRepLenEncoder.encode(repLength - MATCH_MIN_LEN, posState);
+				mState = mState < 7 ? 8 : 11;
+				length = repLength;
+			} else if (matchLength >= 3) {
+				mRc.encodeBit(mIsMatch, (mState << 4) + posState, 1);
+				mRc.encodeBit(mIsRep, mState, 0);
+				mLenEncoder.encode(matchLength - MATCH_MIN_LEN, posState);
+				encodeDistance(matchDistance, matchLength - MATCH_MIN_LEN);
+				mState = mState < 7 ? 7 : 10;
+				mRep0 = matchDistance;
+				length = matchLength;
+			} else {
+				mRc.encodeBit(mIsMatch, (mState << 4) + posState, 0);
+				encodeLiteral(data, pos);
+				mState = mState < 4 ? 0 : mState < 10 ? mState - 3 : mState - 6;
+				length = 1;
+			}
+
+			// -- Index the positions inside the match
+			for (int i = 1; i < length && pos + i + 3 <= data.length; ++i)
+				head[hash(data, pos + i)] = pos + i;
+			pos += length;
+		}
+
+		// -- End marker
+		mRc.encodeBit(mIsMatch, (mState << 4) + (pos & (POS_STATES - 1)), 1);
+		mRc.encodeBit(mIsRep, mState, 0);
+		mLenEncoder.encode(0, pos & (POS_STATES - 1));
+		encodeDistance(0xFFFFFFFF, 0);
+		mRc.flush();
+	}
+
+	private void encodeLiteral(byte[] data, int pos) throws IOException {
+		final int prevByte = pos == 0 ? 0 : data[pos - 1] & 0xFF;
+		final int base = 0x300 * (((pos & ((1 << LP) - 1)) << LC) + (prevByte >>> (8 - LC)));
+		final int b = data[pos] & 0xFF;
+		int symbol = 1;
+		if (mState >= 7) {
+			final int matchByte = data[pos - mRep0 - 1] & 0xFF;
+			boolean same = true;
+			for (int i = 7; i >= 0; --i) {
+				final int bit = (b >>> i) & 1;
+				if (same) {
+					final int matchBit = (matchByte >>> i) & 1;
+					mRc.encodeBit(mLiteralProbs, base + ((1 + matchBit) << 8) + symbol, bit);
+					same = matchBit == bit;
+				} else {
+					mRc.encodeBit(mLiteralProbs, base + symbol, bit);
+				}
+				symbol = (symbol << 1) | bit;
+			}
+		} else {
+			for (int i = 7; i >= 0; --i) {
+				final int bit = (b >>> i) & 1;
+				mRc.encodeBit(mLiteralProbs, base + symbol, bit);
+				symbol = (symbol << 1) | bit;
+			}
+		}
+	}
+
+	private void encodeDistance(int distance, int length) throws IOException {
+		final int posSlot = getPosSlot(distance);
+		encodeBitTree(mPosSlot[Math.min(length, 3)], 0, 6, posSlot);
+		if (posSlot < 4)
+			return;
+		final int footerBits = (posSlot >>> 1) - 1;
+		final int base = (2 | (posSlot & 1)) << footerBits;
+		final int reduced = distance - base;
+		if (posSlot < END_POS_MODEL_INDEX) {
+			encodeReverseBitTree(mPosEncoders, base - posSlot, footerBits, reduced);
+		} else {
+			mRc.encodeDirectBits(reduced >>> 4, footerBits - 4);
+			encodeReverseBitTree(mAlign, 0, 4, reduced & 15);
+		}
+	}
+
+	private static int getPosSlot(int distance) {
+		if (distance >= 0 && distance < 4)
+			return distance;
+		final int n = 31 - Integer.numberOfLeadingZeros(distance);
+		return (n << 1) | ((distance >>> (n - 1)) & 1);
+	}
+
+	private void encodeBitTree(short[] probs, int offset, int numBits, int symbol) throws IOException {
+		int m = 1;
+		for (int i = numBits - 1; i >= 0; --i) {
+			final int bit = (symbol >>> i) & 1;
+			mRc.encodeBit(probs, offset + m, bit);
+			m = (m << 1) | bit;
+		}
+	}
+
+	private void encodeReverseBitTree(short[] probs, int offset, int numBits, int symbol) throws IOException {
+		int m = 1;
+		for (int i = 0; i < numBits; ++i) {
+			final int bit = symbol & 1;
+			mRc.encodeBit(probs, offset + m, bit);
+			m = (m << 1) | bit;
+			symbol >>>= 1;
+		}
+	}
+
+	private static int matchLength(byte[] data, int from, int pos, int maxLength) {
+		int length = 0;
+		while (length < maxLength && data[from + length] == data[pos + length])
+			++length;
+		return length;
+	}
+
+	private static int hash(byte[] data, int pos) {
+		final int value = (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16;
+		return (value * 0x9E3779B1) >>> (32 - HASH_BITS);
+	}
+
+	private static short[] init(short[] probs) {
+		for (int i = 0; i < probs.length; ++i)
+			probs[i] = 1 << 10;
+		return probs;
+	}
+
+	private final class LengthEncoder {
+		private final short[] mChoice = init(new short[2]);
+		private final short[] mLow = init(new short[POS_STATES << 3]);
+		private final short[] mMid = init(new short[POS_STATES << 3]);
+		private final short[] mHigh = init(new short[1 << 8]);
+
+		void encode(int length, int posState) throws IOException {
+			if (length < 8) {
+				mRc.encodeBit(mChoice, 0, 0);
+				encodeBitTree(mLow, posState << 3, 3, length);
+			} else if (length < 16) {
+				mRc.encodeBit(mChoice, 0, 1);
+				mRc.encodeBit(mChoice, 1, 0);
+				encodeBitTree(mMid, posState << 3, 3, length - 8);
+			} else {
+				mRc.encodeBit(mChoice, 0, 1);
+				mRc.encodeBit(mChoice, 1, 1);
+				encodeBitTree(mHigh, 0, 8, length - 16);
+			}
+		}
+	}
+
+	private static final class RangeEncoder {
+		private final OutputStream mOut;
+		private long mLow;
+		private int mRange = 0xFFFFFFFF;
+		private int mCache;
+		private long mCacheSize = 1;
+
+		RangeEncoder(OutputStream out) {
+			mOut = out;
+		}
+
+		void encodeBit(short[] probs, int index, int bit) throws IOException {
+			final int prob = probs[index];
+			final int bound = (mRange >>> 11) * prob;
+			if (bit == 0) {
+				mRange = bound;
+				probs[index] = (short) (prob + ((2048 - prob) >>> 5));
+			} else {
+				mLow += bound & 0xFFFFFFFFL;
+				mRange -= bound;
+				probs[index] = (short) (prob - (prob >>> 5));
+			}
+			while ((mRange & 0xFF000000) == 0) {
+				mRange <<= 8;
+				shiftLow();
+			}
+		}
+
+		void encodeDirectBits(int value, int numBits) throws IOException {
+			for (int i = numBits - 1; i >= 0; --i) {
+				mRange >>>= 1;
+				if (((value >>> i) & 1) != 0)
+					mLow += mRange & 0xFFFFFFFFL;
+				while ((mRange & 0xFF000000) == 0) {
+					mRange <<= 8;
+					shiftLow();
+				}
+			}
+		}
+
+		void flush() throws IOException {
+			for (int i = 0; i < 5; ++i)
+				shiftLow();
+		}
+
+		private void shiftLow() throws IOException {
+			if (mLow < 0xFF000000L || mLow > 0xFFFFFFFFL) {
+				final int carry = (int) (mLow >>> 32);
+				int temp = mCache;
+				do {
+					mOut.write((temp + carry) & 0xFF);
+					temp = 0xFF;
+				} while (--mCacheSize != 0);
+				mCache = (int) ((mLow >>> 24) & 0xFF);
+			}
+			++mCacheSize;
+			mLow = (mLow & 0x00FFFFFF) << 8;
+		}
+	}
+}
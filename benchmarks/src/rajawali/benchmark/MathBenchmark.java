@@ -0,0 +1,141 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rajawali.math.Matrix4;
+import rajawali.math.Quaternion;
+import rajawali.math.vector.Vector3;
+
+/**
+ * Measures the matrix and quaternion operations which run for every object in every frame.
+ * The chained and fused variants of the same operation are measured side by side.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MathBenchmark {
+	/**
+	 * The number of matrices and points in the batched benchmarks.
+	 */
+	public static final int BATCH_SIZE = 10000;
+
+	private final Matrix4 mA = new Matrix4();
+	private final Matrix4 mB = new Matrix4();
+	private final Matrix4 mOut = new Matrix4();
+	private final Matrix4 mRotation = new Matrix4();
+	private final Vector3 mPosition = new Vector3(1, 2, 3);
+	private final Vector3 mScale = new Vector3(1.5, 2, 0.5);
+	private final Quaternion mFrom = new Quaternion();
+	private final Quaternion mTo = new Quaternion();
+	private final Quaternion mResult = new Quaternion();
+
+	private double[] mMatrices;
+	private double[] mMatricesOut;
+	private float[] mPoints;
+	private float[] mPointsOut;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(42);
+		mFrom.fromAngleAxis(new Vector3(1, 1, 0), 30);
+		mTo.fromAngleAxis(Vector3.Y, 120);
+		mA.setToTRS(mPosition, mFrom, mScale);
+		mB.setToTRS(new Vector3(-4, 0, 2), mTo, new Vector3(1, 1, 1));
+
+		mMatrices = new double[BATCH_SIZE * 16];
+		mMatricesOut = new double[BATCH_SIZE * 16];
+		final Quaternion q = new Quaternion();
+		final Matrix4 m = new Matrix4();
+		for (int i = 0; i < BATCH_SIZE; ++i) {
+			q.fromAngleAxis(Vector3.Y, random.nextDouble() * 360);
+			m.setToTRS(new Vector3(random.nextDouble(), random.nextDouble(), random.nextDouble()), q, mScale);
+			System.arraycopy(m.getDoubleValues(), 0, mMatrices, i * 16, 16);
+		}
+
+		mPoints = new float[BATCH_SIZE * 3];
+		mPointsOut = new float[BATCH_SIZE * 3];
+		for (int i = 0; i < mPoints.length; ++i)
+			mPoints[i] = random.nextFloat() * 100 - 50;
+	}
+
+	@Benchmark
+	public Matrix4 multiply() {
+		return mOut.setAll(mA).multiply(mB);
+	}
+
+	@Benchmark
+	public Matrix4 multiplyAffine() {
+		return mOut.setAll(mA).multiplyAffine(mB);
+	}
+
+	@Benchmark
+	public Matrix4 inverse() {
+		return mOut.setAll(mA).inverse();
+	}
+
+	@Benchmark
+	public Matrix4 inverseAffine() {
+		return mOut.setAll(mA).inverseAffine();
+	}
+
+	/**
+	 * Composes a model matrix the way it used to be done, one operation at a time.
+	 */
+	@Benchmark
+	public Matrix4 composeChained() {
+		mFrom.toRotationMatrix(mRotation);
+		return mOut.identity().translate(mPosition).scale(mScale).multiply(mRotation);
+	}
+
+	@Benchmark
+	public Matrix4 composeTRS() {
+		return mOut.setToTRS(mPosition, mFrom, mScale);
+	}
+
+	@Benchmark
+	public Quaternion slerp() {
+		return mResult.slerp(mFrom, mTo, 0.37);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public double[] multiplyAffineBatch() {
+		Matrix4.multiplyAffine(mA.getDoubleValues(), 0, mMatrices, 0, mMatricesOut, 0, BATCH_SIZE);
+		return mMatricesOut;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public float[] transformPoints() {
+		Matrix4.transformPoints(mA.getDoubleValues(), mPoints, 0, mPointsOut, 0, BATCH_SIZE);
+		return mPointsOut;
+	}
+}
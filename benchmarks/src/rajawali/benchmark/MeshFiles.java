@@ -0,0 +1,416 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import rajawali.util.LittleEndianOutputStream;
+
+/**
+ * Writes synthetic meshes in the formats the parser benchmarks read. Every mesh is a flat grid
+ * of quads, split into two triangles each, with shared vertices, texture coordinates and normals.
+ */
+public final class MeshFiles {
+	/**
+	 * The number of quads along one side of an AWD sub geometry. Keeps the vertex count of a
+	 * sub geometry below the limit of its 16 bit indices.
+	 */
+	private static final int AWD_PATCH_SIZE = 128;
+
+	private MeshFiles() {
+	}
+
+	/**
+	 * Returns the number of quads along one side of the smallest square grid with at least the
+	 * given number of triangles.
+	 * 
+	 * @param triangles int The minimum number of triangles.
+	 * @return int The grid size.
+	 */
+	public static int gridSize(int triangles) {
+		return (int) Math.ceil(Math.sqrt(triangles / 2.0));
+	}
+
+	/**
+	 * Writes a Wavefront OBJ file with positions, texture coordinates and normals.
+	 * 
+	 * @param file {@link File} The file to write.
+	 * @param triangles int The minimum number of triangles.
+	 * @throws IOException
+	 */
+	public static void writeObj(File file, int triangles) throws IOException {
+		final int size = gridSize(triangles);
+		final int stride = size + 1;
+		final BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try {
+			out.write("o grid\n");
+			for (int z = 0; z <= size; ++z)
+				for (int x = 0; x <= size; ++x)
+					out.write("v " + x + " " + height(x, z) + " " + z + "\n");
+			for (int z = 0; z <= size; ++z)
+				for (int x = 0; x <= size; ++x)
+					out.write("vt " + (float) x / size + " " + (float) z / size + "\n");
+			out.write("vn 0 1 0\n");
+			for (int z = 0; z < size; ++z) {
+				for (int x = 0; x < size; ++x) {
+					// -- OBJ indices start at one
+					final int a = z * stride + x + 1;
+					final int b = a + 1;
+					final int c = a + stride;
+					final int d = c + 1;
+					out.write("f " + a + "/" + a + "/1 " + c + "/" + c + "/1 " + b + "/" + b + "/1\n");
+					out.write("f " + b + "/" + b + "/1 " + c + "/" + c + "/1 " + d + "/" + d + "/1\n");
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes an ASCII STL file.
+	 * 
+	 * @param file {@link File} The file to write.
+	 * @param triangles int The minimum number of triangles.
+	 * @throws IOException
+	 */
+	public static void writeAsciiStl(File file, int triangles) throws IOException {
+		final int size = gridSize(triangles);
+		final BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try {
+			out.write("solid grid\n");
+			for (int z = 0; z < size; ++z) {
+				for (int x = 0; x < size; ++x) {
+					writeAsciiFacet(out, x, z, x, z + 1, x + 1, z);
+					writeAsciiFacet(out, x + 1, z, x, z + 1, x + 1, z + 1);
+				}
+			}
+			out.write("endsolid grid\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeAsciiFacet(BufferedWriter out, int x1, int z1, int x2, int z2, int x3, int z3)
+			throws IOException {
+		out.write("facet normal 0 1 0\nouter loop\n");
+		out.write("vertex " + x1 + " " + height(x1, z1) + " " + z1 + "\n");
+		out.write("vertex " + x2 + " " + height(x2, z2) + " " + z2 + "\n");
+		out.write("vertex " + x3 + " " + height(x3, z3) + " " + z3 + "\n");
+		out.write("endloop\nendfacet\n");
+	}
+
+	/**
+	 * Writes a binary STL file.
+	 * 
+	 * @param file {@link File} The file to write.
+	 * @param triangles int The minimum number of triangles.
+	 * @throws IOException
+	 */
+	public static void writeBinaryStl(File file, int triangles) throws IOException {
+		final int size = gridSize(triangles);
+		final LittleEndianOutputStream out = new LittleEndianOutputStream(open(file));
+		try {
+			out.write(new byte[80]);
+			out.writeInt(size * size * 2);
+			for (int z = 0; z < size; ++z) {
+				for (int x = 0; x < size; ++x) {
+					writeBinaryFacet(out, x, z, x, z + 1, x + 1, z);
+					writeBinaryFacet(out, x + 1, z, x, z + 1, x + 1, z + 1);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeBinaryFacet(LittleEndianOutputStream out, int x1, int z1, int x2, int z2, int x3, int z3)
+			throws IOException {
+		out.writeFloat(0);
+		out.writeFloat(1);
+		out.writeFloat(0);
+		writeVertex(out, x1, z1);
+		writeVertex(out, x2, z2);
+		writeVertex(out, x3, z3);
+		out.writeShort(0);
+	}
+
+	/**
+	 * The compression of the body of an AWD file, in the order of the header values.
+	 */
+	public static enum AwdCompression {
+		NONE, ZLIB, LZMA
+	}
+
+	/**
+	 * Writes an uncompressed AWD 2.1 file holding a single triangle geometry block.
+	 * 
+	 * @param file {@link File} The file to write.
+	 * @param triangles int The minimum number of triangles.
+	 * @throws IOException
+	 */
+	public static void writeAwd(File file, int triangles) throws IOException {
+		writeAwd(file, triangles, AwdCompression.NONE);
+	}
+
+	/**
+	 * Writes an AWD 2.1 file holding a single triangle geometry block. The grid is split into sub
+	 * geometries of at most {@link #AWD_PATCH_SIZE} by {@link #AWD_PATCH_SIZE} quads.
+	 * 
+	 * @param file {@link File} The file to write.
+	 * @param triangles int The minimum number of triangles.
+	 * @param compression {@link AwdCompression} The compression of the file body.
+	 * @throws IOException
+	 */
+	public static void writeAwd(File file, int triangles, AwdCompression compression) throws IOException {
+		final int size = gridSize(triangles);
+		final int patches = (size + AWD_PATCH_SIZE - 1) / AWD_PATCH_SIZE;
+
+		// -- Triangle geometry block body
+		final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+		final LittleEndianOutputStream block = new LittleEndianOutputStream(blockBytes);
+		writeVarString(block, "grid");
+		block.writeShort(patches * patches);
+		block.writeInt(0); // properties
+		for (int pz = 0; pz < patches; ++pz) {
+			for (int px = 0; px < patches; ++px) {
+				final int x0 = px * AWD_PATCH_SIZE;
+				final int z0 = pz * AWD_PATCH_SIZE;
+				final byte[] sub = writeAwdSubGeometry(x0, z0, Math.min(AWD_PATCH_SIZE, size - x0),
+						Math.min(AWD_PATCH_SIZE, size - z0));
+				block.writeInt(sub.length);
+				block.write(sub);
+				block.writeInt(0); // sub geometry user attributes
+			}
+		}
+		block.writeInt(0); // user attributes
+		block.close();
+
+		// -- Block header
+		final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(blockBytes.size() + 11);
+		final LittleEndianOutputStream body = new LittleEndianOutputStream(bodyBytes);
+		body.writeInt(1); // id
+		body.writeByte(0); // namespace
+		body.writeByte(1); // triangle geometry
+		body.writeByte(0); // flags
+		body.writeInt(blockBytes.size());
+		blockBytes.writeTo(body);
+		body.close();
+
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		switch (compression) {
+		case ZLIB:
+			final DeflaterOutputStream deflater = new DeflaterOutputStream(compressed, new Deflater(
+					Deflater.BEST_COMPRESSION));
+			bodyBytes.writeTo(deflater);
+			deflater.close();
+			break;
+		case LZMA:
+			LzmaEncoder.encode(bodyBytes.toByteArray(), compressed);
+			break;
+		default:
+			bodyBytes.writeTo(compressed);
+			break;
+		}
+
+		final LittleEndianOutputStream out = new LittleEndianOutputStream(open(file));
+		try {
+			// -- File header
+			out.writeBytes("AWD");
+			out.writeByte(2);
+			out.writeByte(1);
+			out.writeShort(0); // flags
+			out.writeByte(compression.ordinal());
+			out.writeInt(compressed.size());
+			compressed.writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static byte[] writeAwdSubGeometry(int x0, int z0, int columns, int rows) throws IOException {
+		final int stride = columns + 1;
+		final int vertices = stride * (rows + 1);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final LittleEndianOutputStream out = new LittleEndianOutputStream(bytes);
+		out.writeInt(0); // properties
+
+		out.writeByte(1); // positions
+		out.writeByte(7); // float32
+		out.writeInt(vertices * 12);
+		for (int z = 0; z <= rows; ++z)
+			for (int x = 0; x <= columns; ++x)
+				writeVertex(out, x0 + x, z0 + z);
+
+		out.writeByte(2); // indices
+		out.writeByte(5); // uint16
+		out.writeInt(columns * rows * 12);
+		for (int z = 0; z < rows; ++z) {
+			for (int x = 0; x < columns; ++x) {
+				final int a = z * stride + x;
+				out.writeShort(a);
+				out.writeShort(a + stride);
+				out.writeShort(a + 1);
+				out.writeShort(a + 1);
+				out.writeShort(a + stride);
+				out.writeShort(a + stride + 1);
+			}
+		}
+
+		out.writeByte(4); // normals
+		out.writeByte(7);
+		out.writeInt(vertices * 12);
+		for (int i = 0; i < vertices; ++i) {
+			out.writeFloat(0);
+			out.writeFloat(1);
+			out.writeFloat(0);
+		}
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes an FBX 6.1 ASCII file with one mesh made of quads, with normals per vertex and
+	 * indexed texture coordinates. Like exported files it contains header, definition and take
+	 * nodes which the loader skips, and it wraps long arrays onto lines which start with a comma.
+	 * 
+	 * @param file {@link File} The file to write.
+	 * @param triangles int The minimum number of triangles.
+	 * @throws IOException
+	 */
+	public static void writeFbx(File file, int triangles) throws IOException {
+		final int size = gridSize(triangles);
+		final int stride = size + 1;
+		final BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16);
+		try {
+			out.write("; FBX 6.1.0 project file\n\n");
+			out.write("FBXHeaderExtension:  {\n\tFBXHeaderVersion: 1003\n\tFBXVersion: 6100\n"
+					+ "\tCreationTimeStamp:  {\n\t\tVersion: 1000\n\t\tYear: 2013\n\t}\n}\n");
+			out.write("Definitions:  {\n\tVersion: 100\n\tCount: 2\n"
+					+ "\tObjectType: \"Model\" {\n\t\tCount: 1\n\t}\n}\n\n");
+			out.write("Objects:  {\n\tModel: \"Model::grid\", \"Mesh\" {\n\t\tVersion: 232\n");
+			out.write("\t\tProperties60:  {\n"
+					+ "\t\t\tProperty: \"Lcl Translation\", \"Lcl Translation\", \"A+\",0,0,0\n"
+					+ "\t\t\tProperty: \"Lcl Rotation\", \"Lcl Rotation\", \"A+\",0,0,0\n"
+					+ "\t\t\tProperty: \"Lcl Scaling\", \"Lcl Scaling\", \"A+\",1,1,1\n\t\t}\n");
+
+			FbxArrayWriter array = new FbxArrayWriter(out, "Vertices");
+			for (int z = 0; z <= size; ++z) {
+				for (int x = 0; x <= size; ++x) {
+					array.write(Integer.toString(x));
+					array.write(Float.toString(height(x, z)));
+					array.write(Integer.toString(z));
+				}
+			}
+			array = new FbxArrayWriter(out, "PolygonVertexIndex");
+			for (int z = 0; z < size; ++z) {
+				for (int x = 0; x < size; ++x) {
+					// -- The last corner of a polygon is written as -(index + 1)
+					final int a = z * stride + x;
+					array.write(Integer.toString(a));
+					array.write(Integer.toString(a + stride));
+					array.write(Integer.toString(a + stride + 1));
+					array.write(Integer.toString(-(a + 1) - 1));
+				}
+			}
+
+			// -- Normals are written per corner, as most exporters do
+			out.write("\n\t\tLayerElementNormal: 0 {\n\t\t\tVersion: 101\n\t\t\tName: \"\"\n"
+					+ "\t\t\tMappingInformationType: \"ByPolygonVertex\"\n\t\t\tReferenceInformationType: \"Direct\"\n");
+			array = new FbxArrayWriter(out, "\tNormals");
+			for (int i = size * size * 4; i > 0; --i) {
+				array.write("0");
+				array.write("1");
+				array.write("0");
+			}
+			out.write("\n\t\t}\n");
+
+			out.write("\t\tLayerElementUV: 0 {\n\t\t\tVersion: 101\n\t\t\tName: \"UVTex\"\n"
+					+ "\t\t\tMappingInformationType: \"ByPolygonVertex\"\n\t\t\tReferenceInformationType: \"IndexToDirect\"\n");
+			array = new FbxArrayWriter(out, "\tUV");
+			for (int z = 0; z <= size; ++z) {
+				for (int x = 0; x <= size; ++x) {
+					array.write(Float.toString((float) x / size));
+					array.write(Float.toString((float) z / size));
+				}
+			}
+			array = new FbxArrayWriter(out, "\tUVIndex");
+			for (int z = 0; z < size; ++z) {
+				for (int x = 0; x < size; ++x) {
+					final int a = z * stride + x;
+					array.write(Integer.toString(a));
+					array.write(Integer.toString(a + stride));
+					array.write(Integer.toString(a + stride + 1));
+					array.write(Integer.toString(a + 1));
+				}
+			}
+			out.write("\n\t\t}\n\t}\n}\n\n");
+
+			out.write("Connections:  {\n\tConnect: \"OO\", \"Model::grid\", \"Model::Scene\"\n}\n");
+			out.write("Takes:  {\n\tCurrent: \"\"\n\tTake: \"Default Take\" {\n"
+					+ "\t\tModel: \"Model::grid\" {\n\t\t\tVersion: 1.1\n\t\t}\n\t}\n}\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the values of an FBX array property, 16 values to a line.
+	 */
+	private static final class FbxArrayWriter {
+		private static final int VALUES_PER_LINE = 16;
+
+		private final BufferedWriter mOut;
+		private int mCount;
+
+		FbxArrayWriter(BufferedWriter out, String name) throws IOException {
+			mOut = out;
+			mOut.write("\n\t\t" + name + ": ");
+		}
+
+		void write(String value) throws IOException {
+			if (mCount > 0)
+				mOut.write(mCount % VALUES_PER_LINE == 0 ? "\n\t\t," : ",");
+			mOut.write(value);
+			++mCount;
+		}
+	}
+
+	private static void writeVarString(LittleEndianOutputStream out, String value) throws IOException {
+		out.writeShort(value.length());
+		out.writeBytes(value);
+	}
+
+	private static void writeVertex(LittleEndianOutputStream out, int x, int z) throws IOException {
+		out.writeFloat(x);
+		out.writeFloat(height(x, z));
+		out.writeFloat(z);
+	}
+
+	private static float height(int x, int z) {
+		return (float) (Math.sin(x * 0.1) * Math.cos(z * 0.1));
+	}
+
+	private static OutputStream open(File file) throws IOException {
+		return new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rajawali.Object3D;
+import rajawali.parser.LoaderAWD;
+import rajawali.parser.LoaderMeshCache;
+import rajawali.parser.LoaderOBJ;
+import rajawali.parser.LoaderSTL;
+import rajawali.parser.LoaderSTL.StlType;
+import rajawali.parser.ParsingException;
+import rajawali.util.exporter.MeshCacheExporter;
+
+/**
+ * Measures parsing models of the given size from disk. The files are generated by
+ * {@link MeshFiles} once per trial. Each invocation parses a whole file, so the runs are long
+ * and few.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class ParserBenchmark {
+	@Param({ "10000", "1000000" })
+	public int triangles;
+
+	private File mDirectory;
+	private File mObjFile;
+	private File mAsciiStlFile;
+	private File mBinaryStlFile;
+	private File mAwdFile;
+	private File mMeshCacheFile;
+
+	@Setup
+	public void setup() throws IOException, ParsingException {
+		mDirectory = File.createTempFile("rajawali-bench", "");
+		if (!mDirectory.delete() || !mDirectory.mkdir())
+			throw new IOException("Could not create " + mDirectory);
+
+		mObjFile = new File(mDirectory, "grid.obj");
+		mAsciiStlFile = new File(mDirectory, "grid_ascii.stl");
+		mBinaryStlFile = new File(mDirectory, "grid_binary.stl");
+		mAwdFile = new File(mDirectory, "grid.awd");
+		MeshFiles.writeObj(mObjFile, triangles);
+		MeshFiles.writeAsciiStl(mAsciiStlFile, triangles);
+		MeshFiles.writeBinaryStl(mBinaryStlFile, triangles);
+		MeshFiles.writeAwd(mAwdFile, triangles);
+
+		mMeshCacheFile = new File(mDirectory, "grid.rmc");
+		MeshCacheExporter.write(new LoaderOBJ(mObjFile).parse().getParsedObject(), mMeshCacheFile, null, null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		final File[] files = mDirectory.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		mDirectory.delete();
+	}
+
+	@Benchmark
+	public Object3D parseObj() throws ParsingException {
+		return new LoaderOBJ(mObjFile).parse().getParsedObject();
+	}
+
+	@Benchmark
+	public Object3D parseAsciiStl() throws ParsingException {
+		return new LoaderSTL(mAsciiStlFile).parse(StlType.ASCII).getParsedObject();
+	}
+
+	@Benchmark
+	public Object3D parseBinaryStl() throws ParsingException {
+		return new LoaderSTL(mBinaryStlFile).parse(StlType.BINARY).getParsedObject();
+	}
+
+	@Benchmark
+	public Object3D parseAwd() throws ParsingException {
+		return new LoaderAWD(mAwdFile).parse().getParsedObject();
+	}
+
+	@Benchmark
+	public Object3D parseAwdSequential() throws ParsingException {
+		final LoaderAWD loader = new LoaderAWD(mAwdFile);
+		loader.setParallelParsing(false);
+		return loader.parse().getParsedObject();
+	}
+
+	@Benchmark
+	public Object3D parseMeshCache() throws ParsingException {
+		return new LoaderMeshCache(mMeshCacheFile).parse().getParsedObject();
+	}
+}
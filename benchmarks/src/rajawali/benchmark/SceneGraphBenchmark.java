@@ -0,0 +1,168 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rajawali.Frustum;
+import rajawali.bounds.BoundingBox;
+import rajawali.bounds.IBoundingVolume;
+import rajawali.math.Matrix4;
+import rajawali.math.vector.Vector3;
+import rajawali.scenegraph.IGraphNode;
+import rajawali.scenegraph.IGraphNodeMember;
+import rajawali.scenegraph.Octree;
+
+/**
+ * Measures building, updating and culling an {@link Octree} holding moving objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneGraphBenchmark {
+	@Param({ "10000" })
+	public int objects;
+
+	private final Frustum mFrustum = new Frustum();
+	private final List<IGraphNodeMember> mVisible = new ArrayList<IGraphNodeMember>();
+	private final Random mRandom = new Random(42);
+	private Member[] mMembers;
+	private Octree mOctree;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final Matrix4 view = new Matrix4().setToLookAt(new Vector3(0, 20, 100), new Vector3(), Vector3.Y);
+		final Matrix4 viewProjection = new Matrix4().setToPerspective(1, 500, 45, 16.0 / 9.0).multiply(view);
+		mFrustum.update(viewProjection);
+
+		mMembers = new Member[objects];
+		for (int i = 0; i < objects; ++i) {
+			mMembers[i] = new Member(0.5 + mRandom.nextDouble() * 2);
+			mMembers[i].moveTo(mRandom.nextDouble() * 400 - 200, mRandom.nextDouble() * 100 - 50,
+					mRandom.nextDouble() * 400 - 300);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void buildOctree() {
+		mOctree = createOctree();
+	}
+
+	private Octree createOctree() {
+		final Octree octree = new Octree();
+		for (int i = 0; i < mMembers.length; ++i)
+			octree.addObject(mMembers[i]);
+		return octree;
+	}
+
+	/**
+	 * Inserts all objects into an empty octree.
+	 */
+	@Benchmark
+	public Octree build() {
+		return createOctree();
+	}
+
+	/**
+	 * Moves every object a little and updates its place in the octree, as the scene does for
+	 * objects which moved during a frame.
+	 */
+	@Benchmark
+	public Octree update() {
+		for (int i = 0; i < mMembers.length; ++i) {
+			final Member member = mMembers[i];
+			member.moveBy(mRandom.nextDouble() - 0.5, mRandom.nextDouble() - 0.5, mRandom.nextDouble() - 0.5);
+			mOctree.updateObject(member);
+		}
+		return mOctree;
+	}
+
+	/**
+	 * Collects the objects which intersect the frustum.
+	 */
+	@Benchmark
+	public int cull() {
+		mVisible.clear();
+		mOctree.cullFromFrustum(mFrustum, mVisible);
+		return mVisible.size();
+	}
+
+	/**
+	 * A graph member with nothing but a box and a position.
+	 */
+	private static final class Member implements IGraphNodeMember {
+		private final BoundingBox mBounds;
+		private final Matrix4 mModelMatrix = new Matrix4();
+		private final Vector3 mPosition = new Vector3();
+		private IGraphNode mGraphNode;
+		private boolean mInsideGraph;
+
+		Member(double size) {
+			final Vector3[] corners = new Vector3[8];
+			corners[0] = new Vector3(-size, -size, -size);
+			corners[1] = new Vector3(size, size, size);
+			mBounds = new BoundingBox(corners);
+			mBounds.calculatePoints();
+		}
+
+		void moveTo(double x, double y, double z) {
+			mPosition.setAll(x, y, z);
+			mModelMatrix.identity().translate(mPosition);
+			mBounds.transform(mModelMatrix);
+		}
+
+		void moveBy(double x, double y, double z) {
+			moveTo(mPosition.x + x, mPosition.y + y, mPosition.z + z);
+		}
+
+		public void setGraphNode(IGraphNode node, boolean inside) {
+			mGraphNode = node;
+			mInsideGraph = inside;
+		}
+
+		public IGraphNode getGraphNode() {
+			return mGraphNode;
+		}
+
+		public boolean isInGraph() {
+			return mInsideGraph;
+		}
+
+		public IBoundingVolume getTransformedBoundingVolume() {
+			return mBounds;
+		}
+
+		public Vector3 getScenePosition() {
+			return mPosition;
+		}
+	}
+}
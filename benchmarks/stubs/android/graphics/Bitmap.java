@@ -0,0 +1,61 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package android.graphics;
+
+/**
+ * Benchmark stub holding the pixels in an int array.
+ */
+public final class Bitmap {
+	public static enum Config {
+		ALPHA_8, RGB_565, ARGB_4444, ARGB_8888
+	}
+
+	private final int mWidth;
+	private final int mHeight;
+	private final Config mConfig;
+	private final int[] mPixels;
+
+	private Bitmap(int width, int height, Config config) {
+		mWidth = width;
+		mHeight = height;
+		mConfig = config;
+		mPixels = new int[width * height];
+	}
+
+	public static Bitmap createBitmap(int width, int height, Config config) {
+		return new Bitmap(width, height, config);
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	public int getHeight() {
+		return mHeight;
+	}
+
+	public Config getConfig() {
+		return mConfig;
+	}
+
+	public int getPixel(int x, int y) {
+		return mPixels[y * mWidth + x];
+	}
+
+	public void setPixel(int x, int y, int color) {
+		mPixels[y * mWidth + x] = color;
+	}
+
+	public void recycle() {
+	}
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package android.opengl;
+
+import java.nio.Buffer;
+
+/**
+ * Benchmark stub for the calls made while parsing a model and rendering a frame. There is no GL
+ * context, so the calls only hand out buffer, shader and program names, every shader compiles and
+ * links, programs have no active uniforms or attributes, and everything else does nothing.
+ * Queries for the capabilities of the context, which creating a material makes, return nothing.
+ * The constants are inlined at compile time and are not needed here, except for the status
+ * queries which have to succeed.
+ */
+public class GLES20 {
+	private static final int GL_COMPILE_STATUS = 0x8B81;
+	private static final int GL_LINK_STATUS = 0x8B82;
+	private static final int GL_TRUE = 1;
+
+	private static int sNextBuffer = 1;
+	private static int sNextObject = 1;
+
+	public static void glGenBuffers(int n, int[] buffers, int offset) {
+		for (int i = 0; i < n; ++i)
+			buffers[offset + i] = sNextBuffer++;
+	}
+
+	public static void glDeleteBuffers(int n, int[] buffers, int offset) {
+	}
+
+	public static boolean glIsBuffer(int buffer) {
+		return buffer > 0 && buffer < sNextBuffer;
+	}
+
+	public static void glBindBuffer(int target, int buffer) {
+	}
+
+	public static void glBufferData(int target, int size, Buffer data, int usage) {
+	}
+
+	public static void glBufferSubData(int target, int offset, int size, Buffer data) {
+	}
+
+	public static void glGetIntegerv(int pname, int[] params, int offset) {
+	}
+
+	public static String glGetString(int name) {
+		return null;
+	}
+
+	public static void glEnable(int cap) {
+	}
+
+	public static void glDisable(int cap) {
+	}
+
+	public static void glBlendFunc(int sfactor, int dfactor) {
+	}
+
+	public static void glDepthFunc(int func) {
+	}
+
+	public static void glDepthMask(boolean flag) {
+	}
+
+	public static void glCullFace(int mode) {
+	}
+
+	public static void glFrontFace(int mode) {
+	}
+
+	public static void glLineWidth(float width) {
+	}
+
+	public static void glViewport(int x, int y, int width, int height) {
+	}
+
+	public static void glBindFramebuffer(int target, int framebuffer) {
+	}
+
+	public static void glClearColor(float red, float green, float blue, float alpha) {
+	}
+
+	public static void glClearDepthf(float depth) {
+	}
+
+	public static void glClear(int mask) {
+	}
+
+	public static int glGetError() {
+		return 0;
+	}
+
+	public static void glActiveTexture(int texture) {
+	}
+
+	public static void glBindTexture(int target, int texture) {
+	}
+
+	public static int glCreateShader(int type) {
+		return sNextObject++;
+	}
+
+	public static void glShaderSource(int shader, String string) {
+	}
+
+	public static void glCompileShader(int shader) {
+	}
+
+	public static void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+		params[offset] = pname == GL_COMPILE_STATUS ? GL_TRUE : 0;
+	}
+
+	public static String glGetShaderInfoLog(int shader) {
+		return "";
+	}
+
+	public static void glDeleteShader(int shader) {
+	}
+
+	public static int glCreateProgram() {
+		return sNextObject++;
+	}
+
+	public static void glAttachShader(int program, int shader) {
+	}
+
+	public static void glLinkProgram(int program) {
+	}
+
+	public static void glGetProgramiv(int program, int pname, int[] params, int offset) {
+		params[offset] = pname == GL_LINK_STATUS ? GL_TRUE : 0;
+	}
+
+	public static String glGetProgramInfoLog(int program) {
+		return "";
+	}
+
+	public static void glDeleteProgram(int program) {
+	}
+
+	public static void glUseProgram(int program) {
+	}
+
+	public static void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset,
+			int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset) {
+	}
+
+	public static void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset,
+			int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset) {
+	}
+
+	public static int glGetUniformLocation(int program, String name) {
+		return -1;
+	}
+
+	public static int glGetAttribLocation(int program, String name) {
+		return -1;
+	}
+
+	public static void glUniform1i(int location, int x) {
+	}
+
+	public static void glUniform1f(int location, float x) {
+	}
+
+	public static void glUniform3f(int location, float x, float y, float z) {
+	}
+
+	public static void glUniform2fv(int location, int count, float[] v, int offset) {
+	}
+
+	public static void glUniform3fv(int location, int count, float[] v, int offset) {
+	}
+
+	public static void glUniform4fv(int location, int count, float[] v, int offset) {
+	}
+
+	public static void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset) {
+	}
+
+	public static void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+	}
+
+	public static void glEnableVertexAttribArray(int index) {
+	}
+
+	public static void glDisableVertexAttribArray(int index) {
+	}
+
+	public static void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset) {
+	}
+
+	public static void glDrawArrays(int mode, int first, int count) {
+	}
+
+	public static void glDrawElements(int mode, int count, int type, int offset) {
+	}
+}
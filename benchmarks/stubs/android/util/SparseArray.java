@@ -0,0 +1,65 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package android.util;
+
+import java.util.TreeMap;
+
+/**
+ * Benchmark stub backed by a {@link TreeMap}. Only implements the methods the parsers use.
+ */
+public class SparseArray<E> implements Cloneable {
+	private TreeMap<Integer, E> mMap = new TreeMap<Integer, E>();
+
+	public SparseArray() {
+	}
+
+	public SparseArray(int initialCapacity) {
+	}
+
+	public E get(int key) {
+		return mMap.get(key);
+	}
+
+	public E get(int key, E valueIfKeyNotFound) {
+		final E value = mMap.get(key);
+		return value == null ? valueIfKeyNotFound : value;
+	}
+
+	public void put(int key, E value) {
+		mMap.put(key, value);
+	}
+
+	public void append(int key, E value) {
+		mMap.put(key, value);
+	}
+
+	public void delete(int key) {
+		mMap.remove(key);
+	}
+
+	public void remove(int key) {
+		mMap.remove(key);
+	}
+
+	public int indexOfKey(int key) {
+		return mMap.containsKey(key) ? mMap.headMap(key).size() : -1;
+	}
+
+	public int size() {
+		return mMap.size();
+	}
+
+	public void clear() {
+		mMap.clear();
+	}
+}
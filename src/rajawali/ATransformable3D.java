@@ -38,6 +38,13 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	protected IGraphNode mGraphNode;
 	protected boolean mInsideGraph = false; //Default to being outside the graph
 	
+	/**
+	 * Incremented every time the position, rotation, scale or look at target of
+	 * this object changes. Compared against the version a cached matrix was built
+	 * from to decide if it needs to be rebuilt.
+	 */
+	protected long mTransformVersion = 0;
+	
 	public ATransformable3D() {
 		mPosition = new Vector3();
 		mRotation = new Vector3();
@@ -49,12 +56,34 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 		mRotationDirty = true;
 	}
 	
+	/**
+	 * Marks the transformation of this object as changed, causing any matrices derived
+	 * from it to be recalculated before they are next used. All of the setters of this
+	 * class call this automatically. It only needs to be called manually after modifying
+	 * the vectors returned by {@link #getPosition()}, {@link #getRotation()},
+	 * {@link #getScale()} or {@link #getLookAt()} directly.
+	 */
+	public void markModelMatrixDirty() {
+		++mTransformVersion;
+	}
+	
+	/**
+	 * Retrieves the current transformation version of this object.
+	 * 
+	 * @return long which changes every time the transformation of this object changes.
+	 */
+	public long getTransformVersion() {
+		return mTransformVersion;
+	}
+	
 	public void setPosition(Vector3 position) {
+		markModelMatrixDirty();
 		mPosition.setAll(position);
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
 
 	public void setPosition(double x, double y, double z) {
+		markModelMatrixDirty();
 		mPosition.setAll(x, y, z);
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
@@ -64,6 +93,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 	
 	public void setX(double x) {
+		markModelMatrixDirty();
 		mPosition.x = x;
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
@@ -73,6 +103,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setY(double y) {
+		markModelMatrixDirty();
 		mPosition.y = y;
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
@@ -82,6 +113,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setZ(double z) {
+		markModelMatrixDirty();
 		mPosition.z = z;
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
@@ -142,6 +174,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 	
  	public void rotateAround(Vector3 axis, double angle, boolean append) {
+ 		markModelMatrixDirty();
  		if(append) {
  			mTmpOrientation.fromAngleAxis(axis, angle);
  			mOrientation.multiply(mTmpOrientation);
@@ -159,12 +192,14 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 	
 	public void setOrientation(Quaternion quat) {
+		markModelMatrixDirty();
 		mOrientation.setAll(quat);
 		mRotationDirty = false;
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
 	
 	public void setRotation(double rotX, double rotY, double rotZ) {
+		markModelMatrixDirty();
 		mRotation.x = rotX;
 		mRotation.y = rotY;
 		mRotation.z = rotZ;
@@ -174,11 +209,13 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	
 	public void setRotation(double[] rotationMatrix)
 	{
+		markModelMatrixDirty();
 		//TODO: This will be fixed by issue #968
 		mOrientation.fromRotationMatrix(rotationMatrix);
 	}
 	
 	public void setRotX(double rotX) {
+		markModelMatrixDirty();
 		mRotation.x = rotX;
 		mRotationDirty = true;
 	}
@@ -188,6 +225,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setRotY(double rotY) {
+		markModelMatrixDirty();
 		mRotation.y = rotY;
 		mRotationDirty = true;
 	}
@@ -197,6 +235,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setRotZ(double rotZ) {
+		markModelMatrixDirty();
 		mRotation.z = rotZ;
 		mRotationDirty = true;
 	}
@@ -210,11 +249,13 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setRotation(Vector3 rotation) {
+		markModelMatrixDirty();
 		mRotation.setAll(rotation);
 		mRotationDirty = true;
 	}
 
 	public void setScale(double scale) {
+		markModelMatrixDirty();
 		mScale.x = scale;
 		mScale.y = scale;
 		mScale.z = scale;
@@ -222,6 +263,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setScale(double scaleX, double scaleY, double scaleZ) {
+		markModelMatrixDirty();
 		mScale.x = scaleX;
 		mScale.y = scaleY;
 		mScale.z = scaleZ;
@@ -229,6 +271,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setScaleX(double scaleX) {
+		markModelMatrixDirty();
 		mScale.x = scaleX;
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
@@ -238,6 +281,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setScaleY(double scaleY) {
+		markModelMatrixDirty();
 		mScale.y = scaleY;
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
@@ -247,6 +291,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setScaleZ(double scaleZ) {
+		markModelMatrixDirty();
 		mScale.z = scaleZ;
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
@@ -260,7 +305,8 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 
 	public void setScale(Vector3 scale) {
-		mScale = scale;
+		markModelMatrixDirty();
+		mScale.setAll(scale);
 		if (mGraphNode != null) mGraphNode.updateObject(this);
 	}
 
@@ -269,6 +315,7 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	}
 	
 	public void setLookAt(double x, double y, double z) {
+		markModelMatrixDirty();
 		if (mLookAt == null) mLookAt = new Vector3();
 		mLookAt.x = x;
 		mLookAt.y = y;
@@ -279,6 +326,8 @@ public abstract class ATransformable3D extends AFrameTask implements IGraphNodeM
 	public void setLookAt(Vector3 lookAt) {
 		if (lookAt == null) {
 			mLookAt = null;
+			mRotationDirty = true;
+			markModelMatrixDirty();
 			return;
 		}
 		setLookAt(lookAt.x,  lookAt.y, lookAt.z);
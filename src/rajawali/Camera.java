@@ -49,6 +49,9 @@ public class Camera extends ATransformable3D {
 	protected Vector3[] mFrustumCornersTransformed;
 	protected Matrix4 mMMatrix;	
 	protected Quaternion mLocalOrientation;
+	protected final Matrix4 mLastViewMatrix = new Matrix4();
+	protected final Matrix4 mLastVPMatrix = new Matrix4();
+	protected long mViewProjectionVersion = 0;
 	/**
 	 * End guarded members
 	 */
@@ -144,6 +147,36 @@ public class Camera extends ATransformable3D {
 		}
 	}
 	
+	/**
+	 * Records the view and view-projection matrices the current frame is rendered with. The
+	 * view-projection version is only advanced when they differ from the previous frame, which
+	 * allows renderables to keep their cached model-view(-projection) matrices while the camera
+	 * is static.
+	 * 
+	 * @param vMatrix {@link Matrix4} The view matrix.
+	 * @param vpMatrix {@link Matrix4} The view-projection matrix.
+	 */
+	public void updateViewProjectionVersion(Matrix4 vMatrix, Matrix4 vpMatrix) {
+		synchronized (mFrustumLock) {
+			if (mViewProjectionVersion == 0 || !mLastViewMatrix.equals(vMatrix) || !mLastVPMatrix.equals(vpMatrix)) {
+				mLastViewMatrix.setAll(vMatrix);
+				mLastVPMatrix.setAll(vpMatrix);
+				++mViewProjectionVersion;
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the view-projection version recorded by {@link #updateViewProjectionVersion(Matrix4, Matrix4)}.
+	 * 
+	 * @return long The version, or 0 if this camera has not been rendered with yet.
+	 */
+	public long getViewProjectionVersion() {
+		synchronized (mFrustumLock) {
+			return mViewProjectionVersion;
+		}
+	}
+	
 	public Frustum getFrustum() {
 		return mFrustum;
 	}
@@ -180,27 +213,7 @@ public class Camera extends ATransformable3D {
 	
 	public void setProjectionMatrix(double[] matrix){
 		synchronized(mFrustumLock){
-			mProjMatrix.setAll(new double[] {
-					matrix[0],
-					matrix[1],
-					matrix[2],
-					matrix[3],
-					
-					matrix[4],
-					matrix[5],
-					matrix[6],
-					matrix[7],
-					
-					matrix[8],
-					matrix[9],
-					matrix[10],
-					matrix[11],
-					
-					matrix[12],
-					matrix[13],
-					matrix[14],
-					matrix[15]
-			});
+			mProjMatrix.setAll(matrix);
 		}
 	}
 
@@ -22,6 +22,11 @@ import android.opengl.GLES20;
  *
  */
 public class Capabilities {
+	/**
+	 * GL_NUM_PROGRAM_BINARY_FORMATS_OES from the GL_OES_get_program_binary extension.
+	 */
+	public static final int GL_NUM_PROGRAM_BINARY_FORMATS_OES = 0x87FE;
+	
 	private static Capabilities instance = null;
 	
 	private int mMaxTextureSize;
@@ -40,6 +45,11 @@ public class Capabilities {
 	private int mMaxAliasedLineWidth;
 	private int mMinAliasedPointSize;
 	private int mMaxAliasedPointSize; 
+	private int mNumProgramBinaryFormats;
+	private String mVendor;
+	private String mRenderer;
+	private String mVersion;
+	private String mExtensions;
 	
 	private int[] mParam;
 	
@@ -48,10 +58,19 @@ public class Capabilities {
 		initialize();
 	}
 	
+	/**
+	 * Returns the capabilities of the current context. The first call queries the driver and must
+	 * be made on the GL thread, the renderer does so when the surface is created.
+	 * 
+	 * @throws IllegalStateException If the first call is made while a loader builds objects off
+	 * the GL thread, see {@link Geometry3D#isBufferCreationDeferred()}.
+	 */
 	public static Capabilities getInstance()
 	{
 		if(instance == null)
 		{
+			if(Geometry3D.isBufferCreationDeferred())
+				throw new IllegalStateException("Capabilities must be queried on the GL thread before loading.");
 			instance = new Capabilities();
 		}
 		return instance;
@@ -77,6 +96,12 @@ public class Capabilities {
 		mMaxAliasedLineWidth = getInt(GLES20.GL_ALIASED_LINE_WIDTH_RANGE, 2, 1);
 		mMinAliasedPointSize = getInt(GLES20.GL_ALIASED_POINT_SIZE_RANGE, 2, 0);
 		mMaxAliasedPointSize = getInt(GLES20.GL_ALIASED_POINT_SIZE_RANGE, 2, 1);
+		mVendor = getString(GLES20.GL_VENDOR);
+		mRenderer = getString(GLES20.GL_RENDERER);
+		mVersion = getString(GLES20.GL_VERSION);
+		mExtensions = getString(GLES20.GL_EXTENSIONS);
+		// Only query extension enums when the extension is present, otherwise the driver raises GL_INVALID_ENUM
+		mNumProgramBinaryFormats = hasExtension("GL_OES_get_program_binary") ? getInt(GL_NUM_PROGRAM_BINARY_FORMATS_OES) : 0;
 	}
 	
 	private int getInt(int pname)
@@ -85,6 +110,12 @@ public class Capabilities {
 		return mParam[0];
 	}
 	
+	private String getString(int name)
+	{
+		String value = GLES20.glGetString(name);
+		return value == null ? "" : value;
+	}
+	
 	private int getInt(int pname, int length, int index)
 	{
 		int[] params = new int[length];
@@ -240,6 +271,71 @@ public class Capabilities {
 		return mMaxAliasedPointSize;
 	}
 	
+	/**
+	 * The company responsible for the GL implementation.
+	 * @return
+	 */
+	public String getVendor()
+	{
+		return mVendor;
+	}
+	
+	/**
+	 * The name of the renderer, typically the GPU model.
+	 * @return
+	 */
+	public String getRenderer()
+	{
+		return mRenderer;
+	}
+	
+	/**
+	 * The version string of the GL implementation. This usually includes the driver version.
+	 * @return
+	 */
+	public String getVersion()
+	{
+		return mVersion;
+	}
+	
+	/**
+	 * Checks if the GL implementation supports an extension.
+	 * @param extension The extension name, for instance GL_OES_get_program_binary
+	 * @return
+	 */
+	public boolean hasExtension(String extension)
+	{
+		int index = mExtensions.indexOf(extension);
+		while (index >= 0) {
+			int end = index + extension.length();
+			if ((index == 0 || mExtensions.charAt(index - 1) == ' ')
+					&& (end == mExtensions.length() || mExtensions.charAt(end) == ' '))
+				return true;
+			index = mExtensions.indexOf(extension, end);
+		}
+		return false;
+	}
+	
+	/**
+	 * The number of program binary formats the driver can save and load. Zero when
+	 * GL_OES_get_program_binary isn't supported.
+	 * @return
+	 */
+	public int getNumProgramBinaryFormats()
+	{
+		return mNumProgramBinaryFormats;
+	}
+	
+	/**
+	 * Identifies the GPU and driver. Program binaries may only be loaded by the driver that
+	 * saved them, so this is used to tell whether cached binaries are still usable.
+	 * @return
+	 */
+	public String getDriverFingerprint()
+	{
+		return mVendor + "|" + mRenderer + "|" + mVersion;
+	}
+	
 	public String toString()
 	{
 		StringBuffer sb = new StringBuffer();
@@ -260,6 +356,10 @@ public class Capabilities {
 		sb.append("Max Aliased Line Width             : ").append(mMaxAliasedLineWidth).append("\n");
 		sb.append("Min Aliased Point Size             : ").append(mMinAliasedPointSize).append("\n");
 		sb.append("Max Aliased Point Width            : ").append(mMaxAliasedPointSize).append("\n");
+		sb.append("Program Binary Formats             : ").append(mNumProgramBinaryFormats).append("\n");
+		sb.append("Vendor                             : ").append(mVendor).append("\n");
+		sb.append("Renderer                           : ").append(mRenderer).append("\n");
+		sb.append("Version                            : ").append(mVersion).append("\n");
 		sb.append("-=-=-=- /OpenGL Capabilities -=-=-=-\n");
 		return sb.toString();
 	}
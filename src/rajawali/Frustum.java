@@ -18,6 +18,19 @@ import rajawali.math.Plane;
 import rajawali.math.vector.Vector3;
 
 public class Frustum {
+	/**
+	 * Result of {@link #classifyBounds(Vector3, Vector3)} when the bounds lie completely outside the frustum.
+	 */
+	public static final int OUTSIDE = 0;
+	/**
+	 * Result of {@link #classifyBounds(Vector3, Vector3)} when the bounds straddle at least one frustum plane.
+	 */
+	public static final int INTERSECTS = 1;
+	/**
+	 * Result of {@link #classifyBounds(Vector3, Vector3)} when the bounds lie completely inside the frustum.
+	 */
+	public static final int INSIDE = 2;
+
 	private final Plane[] mPlanes;
 	private Vector3 mPoint1;
 	private Vector3 mPoint2;
@@ -86,4 +99,35 @@ public class Frustum {
 		}
 		return true;
 	}
+
+	/**
+	 * Classifies an axis aligned box against the frustum planes. Unlike {@link #boundsInFrustum(BoundingBox)}
+	 * this distinguishes between boxes which are fully contained and boxes which only intersect the frustum,
+	 * allowing hierarchical culling to skip testing the contents of fully contained volumes.
+	 * 
+	 * @param min {@link Vector3} The minimum corner of the box, in world space.
+	 * @param max {@link Vector3} The maximum corner of the box, in world space.
+	 * @return int One of {@link #OUTSIDE}, {@link #INTERSECTS} or {@link #INSIDE}.
+	 */
+	public int classifyBounds(Vector3 min, Vector3 max) {
+		int result = INSIDE;
+		for(int i=0; i<6; i++) {
+			Plane p = mPlanes[i];
+			Vector3 n = p.getNormal();
+			// -- the corner furthest along the plane normal
+			double px = n.x > 0 ? max.x : min.x;
+			double py = n.y > 0 ? max.y : min.y;
+			double pz = n.z > 0 ? max.z : min.z;
+			if (n.x * px + n.y * py + n.z * pz + p.getD() < 0)
+				return OUTSIDE;
+			// -- the corner furthest against the plane normal
+			double nx = n.x > 0 ? min.x : max.x;
+			double ny = n.y > 0 ? min.y : max.y;
+			double nz = n.z > 0 ? min.z : max.z;
+			if (n.x * nx + n.y * ny + n.z * nz + p.getD() < 0)
+				result = INTERSECTS;
+		}
+
+		return result;
+	}
 }
@@ -19,13 +19,18 @@ import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import rajawali.animation.mesh.VertexAnimationObject3D;
 import rajawali.bounds.BoundingBox;
 import rajawali.bounds.BoundingSphere;
 import rajawali.math.vector.Vector3;
+import rajawali.renderer.GLStateManager;
 import rajawali.renderer.RajawaliRenderer;
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Counter;
 import rajawali.util.RajLog;
 import android.graphics.Color;
 import android.opengl.GLES20;
@@ -149,6 +154,17 @@ public class Geometry3D {
 	 * Indicates whether this geometry contains texture coordinates or not.
 	 */
 	protected boolean mHasTextureCoordinates;
+	/**
+	 * The buffers which were created while buffer creation was deferred and
+	 * which still have to be uploaded on the GL thread.
+	 * @see #beginDeferredBufferCreation()
+	 */
+	protected List<BufferInfo> mPendingBuffers;
+	/**
+	 * The geometries with pending buffers of the current thread, or null when
+	 * buffers are created right away.
+	 */
+	private static final ThreadLocal<List<Geometry3D>> sDeferredGeometries = new ThreadLocal<List<Geometry3D>>();
 	
 	public enum BufferType {
 		FLOAT_BUFFER,
@@ -455,6 +471,42 @@ public class Geometry3D {
 		createBuffers();
 	}
 	
+	/**
+	 * Uses the given buffers as they are instead of copying them, for instance buffers which
+	 * are memory mapped from a mesh cache file. The buffers have to be direct, in native byte
+	 * order and contain nothing but their data. No OpenGL buffers are created, call
+	 * {@link #createBuffers()} or {@link #createVertexAndNormalBuffersOnly()} afterwards.
+	 * 
+	 * @param vertices
+	 * @param normals May be null.
+	 * @param textureCoords May be null.
+	 * @param colors May be null.
+	 * @param indices An IntBuffer or a ShortBuffer. May be null.
+	 * @see rajawali.parser.LoaderMeshCache
+	 */
+	public void setBuffers(FloatBuffer vertices, FloatBuffer normals, FloatBuffer textureCoords,
+			FloatBuffer colors, Buffer indices) {
+		mVertices = vertices;
+		mNumVertices = vertices.capacity() / 3;
+		mNormals = normals;
+		mHasNormals = normals != null;
+		mTextureCoords = textureCoords;
+		mHasTextureCoordinates = textureCoords != null;
+		mColors = colors;
+		mIndicesInt = null;
+		mIndicesShort = null;
+		mNumIndices = 0;
+		if(indices instanceof ShortBuffer) {
+			mIndicesShort = (ShortBuffer) indices;
+			mOnlyShortBufferSupported = true;
+		} else if(indices != null) {
+			mIndicesInt = (IntBuffer) indices;
+		}
+		if(indices != null)
+			mNumIndices = indices.capacity();
+		mOriginalGeometry = null;
+	}
+	
 	/**
 	 * Creates the actual Buffer objects. 
 	 */
@@ -462,23 +514,23 @@ public class Geometry3D {
 		boolean supportsUIntBuffers = RajawaliRenderer.supportsUIntBuffers;
 		
 		if(mVertices != null) {
-			mVertices.compact().position(0);
+			compact(mVertices);
 			createBuffer(mVertexBufferInfo, BufferType.FLOAT_BUFFER, mVertices, GLES20.GL_ARRAY_BUFFER);
 		}
 		if(mNormals != null) {
-			mNormals.compact().position(0);
+			compact(mNormals);
 			createBuffer(mNormalBufferInfo, BufferType.FLOAT_BUFFER, mNormals, GLES20.GL_ARRAY_BUFFER);
 		}
 		if(mTextureCoords != null) {
-			mTextureCoords.compact().position(0);
+			compact(mTextureCoords);
 			createBuffer(mTexCoordBufferInfo, BufferType.FLOAT_BUFFER, mTextureCoords, GLES20.GL_ARRAY_BUFFER);
 		}
 		if(mColors != null) {
-			mColors.compact().position(0);
+			compact(mColors);
 			createBuffer(mColorBufferInfo, BufferType.FLOAT_BUFFER, mColors, GLES20.GL_ARRAY_BUFFER);
 		}
 		if(mIndicesInt != null && !mOnlyShortBufferSupported && supportsUIntBuffers) {
-			mIndicesInt.compact().position(0);
+			compact(mIndicesInt);
 			createBuffer(mIndexBufferInfo, BufferType.INT_BUFFER, mIndicesInt, GLES20.GL_ELEMENT_ARRAY_BUFFER);
 		}
 		
@@ -505,13 +557,39 @@ public class Geometry3D {
 				mIndicesInt = null;
 			}
 			if(mIndicesShort != null) {
-				mIndicesShort.compact().position(0);
+				compact(mIndicesShort);
 				createBuffer(mIndexBufferInfo, BufferType.SHORT_BUFFER, mIndicesShort, GLES20.GL_ELEMENT_ARRAY_BUFFER);
 			}
 		}
 
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		unbindBuffers();
+	}
+	
+	/**
+	 * Moves the remaining data of a buffer to its start and rewinds it. Unlike
+	 * compact() alone, a buffer whose data already starts at zero is left
+	 * untouched, so that read only and memory mapped buffers are not written to.
+	 * 
+	 * @param buffer
+	 */
+	private static void compact(Buffer buffer) {
+		if(buffer.position() != 0) {
+			if(buffer instanceof FloatBuffer)
+				((FloatBuffer) buffer).compact();
+			else if(buffer instanceof IntBuffer)
+				((IntBuffer) buffer).compact();
+			else if(buffer instanceof ShortBuffer)
+				((ShortBuffer) buffer).compact();
+		} else {
+			buffer.limit(buffer.capacity());
+		}
+		buffer.position(0);
+	}
+	
+	private void unbindBuffers() {
+		if(sDeferredGeometries.get() != null) return;
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 	}
 	
 	/**
@@ -536,6 +614,7 @@ public class Geometry3D {
 	 * @return
 	 */
 	public boolean isValid() {
+		if(isBufferCreationDeferred()) return false;
 		return GLES20.glIsBuffer(mVertexBufferInfo.bufferHandle);
 	}
 	
@@ -546,14 +625,13 @@ public class Geometry3D {
 	 * @see VertexAnimationObject3D
 	 */
 	public void createVertexAndNormalBuffersOnly() {
-		mVertices.compact().position(0);
-		mNormals.compact().position(0);
+		compact(mVertices);
+		compact(mNormals);
 		
 		createBuffer(mVertexBufferInfo, BufferType.FLOAT_BUFFER, mVertices, GLES20.GL_ARRAY_BUFFER);
 		createBuffer(mNormalBufferInfo, BufferType.FLOAT_BUFFER, mNormals, GLES20.GL_ARRAY_BUFFER);
 
-		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		unbindBuffers();
 	}
 	
 	/**
@@ -578,17 +656,39 @@ public class Geometry3D {
 	 * @param usage
 	 */
 	public void createBuffer(BufferInfo bufferInfo, BufferType type, Buffer buffer, int target, int usage) {
-		int buff[] = new int[1];
-		GLES20.glGenBuffers(1, buff, 0);
-		int handle = buff[0];
 		int byteSize = FLOAT_SIZE_BYTES;
 		if(type == BufferType.SHORT_BUFFER)
 			byteSize = SHORT_SIZE_BYTES;
 		
+		List<Geometry3D> deferred = sDeferredGeometries.get();
+		if(deferred != null) {
+			bufferInfo.buffer = buffer;
+			bufferInfo.bufferHandle = 0;
+			bufferInfo.bufferType = type;
+			bufferInfo.target = target;
+			bufferInfo.byteSize = byteSize;
+			bufferInfo.usage = usage;
+			if(mPendingBuffers == null)
+				mPendingBuffers = new ArrayList<BufferInfo>();
+			if(!mPendingBuffers.contains(bufferInfo))
+				mPendingBuffers.add(bufferInfo);
+			if(!deferred.contains(this))
+				deferred.add(this);
+			return;
+		}
+		if(mPendingBuffers != null)
+			mPendingBuffers.remove(bufferInfo);
+		
+		int buff[] = new int[1];
+		GLES20.glGenBuffers(1, buff, 0);
+		int handle = buff[0];
+		GLStateManager.getInstance().invalidateBuffer(handle);
+		
 		buffer.rewind();
-		GLES20.glBindBuffer(target, handle);
+		GLStateManager.getInstance().bindBuffer(target, handle);
 		GLES20.glBufferData(target, buffer.limit() * byteSize, buffer, usage);
-		GLES20.glBindBuffer(target, 0);
+		FrameProfiler.getInstance().count(Counter.BUFFER_UPLOADS);
+		GLStateManager.getInstance().bindBuffer(target, 0);
 		
 		bufferInfo.buffer = buffer;
 		bufferInfo.bufferHandle = handle;
@@ -602,6 +702,103 @@ public class Geometry3D {
 		createBuffer(bufferInfo, bufferInfo.bufferType, bufferInfo.buffer, bufferInfo.target, bufferInfo.usage);
 	}
 	
+	/**
+	 * Defers the creation of all buffers on the calling thread until
+	 * {@link #endDeferredBufferCreation()} is called. In the meantime geometries only
+	 * prepare their buffers without making any OpenGL calls, which allows models to be
+	 * parsed on a thread other than the GL thread. The buffers are uploaded later on
+	 * the GL thread with {@link #uploadPendingBuffer()}.
+	 */
+	public static void beginDeferredBufferCreation() {
+		sDeferredGeometries.set(new ArrayList<Geometry3D>());
+	}
+	
+	/**
+	 * Stops deferring the creation of buffers on the calling thread.
+	 * 
+	 * @return The geometries whose buffers were deferred since {@link #beginDeferredBufferCreation()}
+	 * was called, in the order in which they were created.
+	 */
+	public static List<Geometry3D> endDeferredBufferCreation() {
+		List<Geometry3D> deferred = sDeferredGeometries.get();
+		sDeferredGeometries.remove();
+		return deferred == null ? new ArrayList<Geometry3D>() : deferred;
+	}
+	
+	/**
+	 * Hands over geometries whose buffers were deferred on another thread. If buffer creation
+	 * is deferred on the calling thread the geometries are added to its deferred geometries,
+	 * otherwise their buffers are created right away.
+	 * 
+	 * @param geometries The geometries returned by {@link #endDeferredBufferCreation()}.
+	 */
+	public static void deferBufferCreation(List<Geometry3D> geometries) {
+		List<Geometry3D> deferred = sDeferredGeometries.get();
+		for(int i=0; i<geometries.size(); ++i) {
+			Geometry3D geometry = geometries.get(i);
+			if(deferred != null) {
+				if(!deferred.contains(geometry))
+					deferred.add(geometry);
+			} else {
+				while(geometry.getNumPendingBuffers() > 0)
+					geometry.uploadPendingBuffer();
+			}
+		}
+	}
+	
+	/**
+	 * Indicates whether buffer creation is currently deferred on the calling thread.
+	 * 
+	 * @return
+	 */
+	public static boolean isBufferCreationDeferred() {
+		return sDeferredGeometries.get() != null;
+	}
+	
+	/**
+	 * Checks whether a GL call on a buffer has to be skipped because buffer creation is deferred
+	 * on the calling thread. Such a buffer is still pending, and its upload picks up the changes
+	 * made to its client side copy. A buffer which was uploaded already can only be changed on the
+	 * GL thread, so calls on it fail instead of silently running without a GL context.
+	 * 
+	 * @param bufferInfo The buffer which is about to be changed. May be null.
+	 * @return True if the GL call must be skipped.
+	 * @throws IllegalStateException if the buffer was uploaded already.
+	 */
+	private static boolean deferBufferCall(BufferInfo bufferInfo) {
+		if(!isBufferCreationDeferred()) return false;
+		if(bufferInfo != null && bufferInfo.bufferHandle != 0)
+			throw new IllegalStateException("Buffer " + bufferInfo.bufferHandle
+					+ " was uploaded already and can only be changed on the GL thread.");
+		return true;
+	}
+	
+	/**
+	 * Returns the number of buffers which still have to be uploaded on the GL thread.
+	 * 
+	 * @return
+	 */
+	public int getNumPendingBuffers() {
+		return mPendingBuffers == null ? 0 : mPendingBuffers.size();
+	}
+	
+	/**
+	 * Uploads the next buffer which was created while buffer creation was deferred.
+	 * Must be called on the GL thread.
+	 * 
+	 * @return The size of the uploaded buffer in bytes, or 0 if there was nothing to upload.
+	 */
+	public int uploadPendingBuffer() {
+		if(mPendingBuffers == null || mPendingBuffers.size() == 0) return 0;
+		BufferInfo bufferInfo = mPendingBuffers.get(0);
+		if(bufferInfo.buffer == null) {
+			mPendingBuffers.remove(0);
+			return 0;
+		}
+		createBuffer(bufferInfo);
+		return bufferInfo.buffer.limit() * bufferInfo.byteSize;
+	}
+	
 	public void validateBuffers() {
 		if(mOriginalGeometry != null) return;
 		if(mVertexBufferInfo != null && mVertexBufferInfo.bufferHandle == 0)
@@ -653,6 +850,10 @@ public class Geometry3D {
 	 * @param usage
 	 */
 	public void changeBufferUsage(BufferInfo bufferInfo, final int usage) {
+		if(deferBufferCall(bufferInfo)) {
+			bufferInfo.usage = usage;
+			return;
+		}
 		GLES20.glDeleteBuffers(1, new int[] { bufferInfo.bufferHandle }, 0);
 		createBuffer(bufferInfo, bufferInfo.bufferType, bufferInfo.buffer, bufferInfo.target);
 	}
@@ -677,10 +878,22 @@ public class Geometry3D {
 	 * @param length
 	 */
 	public void changeBufferData(BufferInfo bufferInfo, Buffer newData, int index, int length) {
+		if(deferBufferCall(bufferInfo)) {
+			// The pending upload sends the client side copy, so the new data goes there
+			if(newData != bufferInfo.buffer && bufferInfo.buffer != null) {
+				FloatBuffer source = ((FloatBuffer) newData).duplicate();
+				source.position(0).limit(length);
+				FloatBuffer target = ((FloatBuffer) bufferInfo.buffer).duplicate();
+				target.position(index);
+				target.put(source);
+			}
+			return;
+		}
 		newData.rewind();
-	    GLES20.glBindBuffer(bufferInfo.target, bufferInfo.bufferHandle);
+	    GLStateManager.getInstance().bindBuffer(bufferInfo.target, bufferInfo.bufferHandle);
 	    GLES20.glBufferSubData(bufferInfo.target, index * bufferInfo.byteSize, length * FLOAT_SIZE_BYTES, newData);
-	    GLES20.glBindBuffer(bufferInfo.target, 0);
+	    FrameProfiler.getInstance().count(Counter.BUFFER_UPLOADS);
+	    GLStateManager.getInstance().bindBuffer(bufferInfo.target, 0);
 	}
 
 	public void setVertices(float[] vertices) {
@@ -849,11 +1062,16 @@ public class Geometry3D {
 		
 		if(createNewBuffer == true) {
 			createBuffer(mColorBufferInfo, BufferType.FLOAT_BUFFER, mColors, GLES20.GL_ARRAY_BUFFER);
+		} else if(deferBufferCall(mColorBufferInfo)) {
+			// The colors were changed in place and are uploaded with the pending buffer
+			return;
 		} else {
-			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mColorBufferInfo.bufferHandle);
+			GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, mColorBufferInfo.bufferHandle);
 			GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mColors.limit() * FLOAT_SIZE_BYTES, mColors, GLES20.GL_STATIC_DRAW);
+			FrameProfiler.getInstance().count(Counter.BUFFER_UPLOADS);
 		}
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		if(!isBufferCreationDeferred())
+			GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 	}
 	
 	public String toString() {
@@ -879,7 +1097,15 @@ public class Geometry3D {
 	    if(mNormalBufferInfo != null) buffers[2] = mNormalBufferInfo.bufferHandle;
 	    if(mTexCoordBufferInfo != null) buffers[3] = mTexCoordBufferInfo.bufferHandle;
 	    if(mColorBufferInfo != null) buffers[4] = mColorBufferInfo.bufferHandle;
-	    GLES20.glDeleteBuffers(buffers.length, buffers, 0);
+	    if(isBufferCreationDeferred()) {
+	    	// Pending buffers were never created and are dropped by the upload once their data is gone
+	    	for(int i=0; i<buffers.length; ++i)
+	    		if(buffers[i] != 0)
+	    			throw new IllegalStateException("Buffer " + buffers[i]
+	    					+ " was uploaded already and can only be deleted on the GL thread.");
+	    } else {
+	    	GLES20.glDeleteBuffers(buffers.length, buffers, 0);
+	    }
 
 	    if(mVertices != null) mVertices.clear();
 	    if(mNormals != null) mNormals.clear();
@@ -926,6 +1152,16 @@ public class Geometry3D {
 		return mBoundingBox;
 	}
 
+	/**
+	 * Sets a bounding box which was calculated beforehand, so that it does not have to be
+	 * calculated from the vertices.
+	 * 
+	 * @param boundingBox
+	 */
+	public void setBoundingBox(BoundingBox boundingBox) {
+		mBoundingBox = boundingBox;
+	}
+	
 	public boolean hasBoundingSphere() {
 		return mBoundingSphere != null;
 	}
@@ -990,6 +1226,17 @@ public class Geometry3D {
 		return mOnlyShortBufferSupported;
 	}
 	
+	/**
+	 * Stores the indices as 16 bit values, even if the device supports 32 bit indices. This
+	 * halves the size of the index buffer. Has to be called before the data is set, and all
+	 * indices have to be smaller than 65536.
+	 * 
+	 * @param onlyShortBuffers boolean True to store the indices as 16 bit values.
+	 */
+	public void setOnlyShortBuffersSupported(boolean onlyShortBuffers) {
+		mOnlyShortBufferSupported = onlyShortBuffers;
+	}
+	
 	public int getNumTriangles() {
 		return mVertices != null ? mVertices.limit() / 9 : 0;
 	}
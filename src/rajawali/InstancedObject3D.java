@@ -0,0 +1,531 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import rajawali.Geometry3D.BufferType;
+import rajawali.bounds.BoundingBox;
+import rajawali.materials.Material;
+import rajawali.materials.plugins.InstancingMaterialPlugin;
+import rajawali.math.Matrix4;
+import rajawali.math.Quaternion;
+import rajawali.math.vector.Vector3;
+import rajawali.renderer.GLStateManager;
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Counter;
+import android.graphics.Color;
+import android.opengl.GLES20;
+
+/**
+ * Draws thousands of copies of one geometry, each with its own transformation and color,
+ * using a handful of draw calls instead of one draw call per object.
+ * <p>
+ * The geometry is replicated {@link #getInstancesPerDraw()} times into a single vertex and
+ * index buffer, with every vertex tagged with the index of its copy. Each draw call uploads
+ * the matrices and colors of up to that many instances into uniform arrays and draws as many
+ * copies as there are instances left. The number of copies per draw call is limited by the
+ * number of vertex uniform vectors the GPU supports and by the 16 bit index range.
+ * <p>
+ * Instances are culled against the camera frustum one by one, using the bounding sphere of
+ * the geometry. Visible instances are compacted before they are uploaded, so culled instances
+ * cost neither uniform space nor vertex processing. The bounding box of the object encloses all
+ * instances, so the scene graph and the frustum test of the object cull the whole batch only
+ * when none of the instances can be visible.
+ *
+ * <pre><code>
+ * InstancedObject3D trees = new InstancedObject3D(tree.getGeometry(), 64);
+ * trees.setMaterial(treeMaterial);
+ * for (int i = 0; i < 5000; ++i) {
+ * 		int index = trees.addInstance();
+ * 		trees.setInstanceTransform(index, positions[i], orientations[i], scales[i]);
+ * }
+ * getCurrentScene().addChild(trees);
+ * </code></pre>
+ *
+ * Instance transformations are relative to this object, so moving the object moves all instances.
+ */
+public class InstancedObject3D extends Object3D {
+	/**
+	 * Vertex uniform vectors kept free for the material's own uniforms, such as the
+	 * matrices, the color and the lights.
+	 */
+	public static final int RESERVED_UNIFORM_VECTORS = 64;
+	/**
+	 * A matrix and a color take up five uniform vectors.
+	 */
+	public static final int UNIFORM_VECTORS_PER_INSTANCE = 5;
+	private static final int MAX_SHORT_INDEX = 65535;
+	private static final int MATRIX_SIZE = 16;
+	private static final int COLOR_SIZE = 4;
+
+	private final int mInstancesPerDraw;
+	private final int mNumIndicesPerInstance;
+	private final Vector3 mInstanceCenter = new Vector3();
+	private final double mInstanceRadius;
+	private final InstancingMaterialPlugin mInstancingPlugin;
+	private final BufferInfo mInstanceIndexBufferInfo = new BufferInfo();
+	private FloatBuffer mInstanceIndices;
+
+	private float[] mMatrices = new float[MATRIX_SIZE * 16];
+	private float[] mColors = new float[COLOR_SIZE * 16];
+	private float[] mVisibleMatrices = new float[0];
+	private float[] mVisibleColors = new float[0];
+	private int mNumInstances;
+	private int mNumVisibleInstances;
+	private int mNumDrawCalls;
+	private boolean mInstanceCulling = true;
+	private final BoundingBox mInstanceBounds = new BoundingBox();
+	private boolean mInstanceBoundsDirty;
+
+	private final Matrix4 mTmpMatrix = new Matrix4();
+	private final Vector3 mTmpVector = new Vector3();
+
+	/**
+	 * Creates an instanced object using as many copies per draw call as the GPU allows.
+	 * Must be called on the GL thread.
+	 *
+	 * @param geometry {@link Geometry3D} The geometry to draw copies of.
+	 */
+	public InstancedObject3D(Geometry3D geometry) {
+		this(geometry, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates an instanced object. Must be called on the GL thread.
+	 *
+	 * @param geometry {@link Geometry3D} The geometry to draw copies of.
+	 * @param maxInstancesPerDraw int The maximum number of copies per draw call. This is lowered
+	 * if the GPU doesn't have enough vertex uniform vectors, or if the copies would need more than
+	 * 65536 vertices.
+	 */
+	public InstancedObject3D(Geometry3D geometry, int maxInstancesPerDraw) {
+		super();
+		final float[] vertices = Geometry3D.getFloatArrayFromBuffer(geometry.getVertices());
+		final float[] normals = geometry.hasNormals() ? Geometry3D.getFloatArrayFromBuffer(geometry.getNormals()) : null;
+		final float[] textureCoords = geometry.hasTextureCoordinates() ? Geometry3D.getFloatArrayFromBuffer(geometry
+				.getTextureCoords()) : null;
+		final float[] colors = geometry.getColors() != null ? Geometry3D.getFloatArrayFromBuffer(geometry.getColors())
+				: null;
+		final int[] indices = Geometry3D.getIntArrayFromBuffer(geometry.getIndices());
+		final int numVertices = vertices.length / 3;
+
+		final int maxByUniforms = (Capabilities.getInstance().getMaxVertexUniformVectors() - RESERVED_UNIFORM_VECTORS)
+				/ UNIFORM_VECTORS_PER_INSTANCE;
+		final int maxByIndices = (MAX_SHORT_INDEX + 1) / Math.max(numVertices, 1);
+		mInstancesPerDraw = Math.max(1, Math.min(maxInstancesPerDraw, Math.min(maxByUniforms, maxByIndices)));
+		mNumIndicesPerInstance = indices.length;
+		mInstanceRadius = calculateInstanceBounds(vertices, mInstanceCenter);
+
+		final int count = mInstancesPerDraw;
+		final float[] instanceIndices = new float[numVertices * count];
+		final int[] allIndices = new int[indices.length * count];
+		for (int i = 0; i < count; ++i) {
+			Arrays.fill(instanceIndices, i * numVertices, (i + 1) * numVertices, i);
+			final int indexOffset = i * indices.length;
+			final int vertexOffset = i * numVertices;
+			for (int j = 0; j < indices.length; ++j)
+				allIndices[indexOffset + j] = indices[j] + vertexOffset;
+		}
+		setData(repeat(vertices, count), repeat(normals, count), repeat(textureCoords, count), repeat(colors, count),
+				allIndices);
+
+		mInstanceIndices = ByteBuffer.allocateDirect(instanceIndices.length * Geometry3D.FLOAT_SIZE_BYTES)
+				.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		mInstanceIndices.put(instanceIndices).position(0);
+		mGeometry.createBuffer(mInstanceIndexBufferInfo, BufferType.FLOAT_BUFFER, mInstanceIndices,
+				GLES20.GL_ARRAY_BUFFER);
+		mGeometry.setBoundingBox(mInstanceBounds);
+		updateInstanceBounds();
+
+		mInstancingPlugin = new InstancingMaterialPlugin(mInstancesPerDraw);
+	}
+
+	private static float[] repeat(float[] values, int count) {
+		if (values == null) return null;
+		final float[] repeated = new float[values.length * count];
+		for (int i = 0; i < count; ++i)
+			System.arraycopy(values, 0, repeated, i * values.length, values.length);
+		return repeated;
+	}
+
+	/**
+	 * Sets the material and adds the instancing plugin to it. The material should not be
+	 * shared with objects which aren't instanced.
+	 */
+	@Override
+	public void setMaterial(Material material) {
+		if (material == null) return;
+		material.addPlugin(mInstancingPlugin);
+		super.setMaterial(material);
+	}
+
+	/**
+	 * Adds an instance with an identity transformation and a white color.
+	 *
+	 * @return int The index of the new instance.
+	 */
+	public int addInstance() {
+		if (mNumInstances * MATRIX_SIZE == mMatrices.length) {
+			mMatrices = Arrays.copyOf(mMatrices, mMatrices.length * 2);
+			mColors = Arrays.copyOf(mColors, mColors.length * 2);
+		}
+		final int index = mNumInstances++;
+		final int offset = index * MATRIX_SIZE;
+		Arrays.fill(mMatrices, offset, offset + MATRIX_SIZE, 0);
+		mMatrices[offset] = mMatrices[offset + 5] = mMatrices[offset + 10] = mMatrices[offset + 15] = 1;
+		Arrays.fill(mColors, index * COLOR_SIZE, (index + 1) * COLOR_SIZE, 1);
+		expandInstanceBounds(index);
+		return index;
+	}
+
+	/**
+	 * Adds an instance at the given position.
+	 *
+	 * @param position {@link Vector3} The position relative to this object.
+	 * @return int The index of the new instance.
+	 */
+	public int addInstance(Vector3 position) {
+		final int index = addInstance();
+		final int offset = index * MATRIX_SIZE;
+		mMatrices[offset + 12] = (float) position.x;
+		mMatrices[offset + 13] = (float) position.y;
+		mMatrices[offset + 14] = (float) position.z;
+		expandInstanceBounds(index);
+		return index;
+	}
+
+	/**
+	 * Removes an instance. The last instance takes over the index of the removed one.
+	 *
+	 * @param index int The index of the instance to remove.
+	 */
+	public void removeInstance(int index) {
+		checkIndex(index);
+		final int last = --mNumInstances;
+		if (index != last) {
+			System.arraycopy(mMatrices, last * MATRIX_SIZE, mMatrices, index * MATRIX_SIZE, MATRIX_SIZE);
+			System.arraycopy(mColors, last * COLOR_SIZE, mColors, index * COLOR_SIZE, COLOR_SIZE);
+		}
+		mInstanceBoundsDirty = true;
+	}
+
+	/**
+	 * Removes all instances.
+	 */
+	public void clearInstances() {
+		mNumInstances = 0;
+		mInstanceBoundsDirty = true;
+	}
+
+	public int getNumInstances() {
+		return mNumInstances;
+	}
+
+	/**
+	 * Sets the transformation of an instance. Like {@link Object3D}, the instance is scaled,
+	 * then rotated and then translated.
+	 *
+	 * @param index int The index of the instance.
+	 * @param position {@link Vector3} The position relative to this object.
+	 * @param orientation {@link Quaternion} The orientation.
+	 * @param scale {@link Vector3} The scale.
+	 */
+	public void setInstanceTransform(int index, Vector3 position, Quaternion orientation, Vector3 scale) {
+		setInstanceMatrix(index, mTmpMatrix.setToTRS(position, orientation, scale));
+	}
+
+	/**
+	 * Sets the transformation matrix of an instance.
+	 *
+	 * @param index int The index of the instance.
+	 * @param matrix {@link Matrix4} The matrix, relative to this object.
+	 */
+	public void setInstanceMatrix(int index, Matrix4 matrix) {
+		checkIndex(index);
+		final double[] values = matrix.getDoubleValues();
+		final int offset = index * MATRIX_SIZE;
+		for (int i = 0; i < MATRIX_SIZE; ++i)
+			mMatrices[offset + i] = (float) values[i];
+		// -- the previous placement may have been the outermost one, so tighten the bounds later
+		mInstanceBoundsDirty = true;
+		expandInstanceBounds(index);
+	}
+
+	/**
+	 * Sets the color of an instance. It is multiplied with the color of the material.
+	 *
+	 * @param index int The index of the instance.
+	 * @param color int The color as 0xaarrggbb.
+	 */
+	public void setInstanceColor(int index, int color) {
+		checkIndex(index);
+		final int offset = index * COLOR_SIZE;
+		mColors[offset] = Color.red(color) / 255f;
+		mColors[offset + 1] = Color.green(color) / 255f;
+		mColors[offset + 2] = Color.blue(color) / 255f;
+		mColors[offset + 3] = Color.alpha(color) / 255f;
+	}
+
+	/**
+	 * Enables or disables the frustum test of the whole object and of each instance. The per
+	 * instance test is enabled by default.
+	 */
+	@Override
+	public void setFrustumTest(boolean value) {
+		super.setFrustumTest(value);
+		mInstanceCulling = value;
+	}
+
+	/**
+	 * Retrieve the number of copies which are drawn with a single draw call.
+	 *
+	 * @return int The number of copies per draw call.
+	 */
+	public int getInstancesPerDraw() {
+		return mInstancesPerDraw;
+	}
+
+	/**
+	 * Retrieve the number of instances which passed the frustum test in the last frame.
+	 *
+	 * @return int The visible instance count.
+	 */
+	public int getNumVisibleInstances() {
+		return mNumVisibleInstances;
+	}
+
+	/**
+	 * Retrieve the number of draw calls which were issued in the last frame.
+	 *
+	 * @return int The draw call count.
+	 */
+	public int getNumDrawCalls() {
+		return mNumDrawCalls;
+	}
+
+	@Override
+	protected void preRender() {
+		super.preRender();
+		if (mInstanceBoundsDirty)
+			updateInstanceBounds();
+	}
+
+	@Override
+	protected void setShaderParams(Camera camera) {
+		super.setShaderParams(camera);
+		mInstancingPlugin.setInstanceIndices(mInstanceIndexBufferInfo.bufferHandle);
+	}
+
+	@Override
+	protected void drawElements(Camera camera, Material material) {
+		float[] matrices = mMatrices;
+		float[] colors = mColors;
+		if (mInstanceCulling) {
+			cullInstances(camera);
+			matrices = mVisibleMatrices;
+			colors = mVisibleColors;
+		} else {
+			mNumVisibleInstances = mNumInstances;
+		}
+
+		mNumDrawCalls = 0;
+		if (mNumVisibleInstances == 0) return;
+
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER,
+				mGeometry.getIndexBufferInfo().bufferHandle);
+		final FrameProfiler profiler = FrameProfiler.getInstance();
+		for (int first = 0; first < mNumVisibleInstances; first += mInstancesPerDraw) {
+			final int count = Math.min(mInstancesPerDraw, mNumVisibleInstances - first);
+			mInstancingPlugin.setInstanceMatrices(matrices, first, count);
+			mInstancingPlugin.setInstanceColors(colors, first, count);
+			GLES20.glDrawElements(mDrawingMode, count * mNumIndicesPerInstance, mElementsBufferType, 0);
+			++mNumDrawCalls;
+			profiler.count(Counter.DRAW_CALLS);
+			if (mDrawingMode == GLES20.GL_TRIANGLES)
+				profiler.count(Counter.TRIANGLES, count * mNumIndicesPerInstance / 3);
+		}
+	}
+
+	/**
+	 * Copies the matrices and colors of all instances whose bounding sphere intersects
+	 * the camera frustum into the visible instance arrays.
+	 */
+	private void cullInstances(Camera camera) {
+		if (mVisibleMatrices.length < mNumInstances * MATRIX_SIZE) {
+			mVisibleMatrices = new float[mMatrices.length];
+			mVisibleColors = new float[mColors.length];
+		}
+
+		final Frustum frustum = camera.getFrustum();
+		final double[] m = mMMatrix.getDoubleValues();
+		mMMatrix.getScaling(mTmpVector);
+		final double objectScale = Math.max(mTmpVector.x, Math.max(mTmpVector.y, mTmpVector.z));
+
+		final double cx = mInstanceCenter.x, cy = mInstanceCenter.y, cz = mInstanceCenter.z;
+
+		int numVisible = 0;
+		for (int i = 0; i < mNumInstances; ++i) {
+			final int offset = i * MATRIX_SIZE;
+			final float[] im = mMatrices;
+			// -- The center of the bounding sphere in object space, then in world space
+			final double x = im[offset] * cx + im[offset + 4] * cy + im[offset + 8] * cz + im[offset + 12];
+			final double y = im[offset + 1] * cx + im[offset + 5] * cy + im[offset + 9] * cz + im[offset + 13];
+			final double z = im[offset + 2] * cx + im[offset + 6] * cy + im[offset + 10] * cz + im[offset + 14];
+			mTmpVector.x = m[Matrix4.M00] * x + m[Matrix4.M01] * y + m[Matrix4.M02] * z + m[Matrix4.M03];
+			mTmpVector.y = m[Matrix4.M10] * x + m[Matrix4.M11] * y + m[Matrix4.M12] * z + m[Matrix4.M13];
+			mTmpVector.z = m[Matrix4.M20] * x + m[Matrix4.M21] * y + m[Matrix4.M22] * z + m[Matrix4.M23];
+			final double instanceScale = getInstanceScale(im, offset);
+			if (!frustum.sphereInFrustum(mTmpVector, mInstanceRadius * instanceScale * objectScale))
+				continue;
+			System.arraycopy(mMatrices, offset, mVisibleMatrices, numVisible * MATRIX_SIZE, MATRIX_SIZE);
+			System.arraycopy(mColors, i * COLOR_SIZE, mVisibleColors, numVisible * COLOR_SIZE, COLOR_SIZE);
+			++numVisible;
+		}
+		mNumVisibleInstances = numVisible;
+	}
+
+	/**
+	 * Recalculates the bounding box of the object so it tightly encloses the bounding spheres
+	 * of all instances, and lets the scene graph know the bounds changed.
+	 */
+	private void updateInstanceBounds() {
+		final Vector3 min = mInstanceBounds.getMin();
+		final Vector3 max = mInstanceBounds.getMax();
+		if (mNumInstances == 0) {
+			min.setAll(0, 0, 0);
+			max.setAll(0, 0, 0);
+		} else {
+			min.setAll(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+			max.setAll(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+			for (int i = 0; i < mNumInstances; ++i)
+				includeInstance(i, min, max);
+		}
+		mInstanceBounds.calculatePoints();
+		mInstanceBoundsDirty = false;
+		if (mGraphNode != null) mGraphNode.updateObject(this);
+	}
+
+	/**
+	 * Grows the bounding box of the object to enclose an instance which was added or moved. The
+	 * box is only ever grown here, which keeps every change O(1) while adding instances.
+	 *
+	 * @param index int The index of the instance.
+	 */
+	private void expandInstanceBounds(int index) {
+		final Vector3 min = mInstanceBounds.getMin();
+		final Vector3 max = mInstanceBounds.getMax();
+		if (mNumInstances == 1) {
+			min.setAll(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+			max.setAll(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+		}
+		if (!includeInstance(index, min, max)) return;
+		mInstanceBounds.calculatePoints();
+		if (mGraphNode != null) mGraphNode.updateObject(this);
+	}
+
+	/**
+	 * Grows a box to enclose the bounding sphere of an instance.
+	 *
+	 * @return boolean True if the box grew.
+	 */
+	private boolean includeInstance(int index, Vector3 min, Vector3 max) {
+		final int offset = index * MATRIX_SIZE;
+		final float[] im = mMatrices;
+		final double cx = mInstanceCenter.x, cy = mInstanceCenter.y, cz = mInstanceCenter.z;
+		final double x = im[offset] * cx + im[offset + 4] * cy + im[offset + 8] * cz + im[offset + 12];
+		final double y = im[offset + 1] * cx + im[offset + 5] * cy + im[offset + 9] * cz + im[offset + 13];
+		final double z = im[offset + 2] * cx + im[offset + 6] * cy + im[offset + 10] * cz + im[offset + 14];
+		final double r = mInstanceRadius * getInstanceScale(im, offset);
+		boolean grew = false;
+		if (x - r < min.x) { min.x = x - r; grew = true; }
+		if (y - r < min.y) { min.y = y - r; grew = true; }
+		if (z - r < min.z) { min.z = z - r; grew = true; }
+		if (x + r > max.x) { max.x = x + r; grew = true; }
+		if (y + r > max.y) { max.y = y + r; grew = true; }
+		if (z + r > max.z) { max.z = z + r; grew = true; }
+		return grew;
+	}
+
+	/**
+	 * Retrieve the largest scale factor of an instance matrix.
+	 */
+	private static double getInstanceScale(float[] im, int offset) {
+		return Math.sqrt(Math.max(
+				im[offset] * im[offset] + im[offset + 1] * im[offset + 1] + im[offset + 2] * im[offset + 2],
+				Math.max(im[offset + 4] * im[offset + 4] + im[offset + 5] * im[offset + 5] + im[offset + 6]
+						* im[offset + 6], im[offset + 8] * im[offset + 8] + im[offset + 9] * im[offset + 9]
+						+ im[offset + 10] * im[offset + 10])));
+	}
+
+	/**
+	 * Calculates a bounding sphere of the geometry around the center of its bounding box. The
+	 * bounding sphere of the geometry itself is centered on the origin, which is loose for
+	 * geometry that is not.
+	 *
+	 * @param vertices float[] The vertex positions.
+	 * @param center {@link Vector3} Receives the center of the sphere.
+	 * @return double The radius of the sphere.
+	 */
+	private static double calculateInstanceBounds(float[] vertices, Vector3 center) {
+		if (vertices.length < 3) {
+			center.setAll(0, 0, 0);
+			return 0;
+		}
+		double minX = vertices[0], minY = vertices[1], minZ = vertices[2];
+		double maxX = minX, maxY = minY, maxZ = minZ;
+		for (int i = 3; i < vertices.length; i += 3) {
+			minX = Math.min(minX, vertices[i]);
+			minY = Math.min(minY, vertices[i + 1]);
+			minZ = Math.min(minZ, vertices[i + 2]);
+			maxX = Math.max(maxX, vertices[i]);
+			maxY = Math.max(maxY, vertices[i + 1]);
+			maxZ = Math.max(maxZ, vertices[i + 2]);
+		}
+		center.setAll((minX + maxX) * 0.5, (minY + maxY) * 0.5, (minZ + maxZ) * 0.5);
+
+		double maxDistanceSquared = 0;
+		for (int i = 0; i < vertices.length; i += 3) {
+			final double dx = vertices[i] - center.x, dy = vertices[i + 1] - center.y, dz = vertices[i + 2]
+					- center.z;
+			maxDistanceSquared = Math.max(maxDistanceSquared, dx * dx + dy * dy + dz * dz);
+		}
+		return Math.sqrt(maxDistanceSquared);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= mNumInstances)
+			throw new IndexOutOfBoundsException("Instance " + index + " doesn't exist. There are " + mNumInstances
+					+ " instances.");
+	}
+
+	@Override
+	public void reload() {
+		super.reload();
+		mGeometry.createBuffer(mInstanceIndexBufferInfo, BufferType.FLOAT_BUFFER, mInstanceIndices,
+				GLES20.GL_ARRAY_BUFFER);
+	}
+
+	@Override
+	public void destroy() {
+		GLES20.glDeleteBuffers(1, new int[] { mInstanceIndexBufferInfo.bufferHandle }, 0);
+		if (mInstanceIndices != null)
+			mInstanceIndices.clear();
+		mInstanceIndices = null;
+		mInstanceIndexBufferInfo.buffer = null;
+		super.destroy();
+	}
+}
@@ -12,12 +12,14 @@
  */
 package rajawali;
 
+import java.nio.Buffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import rajawali.bounds.BoundingBox;
 import rajawali.bounds.IBoundingVolume;
@@ -29,6 +31,10 @@ import rajawali.math.Matrix;
 import rajawali.math.Matrix4;
 import rajawali.math.vector.Vector3;
 import rajawali.renderer.AFrameTask;
+import rajawali.renderer.GLStateManager;
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Counter;
+import rajawali.renderer.profiling.FrameProfiler.Stage;
 import rajawali.util.GLU;
 import rajawali.util.RajLog;
 import rajawali.visitors.INode;
@@ -49,6 +55,7 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 	protected final Matrix4 mMVMatrix = new Matrix4();
 	protected Matrix4 mPMatrix;
 	protected Matrix4 mParentMatrix;
+	//The look at rotation. Only up to date while a look at target is set.
 	protected final Matrix4 mRotationMatrix = new Matrix4();
 
 	protected float[] mColor;
@@ -89,6 +96,34 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 	protected boolean mEnableDepthTest = true;
 	protected boolean mEnableDepthMask = true;
 
+	/**
+	 * Source of the world versions handed out whenever a model matrix is rebuilt. 
+	 * Zero is never handed out and stands for "no parent".
+	 */
+	private static final AtomicLong sWorldVersions = new AtomicLong();
+	/**
+	 * Changes every time {@link #mMMatrix} is rebuilt. Children compare it
+	 * against the version their own model matrix was built from.
+	 */
+	protected long mWorldVersion;
+	/**
+	 * The world version of the parent, as set by the parent right before rendering this object.
+	 */
+	protected long mParentWorldVersion;
+	/**
+	 * The state {@link #mMMatrix} was last built from.
+	 */
+	protected long mModelMatrixVersion = -1;
+	protected long mModelMatrixParentVersion = -1;
+	protected Matrix4 mModelMatrixParent;
+	/**
+	 * The state {@link #mMVMatrix} and {@link #mMVPMatrix} were last built from.
+	 */
+	protected long mMVPMatrixWorldVersion = -1;
+	protected long mMVPMatrixViewVersion = -1;
+	protected Camera mMVPMatrixCamera;
+	protected Matrix4 mMVPMatrixSource;
+
 	public Object3D() {
 		super();
 		mChildren = Collections.synchronizedList(new CopyOnWriteArrayList<Object3D>());
@@ -176,6 +211,34 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		setData(ser.getVertices(), ser.getNormals(), ser.getTextureCoords(), ser.getColors(), ser.getIndices());
 	}
 
+	/**
+	 * Passes buffers to the Geometry3D instance which are used without being copied, for
+	 * instance buffers which are memory mapped from a mesh cache. Vertex Buffer Objects (VBOs)
+	 * will be created.
+	 * 
+	 * @param vertices
+	 *            A direct buffer containing vertex data
+	 * @param normals
+	 *            A direct buffer containing normal data. May be null.
+	 * @param textureCoords
+	 *            A direct buffer containing texture coordinates. May be null.
+	 * @param colors
+	 *            A direct buffer containing color values (rgba). May be null.
+	 * @param indices
+	 *            A direct IntBuffer or ShortBuffer containing face indices
+	 * @see rajawali.parser.LoaderMeshCache
+	 */
+	public void setData(FloatBuffer vertices, FloatBuffer normals, FloatBuffer textureCoords, FloatBuffer colors,
+			Buffer indices) {
+		mGeometry.setBuffers(vertices, normals, textureCoords, colors, indices);
+		if (textureCoords == null)
+			mGeometry.setTextureCoords(new float[mGeometry.getNumVertices() * 2]);
+		mGeometry.createBuffers();
+		mIsContainerOnly = false;
+		mElementsBufferType = mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT
+				: GLES20.GL_UNSIGNED_INT;
+	}
+
 	public void setData(float[] vertices, int verticesUsage, float[] normals, int normalsUsage, float[] textureCoords,
 			int textureCoordsUsage,
 			float[] colors, int colorsUsage, int[] indices, int indicesUsage) {
@@ -193,15 +256,48 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		mGeometry.validateBuffers();
 	}
 	
+	/**
+	 * Calculates the model matrix of this object. The matrix is only rebuilt if the
+	 * transformation of this object or the world matrix of its parent changed since
+	 * it was last calculated.
+	 * 
+	 * @param parentMatrix {@link Matrix4} This object's parent matrix. May be null.
+	 */
 	public void calculateModelMatrix(final Matrix4 parentMatrix) {
+		final long parentVersion = parentMatrix == null ? 0 : mParentWorldVersion;
+		if (mModelMatrixVersion == mTransformVersion && mModelMatrixParentVersion == parentVersion
+				&& mModelMatrixParent == parentMatrix)
+			return;
 		setOrientation();
-		if (mLookAt == null) {
-			mOrientation.toRotationMatrix(mRotationMatrix);
-		} else {
-			mRotationMatrix.setAll(mLookAtMatrix);
-		}
-		mMMatrix.identity().translate(mPosition).scale(mScale).multiply(mRotationMatrix);
-		if (parentMatrix != null) mMMatrix.leftMultiply(mParentMatrix);
+		if (mLookAt != null) mRotationMatrix.setAll(mLookAtMatrix);
+		composeModelMatrix();
+		if (parentMatrix != null) mMMatrix.leftMultiplyAffine(parentMatrix);
+		mModelMatrixVersion = mTransformVersion;
+		mModelMatrixParentVersion = parentVersion;
+		mModelMatrixParent = parentMatrix;
+		mWorldVersion = sWorldVersions.incrementAndGet();
+	}
+
+	/**
+	 * Builds the local model matrix from the position, scale and orientation.
+	 * Subclasses which need a different composition should override this rather than
+	 * {@link #calculateModelMatrix(Matrix4)} so the result is still cached.
+	 */
+	protected void composeModelMatrix() {
+		composeModelMatrix(mScale);
+	}
+
+	/**
+	 * Builds the local model matrix from the position, the provided scale and the orientation,
+	 * or the look at rotation when a look at target is set.
+	 * 
+	 * @param scale {@link Vector3} The scale to use.
+	 */
+	protected void composeModelMatrix(Vector3 scale) {
+		if (mLookAt == null)
+			mMMatrix.setToTRS(mPosition, mOrientation, scale);
+		else
+			mMMatrix.setToTRS(mPosition, mRotationMatrix, scale);
 	}
 
 	/**
@@ -237,14 +333,27 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 
 		preRender();
 
+		final FrameProfiler profiler = FrameProfiler.getInstance();
+		profiler.begin(Stage.TRANSFORMS);
 		mParentMatrix = parentMatrix;
 		// -- move view matrix transformation first
 		calculateModelMatrix(parentMatrix);
-		// -- calculate model view matrix;
-		mMVMatrix.setAll(vMatrix).multiply(mMMatrix);
-		//Create MVP Matrix from View-Projection Matrix
-		mMVPMatrix.setAll(vpMatrix).multiply(mMMatrix);
+		// -- the model view (projection) matrices only change with the model matrix or the camera
+		final long viewVersion = camera.getViewProjectionVersion();
+		if (viewVersion == 0 || mMVPMatrixViewVersion != viewVersion || mMVPMatrixCamera != camera
+				|| mMVPMatrixWorldVersion != mWorldVersion || mMVPMatrixSource != vpMatrix) {
+			// -- calculate model view matrix;
+			mMVMatrix.setAll(vMatrix).multiply(mMMatrix);
+			//Create MVP Matrix from View-Projection Matrix
+			mMVPMatrix.setAll(vpMatrix).multiply(mMMatrix);
+			mMVPMatrixViewVersion = viewVersion;
+			mMVPMatrixCamera = camera;
+			mMVPMatrixSource = vpMatrix;
+			mMVPMatrixWorldVersion = mWorldVersion;
+		}
+		profiler.end(Stage.TRANSFORMS);
 
+		profiler.begin(Stage.CULLING);
 		mIsInFrustum = true; // only if mFrustrumTest == true it check frustum
 		if (mFrustumTest && mGeometry.hasBoundingBox()) {
 			BoundingBox bbox = mGeometry.getBoundingBox();
@@ -253,31 +362,31 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 				mIsInFrustum = false;
 			}
 		}
+		profiler.end(Stage.CULLING);
 
 		if (!mIsContainerOnly && mIsInFrustum) {
 			mPMatrix = projMatrix;
+			final GLStateManager glState = GLStateManager.getInstance();
 			if (mDoubleSided) {
-				GLES20.glDisable(GLES20.GL_CULL_FACE);
+				glState.disable(GLES20.GL_CULL_FACE);
 			} else {
-				GLES20.glEnable(GLES20.GL_CULL_FACE);
-			     if (mBackSided) {
-			          GLES20.glCullFace(GLES20.GL_FRONT);
-			     } else {
-			          GLES20.glCullFace(GLES20.GL_BACK);
-			          GLES20.glFrontFace(GLES20.GL_CCW);
-			     }
+				glState.enable(GLES20.GL_CULL_FACE);
+				glState.cullFace(mBackSided ? GLES20.GL_FRONT : GLES20.GL_BACK);
+				glState.frontFace(GLES20.GL_CCW);
 			}
 			if (mEnableBlending) {
-				GLES20.glEnable(GLES20.GL_BLEND);
-				GLES20.glBlendFunc(mBlendFuncSFactor, mBlendFuncDFactor);
+				glState.enable(GLES20.GL_BLEND);
+				glState.blendFunc(mBlendFuncSFactor, mBlendFuncDFactor);
+			} else {
+				glState.disable(GLES20.GL_BLEND);
 			}
-			if (!mEnableDepthTest) GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+			if (!mEnableDepthTest) glState.disable(GLES20.GL_DEPTH_TEST);
 			else {
-				GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-				GLES20.glDepthFunc(GLES20.GL_LESS);
+				glState.enable(GLES20.GL_DEPTH_TEST);
+				glState.depthFunc(GLES20.GL_LESS);
 			}
 			
-			GLES20.glDepthMask(mEnableDepthMask);
+			glState.depthMask(mEnableDepthMask);
 
 			if (!mIsPartOfBatch) {				
 				if (material == null) {
@@ -304,36 +413,19 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 			if(mOverrideMaterialColor)
 				material.setColor(mColor);
 
-			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
 			material.setMVPMatrix(mMVPMatrix);
 			material.setModelMatrix(mMMatrix);
 			material.setModelViewMatrix(mMVMatrix);
 
-			if(mIsVisible) {
-				GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
-				GLES20.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), mElementsBufferType,	0);
-				GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-			}
+			if(mIsVisible)
+				drawElements(camera, material);
 			if (!mIsPartOfBatch && !mRenderChildrenAsBatch && sceneMaterial == null) {
 				material.unbindTextures();
 			}
 			
 			material.unsetCurrentObject(this);
-			
-			if (mEnableBlending) {
-				GLES20.glDisable(GLES20.GL_BLEND);
-			}
-			
-			if (mDoubleSided) {
-				GLES20.glEnable(GLES20.GL_CULL_FACE);
-			} else if (mBackSided) {
-				GLES20.glCullFace(GLES20.GL_BACK);
-			}
-			if (!mEnableDepthTest) {
-				GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-				GLES20.glDepthFunc(GLES20.GL_LESS);
-			}
+			// Blend, cull and depth state is left as is. The next object sets the state
+			// it needs through the GLStateManager so unchanged state is not toggled.
 		}
 
 		if (mShowBoundingVolume) {
@@ -348,6 +440,7 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 			Object3D child = mChildren.get(i);
 			if(mRenderChildrenAsBatch || mIsPartOfBatch)
 				child.setPartOfBatch(true);
+			child.mParentWorldVersion = mWorldVersion;
 			child.render(camera, vpMatrix, projMatrix, vMatrix, mMMatrix, sceneMaterial);
 		}
 
@@ -356,6 +449,23 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		}
 	}
 
+	/**
+	 * Issues the draw call for this object's geometry. The program, vertex attributes and
+	 * matrices have been set up when this is called. Subclasses can override this to draw
+	 * the geometry more than once.
+	 * 
+	 * @param camera {@link Camera} The camera the object is drawn with.
+	 * @param material {@link Material} The material the object is drawn with.
+	 */
+	protected void drawElements(Camera camera, Material material) {
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mGeometry.getIndexBufferInfo().bufferHandle);
+		GLES20.glDrawElements(mDrawingMode, mGeometry.getNumIndices(), mElementsBufferType, 0);
+		final FrameProfiler profiler = FrameProfiler.getInstance();
+		profiler.count(Counter.DRAW_CALLS);
+		if (mDrawingMode == GLES20.GL_TRIANGLES)
+			profiler.count(Counter.TRIANGLES, mGeometry.getNumIndices() / 3);
+	}
+
 	/**
 	 * This is where the parameters for the shaders are set. It is called every frame.
 	 * 
@@ -487,12 +597,16 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 		if(child.getParent() != null)
 			child.getParent().removeChild(child);
 		mChildren.add(child);
+		child.mParent = this;
 		if (mRenderChildrenAsBatch)
 			child.setPartOfBatch(true);
 	}
 
 	public boolean removeChild(Object3D child) {
-		return mChildren.remove(child);
+		final boolean removed = mChildren.remove(child);
+		if (removed && child.mParent == this)
+			child.mParent = null;
+		return removed;
 	}
 	
 	public Object3D getParent()
@@ -759,8 +873,18 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 	
 	public Vector3 getWorldPosition() {
 		if(mParentMatrix == null) return mPosition;
-		Vector3 worldPos = mPosition.clone();
-		worldPos.multiply(mParentMatrix);
+		return getWorldPosition(new Vector3());
+	}
+	
+	/**
+	 * Sets the provided {@link Vector3} to the position of this object in world space.
+	 * 
+	 * @param worldPos {@link Vector3} to store the result in.
+	 * @return {@link Vector3} The world position.
+	 */
+	public Vector3 getWorldPosition(Vector3 worldPos) {
+		worldPos.setAll(mPosition);
+		if(mParentMatrix != null) worldPos.multiply(mParentMatrix);
 		return worldPos;
 	}
 	
@@ -819,10 +943,25 @@ public class Object3D extends ATransformable3D implements Comparable<Object3D>,
 	public IBoundingVolume getTransformedBoundingVolume() {
 		IBoundingVolume volume = null;
 		volume = mGeometry.getBoundingBox();
-		calculateModelMatrix(null);
+		calculateWorldMatrix();
 		volume.transform(mMMatrix);
 		return volume;
 	}
+
+	/**
+	 * Brings the model matrix up to date outside of the render pass, including the world
+	 * matrices of all ancestors. The same parent matrices are used as when rendering, so
+	 * the cached matrices stay valid.
+	 */
+	protected void calculateWorldMatrix() {
+		if (mParent == null) {
+			calculateModelMatrix(null);
+			return;
+		}
+		mParent.calculateWorldMatrix();
+		mParentWorldVersion = mParent.mWorldVersion;
+		calculateModelMatrix(mParent.mMMatrix);
+	}
 	
 	@Override
 	public TYPE getFrameTaskType() {
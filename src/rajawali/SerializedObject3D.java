@@ -14,6 +14,14 @@ package rajawali;
 
 import java.io.Serializable;
 
+/**
+ * Geometry data which is written and read with Java serialization.
+ * 
+ * @deprecated Java serialization copies every array several times and is slow on Android. Use
+ *             the binary mesh cache instead, see {@link rajawali.util.exporter.MeshCacheExporter}
+ *             and {@link rajawali.parser.LoaderMeshCache}.
+ */
+@Deprecated
 public class SerializedObject3D implements Serializable {
 	private static final long serialVersionUID = 5264861128471177349L;
 
@@ -0,0 +1,404 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import rajawali.materials.Material;
+import rajawali.math.Matrix4;
+import rajawali.renderer.RajawaliRenderer;
+import rajawali.util.RajLog;
+import android.opengl.GLES20;
+
+/**
+ * Merges the meshes of a subtree of static objects into a few large meshes, so a level made
+ * up of thousands of small objects can be drawn with a handful of draw calls.
+ * <p>
+ * Objects are grouped by material and render state. The world transformation of every object is baked into its
+ * vertices and normals, and the meshes of a group are concatenated into one or more
+ * {@link StaticBatch} chunks. A new chunk is started whenever the next mesh would not fit in the
+ * vertex limit, which defaults to 65536 vertices on devices that only support 16 bit indices.
+ * Each chunk has its own bounding box and is frustum tested on its own.
+ * <p>
+ * The source objects are left untouched. The returned container holds the chunks and should be
+ * added to the scene without a transformation, in place of the source subtree.
+ *
+ * <pre><code>
+ * StaticBatcher batcher = new StaticBatcher();
+ * batcher.setKeepSourceMapping(true);
+ * Object3D level = batcher.batch(parser.getParsedObject());
+ * getCurrentScene().addChild(level);
+ * </code></pre>
+ *
+ * Only visible objects which are drawn as {@link GLES20#GL_TRIANGLES} are batched. Vertex colors,
+ * normals and texture coordinates are kept when at least one object of a group has them. Objects
+ * which don't have vertex colors get their object color instead. Objects only share a chunk if
+ * their blending, face culling, depth and material color settings match, and the chunk takes over
+ * these settings.
+ *
+ * Must be called on the GL thread since the chunks upload their buffers when they are created.
+ */
+public class StaticBatcher {
+	public static final int MAX_SHORT_INDEX_VERTICES = 65536;
+
+	private int mMaxVerticesPerChunk;
+	private boolean mKeepSourceMapping;
+
+	private final Matrix4 mNormalMatrix = new Matrix4();
+
+	/**
+	 * A merged mesh made up of the meshes of several source objects.
+	 */
+	public static class StaticBatch extends Object3D {
+		private List<SourceRange> mSources;
+
+		/**
+		 * Retrieve the ranges of this chunk's mesh which belong to each source object. Only
+		 * available if {@link StaticBatcher#setKeepSourceMapping(boolean)} was enabled.
+		 *
+		 * @return List of {@link SourceRange}s ordered by index, or null.
+		 */
+		public List<SourceRange> getSources() {
+			return mSources;
+		}
+
+		/**
+		 * Finds the source object a triangle of this chunk was taken from, for instance to
+		 * resolve a picked triangle.
+		 *
+		 * @param triangle int The triangle index in this chunk.
+		 * @return {@link Object3D} The source object, or null if there is no source mapping.
+		 */
+		public Object3D getSource(int triangle) {
+			if (mSources == null) return null;
+			final int index = triangle * 3;
+			int low = 0, high = mSources.size() - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final SourceRange range = mSources.get(mid);
+				if (index < range.mFirstIndex)
+					high = mid - 1;
+				else if (index >= range.mFirstIndex + range.mNumIndices)
+					low = mid + 1;
+				else
+					return range.mSource;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * The vertices and indices a source object occupies in a {@link StaticBatch}.
+	 */
+	public static final class SourceRange {
+		private final Object3D mSource;
+		private final int mFirstVertex;
+		private final int mNumVertices;
+		private final int mFirstIndex;
+		private final int mNumIndices;
+
+		private SourceRange(Object3D source, int firstVertex, int numVertices, int firstIndex, int numIndices) {
+			mSource = source;
+			mFirstVertex = firstVertex;
+			mNumVertices = numVertices;
+			mFirstIndex = firstIndex;
+			mNumIndices = numIndices;
+		}
+
+		public Object3D getSource() {
+			return mSource;
+		}
+
+		public int getFirstVertex() {
+			return mFirstVertex;
+		}
+
+		public int getNumVertices() {
+			return mNumVertices;
+		}
+
+		public int getFirstIndex() {
+			return mFirstIndex;
+		}
+
+		public int getNumIndices() {
+			return mNumIndices;
+		}
+	}
+
+	/**
+	 * A source object along with its mesh data and world matrix.
+	 */
+	private static final class Source {
+		Object3D object;
+		Geometry3D geometry;
+		Matrix4 worldMatrix;
+		int numVertices;
+		int numIndices;
+	}
+
+	/**
+	 * The material and render state the objects of a group share.
+	 */
+	private static final class GroupKey {
+		final Material material;
+		final boolean doubleSided;
+		final boolean backSided;
+		final boolean transparent;
+		final boolean blending;
+		final int blendFuncSFactor;
+		final int blendFuncDFactor;
+		final boolean depthTest;
+		final boolean depthMask;
+		final boolean overrideMaterialColor;
+		final float[] color;
+
+		GroupKey(Object3D object) {
+			material = object.getMaterial();
+			doubleSided = object.isDoubleSided();
+			backSided = object.isBackSided();
+			transparent = object.isTransparent();
+			blending = object.isBlendingEnabled();
+			blendFuncSFactor = object.mBlendFuncSFactor;
+			blendFuncDFactor = object.mBlendFuncDFactor;
+			depthTest = object.isDepthTestEnabled();
+			depthMask = object.isDepthMaskEnabled();
+			overrideMaterialColor = object.mOverrideMaterialColor;
+			// -- The object color is only used by the material when it is overridden
+			color = overrideMaterialColor ? object.mColor.clone() : null;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof GroupKey)) return false;
+			final GroupKey other = (GroupKey) o;
+			return material == other.material && doubleSided == other.doubleSided && backSided == other.backSided
+					&& transparent == other.transparent && blending == other.blending
+					&& blendFuncSFactor == other.blendFuncSFactor && blendFuncDFactor == other.blendFuncDFactor
+					&& depthTest == other.depthTest && depthMask == other.depthMask
+					&& overrideMaterialColor == other.overrideMaterialColor && Arrays.equals(color, other.color);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(material);
+			hash = 31 * hash + (doubleSided ? 1 : 0);
+			hash = 31 * hash + (backSided ? 1 : 0);
+			hash = 31 * hash + (transparent ? 1 : 0);
+			hash = 31 * hash + (blending ? 1 : 0);
+			hash = 31 * hash + blendFuncSFactor;
+			hash = 31 * hash + blendFuncDFactor;
+			hash = 31 * hash + (depthTest ? 1 : 0);
+			hash = 31 * hash + (depthMask ? 1 : 0);
+			hash = 31 * hash + Arrays.hashCode(color);
+			return hash;
+		}
+	}
+
+	public StaticBatcher() {
+		mMaxVerticesPerChunk = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Sets the maximum number of vertices of a chunk. Smaller chunks are culled more precisely
+	 * but take more draw calls. A single mesh which is larger than the limit gets a chunk of its own.
+	 * Chunks of meshes with 16 bit indices, see {@link Geometry3D#areOnlyShortBuffersSupported()},
+	 * and chunks on devices which only support 16 bit indices never exceed 65536 vertices.
+	 *
+	 * @param maxVerticesPerChunk int The vertex limit.
+	 */
+	public void setMaxVerticesPerChunk(int maxVerticesPerChunk) {
+		mMaxVerticesPerChunk = maxVerticesPerChunk;
+	}
+
+	public int getMaxVerticesPerChunk() {
+		return mMaxVerticesPerChunk;
+	}
+
+	/**
+	 * Keeps track of which source object each part of a chunk was taken from.
+	 *
+	 * @param keepSourceMapping boolean True to keep the mapping. Disabled by default.
+	 * @see StaticBatch#getSource(int)
+	 */
+	public void setKeepSourceMapping(boolean keepSourceMapping) {
+		mKeepSourceMapping = keepSourceMapping;
+	}
+
+	public boolean isKeepSourceMapping() {
+		return mKeepSourceMapping;
+	}
+
+	/**
+	 * Merges the meshes of an object and all its descendants.
+	 *
+	 * @param root {@link Object3D} The root of the subtree. Its own transformation is baked in as well.
+	 * @return {@link Object3D} A container holding one {@link StaticBatch} per chunk.
+	 */
+	public Object3D batch(Object3D root) {
+		final Map<GroupKey, List<Source>> groups = new LinkedHashMap<GroupKey, List<Source>>();
+		collect(root, null, groups);
+
+		final Object3D container = new Object3D();
+		for (Map.Entry<GroupKey, List<Source>> group : groups.entrySet()) {
+			final List<Source> sources = group.getValue();
+			final boolean shortIndices = !RajawaliRenderer.supportsUIntBuffers || hasShortIndices(sources);
+			final int maxVertices = shortIndices ? Math.min(mMaxVerticesPerChunk, MAX_SHORT_INDEX_VERTICES)
+					: mMaxVerticesPerChunk;
+			int first = 0;
+			while (first < sources.size()) {
+				int numVertices = sources.get(first).numVertices;
+				int last = first + 1;
+				while (last < sources.size() && numVertices + sources.get(last).numVertices <= maxVertices) {
+					numVertices += sources.get(last).numVertices;
+					++last;
+				}
+				if (numVertices > maxVertices)
+					RajLog.w("[" + getClass().getName() + "] " + sources.get(first).object.getName()
+							+ " has more vertices than fit in a chunk.");
+				container.addChild(createChunk(group.getKey().material, sources.subList(first, last),
+						shortIndices && numVertices <= MAX_SHORT_INDEX_VERTICES));
+				first = last;
+			}
+		}
+		return container;
+	}
+
+	/**
+	 * Walks the subtree the same way the renderer does, updating the model matrices on the way.
+	 */
+	private void collect(Object3D object, Matrix4 parentMatrix, Map<GroupKey, List<Source>> groups) {
+		object.calculateModelMatrix(parentMatrix);
+
+		final Geometry3D geometry = object.getGeometry();
+		if (!object.isContainer() && object.isVisible() && object.getMaterial() != null
+				&& geometry.getVertices() != null && geometry.getIndices() != null) {
+			if (object.getDrawingMode() == GLES20.GL_TRIANGLES) {
+				final Source source = new Source();
+				source.object = object;
+				source.geometry = geometry;
+				source.worldMatrix = object.getModelMatrix().clone();
+				source.numVertices = geometry.getNumVertices();
+				source.numIndices = geometry.getNumIndices();
+				final GroupKey key = new GroupKey(object);
+				List<Source> group = groups.get(key);
+				if (group == null) {
+					group = new ArrayList<Source>();
+					groups.put(key, group);
+				}
+				group.add(source);
+			} else {
+				RajLog.w("[" + getClass().getName() + "] " + object.getName()
+						+ " isn't drawn as triangles and was not batched.");
+			}
+		}
+
+		for (int i = 0, j = object.getNumChildren(); i < j; ++i) {
+			final Object3D child = object.getChildAt(i);
+			child.mParentWorldVersion = object.mWorldVersion;
+			collect(child, object.getModelMatrix(), groups);
+		}
+	}
+
+	/**
+	 * Checks whether any of the meshes stores 16 bit indices. Their chunks do too, so a group
+	 * of small meshes doesn't end up with a 32 bit index buffer.
+	 */
+	private static boolean hasShortIndices(List<Source> sources) {
+		for (int i = 0, j = sources.size(); i < j; ++i)
+			if (sources.get(i).geometry.areOnlyShortBuffersSupported())
+				return true;
+		return false;
+	}
+
+	private StaticBatch createChunk(Material material, List<Source> sources, boolean shortIndices) {
+		int numVertices = 0, numIndices = 0;
+		boolean hasNormals = false, hasTextureCoords = false, hasColors = false;
+		for (int i = 0, j = sources.size(); i < j; ++i) {
+			final Source source = sources.get(i);
+			numVertices += source.numVertices;
+			numIndices += source.numIndices;
+			hasNormals |= source.geometry.hasNormals();
+			hasTextureCoords |= source.geometry.hasTextureCoordinates();
+			hasColors |= source.geometry.getColors() != null;
+		}
+
+		final float[] vertices = new float[numVertices * 3];
+		final float[] normals = hasNormals ? new float[numVertices * 3] : null;
+		final float[] textureCoords = hasTextureCoords ? new float[numVertices * 2] : null;
+		final float[] colors = hasColors ? new float[numVertices * 4] : null;
+		final int[] indices = new int[numIndices];
+		final List<SourceRange> ranges = mKeepSourceMapping ? new ArrayList<SourceRange>(sources.size()) : null;
+
+		int vertexOffset = 0, indexOffset = 0;
+		for (int i = 0, j = sources.size(); i < j; ++i) {
+			final Source source = sources.get(i);
+			final Geometry3D geometry = source.geometry;
+			final int count = source.numVertices;
+
+			Matrix4.transformPoints(source.worldMatrix.getDoubleValues(),
+					Geometry3D.getFloatArrayFromBuffer(geometry.getVertices()), 0, vertices, vertexOffset * 3, count);
+			if (hasNormals && geometry.hasNormals()) {
+				mNormalMatrix.setAll(source.worldMatrix).setToNormalMatrix();
+				Matrix4.transformDirections(mNormalMatrix.getDoubleValues(),
+						Geometry3D.getFloatArrayFromBuffer(geometry.getNormals()), 0, normals, vertexOffset * 3, count);
+			}
+			if (hasTextureCoords && geometry.hasTextureCoordinates())
+				System.arraycopy(Geometry3D.getFloatArrayFromBuffer(geometry.getTextureCoords()), 0,
+						textureCoords, vertexOffset * 2, count * 2);
+			if (hasColors) {
+				if (geometry.getColors() != null) {
+					System.arraycopy(Geometry3D.getFloatArrayFromBuffer(geometry.getColors()), 0,
+							colors, vertexOffset * 4, count * 4);
+				} else {
+					for (int v = vertexOffset * 4, end = (vertexOffset + count) * 4; v < end; v += 4)
+						System.arraycopy(source.object.mColor, 0, colors, v, 4);
+				}
+			}
+
+			final int[] sourceIndices = Geometry3D.getIntArrayFromBuffer(geometry.getIndices());
+			for (int k = 0; k < source.numIndices; ++k)
+				indices[indexOffset + k] = sourceIndices[k] + vertexOffset;
+
+			if (ranges != null)
+				ranges.add(new SourceRange(source.object, vertexOffset, count, indexOffset, source.numIndices));
+			vertexOffset += count;
+			indexOffset += source.numIndices;
+		}
+
+		final Object3D first = sources.get(0).object;
+		final StaticBatch chunk = new StaticBatch();
+		if (shortIndices)
+			chunk.getGeometry().setOnlyShortBuffersSupported(true);
+		chunk.setData(vertices, normals, textureCoords, colors, indices);
+		chunk.setMaterial(material);
+		System.arraycopy(first.mColor, 0, chunk.mColor, 0, 4);
+		chunk.mOverrideMaterialColor = first.mOverrideMaterialColor;
+		chunk.setDoubleSided(first.isDoubleSided());
+		chunk.setBackSided(first.isBackSided());
+		chunk.setTransparent(first.isTransparent());
+		chunk.setBlendingEnabled(first.isBlendingEnabled());
+		chunk.setBlendFunc(first.mBlendFuncSFactor, first.mBlendFuncDFactor);
+		chunk.setDepthTestEnabled(first.isDepthTestEnabled());
+		chunk.setDepthMaskEnabled(first.isDepthMaskEnabled());
+		chunk.getGeometry().getBoundingBox();
+		chunk.setFrustumTest(true);
+		chunk.mSources = ranges;
+		return chunk;
+	}
+}
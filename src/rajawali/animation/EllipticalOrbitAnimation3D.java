@@ -38,6 +38,10 @@ public class EllipticalOrbitAnimation3D extends Animation3D {
 	protected OrbitDirection mDirection;
 	protected double mAngle;
 	
+	private final Vector3 mTmpNormal = new Vector3();
+	private final Vector3 mTmpSemiMajorAxis = new Vector3();
+	private final Vector3 mTmpSemiMinorAxis = new Vector3();
+	
 	/**
 	 * Defines an elliptical orbit around a point.
 	 * 
@@ -226,7 +230,7 @@ public class EllipticalOrbitAnimation3D extends Animation3D {
 		}
 
 		// Translate normal vector to the center point.
-		Vector3 unitNormal = mNormal.clone();
+		Vector3 unitNormal = mTmpNormal.setAll(mNormal);
 		unitNormal.normalize();
 		double uNx = Math.round(unitNormal.x * 1e8) / 1e8;
 		double uNy = Math.round(unitNormal.y * 1e8) / 1e8;
@@ -244,8 +248,9 @@ public class EllipticalOrbitAnimation3D extends Animation3D {
 		}
 
 		// We can calculate the semiminor axis from unit vector of cross product of semimajor axis and the normal.
-		Vector3 semiminorAxis = Vector3.crossAndCreate(new Vector3(unitSemiMajorAxis_x, unitSemiMajorAxis_y,
-				unitSemiMajorAxis_z), new Vector3(normalCenter_x, normalCenter_y, normalCenter_z));
+		mTmpSemiMajorAxis.setAll(unitSemiMajorAxis_x, unitSemiMajorAxis_y, unitSemiMajorAxis_z);
+		mTmpNormal.setAll(normalCenter_x, normalCenter_y, normalCenter_z);
+		Vector3 semiminorAxis = mTmpSemiMinorAxis.crossAndSet(mTmpSemiMajorAxis, mTmpNormal);
 		semiminorAxis.multiply(b);
 		
 		// Parametric equation for ellipse in 3D space.
@@ -101,7 +101,7 @@ public class RotateAnimation3D extends Animation3D {
 			mQuat.multiply(mQuatFrom);
 			mTransformable3D.setOrientation(mQuat);
 		} else {
-			mTransformable3D.setOrientation(Quaternion.slerpAndCreate(mQuatFrom, mQuat, mInterpolatedTime));
+			mTransformable3D.setOrientation(mTmpOrientation.slerp(mQuatFrom, mQuat, mInterpolatedTime));
 		}
 	}
 }
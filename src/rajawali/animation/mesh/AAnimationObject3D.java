@@ -14,8 +14,15 @@ package rajawali.animation.mesh;
 
 import java.util.Stack;
 
+import rajawali.Camera;
+import rajawali.Frustum;
+import rajawali.Geometry3D;
 import rajawali.Object3D;
 import rajawali.SerializedObject3D;
+import rajawali.bounds.BoundingBox;
+import rajawali.math.vector.Vector3;
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Counter;
 import rajawali.util.RajLog;
 import android.os.SystemClock;
 
@@ -32,6 +39,15 @@ public abstract class AAnimationObject3D extends Object3D {
 	protected int mEndFrameIndex = -1;
 	protected boolean mLoop = false;
 	protected int mFps = 30;
+	
+	protected AnimationLodPolicy mAnimationLod;
+	/**
+	 * Whether the animation should be updated in the coming frame, as decided by {@link #updateAnimationLod(Camera)}
+	 */
+	protected boolean mAnimationUpdateDue = true;
+	private int mFramesSinceUpdate;
+	private long mNumSkippedUpdates;
+	private final Vector3 mLodPosition = new Vector3();
 
 	public AAnimationObject3D() {
 		super();
@@ -154,6 +170,92 @@ public abstract class AAnimationObject3D extends Object3D {
 		this.mFps = fps;
 	}
 	
+	/**
+	 * Sets the policy which lowers the update rate of the animation when the object is far
+	 * away or not visible.
+	 * 
+	 * @param lod {@link AnimationLodPolicy} The policy, or null to update every frame.
+	 */
+	public void setAnimationLod(AnimationLodPolicy lod) {
+		mAnimationLod = lod;
+		mAnimationUpdateDue = true;
+		mFramesSinceUpdate = 0;
+	}
+	
+	public AnimationLodPolicy getAnimationLod() {
+		return mAnimationLod;
+	}
+	
+	/**
+	 * Returns the number of animation updates which were skipped because of the {@link AnimationLodPolicy}.
+	 * 
+	 * @return long The number of skipped updates.
+	 */
+	public long getNumSkippedUpdates() {
+		return mNumSkippedUpdates;
+	}
+	
+	/**
+	 * Decides whether the animation is updated in the current frame. Called on the GL thread
+	 * where the update runs, before the object is drawn, so objects which are culled and never
+	 * drawn are throttled as well. The object is tested against the frustum of the camera, which
+	 * must have been updated for this frame.
+	 * 
+	 * @param camera {@link Camera} The camera of the frame, or null to update without a policy.
+	 * @return boolean True when the animation should be updated.
+	 */
+	protected boolean updateAnimationLod(Camera camera) {
+		if (mAnimationLod == null || !mIsPlaying || camera == null)
+			return mAnimationUpdateDue = true;
+		
+		if (!isAnimationVisible(camera)) {
+			// -- Update right away once the object is visible again
+			mFramesSinceUpdate = Integer.MAX_VALUE;
+			mAnimationUpdateDue = !mAnimationLod.getSkipInvisible();
+		} else {
+			getModelMatrix().getTranslation(mLodPosition);
+			final int interval = mAnimationLod.getUpdateInterval(mLodPosition.distanceTo(camera.getPosition()));
+			if (mFramesSinceUpdate < Integer.MAX_VALUE) ++mFramesSinceUpdate;
+			mAnimationUpdateDue = mFramesSinceUpdate >= interval;
+		}
+		
+		if (mAnimationUpdateDue) {
+			mFramesSinceUpdate = 0;
+			FrameProfiler.getInstance().count(Counter.ANIMATION_UPDATES);
+		} else {
+			++mNumSkippedUpdates;
+			FrameProfiler.getInstance().count(Counter.ANIMATION_UPDATES_SKIPPED);
+		}
+		return mAnimationUpdateDue;
+	}
+	
+	/**
+	 * Whether the bounds of the object or any of its children, as placed in the last frame,
+	 * intersect the frustum of the camera. Objects without bounds count as visible.
+	 */
+	protected boolean isAnimationVisible(Camera camera) {
+		if (!isVisible())
+			return false;
+		final Frustum frustum = camera.getFrustum();
+		if (!mIsContainerOnly && boundsInFrustum(this, frustum))
+			return true;
+		for (int i = 0, j = mChildren.size(); i < j; ++i) {
+			final Object3D child = mChildren.get(i);
+			if (child.isVisible() && boundsInFrustum(child, frustum))
+				return true;
+		}
+		return false;
+	}
+	
+	private static boolean boundsInFrustum(Object3D object, Frustum frustum) {
+		final Geometry3D geometry = object.getGeometry();
+		if (geometry == null || !geometry.hasBoundingBox())
+			return true;
+		final BoundingBox bbox = geometry.getBoundingBox();
+		bbox.transform(object.getModelMatrix());
+		return frustum.boundsInFrustum(bbox);
+	}
+	
 	@Override
 	public void reload() {
 		super.reload();
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.animation.mesh;
+
+/**
+ * Decides how often an {@link AAnimationObject3D} updates its animation. Objects closer to the
+ * camera than the full rate distance update every frame. Beyond that the number of frames between
+ * two updates grows linearly up to the maximum interval, which is reached at the minimum rate
+ * distance. Objects which are not in the view frustum do not update at all, their animation only
+ * advances in time.
+ * <p>
+ * A policy can be shared by any number of objects, for instance by all characters of a crowd.
+ *
+ * <pre><code>
+ * AnimationLodPolicy lod = new AnimationLodPolicy(10, 100, 6);
+ * for (AAnimationObject3D character : crowd)
+ * 	character.setAnimationLod(lod);
+ * </code></pre>
+ *
+ * Visibility is tested against the view frustum at the start of each frame, with the bounding
+ * boxes of the object and its children as placed in the last frame. This also covers objects
+ * which the scene graph culls before they are drawn. Objects without a bounding box always
+ * count as visible.
+ */
+public class AnimationLodPolicy {
+	private double mFullRateDistance;
+	private double mMinRateDistance;
+	private int mMaxUpdateInterval;
+	private boolean mSkipInvisible = true;
+
+	/**
+	 * @param fullRateDistance double The distance up to which the animation updates every frame.
+	 * @param minRateDistance double The distance from which the animation updates at the lowest rate.
+	 * @param maxUpdateInterval int The number of frames between two updates at the lowest rate.
+	 */
+	public AnimationLodPolicy(double fullRateDistance, double minRateDistance, int maxUpdateInterval) {
+		setDistances(fullRateDistance, minRateDistance);
+		setMaxUpdateInterval(maxUpdateInterval);
+	}
+
+	/**
+	 * Sets the distances between which the update rate goes down.
+	 *
+	 * @param fullRateDistance double The distance up to which the animation updates every frame.
+	 * @param minRateDistance double The distance from which the animation updates at the lowest rate.
+	 */
+	public void setDistances(double fullRateDistance, double minRateDistance) {
+		mFullRateDistance = fullRateDistance;
+		mMinRateDistance = Math.max(fullRateDistance, minRateDistance);
+	}
+
+	public double getFullRateDistance() {
+		return mFullRateDistance;
+	}
+
+	public double getMinRateDistance() {
+		return mMinRateDistance;
+	}
+
+	/**
+	 * Sets the number of frames between two updates at the lowest rate.
+	 *
+	 * @param frames int The number of frames, 1 updates every frame.
+	 */
+	public void setMaxUpdateInterval(int frames) {
+		mMaxUpdateInterval = Math.max(1, frames);
+	}
+
+	public int getMaxUpdateInterval() {
+		return mMaxUpdateInterval;
+	}
+
+	/**
+	 * Sets whether objects outside of the view frustum skip their updates. True by default.
+	 *
+	 * @param skip boolean True to skip the updates of invisible objects.
+	 */
+	public void setSkipInvisible(boolean skip) {
+		mSkipInvisible = skip;
+	}
+
+	public boolean getSkipInvisible() {
+		return mSkipInvisible;
+	}
+
+	/**
+	 * Returns the number of frames between two updates of an object.
+	 *
+	 * @param distance double The distance between the object and the camera.
+	 * @return int The number of frames, 1 when the object updates every frame.
+	 */
+	public int getUpdateInterval(double distance) {
+		if (distance <= mFullRateDistance)
+			return 1;
+		if (distance >= mMinRateDistance)
+			return mMaxUpdateInterval;
+		final double t = (distance - mFullRateDistance) / (mMinRateDistance - mFullRateDistance);
+		return 1 + (int) Math.round(t * (mMaxUpdateInterval - 1));
+	}
+}
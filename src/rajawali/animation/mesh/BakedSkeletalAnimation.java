@@ -0,0 +1,424 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.animation.mesh;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+import rajawali.animation.mesh.SkeletalAnimationFrame.SkeletonJoint;
+import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin.SkinningMode;
+import rajawali.math.Matrix;
+import rajawali.math.vector.Vector3;
+
+/**
+ * A {@link SkeletalAnimationSequence} sampled into a table of joint palettes. Each row of the
+ * table holds the values which are uploaded to the shader for one point in time: a matrix per
+ * joint in {@link SkinningMode#LINEAR_BLEND} mode or a dual quaternion per joint in
+ * {@link SkinningMode#DUAL_QUATERNION} mode. Playing a baked sequence only blends two rows
+ * instead of interpolating and multiplying every joint.
+ * <p>
+ * The sequence is sampled a fixed number of times per keyframe. Optionally the palettes are
+ * quantized to 16 bits per value, which halves the memory.
+ * <p>
+ * A baked sequence is read-only and is shared by all instances of a model which play the
+ * same sequence. Use {@link #obtain(SkeletalAnimationSequence, double[][], SkinningMode, int, boolean)}
+ * to get it from the cache rather than baking it again.
+ * <p>
+ * The cache holds the sequences and the inverse bind poses weakly. A baked sequence stays in the
+ * cache for as long as its sequence and the inverse bind pose matrices of its model are in use,
+ * or until {@link #evict(SkeletalAnimationSequence)} or {@link #clearCache()} removes it.
+ *
+ * @see SkeletalAnimationObject3D#setBaking(int, boolean)
+ */
+public final class BakedSkeletalAnimation {
+	/**
+	 * Sequence -> inverse bind pose -> settings -> baked sequence. Guarded by itself.
+	 */
+	private static final WeakHashMap<SkeletalAnimationSequence, WeakHashMap<double[][], HashMap<Key, Entry>>> sCache =
+			new WeakHashMap<SkeletalAnimationSequence, WeakHashMap<double[][], HashMap<Key, Entry>>>();
+
+	private final SkinningMode mSkinningMode;
+	private final int mNumJoints;
+	private final int mNumFrames;
+	private final int mSamplesPerFrame;
+	private final int mNumRows;
+	private final int mRowLength;
+
+	/**
+	 * The palettes, one row after another. Either the floats or the quantized values are set.
+	 */
+	private final float[] mRows;
+	private final short[] mQuantizedRows;
+
+	/**
+	 * value = offset + (quantized + 32768) * scale, per value of a row
+	 */
+	private final float[] mOffsets;
+	private final float[] mScales;
+
+	/**
+	 * Bakes a sequence. Most of the time {@link #obtain(SkeletalAnimationSequence, double[][], SkinningMode, int, boolean)}
+	 * should be used instead.
+	 *
+	 * @param sequence {@link SkeletalAnimationSequence} The sequence to bake.
+	 * @param inverseBindPoseMatrix double[][] The inverse bind pose matrices of the model.
+	 * @param skinningMode {@link SkinningMode} The skinning mode of the model.
+	 * @param samplesPerFrame int The number of samples per keyframe. 1 only keeps the keyframes.
+	 * @param quantize boolean Whether to store the palettes with 16 bits per value.
+	 */
+	public BakedSkeletalAnimation(SkeletalAnimationSequence sequence, double[][] inverseBindPoseMatrix,
+			SkinningMode skinningMode, int samplesPerFrame, boolean quantize) {
+		mSkinningMode = skinningMode;
+		mNumJoints = inverseBindPoseMatrix.length;
+		mNumFrames = sequence.getNumFrames();
+		mSamplesPerFrame = Math.max(1, samplesPerFrame);
+		mNumRows = mNumFrames * mSamplesPerFrame;
+		mRowLength = mNumJoints * (skinningMode == SkinningMode.DUAL_QUATERNION ? 8 : 16);
+
+		final float[] rows = new float[mNumRows * mRowLength];
+		bake(sequence, inverseBindPoseMatrix, rows);
+
+		if (quantize) {
+			mOffsets = new float[mRowLength];
+			mScales = new float[mRowLength];
+			mQuantizedRows = quantize(rows);
+			mRows = null;
+		} else {
+			mOffsets = null;
+			mScales = null;
+			mQuantizedRows = null;
+			mRows = rows;
+		}
+	}
+
+	/**
+	 * Returns the baked sequence from the cache, baking it when it isn't there yet. Models
+	 * which share their inverse bind pose matrices, like the clones of a model, share the
+	 * baked sequence. The sequence is baked on the calling thread without holding the cache
+	 * lock, other threads which ask for the same sequence in the meantime wait for it.
+	 *
+	 * @param sequence {@link SkeletalAnimationSequence} The sequence to bake.
+	 * @param inverseBindPoseMatrix double[][] The inverse bind pose matrices of the model.
+	 * @param skinningMode {@link SkinningMode} The skinning mode of the model.
+	 * @param samplesPerFrame int The number of samples per keyframe.
+	 * @param quantize boolean Whether to store the palettes with 16 bits per value.
+	 * @return {@link BakedSkeletalAnimation} The baked sequence.
+	 */
+	public static BakedSkeletalAnimation obtain(SkeletalAnimationSequence sequence, double[][] inverseBindPoseMatrix,
+			SkinningMode skinningMode, int samplesPerFrame, boolean quantize) {
+		final Key key = new Key(skinningMode, samplesPerFrame, quantize);
+		while (true) {
+			final Entry entry;
+			final boolean bake;
+			synchronized (sCache) {
+				WeakHashMap<double[][], HashMap<Key, Entry>> poses = sCache.get(sequence);
+				if (poses == null) {
+					poses = new WeakHashMap<double[][], HashMap<Key, Entry>>();
+					sCache.put(sequence, poses);
+				}
+				HashMap<Key, Entry> entries = poses.get(inverseBindPoseMatrix);
+				if (entries == null) {
+					entries = new HashMap<Key, Entry>();
+					poses.put(inverseBindPoseMatrix, entries);
+				}
+				final Entry cached = entries.get(key);
+				bake = cached == null;
+				entry = bake ? new Entry() : cached;
+				if (bake)
+					entries.put(key, entry);
+			}
+
+			if (!bake) {
+				final BakedSkeletalAnimation baked = entry.await();
+				if (baked != null)
+					return baked;
+				// -- Baking failed on the other thread, try again
+				continue;
+			}
+
+			BakedSkeletalAnimation baked = null;
+			try {
+				baked = new BakedSkeletalAnimation(sequence, inverseBindPoseMatrix, skinningMode, samplesPerFrame,
+						quantize);
+				return baked;
+			} finally {
+				if (baked == null)
+					remove(sequence, inverseBindPoseMatrix, key, entry);
+				entry.complete(baked);
+			}
+		}
+	}
+
+	/**
+	 * Removes an entry from the cache unless it was replaced already.
+	 */
+	private static void remove(SkeletalAnimationSequence sequence, double[][] inverseBindPoseMatrix, Key key,
+			Entry entry) {
+		synchronized (sCache) {
+			final WeakHashMap<double[][], HashMap<Key, Entry>> poses = sCache.get(sequence);
+			final HashMap<Key, Entry> entries = poses == null ? null : poses.get(inverseBindPoseMatrix);
+			if (entries != null && entries.get(key) == entry)
+				entries.remove(key);
+		}
+	}
+
+	/**
+	 * Removes all baked versions of a sequence from the cache. Has to be called when the
+	 * frames of the sequence change.
+	 *
+	 * @param sequence {@link SkeletalAnimationSequence} The sequence.
+	 */
+	public static void evict(SkeletalAnimationSequence sequence) {
+		synchronized (sCache) {
+			sCache.remove(sequence);
+		}
+	}
+
+	/**
+	 * Removes all baked sequences from the cache. Models which already play a baked sequence
+	 * keep it until they change sequences.
+	 */
+	public static void clearCache() {
+		synchronized (sCache) {
+			sCache.clear();
+		}
+	}
+
+	public SkinningMode getSkinningMode() {
+		return mSkinningMode;
+	}
+
+	public int getNumJoints() {
+		return mNumJoints;
+	}
+
+	public int getSamplesPerFrame() {
+		return mSamplesPerFrame;
+	}
+
+	public boolean isQuantized() {
+		return mQuantizedRows != null;
+	}
+
+	/**
+	 * Returns the size of the palette table in bytes.
+	 *
+	 * @return int The size in bytes.
+	 */
+	public int getSizeInBytes() {
+		return mRows != null ? mRows.length * 4 : mQuantizedRows.length * 2 + mRowLength * 8;
+	}
+
+	/**
+	 * Writes the palette at a point of the sequence. The two nearest rows are blended linearly.
+	 *
+	 * @param frameIndex int The keyframe.
+	 * @param interpolation double The position between the keyframe and the next one, from 0 to 1.
+	 * @param out float[] The palette, 16 floats per joint in {@link SkinningMode#LINEAR_BLEND} mode and
+	 * 8 floats per joint in {@link SkinningMode#DUAL_QUATERNION} mode.
+	 */
+	public void sample(int frameIndex, double interpolation, float[] out) {
+		if (interpolation < 0)
+			interpolation = 0;
+		else if (interpolation > 1)
+			interpolation = 1;
+		final double position = (frameIndex % mNumFrames + interpolation) * mSamplesPerFrame;
+		final int row = (int) position % mNumRows;
+		final int nextRow = (row + 1) % mNumRows;
+		final float t = (float) (position - Math.floor(position));
+
+		final int a = row * mRowLength;
+		final int b = nextRow * mRowLength;
+		if (mSkinningMode == SkinningMode.DUAL_QUATERNION) {
+			for (int i = 0; i < mRowLength; i += 8) {
+				float dot = 0;
+				for (int j = i; j < i + 4; ++j)
+					dot += valueAt(a + j, j) * valueAt(b + j, j);
+				// -- Blend along the shortest path
+				final float tb = dot < 0 ? -t : t;
+				for (int j = i; j < i + 8; ++j)
+					out[j] = valueAt(a + j, j) * (1 - t) + valueAt(b + j, j) * tb;
+			}
+		} else {
+			for (int i = 0; i < mRowLength; ++i) {
+				final float va = valueAt(a + i, i);
+				out[i] = va + (valueAt(b + i, i) - va) * t;
+			}
+		}
+	}
+
+	/**
+	 * Returns a value of the table.
+	 *
+	 * @param index int The index in the table.
+	 * @param column int The index in the row.
+	 */
+	private float valueAt(int index, int column) {
+		if (mRows != null)
+			return mRows[index];
+		return mOffsets[column] + (mQuantizedRows[index] + 32768) * mScales[column];
+	}
+
+	/**
+	 * Blends two palettes, for instance the palettes of two sequences during a transition.
+	 *
+	 * @param skinningMode {@link SkinningMode} The skinning mode of the palettes.
+	 * @param from float[] The first palette.
+	 * @param to float[] The second palette.
+	 * @param t double The blend factor, 0 gives the first palette and 1 the second one.
+	 * @param out float[] The blended palette. May be the same array as one of the inputs.
+	 */
+	public static void blend(SkinningMode skinningMode, float[] from, float[] to, double t, float[] out) {
+		final float ft = (float) t;
+		if (skinningMode == SkinningMode.DUAL_QUATERNION) {
+			for (int i = 0; i < from.length; i += 8) {
+				final float tb = dot4(from, i, to, i) < 0 ? -ft : ft;
+				for (int j = i; j < i + 8; ++j)
+					out[j] = from[j] * (1 - ft) + to[j] * tb;
+			}
+		} else {
+			for (int i = 0; i < from.length; ++i)
+				out[i] = from[i] + (to[i] - from[i]) * ft;
+		}
+	}
+
+	private static float dot4(float[] a, int ia, float[] b, int ib) {
+		return a[ia] * b[ib] + a[ia + 1] * b[ib + 1] + a[ia + 2] * b[ib + 2] + a[ia + 3] * b[ib + 3];
+	}
+
+	private void bake(SkeletalAnimationSequence sequence, double[][] inverseBindPoseMatrix, float[] rows) {
+		final boolean dualQuaternion = mSkinningMode == SkinningMode.DUAL_QUATERNION;
+		final double[] inverseBindRotations = dualQuaternion
+				? SkeletalAnimationObject3D.createInverseBindRotations(inverseBindPoseMatrix) : null;
+		final SkeletonJoint joint = new SkeletonJoint();
+		final SkeletonJoint scratch = new SkeletonJoint();
+		final float[] palette = new float[mRowLength];
+		final double[] translation = new double[16];
+		final double[] rotation = new double[16];
+		final double[] bone = new double[16];
+		final double[] result = new double[16];
+
+		for (int row = 0; row < mNumRows; ++row) {
+			final int frameIndex = row / mSamplesPerFrame;
+			final double interpolation = (double) (row % mSamplesPerFrame) / mSamplesPerFrame;
+
+			for (int i = 0; i < mNumJoints; ++i) {
+				sequence.getJoint(frameIndex, interpolation, i, joint, scratch);
+
+				if (dualQuaternion) {
+					SkeletalAnimationObject3D.writeDualQuaternion(i, inverseBindRotations, inverseBindPoseMatrix,
+							joint.getPosition(), joint.getOrientation(), palette);
+					continue;
+				}
+
+				Matrix.setIdentityM(translation, 0);
+				Matrix.setIdentityM(rotation, 0);
+				final Vector3 position = joint.getPosition();
+				Matrix.translateM(translation, 0, position.x, position.y, position.z);
+				joint.getOrientation().toRotationMatrix(rotation);
+				Matrix.multiplyMM(bone, 0, translation, 0, rotation, 0);
+				Matrix.multiplyMM(result, 0, bone, 0, inverseBindPoseMatrix[i], 0);
+				for (int j = 0; j < 16; ++j)
+					palette[i * 16 + j] = (float) result[j];
+			}
+			System.arraycopy(palette, 0, rows, row * mRowLength, mRowLength);
+		}
+	}
+
+	/**
+	 * Quantizes every value of a row to 16 bits over the range that value takes in the
+	 * sequence.
+	 */
+	private short[] quantize(float[] rows) {
+		final short[] quantized = new short[rows.length];
+		for (int i = 0; i < mRowLength; ++i) {
+			float min = Float.MAX_VALUE;
+			float max = -Float.MAX_VALUE;
+			for (int j = i; j < rows.length; j += mRowLength) {
+				if (rows[j] < min) min = rows[j];
+				if (rows[j] > max) max = rows[j];
+			}
+			final float scale = (max - min) / 65535f;
+			mOffsets[i] = min;
+			mScales[i] = scale;
+			for (int j = i; j < rows.length; j += mRowLength)
+				quantized[j] = (short) (scale == 0 ? -32768 : Math.round((rows[j] - min) / scale) - 32768);
+		}
+		return quantized;
+	}
+
+	/**
+	 * The settings a sequence was baked with.
+	 */
+	private static final class Key {
+		private final SkinningMode mSkinningMode;
+		private final int mSamplesPerFrame;
+		private final boolean mQuantize;
+
+		Key(SkinningMode skinningMode, int samplesPerFrame, boolean quantize) {
+			mSkinningMode = skinningMode;
+			mSamplesPerFrame = samplesPerFrame;
+			mQuantize = quantize;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = mSkinningMode.hashCode();
+			hash = 31 * hash + mSamplesPerFrame;
+			return 31 * hash + (mQuantize ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			final Key other = (Key) o;
+			return mSkinningMode == other.mSkinningMode && mSamplesPerFrame == other.mSamplesPerFrame
+					&& mQuantize == other.mQuantize;
+		}
+	}
+
+	/**
+	 * A baked sequence in the cache, or a placeholder while it is being baked. Doesn't
+	 * reference the sequence, so the weak keys of the cache can be cleared.
+	 */
+	private static final class Entry {
+		private BakedSkeletalAnimation mBaked; // Guarded by this
+		private boolean mDone; // Guarded by this
+
+		synchronized void complete(BakedSkeletalAnimation baked) {
+			mBaked = baked;
+			mDone = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits until the sequence is baked.
+		 *
+		 * @return {@link BakedSkeletalAnimation} The baked sequence, or null if baking failed.
+		 */
+		synchronized BakedSkeletalAnimation await() {
+			boolean interrupted = false;
+			while (!mDone) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+			return mBaked;
+		}
+	}
+}
@@ -23,7 +23,7 @@ import rajawali.Geometry3D.BufferType;
 import rajawali.Object3D;
 import rajawali.animation.mesh.SkeletalAnimationObject3D.SkeletalAnimationException;
 import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin;
-import rajawali.math.Matrix4;
+import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin.SkinningMode;
 import rajawali.math.vector.Vector2;
 import rajawali.math.vector.Vector3;
 import rajawali.util.RajLog;
@@ -80,15 +80,13 @@ public class SkeletalAnimationChildObject3D extends AAnimationObject3D {
 	}
 	
 	@Override
-	public void calculateModelMatrix(final Matrix4 parentMatrix) {
-		super.calculateModelMatrix(parentMatrix);
+	protected void composeModelMatrix() {
 		if(mInverseZScale)
 			mTmpScale.setAll(mScale.x, mScale.y, -mScale.z);
 		else
 			mTmpScale.setAll(mScale.x, mScale.y, mScale.z);
 		
-		mMMatrix.identity().translate(mPosition).scale(mTmpScale).multiply(mRotationMatrix);
-		if (parentMatrix != null) mMMatrix.leftMultiply(mParentMatrix);
+		composeModelMatrix(mTmpScale);
 	}
 
 	public void setShaderParams(Camera camera) {
@@ -102,7 +100,10 @@ public class SkeletalAnimationChildObject3D extends AAnimationObject3D {
 			mMaterialPlugin.setBone2Indices(mboneIndexes2BufferInfo.bufferHandle);
 			mMaterialPlugin.setBone2Weights(mboneWeights2BufferInfo.bufferHandle);
 		}
-		mMaterialPlugin.setBoneMatrix(mSkeleton.uBoneMatrix);
+		if (mMaterialPlugin.getSkinningMode() == SkinningMode.DUAL_QUATERNION)
+			mMaterialPlugin.setBoneDualQuaternions(mSkeleton.getBoneDualQuatFloats());
+		else
+			mMaterialPlugin.setBoneMatrix(mSkeleton.getBoneMatrixFloats());
 	}
 
 	public void setSkeleton(Object3D skeleton) {
@@ -164,9 +165,9 @@ public class SkeletalAnimationChildObject3D extends AAnimationObject3D {
 	public void setAnimationSequence(SkeletalAnimationSequence sequence)
 	{
 		mSequence = sequence;
-		if (sequence != null && sequence.getFrames() != null)
+		if (sequence != null && (sequence.getFrames() != null || sequence.isCompressed()))
 		{
-			mNumFrames = sequence.getFrames().length;
+			mNumFrames = sequence.isCompressed() ? sequence.getNumFrames() : sequence.getFrames().length;
 
 			for (int i = 0, j = mChildren.size(); i < j; i++)
 				if (mChildren.get(i) instanceof SkeletalAnimationChildObject3D)
@@ -289,6 +290,7 @@ public class SkeletalAnimationChildObject3D extends AAnimationObject3D {
 	
 	public void setInverseZScale(boolean value) {
 		mInverseZScale = value;
+		markModelMatrixDirty();
 	}
 	
 	public SkeletalAnimationChildObject3D clone(boolean copyMaterial)
@@ -0,0 +1,424 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.animation.mesh;
+
+import rajawali.animation.mesh.SkeletalAnimationFrame.SkeletonJoint;
+import rajawali.math.Quaternion;
+import rajawali.math.vector.Vector3;
+
+/**
+ * Compact storage for the frames of a {@link SkeletalAnimationSequence}. All data is kept in
+ * flat primitive arrays instead of a {@link SkeletalAnimationFrame.Skeleton} per frame:
+ * <ul>
+ * <li>Every joint has a position track and a rotation track. Keys which can be reconstructed
+ * by interpolating their neighbours within a tolerance are dropped.</li>
+ * <li>Rotations are quantized with the smallest three method: the largest component is
+ * left out and rebuilt from the unit length, the other three are stored with 15 bits each.
+ * A rotation key takes 8 bytes.</li>
+ * </ul>
+ * Any joint of any frame can be decoded directly with {@link #getJoint(int, int, Vector3, Quaternion)}
+ * without decoding the rest of the clip.
+ *
+ * @see SkeletalAnimationSequence#compress(double, double)
+ */
+public class SkeletalAnimationClip {
+	private static final double SQRT1_2 = Math.sqrt(0.5);
+	private static final int QUANTIZE_BITS = 15;
+	private static final int QUANTIZE_MAX = (1 << QUANTIZE_BITS) - 1;
+
+	private final int mNumFrames;
+	private final int mNumJoints;
+	private final int[] mParentIndices;
+
+	/**
+	 * The bounds of every frame, min x, y, z and max x, y, z
+	 */
+	private final float[] mBounds;
+
+	/**
+	 * The keys of joint i are the keys from trackStart[i] up to trackStart[i + 1]
+	 */
+	private final int[] mPositionTrackStart;
+	private final short[] mPositionKeyFrames;
+	private final float[] mPositionKeys;
+
+	private final int[] mRotationTrackStart;
+	private final short[] mRotationKeyFrames;
+	private final long[] mRotationKeys;
+
+	/**
+	 * Compresses the frames of a sequence.
+	 *
+	 * @param frames {@link SkeletalAnimationFrame}[] The frames, which all have the same skeleton.
+	 * @param positionTolerance double The maximum error of a position, in model units.
+	 * @param rotationTolerance double The maximum error of a rotation, in radians.
+	 */
+	public SkeletalAnimationClip(SkeletalAnimationFrame[] frames, double positionTolerance, double rotationTolerance) {
+		mNumFrames = frames.length;
+		if (mNumFrames > Short.MAX_VALUE)
+			throw new IllegalArgumentException("A clip can't have more than " + Short.MAX_VALUE + " frames.");
+		mNumJoints = frames[0].getSkeleton().getJoints().length;
+		mParentIndices = new int[mNumJoints];
+		mBounds = new float[mNumFrames * 6];
+
+		final double[] positions = new double[mNumFrames * 3];
+		final long[] rotations = new long[mNumFrames];
+		final double[] decoded = new double[mNumFrames * 4];
+		final boolean[] keep = new boolean[mNumFrames];
+		final Quaternion scratch = new Quaternion();
+
+		// -- The tracks are collected at full length first and trimmed at the end
+		final int[] positionTrackStart = new int[mNumJoints + 1];
+		short[] positionKeyFrames = new short[mNumJoints * mNumFrames];
+		float[] positionKeys = new float[mNumJoints * mNumFrames * 3];
+		final int[] rotationTrackStart = new int[mNumJoints + 1];
+		short[] rotationKeyFrames = new short[mNumJoints * mNumFrames];
+		long[] rotationKeys = new long[mNumJoints * mNumFrames];
+		int numPositionKeys = 0;
+		int numRotationKeys = 0;
+
+		for (int f = 0; f < mNumFrames; ++f) {
+			final Vector3 min = frames[f].getBoundingBox().getMin();
+			final Vector3 max = frames[f].getBoundingBox().getMax();
+			mBounds[f * 6] = (float) min.x;
+			mBounds[f * 6 + 1] = (float) min.y;
+			mBounds[f * 6 + 2] = (float) min.z;
+			mBounds[f * 6 + 3] = (float) max.x;
+			mBounds[f * 6 + 4] = (float) max.y;
+			mBounds[f * 6 + 5] = (float) max.z;
+		}
+
+		for (int j = 0; j < mNumJoints; ++j) {
+			mParentIndices[j] = frames[0].getSkeleton().getJoint(j).getParentIndex();
+			for (int f = 0; f < mNumFrames; ++f) {
+				final SkeletonJoint joint = frames[f].getSkeleton().getJoint(j);
+				final Vector3 position = joint.getPosition();
+				positions[f * 3] = position.x;
+				positions[f * 3 + 1] = position.y;
+				positions[f * 3 + 2] = position.z;
+				rotations[f] = encodeRotation(joint.getOrientation());
+				decodeRotation(rotations[f], scratch, decoded, f * 4);
+			}
+
+			positionTrackStart[j] = numPositionKeys;
+			reduceKeys(positions, 3, positionTolerance, false, keep);
+			for (int f = 0; f < mNumFrames; ++f) {
+				if (!keep[f]) continue;
+				positionKeyFrames[numPositionKeys] = (short) f;
+				positionKeys[numPositionKeys * 3] = (float) positions[f * 3];
+				positionKeys[numPositionKeys * 3 + 1] = (float) positions[f * 3 + 1];
+				positionKeys[numPositionKeys * 3 + 2] = (float) positions[f * 3 + 2];
+				++numPositionKeys;
+			}
+
+			rotationTrackStart[j] = numRotationKeys;
+			reduceKeys(decoded, 4, rotationTolerance, true, keep);
+			for (int f = 0; f < mNumFrames; ++f) {
+				if (!keep[f]) continue;
+				rotationKeyFrames[numRotationKeys] = (short) f;
+				rotationKeys[numRotationKeys] = rotations[f];
+				++numRotationKeys;
+			}
+		}
+		positionTrackStart[mNumJoints] = numPositionKeys;
+		rotationTrackStart[mNumJoints] = numRotationKeys;
+
+		mPositionTrackStart = positionTrackStart;
+		mPositionKeyFrames = new short[numPositionKeys];
+		System.arraycopy(positionKeyFrames, 0, mPositionKeyFrames, 0, numPositionKeys);
+		mPositionKeys = new float[numPositionKeys * 3];
+		System.arraycopy(positionKeys, 0, mPositionKeys, 0, numPositionKeys * 3);
+		mRotationTrackStart = rotationTrackStart;
+		mRotationKeyFrames = new short[numRotationKeys];
+		System.arraycopy(rotationKeyFrames, 0, mRotationKeyFrames, 0, numRotationKeys);
+		mRotationKeys = new long[numRotationKeys];
+		System.arraycopy(rotationKeys, 0, mRotationKeys, 0, numRotationKeys);
+	}
+
+	public int getNumFrames() {
+		return mNumFrames;
+	}
+
+	public int getNumJoints() {
+		return mNumJoints;
+	}
+
+	public int getParentIndex(int joint) {
+		return mParentIndices[joint];
+	}
+
+	/**
+	 * Returns the number of keys which were kept, position and rotation keys together.
+	 *
+	 * @return int The number of keys.
+	 */
+	public int getNumKeys() {
+		return mPositionKeyFrames.length + mRotationKeyFrames.length;
+	}
+
+	/**
+	 * Returns the approximate size of the clip data in bytes.
+	 *
+	 * @return int The size in bytes.
+	 */
+	public int getSizeInBytes() {
+		return mParentIndices.length * 4 + mBounds.length * 4 + (mPositionTrackStart.length
+				+ mRotationTrackStart.length) * 4 + mPositionKeyFrames.length * 14 + mRotationKeyFrames.length * 10;
+	}
+
+	/**
+	 * Decodes a joint of a frame.
+	 *
+	 * @param frame int The frame.
+	 * @param joint int The joint.
+	 * @param position {@link Vector3} Receives the position.
+	 * @param orientation {@link Quaternion} Receives the orientation.
+	 */
+	public void getJoint(int frame, int joint, Vector3 position, Quaternion orientation) {
+		getPosition(frame, joint, position);
+		getRotation(frame, joint, orientation);
+	}
+
+	/**
+	 * Decodes a joint between two consecutive frames. The last frame is followed by the first.
+	 *
+	 * @param frame int The frame.
+	 * @param interpolation double The position between the frame and the next one, from 0 to 1.
+	 * @param joint int The joint.
+	 * @param position {@link Vector3} Receives the position.
+	 * @param orientation {@link Quaternion} Receives the orientation.
+	 * @param scratchPosition {@link Vector3} Used for the next frame.
+	 * @param scratchOrientation {@link Quaternion} Used for the next frame.
+	 */
+	public void getJoint(int frame, double interpolation, int joint, Vector3 position, Quaternion orientation,
+			Vector3 scratchPosition, Quaternion scratchOrientation) {
+		frame %= mNumFrames;
+		getJoint(frame, joint, position, orientation);
+		if (interpolation == 0)
+			return;
+		getJoint((frame + 1) % mNumFrames, joint, scratchPosition, scratchOrientation);
+		position.lerpAndSet(position, scratchPosition, interpolation);
+		orientation.slerp(orientation, scratchOrientation, interpolation);
+	}
+
+	/**
+	 * Decodes the bounds of a frame.
+	 *
+	 * @param frame int The frame.
+	 * @param min {@link Vector3} Receives the minimum.
+	 * @param max {@link Vector3} Receives the maximum.
+	 */
+	public void getBounds(int frame, Vector3 min, Vector3 max) {
+		final int o = frame * 6;
+		min.setAll(mBounds[o], mBounds[o + 1], mBounds[o + 2]);
+		max.setAll(mBounds[o + 3], mBounds[o + 4], mBounds[o + 5]);
+	}
+
+	/**
+	 * Decodes a whole frame into new objects. This allocates a complete skeleton and should
+	 * only be used where the frame objects are needed, for instance to blend sequences.
+	 *
+	 * @param frame int The frame.
+	 * @return {@link SkeletalAnimationFrame} The frame.
+	 */
+	public SkeletalAnimationFrame decodeFrame(int frame) {
+		final SkeletalAnimationFrame result = new SkeletalAnimationFrame();
+		result.setFrameIndex(frame);
+		final Vector3 min = new Vector3();
+		final Vector3 max = new Vector3();
+		getBounds(frame, min, max);
+		result.setBounds(min, max);
+
+		final SkeletonJoint[] joints = new SkeletonJoint[mNumJoints];
+		for (int j = 0; j < mNumJoints; ++j) {
+			final SkeletonJoint joint = new SkeletonJoint();
+			joint.setIndex(j);
+			joint.setParentIndex(mParentIndices[j]);
+			getJoint(frame, j, joint.getPosition(), joint.getOrientation());
+			joints[j] = joint;
+		}
+		result.getSkeleton().setJoints(joints);
+		return result;
+	}
+
+	private void getPosition(int frame, int joint, Vector3 out) {
+		final int start = mPositionTrackStart[joint];
+		final int end = mPositionTrackStart[joint + 1];
+		final int key = findKey(mPositionKeyFrames, start, end, frame);
+		final int keyFrame = mPositionKeyFrames[key];
+		final float[] keys = mPositionKeys;
+		if (keyFrame == frame || key + 1 >= end) {
+			out.setAll(keys[key * 3], keys[key * 3 + 1], keys[key * 3 + 2]);
+			return;
+		}
+		final double t = (double) (frame - keyFrame) / (mPositionKeyFrames[key + 1] - keyFrame);
+		final int a = key * 3;
+		final int b = a + 3;
+		out.setAll(keys[a] + (keys[b] - keys[a]) * t, keys[a + 1] + (keys[b + 1] - keys[a + 1]) * t,
+				keys[a + 2] + (keys[b + 2] - keys[a + 2]) * t);
+	}
+
+	private void getRotation(int frame, int joint, Quaternion out) {
+		final int start = mRotationTrackStart[joint];
+		final int end = mRotationTrackStart[joint + 1];
+		final int key = findKey(mRotationKeyFrames, start, end, frame);
+		final int keyFrame = mRotationKeyFrames[key];
+		decodeRotation(mRotationKeys[key], out);
+		if (keyFrame == frame || key + 1 >= end)
+			return;
+		final double t = (double) (frame - keyFrame) / (mRotationKeyFrames[key + 1] - keyFrame);
+		final long next = mRotationKeys[key + 1];
+		final double x = out.x, y = out.y, z = out.z, w = out.w;
+		decodeRotation(next, out);
+		// -- The keys are close together, so normalized linear interpolation is accurate enough
+		final double sign = x * out.x + y * out.y + z * out.z + w * out.w < 0 ? -1 : 1;
+		final double nw = w + (sign * out.w - w) * t;
+		final double nx = x + (sign * out.x - x) * t;
+		final double ny = y + (sign * out.y - y) * t;
+		final double nz = z + (sign * out.z - z) * t;
+		final double invLength = 1.0 / Math.sqrt(nw * nw + nx * nx + ny * ny + nz * nz);
+		out.setAll(nw * invLength, nx * invLength, ny * invLength, nz * invLength);
+	}
+
+	/**
+	 * Returns the last key at or before a frame. The first frame of every track is a key.
+	 */
+	private static int findKey(short[] keyFrames, int start, int end, int frame) {
+		int low = start;
+		int high = end - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (keyFrames[mid] <= frame)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Marks the frames which have to be kept. The first and last frames are always kept, every
+	 * other frame is kept when linear interpolation between the kept frames around it would be
+	 * off by more than the tolerance.
+	 */
+	private void reduceKeys(double[] values, int stride, double tolerance, boolean rotations, boolean[] keep) {
+		for (int f = 0; f < mNumFrames; ++f)
+			keep[f] = false;
+		keep[0] = true;
+		keep[mNumFrames - 1] = true;
+
+		int key = 0;
+		while (key < mNumFrames - 1) {
+			// -- Extend the segment from the key as far as all frames in between are reconstructed within the tolerance
+			int end = key + 1;
+			while (end + 1 < mNumFrames && segmentFits(values, stride, key, end + 1, tolerance, rotations))
+				++end;
+			keep[end] = true;
+			key = end;
+		}
+	}
+
+	private static boolean segmentFits(double[] values, int stride, int from, int to, double tolerance,
+			boolean rotations) {
+		final int a = from * stride;
+		final int b = to * stride;
+		double sign = 1;
+		if (rotations) {
+			double dot = 0;
+			for (int i = 0; i < 4; ++i)
+				dot += values[a + i] * values[b + i];
+			if (dot < 0) sign = -1;
+		}
+		for (int f = from + 1; f < to; ++f) {
+			final double t = (double) (f - from) / (to - from);
+			final int o = f * stride;
+			if (rotations) {
+				double x = values[a] + (sign * values[b] - values[a]) * t;
+				double y = values[a + 1] + (sign * values[b + 1] - values[a + 1]) * t;
+				double z = values[a + 2] + (sign * values[b + 2] - values[a + 2]) * t;
+				double w = values[a + 3] + (sign * values[b + 3] - values[a + 3]) * t;
+				final double length = Math.sqrt(x * x + y * y + z * z + w * w);
+				final double dot = Math.abs((x * values[o] + y * values[o + 1] + z * values[o + 2] + w * values[o + 3]) / length);
+				// -- The angle between the two rotations
+				if (2 * Math.acos(Math.min(1, dot)) > tolerance)
+					return false;
+			} else {
+				double distance2 = 0;
+				for (int i = 0; i < stride; ++i) {
+					final double d = values[a + i] + (values[b + i] - values[a + i]) * t - values[o + i];
+					distance2 += d * d;
+				}
+				if (distance2 > tolerance * tolerance)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Packs a rotation into 47 bits: the index of the largest component in the top two bits,
+	 * followed by the other three components with 15 bits each.
+	 */
+	static long encodeRotation(Quaternion q) {
+		final double length = Math.sqrt(q.x * q.x + q.y * q.y + q.z * q.z + q.w * q.w);
+		final double[] c = { q.x / length, q.y / length, q.z / length, q.w / length };
+		int largest = 0;
+		for (int i = 1; i < 4; ++i)
+			if (Math.abs(c[i]) > Math.abs(c[largest]))
+				largest = i;
+		// -- q and -q are the same rotation, so the largest component can always be positive
+		final double sign = c[largest] < 0 ? -1 : 1;
+		long packed = largest;
+		for (int i = 0; i < 4; ++i) {
+			if (i == largest) continue;
+			final double normalized = (sign * c[i] / SQRT1_2) * 0.5 + 0.5;
+			final long quantized = Math.round(Math.max(0, Math.min(1, normalized)) * QUANTIZE_MAX);
+			packed = (packed << QUANTIZE_BITS) | quantized;
+		}
+		return packed;
+	}
+
+	private static void decodeRotation(long packed, Quaternion out) {
+		final double c2 = component(packed);
+		final double c1 = component(packed >>> QUANTIZE_BITS);
+		final double c0 = component(packed >>> (QUANTIZE_BITS * 2));
+		final int largest = (int) (packed >>> (QUANTIZE_BITS * 3)) & 3;
+		final double cl = Math.sqrt(Math.max(0, 1 - c0 * c0 - c1 * c1 - c2 * c2));
+		switch (largest) {
+		case 0:
+			out.setAll(c2, cl, c0, c1);
+			break;
+		case 1:
+			out.setAll(c2, c0, cl, c1);
+			break;
+		case 2:
+			out.setAll(c2, c0, c1, cl);
+			break;
+		default:
+			out.setAll(cl, c0, c1, c2);
+			break;
+		}
+	}
+
+	private static void decodeRotation(long packed, Quaternion q, double[] out, int offset) {
+		decodeRotation(packed, q);
+		out[offset] = q.x;
+		out[offset + 1] = q.y;
+		out[offset + 2] = q.z;
+		out[offset + 3] = q.w;
+	}
+
+	private static double component(long bits) {
+		return ((bits & QUANTIZE_MAX) / (double) QUANTIZE_MAX * 2 - 1) * SQRT1_2;
+	}
+}
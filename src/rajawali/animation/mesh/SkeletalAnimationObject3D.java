@@ -14,7 +14,7 @@ package rajawali.animation.mesh;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 
 import rajawali.BufferInfo;
 import rajawali.Camera;
@@ -22,9 +22,12 @@ import rajawali.Geometry3D.BufferType;
 import rajawali.Object3D;
 import rajawali.animation.mesh.SkeletalAnimationFrame.SkeletonJoint;
 import rajawali.materials.Material;
+import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin.SkinningMode;
 import rajawali.math.Matrix;
 import rajawali.math.Matrix4;
+import rajawali.math.Quaternion;
 import rajawali.math.vector.Vector3;
+import rajawali.util.ArrayUtils;
 import rajawali.util.RajLog;
 import android.opengl.GLES20;
 import android.os.SystemClock;
@@ -52,6 +55,51 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 	public double[][] mInverseBindPoseMatrix;
 	public double[] uBoneMatrix;
 	
+	/**
+	 * Float copy of the last finished pose which is uploaded to the shaders as is
+	 */
+	protected float[] mBoneMatrixFloats;
+	
+	/**
+	 * The pose which is being evaluated. Swapped with {@link #mBoneMatrixFloats} once it is finished.
+	 */
+	protected float[] mBackBoneMatrixFloats;
+	
+	/**
+	 * Whether {@link #mBackBoneMatrixFloats} holds a pose which has not been uploaded yet
+	 */
+	protected boolean mPoseReady;
+	
+	private SkinningMode mSkinningMode = SkinningMode.LINEAR_BLEND;
+	
+	/**
+	 * Float copy of the last finished pose as dual quaternions, 8 floats per joint. Only used in
+	 * {@link SkinningMode#DUAL_QUATERNION} mode.
+	 */
+	protected float[] mBoneDualQuatFloats;
+	
+	/**
+	 * The dual quaternion pose which is being evaluated. Swapped with {@link #mBoneDualQuatFloats}
+	 * once it is finished.
+	 */
+	protected float[] mBackBoneDualQuatFloats;
+	
+	/**
+	 * The rotations of the inverse bind pose matrices as quaternions, x, y, z, w per joint
+	 */
+	private double[] mInverseBindRotations;
+	
+	/**
+	 * The number of samples per keyframe of the baked sequences, or 0 when baking is disabled
+	 */
+	private int mBakedSamplesPerFrame;
+	private boolean mBakeQuantized;
+	private BakedSkeletalAnimation mBaked;
+	private BakedSkeletalAnimation mBakedNext;
+	private SkeletalAnimationSequence mBakedSequence;
+	private SkeletalAnimationSequence mBakedNextSequence;
+	private float[] mBakedTransitionPose;
+	
 	private double[] mBoneTranslation = new double[16];
 	private double[] mBoneRotation = new double[16];
 	private double[] mBoneMatrix = new double[16];
@@ -59,12 +107,12 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 
 	public BufferInfo mBoneMatricesBufferInfo = new BufferInfo();
 	
-	private static final int DOUBLE_SIZE_BYTES = 8;
+	private static final int FLOAT_SIZE_BYTES = 4;
 
 	/**
-	 * DoubleBuffer containing joint transformation matrices
+	 * FloatBuffer containing joint transformation matrices
 	 */
-	protected DoubleBuffer mBoneMatrices;
+	protected FloatBuffer mBoneMatrices;
 
 	public SkeletalAnimationObject3D() {
 		mTmpJoint1 = new SkeletonJoint();
@@ -73,19 +121,24 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 
 	public void setJoints(SkeletonJoint[] joints) {
 		mJoints = joints;
-		if (mBoneMatrices == null) {
-			if (mBoneMatrices != null) {
-				mBoneMatrices.clear();
-			}
+		if (mBoneMatrixFloats == null || mBoneMatrixFloats.length != joints.length * 16) {
+			mBoneMatrixFloats = new float[joints.length * 16];
+			mBackBoneMatrixFloats = new float[joints.length * 16];
+		}
+		ArrayUtils.convertDoublesToFloats(uBoneMatrix, mBoneMatrixFloats);
+		mPoseReady = false;
+		mInverseBindRotations = null;
+		if (mSkinningMode == SkinningMode.DUAL_QUATERNION)
+			createDualQuaternionBuffers();
+		
+		if (mBoneMatrices == null || mBoneMatrices.capacity() != mBoneMatrixFloats.length) {
 			mBoneMatrices = ByteBuffer
-					.allocateDirect(joints.length * DOUBLE_SIZE_BYTES * 16)
-					.order(ByteOrder.nativeOrder()).asDoubleBuffer();
-
-			mBoneMatrices.put(uBoneMatrix);
-			mBoneMatrices.position(0);
-		} else {
-			mBoneMatrices.put(uBoneMatrix);
+					.allocateDirect(mBoneMatrixFloats.length * FLOAT_SIZE_BYTES)
+					.order(ByteOrder.nativeOrder()).asFloatBuffer();
 		}
+		mBoneMatrices.position(0);
+		mBoneMatrices.put(mBoneMatrixFloats);
+		mBoneMatrices.position(0);
 		mGeometry.createBuffer(mBoneMatricesBufferInfo, BufferType.FLOAT_BUFFER, mBoneMatrices, GLES20.GL_ARRAY_BUFFER);
 	}
 
@@ -96,6 +149,163 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 	public SkeletonJoint[] getJoints() {
 		return mJoints;
 	}
+	
+	/**
+	 * Returns the current bone matrices as floats, 16 per joint, ready to be uploaded
+	 * to a shader. The returned array is owned by this object and is swapped every frame,
+	 * so it should be fetched again each frame rather than kept.
+	 * 
+	 * @return float[] The bone matrices.
+	 */
+	public float[] getBoneMatrixFloats() {
+		return mBoneMatrixFloats;
+	}
+	
+	/**
+	 * Sets the way the joints are skinned. This has to match the {@link SkinningMode} of the
+	 * {@link rajawali.materials.plugins.SkeletalAnimationMaterialPlugin} of the child meshes.
+	 * <p>
+	 * In {@link SkinningMode#DUAL_QUATERNION} mode the pose is evaluated as dual quaternions
+	 * only. The joint matrices, {@link #uBoneMatrix} and {@link #getBoneMatrixFloats()} are
+	 * then not updated while the animation plays.
+	 * 
+	 * @param skinningMode {@link SkinningMode} The skinning mode.
+	 */
+	public void setSkinningMode(SkinningMode skinningMode) {
+		mSkinningMode = skinningMode;
+		mPoseReady = false;
+		mBaked = mBakedNext = null;
+		if (mSkinningMode == SkinningMode.DUAL_QUATERNION && mJoints != null)
+			createDualQuaternionBuffers();
+	}
+	
+	public SkinningMode getSkinningMode() {
+		return mSkinningMode;
+	}
+	
+	/**
+	 * Plays the animation sequences from palettes which are sampled ahead of time. All
+	 * instances of a model share the sampled palettes, see {@link BakedSkeletalAnimation}.
+	 * Playing a baked sequence only blends two palettes, which makes large crowds playing
+	 * the same sequences much cheaper.
+	 * <p>
+	 * The joints, {@link #uBoneMatrix} and the joint matrices are not updated while a baked
+	 * sequence plays.
+	 * 
+	 * @param samplesPerFrame int The number of samples per keyframe, or 0 to disable baking.
+	 * @param quantize boolean Whether to store the palettes with 16 bits per value.
+	 */
+	public void setBaking(int samplesPerFrame, boolean quantize) {
+		mBakedSamplesPerFrame = Math.max(0, samplesPerFrame);
+		mBakeQuantized = quantize;
+		mBaked = mBakedNext = null;
+	}
+	
+	public boolean isBakingEnabled() {
+		return mBakedSamplesPerFrame > 0;
+	}
+	
+	/**
+	 * Returns the current pose as dual quaternions, 8 floats per joint, ready to be uploaded
+	 * to a shader. Only available in {@link SkinningMode#DUAL_QUATERNION} mode. Like
+	 * {@link #getBoneMatrixFloats()} the returned array is swapped every frame.
+	 * 
+	 * @return float[] The dual quaternions, the real part x, y, z, w followed by the dual part x, y, z, w.
+	 */
+	public float[] getBoneDualQuatFloats() {
+		return mBoneDualQuatFloats;
+	}
+	
+	private void createDualQuaternionBuffers() {
+		if (mBoneDualQuatFloats == null || mBoneDualQuatFloats.length != mJoints.length * 8) {
+			mBoneDualQuatFloats = new float[mJoints.length * 8];
+			mBackBoneDualQuatFloats = new float[mJoints.length * 8];
+		}
+		// -- The bind pose, the identity transformation
+		for (int i = 0; i < mJoints.length; ++i)
+			mBoneDualQuatFloats[i * 8 + 3] = 1;
+	}
+	
+	/**
+	 * Extracts the rotations of the inverse bind pose matrices as quaternions, x, y, z, w per
+	 * joint. Their translations are read from the matrices directly.
+	 */
+	static double[] createInverseBindRotations(double[][] inverseBindPoseMatrix) {
+		final double[] rotations = new double[inverseBindPoseMatrix.length * 4];
+		for (int i = 0; i < inverseBindPoseMatrix.length; ++i) {
+			final double[] m = inverseBindPoseMatrix[i];
+			final int o = i * 4;
+			double trace = m[0] + m[5] + m[10];
+			double s;
+			if (trace > 0) {
+				s = Math.sqrt(trace + 1.0) * 2.0;
+				rotations[o] = (m[6] - m[9]) / s;
+				rotations[o + 1] = (m[8] - m[2]) / s;
+				rotations[o + 2] = (m[1] - m[4]) / s;
+				rotations[o + 3] = 0.25 * s;
+			} else if (m[0] > m[5] && m[0] > m[10]) {
+				s = Math.sqrt(1.0 + m[0] - m[5] - m[10]) * 2.0;
+				rotations[o] = 0.25 * s;
+				rotations[o + 1] = (m[4] + m[1]) / s;
+				rotations[o + 2] = (m[8] + m[2]) / s;
+				rotations[o + 3] = (m[6] - m[9]) / s;
+			} else if (m[5] > m[10]) {
+				s = Math.sqrt(1.0 + m[5] - m[0] - m[10]) * 2.0;
+				rotations[o] = (m[4] + m[1]) / s;
+				rotations[o + 1] = 0.25 * s;
+				rotations[o + 2] = (m[9] + m[6]) / s;
+				rotations[o + 3] = (m[8] - m[2]) / s;
+			} else {
+				s = Math.sqrt(1.0 + m[10] - m[0] - m[5]) * 2.0;
+				rotations[o] = (m[8] + m[2]) / s;
+				rotations[o + 1] = (m[9] + m[6]) / s;
+				rotations[o + 2] = 0.25 * s;
+				rotations[o + 3] = (m[1] - m[4]) / s;
+			}
+		}
+		return rotations;
+	}
+	
+	/**
+	 * Writes the dual quaternion of a joint, which is the joint transformation multiplied by
+	 * the inverse bind pose. This gives the same transformation as the bone matrix without
+	 * building any matrices.
+	 */
+	static void writeDualQuaternion(int i, double[] inverseBindRotations, double[][] inverseBindPoseMatrix,
+			Vector3 position, Quaternion orientation, float[] out) {
+		// -- The joint orientations are applied conjugated, see Quaternion.toRotationMatrix()
+		final double qx = -orientation.x, qy = -orientation.y, qz = -orientation.z, qw = orientation.w;
+		final int o = i * 4;
+		final double bx = inverseBindRotations[o], by = inverseBindRotations[o + 1];
+		final double bz = inverseBindRotations[o + 2], bw = inverseBindRotations[o + 3];
+		
+		// -- real = q * b
+		final double rx = qw * bx + bw * qx + qy * bz - qz * by;
+		final double ry = qw * by + bw * qy + qz * bx - qx * bz;
+		final double rz = qw * bz + bw * qz + qx * by - qy * bx;
+		final double rw = qw * bw - qx * bx - qy * by - qz * bz;
+		
+		// -- translation = position + q rotating the inverse bind pose translation
+		final double[] ib = inverseBindPoseMatrix[i];
+		final double vx = ib[12], vy = ib[13], vz = ib[14];
+		final double cx = qy * vz - qz * vy + qw * vx;
+		final double cy = qz * vx - qx * vz + qw * vy;
+		final double cz = qx * vy - qy * vx + qw * vz;
+		final double tx = position.x + vx + 2 * (qy * cz - qz * cy);
+		final double ty = position.y + vy + 2 * (qz * cx - qx * cz);
+		final double tz = position.z + vz + 2 * (qx * cy - qy * cx);
+		
+		// -- dual = 0.5 * translation * real
+		final int index = i * 8;
+		out[index] = (float) rx;
+		out[index + 1] = (float) ry;
+		out[index + 2] = (float) rz;
+		out[index + 3] = (float) rw;
+		out[index + 4] = (float) (0.5 * (tx * rw + ty * rz - tz * ry));
+		out[index + 5] = (float) (0.5 * (ty * rw + tz * rx - tx * rz));
+		out[index + 6] = (float) (0.5 * (tz * rw + tx * ry - ty * rx));
+		out[index + 7] = (float) (-0.5 * (tx * rx + ty * ry + tz * rz));
+	}
 
 	/**
 	 * Sets a new {@link SkeletalAnimationSequence}. It will use this one immediately no
@@ -106,9 +316,9 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 	public void setAnimationSequence(SkeletalAnimationSequence sequence)
 	{
 		mSequence = sequence;
-		if (sequence != null && sequence.getFrames() != null)
+		if (sequence != null && (sequence.getFrames() != null || sequence.isCompressed()))
 		{
-			mNumFrames = sequence.getFrames().length;
+			mNumFrames = sequence.isCompressed() ? sequence.getNumFrames() : sequence.getFrames().length;
 			
 			for (int i = 0, j = mChildren.size(); i < j; i++)
 				if (mChildren.get(i) instanceof SkeletalAnimationChildObject3D)
@@ -159,16 +369,23 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 		return mSequence;
 	}
 
-	public void setShaderParams(Camera camera) {
-		if (!mIsPlaying)
+	/**
+	 * Evaluates the pose at the given time into the back buffer and advances the animation.
+	 * No GL calls are made, so this may run on any thread as long as the same skeleton is
+	 * not evaluated by two threads at once. The pose is uploaded by the next call to
+	 * {@link #setShaderParams(Camera)} on the GL thread.
+	 * <p>
+	 * This is called by the {@link SkeletalPoseUpdater} for the playing skeletons of the scene
+	 * at the start of a frame.
+	 * <p>
+	 * When the {@link AnimationLodPolicy} skips the update only the time advances and no
+	 * pose is written.
+	 * 
+	 * @param currentTime long The time in milliseconds, as returned by {@link SystemClock#uptimeMillis()}.
+	 */
+	public void evaluatePose(long currentTime) {
+		if (!mIsPlaying || mSequence == null)
 			return;
-		mBoneMatrices.clear();
-		mBoneMatrices.position(0);
-
-		long currentTime = SystemClock.uptimeMillis();
-
-		SkeletalAnimationFrame currentFrame = (SkeletalAnimationFrame) mSequence.getFrame(mCurrentFrameIndex);
-		SkeletalAnimationFrame nextFrame = (SkeletalAnimationFrame) mSequence.getFrame((mCurrentFrameIndex + 1) % mSequence.getNumFrames());
 
 		mInterpolation += mFps * (currentTime - mStartTime) / 1000.0;
 		
@@ -177,23 +394,57 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 		if(isTransitioning)
 			transitionInterpolation = mTransitionInterpolator.getInterpolation((float) ((currentTime - mTransitionStartTime) / mTransitionDuration));
 		
+		// -- When the update is skipped only the time advances
+		if (mAnimationUpdateDue) {
+			if (mBakedSamplesPerFrame > 0)
+				sampleBakedPose(isTransitioning, transitionInterpolation);
+			else
+				interpolateJoints(isTransitioning, transitionInterpolation);
+		}
+		
+		if(isTransitioning && transitionInterpolation >= .99f)
+		{
+			isTransitioning = false;
+			mCurrentFrameIndex = mCurrentTransitionFrameIndex;
+			mSequence = mNextSequence;
+			mNextSequence = null;
+		}
+
+		if (mInterpolation >= 1) {
+			mInterpolation = 0;
+			mCurrentFrameIndex++;
+
+			if (mCurrentFrameIndex >= mSequence.getNumFrames())
+				mCurrentFrameIndex = 0;
+			
+			if(isTransitioning)
+			{
+				mCurrentTransitionFrameIndex++;
+				if(mCurrentTransitionFrameIndex >= mNextSequence.getNumFrames())
+					mCurrentTransitionFrameIndex = 0;
+			}
+		}
+
+		mStartTime = currentTime;
+		mPoseReady = mAnimationUpdateDue;
+	}
+
+	/**
+	 * Interpolates the joints between the current keyframes and writes the pose.
+	 */
+	private void interpolateJoints(boolean isTransitioning, double transitionInterpolation) {
+		final boolean dualQuaternion = mSkinningMode == SkinningMode.DUAL_QUATERNION;
+		if (dualQuaternion && mInverseBindRotations == null)
+			mInverseBindRotations = createInverseBindRotations(mInverseBindPoseMatrix);
+		final float[] boneFloats = mBackBoneMatrixFloats;
 		for (int i = 0; i < mJoints.length; ++i) {
 			SkeletonJoint joint = getJoint(i);
-			SkeletonJoint fromJoint = currentFrame.getSkeleton().getJoint(i);
-			SkeletonJoint toJoint = nextFrame.getSkeleton().getJoint(i);
-			joint.setParentIndex(fromJoint.getParentIndex());
-			joint.getPosition().lerpAndSet(fromJoint.getPosition(), toJoint.getPosition(), mInterpolation);
-			joint.getOrientation().slerp(fromJoint.getOrientation(), toJoint.getOrientation(), mInterpolation);
+			mSequence.getJoint(mCurrentFrameIndex, mInterpolation, i, joint, mTmpJoint2);
 			
 			if(isTransitioning)
 			{
-				SkeletalAnimationFrame currentTransFrame = mNextSequence.getFrame(mCurrentTransitionFrameIndex % mNextSequence.getNumFrames());
-				SkeletalAnimationFrame nextTransFrame = mNextSequence.getFrame((mCurrentTransitionFrameIndex + 1) % mNextSequence.getNumFrames());
-				
-				fromJoint = currentTransFrame.getSkeleton().getJoint(i);
-				toJoint = nextTransFrame.getSkeleton().getJoint(i);
-				mTmpJoint1.getPosition().lerpAndSet(fromJoint.getPosition(), toJoint.getPosition(), mInterpolation);
-				mTmpJoint1.getOrientation().slerp(fromJoint.getOrientation(), toJoint.getOrientation(), mInterpolation);
+				mNextSequence.getJoint(mCurrentTransitionFrameIndex % mNextSequence.getNumFrames(), mInterpolation, i,
+						mTmpJoint1, mTmpJoint2);
 
 				// blend the two animations
 				mTmpJoint2.getPosition().lerpAndSet(joint.getPosition(), mTmpJoint1.getPosition(), transitionInterpolation);
@@ -203,6 +454,12 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 				joint.getOrientation().setAll(mTmpJoint2.getOrientation());
 			}
 
+			if (dualQuaternion) {
+				writeDualQuaternion(i, mInverseBindRotations, mInverseBindPoseMatrix, joint.getPosition(),
+						joint.getOrientation(), mBackBoneDualQuatFloats);
+				continue;
+			}
+
 			Matrix.setIdentityM(mBoneTranslation, 0);
 			Matrix.setIdentityM(mBoneRotation, 0);
 			Matrix.setIdentityM(mBoneMatrix, 0);
@@ -216,38 +473,72 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 			joint.setMatrix(mResultMatrix);
 
 			int index = 16 * i;
-			for (int j = 0; j < 16; j++) {
-				uBoneMatrix[index + j] = mResultMatrix[j];
-				mBoneMatrices.put(mResultMatrix[j]);
-			}
+			System.arraycopy(mResultMatrix, 0, uBoneMatrix, index, 16);
+			for (int j = 0; j < 16; j++)
+				boneFloats[index + j] = (float) mResultMatrix[j];
 		}
+	}
+
+	/**
+	 * Writes the pose from the baked sequences. The joints themselves are not updated.
+	 */
+	private void sampleBakedPose(boolean isTransitioning, double transitionInterpolation) {
+		final float[] pose = mSkinningMode == SkinningMode.DUAL_QUATERNION ? mBackBoneDualQuatFloats : mBackBoneMatrixFloats;
+		if (mBaked == null || mBakedSequence != mSequence) {
+			mBaked = obtainBaked(mSequence);
+			mBakedSequence = mSequence;
+		}
+		mBaked.sample(mCurrentFrameIndex, mInterpolation, pose);
 		
-		if(isTransitioning && transitionInterpolation >= .99f)
+		if(isTransitioning)
 		{
-			isTransitioning = false;
-			mCurrentFrameIndex = mCurrentTransitionFrameIndex;
-			mSequence = mNextSequence;
-			mNextSequence = null;
+			if (mBakedNext == null || mBakedNextSequence != mNextSequence) {
+				mBakedNext = obtainBaked(mNextSequence);
+				mBakedNextSequence = mNextSequence;
+			}
+			if (mBakedTransitionPose == null || mBakedTransitionPose.length != pose.length)
+				mBakedTransitionPose = new float[pose.length];
+			mBakedNext.sample(mCurrentTransitionFrameIndex, mInterpolation, mBakedTransitionPose);
+			// -- blend the two animations
+			BakedSkeletalAnimation.blend(mSkinningMode, pose, mBakedTransitionPose, transitionInterpolation, pose);
 		}
+	}
+	
+	private BakedSkeletalAnimation obtainBaked(SkeletalAnimationSequence sequence) {
+		return BakedSkeletalAnimation.obtain(sequence, mInverseBindPoseMatrix, mSkinningMode, mBakedSamplesPerFrame,
+				mBakeQuantized);
+	}
 
-		mGeometry.changeBufferData(mBoneMatricesBufferInfo, mBoneMatrices, 0);
+	/**
+	 * Uploads the pose evaluated by {@link #evaluatePose(long)}. When the pose has not been
+	 * evaluated ahead of time it is evaluated here on the GL thread, unless the
+	 * {@link AnimationLodPolicy} skips this frame.
+	 */
+	public void setShaderParams(Camera camera) {
+		if (!mIsPlaying || !mAnimationUpdateDue)
+			return;
+		if (!mPoseReady)
+			evaluatePose(SystemClock.uptimeMillis());
+		if (!mPoseReady)
+			return;
 
-		if (mInterpolation >= 1) {
-			mInterpolation = 0;
-			mCurrentFrameIndex++;
+		// -- The finished pose becomes the front buffer, the old one is reused for the next pose
+		final float[] pose = mBackBoneMatrixFloats;
+		mBackBoneMatrixFloats = mBoneMatrixFloats;
+		mBoneMatrixFloats = pose;
+		mPoseReady = false;
 
-			if (mCurrentFrameIndex >= mSequence.getNumFrames())
-				mCurrentFrameIndex = 0;
-			
-			if(isTransitioning)
-			{
-				mCurrentTransitionFrameIndex++;
-				if(mCurrentTransitionFrameIndex >= mNextSequence.getNumFrames())
-					mCurrentTransitionFrameIndex = 0;
-			}
+		if (mSkinningMode == SkinningMode.DUAL_QUATERNION) {
+			final float[] dualQuat = mBackBoneDualQuatFloats;
+			mBackBoneDualQuatFloats = mBoneDualQuatFloats;
+			mBoneDualQuatFloats = dualQuat;
+			return;
 		}
 
-		mStartTime = currentTime;
+		mBoneMatrices.clear();
+		mBoneMatrices.position(0);
+		mBoneMatrices.put(mBoneMatrixFloats);
+		mGeometry.changeBufferData(mBoneMatricesBufferInfo, mBoneMatrices, 0);
 	}
 
 	public void play() {
@@ -262,6 +553,18 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 				((AAnimationObject3D) mChildren.get(i)).play();
 	}
 
+	@Override
+	public void stop() {
+		super.stop();
+		mPoseReady = false;
+	}
+
+	@Override
+	public void pause() {
+		super.pause();
+		mPoseReady = false;
+	}
+
 	@Override
 	public void render(Camera camera, final Matrix4 projMatrix, final Matrix4 vMatrix, 
 			final Matrix4 parentMatrix, Material sceneMaterial) {
@@ -329,9 +632,19 @@ public class SkeletalAnimationObject3D extends AAnimationObject3D {
 
 		clone.setFrames(mFrames);
 		clone.setFps(mFps);
-		clone.uBoneMatrix = uBoneMatrix;
+		// -- The pose is written to the joints, so every clone needs its own to be evaluated independently
+		clone.uBoneMatrix = uBoneMatrix.clone();
 		clone.mInverseBindPoseMatrix = mInverseBindPoseMatrix;
-		clone.setJoints(mJoints);
+		clone.mSkinningMode = mSkinningMode;
+		clone.mBakedSamplesPerFrame = mBakedSamplesPerFrame;
+		clone.mBakeQuantized = mBakeQuantized;
+		clone.setAnimationLod(mAnimationLod);
+		SkeletonJoint[] joints = new SkeletonJoint[mJoints.length];
+		for (int i = 0; i < joints.length; ++i) {
+			joints[i] = new SkeletonJoint();
+			joints[i].copyAllFrom(mJoints[i]);
+		}
+		clone.setJoints(joints);
 		
 		for(int i=0; i<mChildren.size(); i++)
 		{
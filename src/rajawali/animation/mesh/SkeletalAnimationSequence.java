@@ -24,6 +24,7 @@ public class SkeletalAnimationSequence implements IAnimationSequence {
 	private String mName;
 	private int mNumFrames;
 	private int mFrameRate;
+	private SkeletalAnimationClip mClip;
 	
 	public SkeletalAnimationSequence(String name)
 	{
@@ -33,18 +34,84 @@ public class SkeletalAnimationSequence implements IAnimationSequence {
 	public void setFrames(SkeletalAnimationFrame[] frames)
 	{
 		mFrames = frames;
+		mClip = null;
 	}
 	
+	/**
+	 * Returns the frames of this sequence, or null when the sequence is compressed.
+	 * 
+	 * @return
+	 */
 	public SkeletalAnimationFrame[] getFrames()
 	{
 		return mFrames;
 	}
 	
+	/**
+	 * Returns a frame. When the sequence is compressed the frame is decoded into new
+	 * objects, use {@link #getJoint(int, double, int, SkeletonJoint, SkeletonJoint)} to
+	 * play the sequence.
+	 * 
+	 * @param index
+	 * @return
+	 */
 	public SkeletalAnimationFrame getFrame(int index)
 	{
+		if (mFrames == null && mClip != null)
+			return mClip.decodeFrame(index);
 		return mFrames[index];
 	}
 	
+	/**
+	 * Replaces the frames by a {@link SkeletalAnimationClip}, which needs a fraction of
+	 * their memory. Keys which can be reconstructed within the tolerances are dropped.
+	 * 
+	 * @param positionTolerance		The maximum error of a joint position, in model units.
+	 * @param rotationTolerance		The maximum error of a joint rotation, in radians.
+	 */
+	public void compress(double positionTolerance, double rotationTolerance)
+	{
+		if (mFrames == null)
+			return;
+		mClip = new SkeletalAnimationClip(mFrames, positionTolerance, rotationTolerance);
+		mNumFrames = mFrames.length;
+		mFrames = null;
+	}
+	
+	public boolean isCompressed()
+	{
+		return mClip != null;
+	}
+	
+	public SkeletalAnimationClip getClip()
+	{
+		return mClip;
+	}
+	
+	/**
+	 * Writes a joint between a frame and the next one. The last frame is followed by the first.
+	 * 
+	 * @param frameIndex		The frame.
+	 * @param interpolation		The position between the frame and the next one.
+	 * @param jointIndex		The joint.
+	 * @param out				Receives the position, orientation and parent index of the joint.
+	 * @param scratch			Used for intermediate values.
+	 */
+	public void getJoint(int frameIndex, double interpolation, int jointIndex, SkeletonJoint out, SkeletonJoint scratch)
+	{
+		if (mClip != null) {
+			out.setParentIndex(mClip.getParentIndex(jointIndex));
+			mClip.getJoint(frameIndex, interpolation, jointIndex, out.getPosition(), out.getOrientation(),
+					scratch.getPosition(), scratch.getOrientation());
+			return;
+		}
+		SkeletonJoint fromJoint = mFrames[frameIndex].getSkeleton().getJoint(jointIndex);
+		SkeletonJoint toJoint = mFrames[(frameIndex + 1) % mFrames.length].getSkeleton().getJoint(jointIndex);
+		out.setParentIndex(fromJoint.getParentIndex());
+		out.getPosition().lerpAndSet(fromJoint.getPosition(), toJoint.getPosition(), interpolation);
+		out.getOrientation().slerp(fromJoint.getOrientation(), toJoint.getOrientation(), interpolation);
+	}
+	
 	public void setFrameData(double[] frameData)
 	{
 		mFrameData = frameData;
@@ -0,0 +1,219 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.animation.mesh;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rajawali.Camera;
+import android.os.SystemClock;
+
+/**
+ * Evaluates the poses of the playing {@link SkeletalAnimationObject3D}s of a scene on a pool of
+ * worker threads, so that the interpolation and matrix work of many animated characters does
+ * not have to run on the GL thread alone.
+ * <p>
+ * Every skeleton is one job. The workers, and the GL thread once it calls {@link #finishUpdate()},
+ * take the next job from a shared counter until all skeletons are done. Each skeleton writes its
+ * pose into its own back buffer, which the GL thread swaps and uploads when the skeleton is
+ * drawn. All skeletons are evaluated for the same time, and a skeleton only ever reads its own
+ * state and the shared key frames, so the poses do not depend on the number of threads or the
+ * order in which the jobs run.
+ * <p>
+ * The update is driven by the {@link rajawali.scene.RajawaliScene}, which collects the playing
+ * skeletons among its children every frame, so skeletons which are removed from the scene are
+ * no longer evaluated. The scene finishes the update before its animations and their listeners
+ * run, since those may change the sequences the workers read:
+ * 
+ * <pre><code>
+ * updater.beginUpdate(camera, skeletons);
+ * // other work which does not touch the skeletons
+ * updater.finishUpdate();
+ * </code></pre>
+ * 
+ * {@link #beginUpdate(Camera, List)} and {@link #finishUpdate()} must be called from the GL thread.
+ */
+public final class SkeletalPoseUpdater {
+	private static SkeletalPoseUpdater instance = null;
+
+	private final AtomicInteger mNextJob = new AtomicInteger();
+	private final Object mLock = new Object();
+	private final Runnable mWorker = new Runnable() {
+		public void run() {
+			try {
+				runJobs();
+			} finally {
+				synchronized (mLock) {
+					if (--mRunningWorkers == 0)
+						mLock.notifyAll();
+				}
+			}
+		}
+	};
+
+	private ExecutorService mExecutor;
+	private int mThreadCount;
+	private SkeletalAnimationObject3D[] mJobs = new SkeletalAnimationObject3D[16];
+	private int mNumJobs;
+	private long mTime;
+	private boolean mUpdating;
+	private int mRunningWorkers; // Guarded by mLock
+	private Throwable mError; // Guarded by mLock
+
+	private SkeletalPoseUpdater() {
+		mThreadCount = Math.max(0, Runtime.getRuntime().availableProcessors() - 1);
+	}
+
+	public static SkeletalPoseUpdater getInstance() {
+		if(instance == null)
+		{
+			instance = new SkeletalPoseUpdater();
+		}
+		return instance;
+	}
+
+	/**
+	 * Sets the number of worker threads. The GL thread takes part in the evaluation as well,
+	 * so zero evaluates all poses on the GL thread. Defaults to the number of processors minus one.
+	 * 
+	 * @param threads int The number of worker threads.
+	 */
+	public void setThreadCount(int threads) {
+		finishUpdate();
+		mThreadCount = Math.max(0, threads);
+		shutdown();
+	}
+
+	public int getThreadCount() {
+		return mThreadCount;
+	}
+
+	/**
+	 * Starts evaluating the poses of the given skeletons for the current time. Returns
+	 * without waiting for the evaluation to finish.
+	 * <p>
+	 * The {@link AnimationLodPolicy} of each skeleton is applied here, so skeletons which are
+	 * culled before they are drawn are throttled as well.
+	 * 
+	 * @param camera {@link Camera} The camera of the frame, with its frustum already updated.
+	 * @param skeletons {@link List} The playing skeletons of the scene. The list is copied.
+	 */
+	public void beginUpdate(Camera camera, List<SkeletalAnimationObject3D> skeletons) {
+		finishUpdate();
+
+		mNumJobs = skeletons.size();
+		if (mJobs.length < mNumJobs)
+			mJobs = new SkeletalAnimationObject3D[Math.max(mNumJobs, mJobs.length * 2)];
+		for (int i = 0; i < mNumJobs; ++i)
+			mJobs[i] = skeletons.get(i);
+		for (int i = 0; i < mNumJobs; ++i)
+			mJobs[i].updateAnimationLod(camera);
+		if (mNumJobs == 0)
+			return;
+
+		mTime = SystemClock.uptimeMillis();
+		mNextJob.set(0);
+		mUpdating = true;
+
+		// -- A single skeleton is not worth handing off, the GL thread evaluates it in finishUpdate()
+		final int workers = Math.min(mThreadCount, mNumJobs - 1);
+		if (workers == 0)
+			return;
+		if (mExecutor == null)
+			mExecutor = Executors.newFixedThreadPool(mThreadCount, new WorkerFactory());
+		synchronized (mLock) {
+			mRunningWorkers = workers;
+		}
+		for (int i = 0; i < workers; ++i)
+			mExecutor.execute(mWorker);
+	}
+
+	/**
+	 * Evaluates the remaining poses on the calling thread and waits until all poses are done.
+	 * Returns right away when no update is in progress. The first exception or error thrown while
+	 * evaluating a pose, on any thread, is rethrown here once all poses are done.
+	 */
+	public void finishUpdate() {
+		if (!mUpdating)
+			return;
+		runJobs();
+
+		Throwable error;
+		boolean interrupted = false;
+		synchronized (mLock) {
+			while (mRunningWorkers > 0) {
+				try {
+					mLock.wait();
+				} catch (InterruptedException e) {
+					// -- The workers still use the skeletons, so keep waiting for them
+					interrupted = true;
+				}
+			}
+			error = mError;
+			mError = null;
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		Arrays.fill(mJobs, 0, mNumJobs, null);
+		mNumJobs = 0;
+		mUpdating = false;
+		// -- Failures of the workers are reported on the GL thread
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		if (error instanceof Error)
+			throw (Error) error;
+		if (error != null)
+			throw new RuntimeException(error);
+	}
+
+	/**
+	 * Stops the worker threads. They are started again by the next update.
+	 */
+	public void shutdown() {
+		finishUpdate();
+		if (mExecutor != null) {
+			mExecutor.shutdown();
+			mExecutor = null;
+		}
+	}
+
+	private void runJobs() {
+		final SkeletalAnimationObject3D[] jobs = mJobs;
+		final int numJobs = mNumJobs;
+		int job;
+		while ((job = mNextJob.getAndIncrement()) < numJobs) {
+			try {
+				jobs[job].evaluatePose(mTime);
+			} catch (Throwable e) {
+				synchronized (mLock) {
+					if (mError == null) mError = e;
+				}
+			}
+		}
+	}
+
+	private static final class WorkerFactory implements ThreadFactory {
+		private final AtomicInteger mCount = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "SkeletalPoseUpdater-" + mCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
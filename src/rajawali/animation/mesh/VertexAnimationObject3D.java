@@ -18,7 +18,6 @@ import rajawali.SerializedObject3D;
 import rajawali.materials.Material;
 import rajawali.materials.plugins.IMaterialPlugin;
 import rajawali.materials.plugins.VertexAnimationMaterialPlugin;
-import rajawali.util.RajLog;
 import android.opengl.GLES20;
 import android.os.SystemClock;
 
@@ -47,28 +46,42 @@ public class VertexAnimationObject3D extends AAnimationObject3D {
 		}
 	}
 
-	public void setShaderParams(Camera camera) {
-		super.setShaderParams(camera);
-
-		long now = SystemClock.uptimeMillis();
+	/**
+	 * Advances the animation to the given time. The {@link AnimationLodPolicy} is applied
+	 * first; a skipped update keeps the current frame and interpolation and the next update
+	 * catches up.
+	 * <p>
+	 * This is called by {@link rajawali.scene.RajawaliScene} on the GL thread for the playing
+	 * vertex animations of the scene at the start of a frame, before anything is drawn, so
+	 * objects which are culled are throttled as well.
+	 * 
+	 * @param camera {@link Camera} The camera of the frame, with its frustum already updated.
+	 * @param currentTime long The time in milliseconds, as returned by {@link SystemClock#uptimeMillis()}.
+	 */
+	public void updateFrame(Camera camera, long currentTime) {
+		if (!isPlaying() || !updateAnimationLod(camera))
+			return;
 
-		// Calculate interpolation and frame delta (if playing)
-		if (isPlaying()) {
-			mInterpolation += (now - mStartTime) * mFps / 1000.0;
-			mCurrentFrameIndex += (int) mInterpolation; // advance frame if interpolation >= 1
-			if (mCurrentFrameIndex > mEndFrameIndex) {
-				if (mLoop) {
-					mCurrentFrameIndex -= mStartFrameIndex;
-					mCurrentFrameIndex %= mEndFrameIndex - mStartFrameIndex;
-					mCurrentFrameIndex += mStartFrameIndex;
-				} else {
-					mCurrentFrameIndex = mEndFrameIndex;
-					pause();
-				}
+		// Calculate interpolation and frame delta
+		mInterpolation += (currentTime - mStartTime) * mFps / 1000.0;
+		mCurrentFrameIndex += (int) mInterpolation; // advance frame if interpolation >= 1
+		if (mCurrentFrameIndex > mEndFrameIndex) {
+			if (mLoop) {
+				mCurrentFrameIndex -= mStartFrameIndex;
+				mCurrentFrameIndex %= mEndFrameIndex - mStartFrameIndex;
+				mCurrentFrameIndex += mStartFrameIndex;
+			} else {
+				mCurrentFrameIndex = mEndFrameIndex;
+				pause();
 			}
-			mInterpolation -= (int) mInterpolation; // clamp to [0, 1)
-			RajLog.i("interp: " + mInterpolation);
 		}
+		mInterpolation -= (int) mInterpolation; // clamp to [0, 1)
+		// -- Skipped updates keep the start time, so the next update catches up
+		mStartTime = currentTime;
+	}
+
+	public void setShaderParams(Camera camera) {
+		super.setShaderParams(camera);
 
 		// Update geometry (if current frame is different from before)
 		Geometry3D currentGeometry = ((VertexAnimationFrame) mFrames.get(mCurrentFrameIndex)).getGeometry();
@@ -95,7 +108,6 @@ public class VertexAnimationObject3D extends AAnimationObject3D {
 		mMaterialPlugin.setInterpolation(mInterpolation);
 		mMaterialPlugin.setNextFrameVertices(nextGeometry.getVertexBufferInfo().bufferHandle);
 		mMaterialPlugin.setNextFrameNormals(nextGeometry.getNormalBufferInfo().bufferHandle);
-		mStartTime = now;
 	}
 
 	public void reload() {
@@ -134,6 +146,7 @@ public class VertexAnimationObject3D extends AAnimationObject3D {
 		clone.setRotation(getRotation());
 		clone.setScale(getScale());
 		clone.setFps(mFps);
+		clone.setAnimationLod(mAnimationLod);
 		clone.mElementsBufferType = mGeometry.areOnlyShortBuffersSupported() ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_UNSIGNED_INT;
 		return clone;
 	}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.materials;
+
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import rajawali.Capabilities;
+import rajawali.util.RajLog;
+import android.opengl.GLES20;
+import android.os.Build;
+
+/**
+ * {@link IProgramBinaryProvider} for OpenGL ES 3.0 contexts, where retrieving and loading
+ * program binaries is part of the core API. The GLES30 bindings were added in API level 18 and
+ * the library is compiled against API level 17, so glGetProgramBinary and glProgramBinary are
+ * looked up by reflection. On older devices and on OpenGL ES 2.0 contexts the provider reports
+ * itself unsupported and programs are compiled from source.
+ *
+ * <pre><code>
+ * ShaderProgramCache.getInstance().setBinaryCache(new ProgramBinaryCache(
+ * 		new File(getContext().getCacheDir(), "programs"), new GLES30ProgramBinaryProvider()));
+ * </code></pre>
+ *
+ * Must only be used on the GL thread.
+ */
+public class GLES30ProgramBinaryProvider implements IProgramBinaryProvider {
+	private static final int GL_PROGRAM_BINARY_LENGTH = 0x8741;
+	private static final int GL_NUM_PROGRAM_BINARY_FORMATS = 0x87FE;
+	private static final int JELLY_BEAN_MR2 = 18;
+
+	private final int[] mParam = new int[1];
+	private Method mGetProgramBinary;
+	private Method mProgramBinary;
+	private boolean mIsInitialized;
+	private boolean mIsSupported;
+
+	public boolean isSupported() {
+		if (!mIsInitialized) {
+			mIsSupported = initialize();
+			mIsInitialized = true;
+		}
+		return mIsSupported;
+	}
+
+	private boolean initialize() {
+		if (Build.VERSION.SDK_INT < JELLY_BEAN_MR2)
+			return false;
+		// The version string has the form "OpenGL ES 3.0 <vendor specific information>"
+		if (!Capabilities.getInstance().getVersion().startsWith("OpenGL ES 3"))
+			return false;
+		GLES20.glGetIntegerv(GL_NUM_PROGRAM_BINARY_FORMATS, mParam, 0);
+		if (mParam[0] <= 0)
+			return false;
+
+		try {
+			final Class<?> gles30 = Class.forName("android.opengl.GLES30");
+			mGetProgramBinary = gles30.getMethod("glGetProgramBinary", int.class, int.class, int[].class, int.class,
+					int[].class, int.class, Buffer.class);
+			mProgramBinary = gles30.getMethod("glProgramBinary", int.class, int.class, Buffer.class, int.class);
+			return true;
+		} catch (ClassNotFoundException e) {
+			RajLog.e("[" + getClass().getName() + "] " + e.getMessage());
+		} catch (NoSuchMethodException e) {
+			RajLog.e("[" + getClass().getName() + "] " + e.getMessage());
+		}
+		return false;
+	}
+
+	public byte[] getProgramBinary(int programHandle, int[] binaryFormat) {
+		if (!isSupported()) return null;
+		GLES20.glGetProgramiv(programHandle, GL_PROGRAM_BINARY_LENGTH, mParam, 0);
+		final int length = mParam[0];
+		if (length <= 0) return null;
+
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+		final int[] written = new int[1];
+		try {
+			mGetProgramBinary.invoke(null, programHandle, length, written, 0, binaryFormat, 0, buffer);
+		} catch (Exception e) {
+			RajLog.e("[" + getClass().getName() + "] Could not retrieve program binary: " + e.getMessage());
+			return null;
+		}
+		if (written[0] <= 0) return null;
+
+		final byte[] binary = new byte[written[0]];
+		buffer.position(0);
+		buffer.get(binary);
+		return binary;
+	}
+
+	public boolean setProgramBinary(int programHandle, int binaryFormat, byte[] binary) {
+		if (!isSupported()) return false;
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(binary.length).order(ByteOrder.nativeOrder());
+		buffer.put(binary).position(0);
+		try {
+			mProgramBinary.invoke(null, programHandle, binaryFormat, buffer, binary.length);
+		} catch (Exception e) {
+			RajLog.e("[" + getClass().getName() + "] Could not load program binary: " + e.getMessage());
+			return false;
+		}
+		// A format the driver no longer knows raises GL_INVALID_ENUM, which the renderer would
+		// otherwise report as an error at the end of the frame
+		if (clearErrors()) return false;
+
+		GLES20.glGetProgramiv(programHandle, GLES20.GL_LINK_STATUS, mParam, 0);
+		return mParam[0] == GLES20.GL_TRUE;
+	}
+
+	/**
+	 * Consumes the pending GL errors.
+	 *
+	 * @return boolean True if there were any.
+	 */
+	private static boolean clearErrors() {
+		boolean hadError = false;
+		while (GLES20.glGetError() != GLES20.GL_NO_ERROR)
+			hadError = true;
+		return hadError;
+	}
+}
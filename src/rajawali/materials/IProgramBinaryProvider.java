@@ -0,0 +1,50 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.materials;
+
+/**
+ * Retrieves and loads linked program binaries, as defined by GL_OES_get_program_binary
+ * (glGetProgramBinaryOES and glProgramBinaryOES). The Android GLES20 bindings don't expose
+ * these entry points, so an implementation has to come from native code or, on OpenGL ES 3.0
+ * contexts, from the GLES30 bindings as {@link GLES30ProgramBinaryProvider} does.
+ *
+ * @see ProgramBinaryCache
+ */
+public interface IProgramBinaryProvider {
+	/**
+	 * Checks if program binaries can be retrieved and loaded in the current GL context.
+	 *
+	 * @return boolean True if the provider is usable.
+	 */
+	public boolean isSupported();
+
+	/**
+	 * Retrieves the binary of a successfully linked program.
+	 *
+	 * @param programHandle int The program handle.
+	 * @param binaryFormat int[] Receives the driver specific binary format in its first element.
+	 * @return byte[] The program binary, or null if it couldn't be retrieved.
+	 */
+	public byte[] getProgramBinary(int programHandle, int[] binaryFormat);
+
+	/**
+	 * Loads a binary into a newly created program.
+	 *
+	 * @param programHandle int The program handle.
+	 * @param binaryFormat int The binary format, as returned by {@link #getProgramBinary(int, int[])}.
+	 * @param binary byte[] The program binary.
+	 * @return boolean True if the program was linked successfully. Drivers reject binaries
+	 * saved by other driver versions, in which case the program has to be compiled from source.
+	 */
+	public boolean setProgramBinary(int programHandle, int binaryFormat, byte[] binary);
+}
@@ -13,6 +13,7 @@
 package rajawali.materials;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import rajawali.Capabilities;
@@ -22,9 +23,11 @@ import rajawali.materials.methods.DiffuseMethod;
 import rajawali.materials.methods.IDiffuseMethod;
 import rajawali.materials.methods.ISpecularMethod;
 import rajawali.materials.methods.SpecularMethod;
+import rajawali.materials.ShaderProgramCache.ShaderProgram;
 import rajawali.materials.plugins.IMaterialPlugin;
 import rajawali.materials.shaders.FragmentShader;
 import rajawali.materials.shaders.IShaderFragment;
+import rajawali.materials.shaders.ProgramLocations;
 import rajawali.materials.shaders.VertexShader;
 import rajawali.materials.shaders.fragments.LightsFragmentShaderFragment;
 import rajawali.materials.shaders.fragments.LightsVertexShaderFragment;
@@ -40,6 +43,7 @@ import rajawali.materials.textures.SphereMapTexture;
 import rajawali.materials.textures.TextureManager;
 import rajawali.math.Matrix4;
 import rajawali.renderer.AFrameTask;
+import rajawali.renderer.GLStateManager;
 import rajawali.renderer.RajawaliRenderer;
 import rajawali.scene.RajawaliScene;
 import rajawali.util.RajLog;
@@ -137,13 +141,13 @@ public class Material extends AFrameTask {
 	 */
 	private int mProgramHandle = -1;
 	/**
-	 * Holds a reference to the vertex shader
+	 * Holds the sampler uniform locations of the textures, indexed like the texture list.
 	 */
-	private int mVShaderHandle;
+	private int[] mTextureUniformHandles;
 	/**
-	 * Holds a reference to the fragment shader
+	 * Holds a reference to the shader program shared through the {@link ShaderProgramCache}
 	 */
-	private int mFShaderHandle;
+	private ShaderProgram mProgram;
 	/**
 	 * The model matrix holds the object's local coordinates
 	 */
@@ -261,6 +265,8 @@ public class Material extends AFrameTask {
 	{
 		mTextureList = new ArrayList<ATexture>();
 		mMaxTextures = Capabilities.getInstance().getMaxTextureImageUnits();
+		mTextureUniformHandles = new int[mMaxTextures];
+		Arrays.fill(mTextureUniformHandles, -1);
 		mColor = new float[] { 1, 0, 0, 1 };
 		mAmbientColor = new float[] {.2f, .2f, .2f};
 		mAmbientIntensity = new float[] {.3f, .3f, .3f};	
@@ -448,10 +454,9 @@ public class Material extends AFrameTask {
 			mTextureList.clear();
 
 		if (RajawaliRenderer.hasGLContext()) {
-			GLES20.glDeleteShader(mVShaderHandle);
-			GLES20.glDeleteShader(mFShaderHandle);
-			GLES20.glDeleteProgram(mProgramHandle);
+			ShaderProgramCache.getInstance().release(mProgram);
 		}
+		mProgram = null;
 	}
 
 	/**
@@ -684,7 +689,12 @@ public class Material extends AFrameTask {
 			*/
 		}
 		
-		mProgramHandle = createProgram(mVertexShader.getShaderString(), mFragmentShader.getShaderString());
+		// Acquire the new program before releasing the old one so an unchanged program isn't relinked
+		final ShaderProgramCache programCache = ShaderProgramCache.getInstance();
+		final ShaderProgram previousProgram = mProgram;
+		mProgram = programCache.acquire(mVertexShader.getShaderString(), mFragmentShader.getShaderString());
+		programCache.release(previousProgram);
+		mProgramHandle = mProgram == null ? 0 : mProgram.getProgramHandle();
 		if (mProgramHandle == 0)
 		{
 			mIsDirty = false;
@@ -694,11 +704,7 @@ public class Material extends AFrameTask {
 		mVertexShader.setLocations(mProgramHandle);
 		mFragmentShader.setLocations(mProgramHandle);
 		
-		for(int i=0; i<mTextureList.size(); i++)
-		{
-			ATexture texture = mTextureList.get(i);
-			setTextureParameters(texture);
-		}
+		setTextureUniformHandles();
 
 		mIsDirty = false;
 	}
@@ -722,68 +728,6 @@ public class Material extends AFrameTask {
 		}
 	}
 
-	/**
-	 * Loads the shader from a text string and then compiles it.
-	 * 
-	 * @param shaderType
-	 * @param source
-	 * @return
-	 */
-	private int loadShader(int shaderType, String source) {
-		int shader = GLES20.glCreateShader(shaderType);
-		if (shader != 0) {
-			GLES20.glShaderSource(shader, source);
-			GLES20.glCompileShader(shader);
-			int[] compiled = new int[1];
-			GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
-			if (compiled[0] == 0) {
-				RajLog.e("[" + getClass().getName() + "] Could not compile "
-						+ (shaderType == GLES20.GL_FRAGMENT_SHADER ? "fragment" : "vertex") + " shader:");
-				RajLog.e("Shader log: " + GLES20.glGetShaderInfoLog(shader));
-				GLES20.glDeleteShader(shader);
-				shader = 0;
-			}
-		}
-		return shader;
-	}
-
-	/**
-	 * Creates a shader program by compiling the vertex and fragment shaders
-	 * from a string.
-	 * 
-	 * @param vertexSource
-	 * @param fragmentSource
-	 * @return
-	 */
-	private int createProgram(String vertexSource, String fragmentSource) {
-		mVShaderHandle = loadShader(GLES20.GL_VERTEX_SHADER, vertexSource);
-		if (mVShaderHandle == 0) {
-			return 0;
-		}
-
-		mFShaderHandle = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
-		if (mFShaderHandle == 0) {
-			return 0;
-		}
-
-		int program = GLES20.glCreateProgram();
-		if (program != 0) {
-			GLES20.glAttachShader(program, mVShaderHandle);
-			GLES20.glAttachShader(program, mFShaderHandle);
-			GLES20.glLinkProgram(program);
-
-			int[] linkStatus = new int[1];
-			GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
-			if (linkStatus[0] != GLES20.GL_TRUE) {
-				RajLog.e("Could not link program in " + getClass().getCanonicalName() + ": ");
-				RajLog.e(GLES20.glGetProgramInfoLog(program));
-				GLES20.glDeleteProgram(program);
-				program = 0;
-			}
-		}
-		return program;
-	}
-
 	/**
 	 * Tells the OpenGL context to use this program. This should be called every frame.
 	 */
@@ -793,7 +737,17 @@ public class Material extends AFrameTask {
 		{
 			createShaders();
 		}
-		GLES20.glUseProgram(mProgramHandle);
+		GLStateManager.getInstance().useProgram(mProgramHandle);
+	}
+	
+	/**
+	 * Retrieve the handle of the shader program of this material.
+	 * 
+	 * @return int The program handle. Zero if the program has not been created yet.
+	 */
+	public int getProgramHandle()
+	{
+		return mProgramHandle;
 	}
 	
 	/**
@@ -811,19 +765,22 @@ public class Material extends AFrameTask {
 	}
 	
 	/**
-	 * Sets the OpenGL texture handles for a newly added texture.
-	 * 
-	 * @param texture
+	 * Resolves the sampler uniform locations of the textures in the texture list. The
+	 * locations are stored by texture index so {@link #bindTextures()} doesn't have to
+	 * look them up by name.
 	 */
-	private void setTextureParameters(ATexture texture) {
-		if(texture.getUniformHandle() > -1) return;
-		
-		int textureHandle = GLES20.glGetUniformLocation(mProgramHandle, texture.getTextureName());
-		if (textureHandle == -1) {
-			RajLog.d("Could not get attrib location for "
-					+ texture.getTextureName() + ", " + texture.getTextureType());
+	private void setTextureUniformHandles() {
+		int num = mTextureList.size();
+		ProgramLocations locations = ProgramLocations.get(mProgramHandle);
+		for (int i = 0; i < num; i++) {
+			ATexture texture = mTextureList.get(i);
+			int textureHandle = locations.getUniformLocation(texture.getTextureName());
+			if (textureHandle == -1) {
+				RajLog.d("Could not get attrib location for "
+						+ texture.getTextureName() + ", " + texture.getTextureType());
+			}
+			mTextureUniformHandles[i] = textureHandle;
 		}
-		texture.setUniformHandle(textureHandle);
 	}
 	
 	/**
@@ -834,42 +791,49 @@ public class Material extends AFrameTask {
 	public void bindTextures() {
 		int num = mTextureList.size();
 
+		final GLStateManager glState = GLStateManager.getInstance();
 		for (int i = 0; i < num; i++) {
 			ATexture texture = mTextureList.get(i);
-			bindTextureByName(texture.getTextureName(), i, texture);
-			GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + i);
-			GLES20.glBindTexture(texture.getGLTextureType(), texture.getTextureId());
-			GLES20.glUniform1i(GLES20.glGetUniformLocation(mProgramHandle, texture.getTextureName()), i);
+			glState.activeTexture(GLES20.GL_TEXTURE0 + i);
+			glState.bindTexture(texture.getGLTextureType(), texture.getTextureId());
+			GLES20.glUniform1i(mTextureUniformHandles[i], i);
 		}
 		
 		if(mPlugins != null)
-			for(IMaterialPlugin plugin : mPlugins)
-				plugin.bindTextures(num);
+			for(int i = 0, j = mPlugins.size(); i < j; i++)
+				mPlugins.get(i).bindTextures(num);
 	}
 	
 	public void bindTextureByName(String name, int index, ATexture texture)
 	{
-		GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + index);
-		GLES20.glBindTexture(texture.getGLTextureType(), texture.getTextureId());
-		GLES20.glUniform1i(GLES20.glGetUniformLocation(mProgramHandle, name), index);
+		bindTexture(ProgramLocations.get(mProgramHandle).getUniformLocation(name), index, texture);
+	}
+	
+	/**
+	 * Binds a texture to a texture unit and points a sampler uniform at it. Used by
+	 * callers which resolved the sampler location when the program was linked.
+	 * 
+	 * @param uniformHandle int The sampler uniform location.
+	 * @param index int The texture unit.
+	 * @param texture {@link ATexture} The texture to bind.
+	 */
+	public void bindTexture(int uniformHandle, int index, ATexture texture)
+	{
+		final GLStateManager glState = GLStateManager.getInstance();
+		glState.activeTexture(GLES20.GL_TEXTURE0 + index);
+		glState.bindTexture(texture.getGLTextureType(), texture.getTextureId());
+		GLES20.glUniform1i(uniformHandle, index);
 	}
 
 	/**
-	 * Unbinds the texture from an OpenGL texturing target.
+	 * Notifies the plugins that the textures are no longer in use. The textures themselves
+	 * are left bound so the {@link GLStateManager} can skip rebinding them when the next
+	 * object uses the same textures.
 	 */
 	public void unbindTextures() {
-		int num = mTextureList.size();
-
 		if(mPlugins != null)
-			for(IMaterialPlugin plugin : mPlugins)
-				plugin.unbindTextures();
-		
-		for (int i = 0; i < num; i++) {
-			ATexture texture = mTextureList.get(i);
-			GLES20.glBindTexture(texture.getGLTextureType(), 0);
-		}
-		
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+			for(int i = 0, j = mPlugins.size(); i < j; i++)
+				mPlugins.get(i).unbindTextures();
 	}
 	
 	/**
@@ -899,6 +863,8 @@ public class Material extends AFrameTask {
 	public void removeTexture(ATexture texture) {
 		mTextureList.remove(texture);
 		texture.unregisterMaterial(this);
+		if (!mIsDirty && mProgramHandle > 0)
+			setTextureUniformHandles();
 	}
 	
 	/**
@@ -987,11 +953,7 @@ public class Material extends AFrameTask {
 		mVertexShader.setModelMatrix(mModelMatrix);
 		
 		mNormalMatrix.setAll(modelMatrix).setToNormalMatrix();
-		float[] matrix = mNormalMatrix.getFloatValues();
-		
-		mNormalFloats[0] = matrix[0]; mNormalFloats[1] = matrix[1]; mNormalFloats[2] = matrix[2];
-		mNormalFloats[3] = matrix[4]; mNormalFloats[4] = matrix[5]; mNormalFloats[5] = matrix[6];
-		mNormalFloats[6] = matrix[8]; mNormalFloats[7] = matrix[9]; mNormalFloats[8] = matrix[10];
+		mNormalMatrix.toFloat3x3Array(mNormalFloats);
 
 		mVertexShader.setNormalMatrix(mNormalFloats);
 	}
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.materials;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import rajawali.Capabilities;
+import rajawali.util.RajLog;
+import android.os.Build;
+
+/**
+ * Stores linked program binaries on disk so programs don't have to be compiled and linked
+ * again on the next start or after the GL context was lost. Binaries are keyed by the shader
+ * sources and a driver fingerprint, since a binary can only be loaded by the driver that
+ * saved it. If a binary is missing, unreadable or rejected by the driver the caller falls back
+ * to compiling from source.
+ *
+ * All GL access goes through an {@link IProgramBinaryProvider}, so this class can be used with
+ * a fake provider outside of a GL context. {@link GLES30ProgramBinaryProvider} works on OpenGL
+ * ES 3.0 contexts. Hook it up through {@link ShaderProgramCache#setBinaryCache(ProgramBinaryCache)}:
+ *
+ * <pre><code>
+ * ShaderProgramCache.getInstance().setBinaryCache(new ProgramBinaryCache(
+ * 		new File(getContext().getCacheDir(), "programs"), new GLES30ProgramBinaryProvider()));
+ * </code></pre>
+ */
+public class ProgramBinaryCache {
+	private static final int MAGIC = 0x52504243; // RPBC
+	private static final int FILE_VERSION = 1;
+	private static final String FILE_EXTENSION = ".bin";
+
+	private final File mDirectory;
+	private final IProgramBinaryProvider mProvider;
+	private final String mFingerprint;
+	private int mNumHits;
+	private int mNumMisses;
+
+	/**
+	 * Creates a cache which fingerprints binaries with the GPU and driver reported by
+	 * {@link Capabilities} and the Android build. Must be called on the GL thread.
+	 *
+	 * @param directory {@link File} The directory to store binaries in. Created if needed.
+	 * @param provider {@link IProgramBinaryProvider} The provider which retrieves and loads binaries.
+	 */
+	public ProgramBinaryCache(File directory, IProgramBinaryProvider provider) {
+		this(directory, provider, Capabilities.getInstance().getDriverFingerprint() + "|" + Build.FINGERPRINT);
+	}
+
+	/**
+	 * Creates a cache with an explicit fingerprint. Binaries saved with another fingerprint are
+	 * never loaded.
+	 *
+	 * @param directory {@link File} The directory to store binaries in. Created if needed.
+	 * @param provider {@link IProgramBinaryProvider} The provider which retrieves and loads binaries.
+	 * @param fingerprint String Identifies the driver the binaries are saved with.
+	 */
+	public ProgramBinaryCache(File directory, IProgramBinaryProvider provider, String fingerprint) {
+		mDirectory = directory;
+		mProvider = provider;
+		mFingerprint = fingerprint;
+	}
+
+	/**
+	 * Checks if the provider can load and retrieve binaries in the current GL context.
+	 *
+	 * @return boolean True if the cache is usable.
+	 */
+	public boolean isSupported() {
+		return mProvider.isSupported();
+	}
+
+	/**
+	 * Loads the cached binary for the given sources into a newly created program. A binary
+	 * which can't be read or is rejected by the driver is deleted.
+	 *
+	 * @param programHandle int A newly created program without shaders attached.
+	 * @param vertexSource String The vertex shader source.
+	 * @param fragmentSource String The fragment shader source.
+	 * @return boolean True if the program was linked from the cached binary.
+	 */
+	public boolean loadProgram(int programHandle, String vertexSource, String fragmentSource) {
+		final File file = getFile(vertexSource, fragmentSource);
+		if (file == null || !file.exists()) {
+			++mNumMisses;
+			return false;
+		}
+
+		int format = 0;
+		byte[] binary = null;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() == MAGIC && in.readInt() == FILE_VERSION && mFingerprint.equals(in.readUTF())) {
+				format = in.readInt();
+				final int length = in.readInt();
+				if (length > 0 && length <= file.length()) {
+					binary = new byte[length];
+					in.readFully(binary);
+				}
+			}
+		} catch (IOException e) {
+			RajLog.e("[" + getClass().getName() + "] Could not read program binary: " + e.getMessage());
+			binary = null;
+		} finally {
+			close(in);
+		}
+
+		if (binary == null || !mProvider.setProgramBinary(programHandle, format, binary)) {
+			file.delete();
+			++mNumMisses;
+			return false;
+		}
+		++mNumHits;
+		return true;
+	}
+
+	/**
+	 * Saves the binary of a linked program for the given sources.
+	 *
+	 * @param programHandle int A successfully linked program.
+	 * @param vertexSource String The vertex shader source.
+	 * @param fragmentSource String The fragment shader source.
+	 * @return boolean True if the binary was saved.
+	 */
+	public boolean saveProgram(int programHandle, String vertexSource, String fragmentSource) {
+		final File file = getFile(vertexSource, fragmentSource);
+		if (file == null) return false;
+		final int[] format = new int[1];
+		final byte[] binary = mProvider.getProgramBinary(programHandle, format);
+		if (binary == null) return false;
+
+		if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+			RajLog.e("[" + getClass().getName() + "] Could not create " + mDirectory);
+			return false;
+		}
+
+		// Write to a temporary file first so a crash never leaves a truncated binary behind
+		final File tmpFile = new File(mDirectory, file.getName() + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+			out.writeInt(MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeUTF(mFingerprint);
+			out.writeInt(format[0]);
+			out.writeInt(binary.length);
+			out.write(binary);
+			out.close();
+			out = null;
+			return tmpFile.renameTo(file);
+		} catch (IOException e) {
+			RajLog.e("[" + getClass().getName() + "] Could not write program binary: " + e.getMessage());
+			tmpFile.delete();
+			return false;
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * Deletes all cached binaries.
+	 */
+	public void clear() {
+		final File[] files = mDirectory.listFiles();
+		if (files == null) return;
+		for (File file : files) {
+			if (file.getName().endsWith(FILE_EXTENSION))
+				file.delete();
+		}
+	}
+
+	/**
+	 * Retrieve the number of programs which were loaded from a cached binary.
+	 *
+	 * @return int The hit count.
+	 */
+	public int getNumHits() {
+		return mNumHits;
+	}
+
+	/**
+	 * Retrieve the number of programs which had to be compiled from source.
+	 *
+	 * @return int The miss count.
+	 */
+	public int getNumMisses() {
+		return mNumMisses;
+	}
+
+	private File getFile(String vertexSource, String fragmentSource) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(mFingerprint.getBytes("UTF-8"));
+			digest.update((byte) 0);
+			digest.update(vertexSource.getBytes("UTF-8"));
+			digest.update((byte) 0);
+			digest.update(fragmentSource.getBytes("UTF-8"));
+			final byte[] hash = digest.digest();
+			final StringBuilder sb = new StringBuilder(hash.length * 2 + FILE_EXTENSION.length());
+			for (byte b : hash) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			return new File(mDirectory, sb.append(FILE_EXTENSION).toString());
+		} catch (NoSuchAlgorithmException e) {
+			RajLog.e("[" + getClass().getName() + "] " + e.getMessage());
+		} catch (UnsupportedEncodingException e) {
+			RajLog.e("[" + getClass().getName() + "] " + e.getMessage());
+		}
+		return null;
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable == null) return;
+		try {
+			closeable.close();
+		} catch (IOException e) {
+		}
+	}
+}
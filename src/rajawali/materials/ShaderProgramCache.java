@@ -0,0 +1,261 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.materials;
+
+import java.util.HashMap;
+
+import rajawali.materials.shaders.ProgramLocations;
+import rajawali.renderer.GLStateManager;
+import rajawali.util.RajLog;
+import android.opengl.GLES20;
+
+/**
+ * Shares linked shader programs between materials. Programs are keyed by their vertex and
+ * fragment shader source, so materials which only differ in uniform values such as colors
+ * compile and link their program only once.
+ *
+ * Programs are reference counted. Each call to {@link #acquire(String, String)} must be matched
+ * by a call to {@link #release(ShaderProgram)}, and the program is deleted when the last
+ * material releases it. Materials set all their uniforms before each draw, so a shared program
+ * never leaks state from one material to another.
+ *
+ * This class must only be used from the GL thread.
+ */
+public final class ShaderProgramCache {
+	private static ShaderProgramCache instance = null;
+
+	private final HashMap<ProgramKey, ShaderProgram> mPrograms = new HashMap<ProgramKey, ShaderProgram>();
+	private ProgramBinaryCache mBinaryCache;
+	private int mNumLinks;
+
+	/**
+	 * A linked program owned by the cache.
+	 */
+	public static final class ShaderProgram {
+		private final ProgramKey mKey;
+		private final int mProgramHandle;
+		private final int mVShaderHandle;
+		private final int mFShaderHandle;
+		private int mRefCount;
+
+		private ShaderProgram(ProgramKey key, int programHandle, int vShaderHandle, int fShaderHandle) {
+			mKey = key;
+			mProgramHandle = programHandle;
+			mVShaderHandle = vShaderHandle;
+			mFShaderHandle = fShaderHandle;
+		}
+
+		public int getProgramHandle() {
+			return mProgramHandle;
+		}
+
+		public int getRefCount() {
+			return mRefCount;
+		}
+	}
+
+	/**
+	 * The sources of a program. The hash code is computed once since the sources are long.
+	 */
+	private static final class ProgramKey {
+		private final String mVertexSource;
+		private final String mFragmentSource;
+		private final int mHash;
+
+		private ProgramKey(String vertexSource, String fragmentSource) {
+			mVertexSource = vertexSource;
+			mFragmentSource = fragmentSource;
+			mHash = 31 * vertexSource.hashCode() + fragmentSource.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof ProgramKey)) return false;
+			final ProgramKey other = (ProgramKey) o;
+			return mHash == other.mHash && mVertexSource.equals(other.mVertexSource)
+					&& mFragmentSource.equals(other.mFragmentSource);
+		}
+	}
+
+	private ShaderProgramCache() {
+	}
+
+	public static ShaderProgramCache getInstance() {
+		if(instance == null)
+		{
+			instance = new ShaderProgramCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Retrieve the program for the given shader sources, compiling and linking it if no
+	 * material uses it yet. Increases the reference count of the program.
+	 *
+	 * @param vertexSource String The vertex shader source.
+	 * @param fragmentSource String The fragment shader source.
+	 * @return {@link ShaderProgram} The program, or null if it failed to compile or link.
+	 */
+	public ShaderProgram acquire(String vertexSource, String fragmentSource) {
+		final ProgramKey key = new ProgramKey(vertexSource, fragmentSource);
+		ShaderProgram program = mPrograms.get(key);
+		if (program == null) {
+			program = createProgram(key);
+			if (program == null) return null;
+			mPrograms.put(key, program);
+		}
+		++program.mRefCount;
+		return program;
+	}
+
+	/**
+	 * Decreases the reference count of a program and deletes it once it is no longer used.
+	 * Programs which were created in a previous GL context are ignored.
+	 *
+	 * @param program {@link ShaderProgram} The program to release. May be null.
+	 */
+	public void release(ShaderProgram program) {
+		if (program == null || mPrograms.get(program.mKey) != program) return;
+		if (--program.mRefCount > 0) return;
+		mPrograms.remove(program.mKey);
+		if (program.mVShaderHandle != 0) GLES20.glDeleteShader(program.mVShaderHandle);
+		if (program.mFShaderHandle != 0) GLES20.glDeleteShader(program.mFShaderHandle);
+		GLES20.glDeleteProgram(program.mProgramHandle);
+		ProgramLocations.remove(program.mProgramHandle);
+	}
+
+	/**
+	 * Forgets all programs without deleting them. Called when the GL context was lost,
+	 * since the programs died along with it.
+	 */
+	public void clear() {
+		mPrograms.clear();
+	}
+
+	/**
+	 * Sets an on-disk cache for linked program binaries. New programs are loaded from it when
+	 * possible and saved to it after linking from source. Binaries are not used when the cache
+	 * reports it isn't supported in the current GL context.
+	 *
+	 * @param binaryCache {@link ProgramBinaryCache} The binary cache, or null to always compile from source.
+	 */
+	public void setBinaryCache(ProgramBinaryCache binaryCache) {
+		mBinaryCache = binaryCache;
+	}
+
+	public ProgramBinaryCache getBinaryCache() {
+		return mBinaryCache;
+	}
+
+	/**
+	 * Retrieve the number of distinct programs currently in use.
+	 *
+	 * @return int The program count.
+	 */
+	public int getNumPrograms() {
+		return mPrograms.size();
+	}
+
+	/**
+	 * Retrieve the number of programs which were linked from source since the cache was created.
+	 *
+	 * @return int The link count.
+	 */
+	public int getNumLinks() {
+		return mNumLinks;
+	}
+
+	private ShaderProgram createProgram(ProgramKey key) {
+		final boolean useBinaryCache = mBinaryCache != null && mBinaryCache.isSupported();
+		if (useBinaryCache) {
+			final int program = GLES20.glCreateProgram();
+			if (program != 0) {
+				GLStateManager.getInstance().invalidateProgram(program);
+				if (mBinaryCache.loadProgram(program, key.mVertexSource, key.mFragmentSource)) {
+					ProgramLocations.resolve(program);
+					return new ShaderProgram(key, program, 0, 0);
+				}
+				GLES20.glDeleteProgram(program);
+			}
+		}
+
+		final int vShaderHandle = loadShader(GLES20.GL_VERTEX_SHADER, key.mVertexSource);
+		if (vShaderHandle == 0) {
+			return null;
+		}
+
+		final int fShaderHandle = loadShader(GLES20.GL_FRAGMENT_SHADER, key.mFragmentSource);
+		if (fShaderHandle == 0) {
+			GLES20.glDeleteShader(vShaderHandle);
+			return null;
+		}
+
+		int program = GLES20.glCreateProgram();
+		if (program != 0) {
+			GLStateManager.getInstance().invalidateProgram(program);
+			GLES20.glAttachShader(program, vShaderHandle);
+			GLES20.glAttachShader(program, fShaderHandle);
+			GLES20.glLinkProgram(program);
+			++mNumLinks;
+
+			int[] linkStatus = new int[1];
+			GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+			if (linkStatus[0] != GLES20.GL_TRUE) {
+				RajLog.e("Could not link program in " + getClass().getCanonicalName() + ": ");
+				RajLog.e(GLES20.glGetProgramInfoLog(program));
+				GLES20.glDeleteProgram(program);
+				program = 0;
+			}
+		}
+		if (program == 0) {
+			GLES20.glDeleteShader(vShaderHandle);
+			GLES20.glDeleteShader(fShaderHandle);
+			return null;
+		}
+		ProgramLocations.resolve(program);
+		if (useBinaryCache)
+			mBinaryCache.saveProgram(program, key.mVertexSource, key.mFragmentSource);
+		return new ShaderProgram(key, program, vShaderHandle, fShaderHandle);
+	}
+
+	/**
+	 * Loads the shader from a text string and then compiles it.
+	 *
+	 * @param shaderType int {@link GLES20#GL_VERTEX_SHADER} or {@link GLES20#GL_FRAGMENT_SHADER}.
+	 * @param source String The shader source.
+	 * @return int The shader handle, or 0 if the shader failed to compile.
+	 */
+	private int loadShader(int shaderType, String source) {
+		int shader = GLES20.glCreateShader(shaderType);
+		if (shader != 0) {
+			GLES20.glShaderSource(shader, source);
+			GLES20.glCompileShader(shader);
+			int[] compiled = new int[1];
+			GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
+			if (compiled[0] == 0) {
+				RajLog.e("[" + getClass().getName() + "] Could not compile "
+						+ (shaderType == GLES20.GL_FRAGMENT_SHADER ? "fragment" : "vertex") + " shader:");
+				RajLog.e("Shader log: " + GLES20.glGetShaderInfoLog(shader));
+				GLES20.glDeleteShader(shader);
+				shader = 0;
+			}
+		}
+		return shader;
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.materials.plugins;
+
+import rajawali.materials.Material.PluginInsertLocation;
+import rajawali.materials.shaders.AShaderBase.DataType;
+import rajawali.materials.shaders.AShaderBase.IGlobalShaderVar;
+import rajawali.materials.shaders.IShaderFragment;
+import rajawali.materials.shaders.fragments.InstancingVertexShaderFragment;
+
+/**
+ * <p>
+ * The material plugin for drawing many copies of the same geometry with a single
+ * draw call. Every vertex carries the index of the copy it belongs to. The vertex
+ * shader uses this index to look up the copy's transformation matrix and color in
+ * uniform arrays, so each draw call can place up to {@link #getInstancesPerDraw()}
+ * copies independently.
+ * </p>
+ * <p>
+ * This plugin is added automatically by {@link rajawali.InstancedObject3D}, which
+ * also takes care of replicating the geometry and uploading the per copy data.
+ * </p>
+ */
+public class InstancingMaterialPlugin implements IMaterialPlugin {
+	public static enum InstancingShaderVar implements IGlobalShaderVar {
+		U_INSTANCE_MATRIX("uInstanceMatrix", DataType.MAT4),
+		U_INSTANCE_COLOR("uInstanceColor", DataType.VEC4),
+		A_INSTANCE_INDEX("aInstanceIndex", DataType.FLOAT);
+		
+		private String mVarString;
+		private DataType mDataType;
+
+		InstancingShaderVar(String varString, DataType dataType) {
+			mVarString = varString;
+			mDataType = dataType;
+		}
+
+		public String getVarString() {
+			return mVarString;
+		}
+
+		public DataType getDataType() {
+			return mDataType;
+		}
+	}
+	
+	private InstancingVertexShaderFragment mVertexShader;
+	
+	/**
+	 * @param instancesPerDraw int The size of the per instance uniform arrays. Each instance
+	 * takes up five uniform vectors.
+	 */
+	public InstancingMaterialPlugin(int instancesPerDraw)
+	{
+		mVertexShader = new InstancingVertexShaderFragment(instancesPerDraw);
+	}
+	
+	public IShaderFragment getVertexShaderFragment() {
+		return mVertexShader;
+	}
+
+	public IShaderFragment getFragmentShaderFragment() {
+		return null;
+	}
+	
+	public int getInstancesPerDraw() {
+		return mVertexShader.getInstancesPerDraw();
+	}
+	
+	public void setInstanceIndices(final int instanceIndexBufferHandle) {
+		mVertexShader.setInstanceIndices(instanceIndexBufferHandle);
+	}
+	
+	public void setInstanceMatrices(float[] matrices, int firstInstance, int numInstances) {
+		mVertexShader.setInstanceMatrices(matrices, firstInstance, numInstances);
+	}
+	
+	public void setInstanceColors(float[] colors, int firstInstance, int numInstances) {
+		mVertexShader.setInstanceColors(colors, firstInstance, numInstances);
+	}
+
+	public PluginInsertLocation getInsertLocation() {
+		return PluginInsertLocation.PRE_LIGHTING;
+	}
+	
+	@Override
+	public void bindTextures(int nextIndex) {}
+	@Override
+	public void unbindTextures() {}
+}
@@ -6,6 +6,7 @@ import rajawali.materials.shaders.IShaderFragment;
 import rajawali.materials.textures.ATexture;
 import rajawali.math.Matrix4;
 import rajawali.math.vector.Vector3;
+import rajawali.renderer.GLStateManager;
 import android.opengl.GLES20;
 
 
@@ -231,15 +232,16 @@ public class ShadowMapMaterialPlugin implements IMaterialPlugin {
 		
 		public void bindTextures(int nextIndex) {
 			if(mShadowMapTexture != null) {
-				GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + nextIndex);
-				GLES20.glBindTexture(mShadowMapTexture.getGLTextureType(), mShadowMapTexture.getTextureId());
+				GLStateManager glState = GLStateManager.getInstance();
+				glState.activeTexture(GLES20.GL_TEXTURE0 + nextIndex);
+				glState.bindTexture(mShadowMapTexture.getGLTextureType(), mShadowMapTexture.getTextureId());
 				GLES20.glUniform1i(muShadowMapTextureHandle, nextIndex);
 			}
 		}
 		
 		public void unbindTextures() {
 			if(mShadowMapTexture != null)
-				GLES20.glBindTexture(mShadowMapTexture.getGLTextureType(), 0);
+				GLStateManager.getInstance().bindTexture(mShadowMapTexture.getGLTextureType(), 0);
 		}
 	}
 }
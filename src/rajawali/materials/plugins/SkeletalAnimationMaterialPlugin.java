@@ -12,6 +12,7 @@
  */
 package rajawali.materials.plugins;
 
+import rajawali.Capabilities;
 import rajawali.materials.Material.PluginInsertLocation;
 import rajawali.materials.shaders.AShaderBase.DataType;
 import rajawali.materials.shaders.AShaderBase.IGlobalShaderVar;
@@ -30,6 +31,13 @@ import rajawali.materials.shaders.fragments.animation.SkeletalAnimationVertexSha
  * use as few bones as possible. The number of vertex weights per bone
  * can't be more than 8.  
  * </p>
+ * <p>
+ * In {@link SkinningMode#DUAL_QUATERNION} mode each joint is uploaded as a dual
+ * quaternion instead of a matrix. This takes two uniform vectors per joint instead
+ * of four, so twice as many joints fit in a single draw call. It also avoids the 
+ * collapsing joints of linear blend skinning. The joints are uploaded with
+ * {@link #setBoneDualQuaternions(float[])}.
+ * </p>
  * 
  * Example usage:
  * 
@@ -46,7 +54,7 @@ import rajawali.materials.shaders.fragments.animation.SkeletalAnimationVertexSha
  * 			mMaterialPlugin.setBone2Indices(mboneIndexes2BufferInfo.bufferHandle);
  * 			mMaterialPlugin.setBone2Weights(mboneWeights2BufferInfo.bufferHandle);
  * 		}
- * 		mMaterialPlugin.setBoneMatrix(mSkeleton.uBoneMatrix);
+ * 		mMaterialPlugin.setBoneMatrix(mSkeleton.getBoneMatrixFloats());
  * 	}
  * </code></pre>
  * 
@@ -54,8 +62,29 @@ import rajawali.materials.shaders.fragments.animation.SkeletalAnimationVertexSha
  *
  */
 public class SkeletalAnimationMaterialPlugin implements IMaterialPlugin {
+	/**
+	 * The way the joint transformations are blended per vertex.
+	 */
+	public static enum SkinningMode {
+		/**
+		 * Blends the joint matrices. Uses four uniform vectors per joint.
+		 */
+		LINEAR_BLEND,
+		/**
+		 * Blends the joint dual quaternions. Uses two uniform vectors per joint.
+		 */
+		DUAL_QUATERNION
+	}
+	
+	/**
+	 * The number of vertex shader uniform vectors which are left for the other
+	 * uniforms of the material.
+	 */
+	public static final int RESERVED_UNIFORM_VECTORS = 32;
+	
 	public static enum SkeletalAnimationShaderVar implements IGlobalShaderVar {
 		U_BONE_MATRIX("uBoneMatrix", DataType.MAT4),
+		U_BONE_DUAL_QUAT("uBoneDualQuat", DataType.VEC4),
 		A_BONE_INDEX1("aBoneIndex1", DataType.VEC4),
 		A_BONE_INDEX2("aBoneIndex2", DataType.VEC4),
 		A_BONE_WEIGHT1("aBoneWeight1", DataType.VEC4),
@@ -83,7 +112,28 @@ public class SkeletalAnimationMaterialPlugin implements IMaterialPlugin {
 	
 	public SkeletalAnimationMaterialPlugin(int numJoints, int numVertexWeights)
 	{
-		mVertexShader = new SkeletalAnimationVertexShaderFragment(numJoints, numVertexWeights);
+		this(numJoints, numVertexWeights, SkinningMode.LINEAR_BLEND);
+	}
+	
+	public SkeletalAnimationMaterialPlugin(int numJoints, int numVertexWeights, SkinningMode skinningMode)
+	{
+		mVertexShader = new SkeletalAnimationVertexShaderFragment(numJoints, numVertexWeights, skinningMode);
+	}
+	
+	/**
+	 * Returns the number of joints which fit in the vertex shader uniforms of this device.
+	 * 
+	 * @param skinningMode {@link SkinningMode} The skinning mode.
+	 * @return int The maximum number of joints per draw call.
+	 */
+	public static int getMaxJoints(SkinningMode skinningMode)
+	{
+		int vectors = Capabilities.getInstance().getMaxVertexUniformVectors() - RESERVED_UNIFORM_VECTORS;
+		return Math.max(0, vectors / (skinningMode == SkinningMode.DUAL_QUATERNION ? 2 : 4));
+	}
+	
+	public SkinningMode getSkinningMode() {
+		return mVertexShader.getSkinningMode();
 	}
 
 	public IShaderFragment getVertexShaderFragment() {
@@ -118,6 +168,24 @@ public class SkeletalAnimationMaterialPlugin implements IMaterialPlugin {
 		mVertexShader.setBoneMatrix(boneMatrix);
 	}
 	
+	/**
+	 * Uploads the bone matrices without converting them first.
+	 * 
+	 * @param boneMatrix float[] The bone matrices, 16 floats per joint.
+	 */
+	public void setBoneMatrix(float[] boneMatrix) {
+		mVertexShader.setBoneMatrix(boneMatrix);
+	}
+	
+	/**
+	 * Uploads the joint dual quaternions. Only used in {@link SkinningMode#DUAL_QUATERNION} mode.
+	 * 
+	 * @param boneDualQuat float[] The dual quaternions, 8 floats per joint.
+	 */
+	public void setBoneDualQuaternions(float[] boneDualQuat) {
+		mVertexShader.setBoneDualQuaternions(boneDualQuat);
+	}
+	
 	@Override
 	public void bindTextures(int nextIndex) {}
 	@Override
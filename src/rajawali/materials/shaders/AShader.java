@@ -580,8 +580,7 @@ public abstract class AShader extends AShaderBase {
 	}
 	
 	protected int getUniformLocation(int programHandle, String name) {
-		int result = GLES20.glGetUniformLocation(programHandle, name);
-		return result;
+		return ProgramLocations.get(programHandle).getUniformLocation(name);
 	}
 
 	protected int getAttribLocation(int programHandle, IGlobalShaderVar var) {
@@ -593,8 +592,7 @@ public abstract class AShader extends AShaderBase {
 	}
 	
 	protected int getAttribLocation(int programHandle, String name) {
-		int result = GLES20.glGetAttribLocation(programHandle, name);
-		return result;
+		return ProgramLocations.get(programHandle).getAttribLocation(name);
 	}
 	
 	public void addShaderFragment(IShaderFragment fragment)
@@ -927,6 +925,20 @@ public abstract class AShader extends AShaderBase {
 		return s;
 	}
 	
+	public ShaderVar cross(ShaderVar var1, ShaderVar var2)
+	{
+		ShaderVar s = new ShaderVar("cross(" + var1.getName() + ", " + var2.getName() + ")", DataType.VEC3);
+		s.mInitialized = true;
+		return s;
+	}
+	
+	public ShaderVar sign(ShaderVar var)
+	{
+		ShaderVar s = new ShaderVar("sign(" + var.getName() + ")", var.getDataType());
+		s.mInitialized = true;
+		return s;
+	}
+	
 	public ShaderVar cos(ShaderVar var)
 	{
 		ShaderVar s = new ShaderVar("cos(" + var.getName() + ")", DataType.FLOAT);
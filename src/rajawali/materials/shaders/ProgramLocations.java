@@ -0,0 +1,166 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.materials.shaders;
+
+import java.util.Arrays;
+
+import android.opengl.GLES20;
+import android.util.SparseArray;
+
+/**
+ * Holds the uniform and attribute locations of a linked shader program. All active uniforms
+ * and attributes are enumerated and their locations queried from the driver once, by
+ * {@link #resolve(int)} right after the program was linked or loaded. The names and locations
+ * are kept in sorted parallel arrays, so the shaders resolve their location fields without
+ * further driver round-trips and names which are not active in the program simply map to -1.
+ *
+ * Locations are only valid for the program they were queried from. A program name can be
+ * reused by the driver after it was deleted, or after the GL context was lost, so
+ * {@link #resolve(int)} must be called whenever a program is linked and {@link #remove(int)}
+ * whenever it is deleted.
+ *
+ * This class must only be used from the GL thread.
+ */
+public final class ProgramLocations {
+	private static final SparseArray<ProgramLocations> sPrograms = new SparseArray<ProgramLocations>();
+	private static final int[] sSize = new int[1];
+	private static final int[] sType = new int[1];
+	private static int sNumQueries;
+
+	private final String[] mUniformNames;
+	private final int[] mUniformLocations;
+	private final String[] mAttributeNames;
+	private final int[] mAttributeLocations;
+
+	private ProgramLocations(int programHandle) {
+		final int[] count = new int[1];
+		final int[] maxLength = new int[1];
+
+		GLES20.glGetProgramiv(programHandle, GLES20.GL_ACTIVE_UNIFORMS, count, 0);
+		GLES20.glGetProgramiv(programHandle, GLES20.GL_ACTIVE_UNIFORM_MAX_LENGTH, maxLength, 0);
+		mUniformNames = new String[count[0]];
+		mUniformLocations = new int[count[0]];
+		final byte[] uniformName = new byte[Math.max(maxLength[0], 1)];
+		for (int i = 0; i < count[0]; i++) {
+			GLES20.glGetActiveUniform(programHandle, i, uniformName.length, maxLength, 0, sSize, 0, sType, 0, uniformName, 0);
+			mUniformNames[i] = toVarName(uniformName, maxLength[0]);
+		}
+		Arrays.sort(mUniformNames);
+		for (int i = 0; i < count[0]; i++)
+			mUniformLocations[i] = GLES20.glGetUniformLocation(programHandle, mUniformNames[i]);
+
+		GLES20.glGetProgramiv(programHandle, GLES20.GL_ACTIVE_ATTRIBUTES, count, 0);
+		GLES20.glGetProgramiv(programHandle, GLES20.GL_ACTIVE_ATTRIBUTE_MAX_LENGTH, maxLength, 0);
+		mAttributeNames = new String[count[0]];
+		mAttributeLocations = new int[count[0]];
+		final byte[] attributeName = new byte[Math.max(maxLength[0], 1)];
+		for (int i = 0; i < count[0]; i++) {
+			GLES20.glGetActiveAttrib(programHandle, i, attributeName.length, maxLength, 0, sSize, 0, sType, 0, attributeName, 0);
+			mAttributeNames[i] = toVarName(attributeName, maxLength[0]);
+		}
+		Arrays.sort(mAttributeNames);
+		for (int i = 0; i < count[0]; i++)
+			mAttributeLocations[i] = GLES20.glGetAttribLocation(programHandle, mAttributeNames[i]);
+
+		sNumQueries += mUniformNames.length + mAttributeNames.length;
+	}
+
+	/**
+	 * Queries the locations of all active uniforms and attributes of a program which was just
+	 * linked or loaded, replacing any locations stored for a previous program with the same name.
+	 *
+	 * @param programHandle int The handle of the linked program.
+	 * @return {@link ProgramLocations} The locations of the program.
+	 */
+	public static ProgramLocations resolve(int programHandle) {
+		final ProgramLocations locations = new ProgramLocations(programHandle);
+		sPrograms.put(programHandle, locations);
+		return locations;
+	}
+
+	/**
+	 * Retrieve the locations of a program. Programs which were not passed to {@link #resolve(int)}
+	 * are resolved now.
+	 *
+	 * @param programHandle int The program handle.
+	 * @return {@link ProgramLocations} The locations of the program.
+	 */
+	public static ProgramLocations get(int programHandle) {
+		final ProgramLocations locations = sPrograms.get(programHandle);
+		return locations == null ? resolve(programHandle) : locations;
+	}
+
+	/**
+	 * Drops the locations of a program. Must be called when a program is deleted since the
+	 * driver may hand out recycled program names.
+	 *
+	 * @param programHandle int The program handle.
+	 */
+	public static void remove(int programHandle) {
+		sPrograms.remove(programHandle);
+	}
+
+	/**
+	 * Drops the locations of all programs. Called when the GL context is lost.
+	 */
+	public static void clear() {
+		sPrograms.clear();
+	}
+
+	/**
+	 * Retrieve the total number of location queries which were sent to the driver. Comparing
+	 * this value from frame to frame shows whether any programs are still resolved while drawing.
+	 *
+	 * @return int The query count.
+	 */
+	public static int getNumQueries() {
+		return sNumQueries;
+	}
+
+	/**
+	 * Retrieve the location of a uniform. Uniform arrays are found by their plain name, which
+	 * gives the location of the first element.
+	 *
+	 * @param name String The uniform name.
+	 * @return int The location, or -1 if the uniform is not active in this program.
+	 */
+	public int getUniformLocation(String name) {
+		final int index = Arrays.binarySearch(mUniformNames, name);
+		return index < 0 ? -1 : mUniformLocations[index];
+	}
+
+	/**
+	 * Retrieve the location of an attribute.
+	 *
+	 * @param name String The attribute name.
+	 * @return int The location, or -1 if the attribute is not active in this program.
+	 */
+	public int getAttribLocation(String name) {
+		final int index = Arrays.binarySearch(mAttributeNames, name);
+		return index < 0 ? -1 : mAttributeLocations[index];
+	}
+
+	/**
+	 * Converts a name returned by the driver into the name used for lookups, dropping the
+	 * "[0]" suffix which drivers append to uniform arrays.
+	 */
+	private static String toVarName(byte[] name, int length) {
+		int end = Math.min(length, name.length);
+		if (end > 3 && name[end - 3] == '[' && name[end - 2] == '0' && name[end - 1] == ']')
+			end -= 3;
+		final char[] chars = new char[end];
+		for (int i = 0; i < end; i++)
+			chars[i] = (char) name[i];
+		return new String(chars);
+	}
+}
@@ -18,6 +18,7 @@ import rajawali.lights.ALight;
 import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin.SkeletalAnimationShaderVar;
 import rajawali.materials.shaders.fragments.animation.SkeletalAnimationVertexShaderFragment;
 import rajawali.math.Matrix4;
+import rajawali.renderer.GLStateManager;
 import android.graphics.Color;
 import android.opengl.GLES20;
 
@@ -195,28 +196,28 @@ public class VertexShader extends AShader {
 	}
 
 	public void setVertices(final int vertexBufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
 		GLES20.glEnableVertexAttribArray(maPositionHandle);
 		GLES20.glVertexAttribPointer(maPositionHandle, 3, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setTextureCoords(final int textureCoordBufferHandle) {
 		if(maTextureCoordHandle < 0) return;
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, textureCoordBufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, textureCoordBufferHandle);
 		GLES20.glEnableVertexAttribArray(maTextureCoordHandle);
 		GLES20.glVertexAttribPointer(maTextureCoordHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setNormals(final int normalBufferHandle) {
 		if(maNormalHandle < 0) return;
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
 		GLES20.glEnableVertexAttribArray(maNormalHandle);
 		GLES20.glVertexAttribPointer(maNormalHandle, 3, GLES20.GL_FLOAT, false, 0, 0);
 	}
 	
 	public void setVertexColors(final int vertexColorBufferHandle) {
 		if(maVertexColorBufferHandle < 0) return;
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexColorBufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, vertexColorBufferHandle);
 		GLES20.glEnableVertexAttribArray(maVertexColorBufferHandle);
 		GLES20.glVertexAttribPointer(maVertexColorBufferHandle, 4, GLES20.GL_FLOAT,
 				false, 0, 0);
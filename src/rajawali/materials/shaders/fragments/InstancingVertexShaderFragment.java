@@ -0,0 +1,122 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.materials.shaders.fragments;
+
+import rajawali.materials.plugins.InstancingMaterialPlugin.InstancingShaderVar;
+import rajawali.materials.shaders.AShader;
+import rajawali.materials.shaders.IShaderFragment;
+import rajawali.renderer.GLStateManager;
+import android.opengl.GLES20;
+
+public class InstancingVertexShaderFragment extends AShader implements IShaderFragment {
+	public final static String SHADER_ID = "INSTANCING_VERTEX";
+	
+	private RMat4 muInstanceMatrix;
+	private RVec4 muInstanceColor;
+	private RFloat maInstanceIndex;
+	
+	private int muInstanceMatrixHandle;
+	private int muInstanceColorHandle;
+	private int maInstanceIndexHandle;
+	
+	private int mInstancesPerDraw;
+	
+	public InstancingVertexShaderFragment(int instancesPerDraw)
+	{
+		super(ShaderType.VERTEX_SHADER_FRAGMENT);
+		mInstancesPerDraw = instancesPerDraw;
+		initialize();
+	}
+	
+	@Override
+	public void initialize()
+	{
+		super.initialize();
+		
+		muInstanceMatrix = (RMat4) addUniform(InstancingShaderVar.U_INSTANCE_MATRIX);
+		muInstanceMatrix.isArray(mInstancesPerDraw);
+		muInstanceColor = (RVec4) addUniform(InstancingShaderVar.U_INSTANCE_COLOR);
+		muInstanceColor.isArray(mInstancesPerDraw);
+		
+		maInstanceIndex = (RFloat) addAttribute(InstancingShaderVar.A_INSTANCE_INDEX);
+	}
+	
+	public String getShaderId() {
+		return SHADER_ID;
+	}
+	
+	@Override
+	public void main() {
+		RVec4 position = (RVec4) getGlobal(DefaultShaderVar.G_POSITION);
+		RVec3 normal = (RVec3) getGlobal(DefaultShaderVar.G_NORMAL);
+		RVec4 color = (RVec4) getGlobal(DefaultShaderVar.G_COLOR);
+		
+		//
+		// -- gPosition = uInstanceMatrix[int(aInstanceIndex)] * gPosition;
+		//
+		position.assign(muInstanceMatrix.elementAt(castInt(maInstanceIndex)).multiply(position));
+		
+		//
+		// -- gNormal = mat3(uInstanceMatrix[int(aInstanceIndex)]) * gNormal;
+		//
+		normal.assign(castMat3(muInstanceMatrix.elementAt(castInt(maInstanceIndex))).multiply(normal));
+		
+		//
+		// -- gColor *= uInstanceColor[int(aInstanceIndex)];
+		//
+		color.assignMultiply(muInstanceColor.elementAt(castInt(maInstanceIndex)));
+	}
+	
+	@Override
+	public void setLocations(final int programHandle) {
+		muInstanceMatrixHandle = getUniformLocation(programHandle, InstancingShaderVar.U_INSTANCE_MATRIX);
+		muInstanceColorHandle = getUniformLocation(programHandle, InstancingShaderVar.U_INSTANCE_COLOR);
+		maInstanceIndexHandle = getAttribLocation(programHandle, InstancingShaderVar.A_INSTANCE_INDEX);
+	}
+	
+	public int getInstancesPerDraw() {
+		return mInstancesPerDraw;
+	}
+	
+	public void setInstanceIndices(final int instanceIndexBufferHandle) {
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, instanceIndexBufferHandle);
+		GLES20.glEnableVertexAttribArray(maInstanceIndexHandle);
+		GLES20.glVertexAttribPointer(maInstanceIndexHandle, 1, GLES20.GL_FLOAT, false, 0, 0);
+	}
+	
+	/**
+	 * Uploads the transformation matrices of a range of instances.
+	 * 
+	 * @param matrices float[] Column major matrices, 16 floats per instance.
+	 * @param firstInstance int The first instance to upload.
+	 * @param numInstances int The number of instances to upload. At most {@link #getInstancesPerDraw()}.
+	 */
+	public void setInstanceMatrices(float[] matrices, int firstInstance, int numInstances) {
+		GLES20.glUniformMatrix4fv(muInstanceMatrixHandle, numInstances, false, matrices, firstInstance * 16);
+	}
+	
+	/**
+	 * Uploads the colors of a range of instances.
+	 * 
+	 * @param colors float[] RGBA colors, 4 floats per instance.
+	 * @param firstInstance int The first instance to upload.
+	 * @param numInstances int The number of instances to upload. At most {@link #getInstancesPerDraw()}.
+	 */
+	public void setInstanceColors(float[] colors, int firstInstance, int numInstances) {
+		GLES20.glUniform4fv(muInstanceColorHandle, numInstances, colors, firstInstance * 4);
+	}
+	
+	public void bindTextures(int nextIndex) {}
+	
+	public void unbindTextures() {}
+}
@@ -13,8 +13,10 @@
 package rajawali.materials.shaders.fragments.animation;
 
 import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin.SkeletalAnimationShaderVar;
+import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin.SkinningMode;
 import rajawali.materials.shaders.AShader;
 import rajawali.materials.shaders.IShaderFragment;
+import rajawali.renderer.GLStateManager;
 import rajawali.util.ArrayUtils;
 import android.opengl.GLES20;
 
@@ -23,6 +25,7 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 	public final static String SHADER_ID = "SKELETAL_ANIMATION_VERTEX";
 	
 	private RMat4 muBoneMatrix;
+	private RVec4 muBoneDualQuat;
 	private RMat4 mgBoneTransfMatrix;
 	private RVec4 maBoneIndex1;
 	private RVec4 maBoneWeight1;
@@ -30,6 +33,7 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 	private RVec4 maBoneWeight2;
 	
 	private int muBoneMatrixHandle;
+	private int muBoneDualQuatHandle;
 	private int maBoneIndex1Handle;
 	private int maBoneWeight1Handle;
 	private int maBoneIndex2Handle;
@@ -37,14 +41,22 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 	
 	private int mNumJoints;
 	private int mVertexWeight;
+	private SkinningMode mSkinningMode;
+	private int mNumBlendedJoints;
 	
 	protected float[] mTempBoneArray = null; //We use lazy loading here because we dont know its size in advance.
 	
 	public SkeletalAnimationVertexShaderFragment(int numJoints, int numVertexWeights)
+	{
+		this(numJoints, numVertexWeights, SkinningMode.LINEAR_BLEND);
+	}
+	
+	public SkeletalAnimationVertexShaderFragment(int numJoints, int numVertexWeights, SkinningMode skinningMode)
 	{
 		super(ShaderType.VERTEX_SHADER_FRAGMENT);
 		mNumJoints = numJoints;
 		mVertexWeight = numVertexWeights;
+		mSkinningMode = skinningMode;
 		initialize();
 	}
 	
@@ -55,8 +67,14 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 		
 		mgBoneTransfMatrix = (RMat4) addGlobal(SkeletalAnimationShaderVar.G_BONE_TRANSF_MATRIX);
 		
-		muBoneMatrix = (RMat4) addUniform(SkeletalAnimationShaderVar.U_BONE_MATRIX);
-		muBoneMatrix.isArray(mNumJoints);
+		if (mSkinningMode == SkinningMode.DUAL_QUATERNION) {
+			// -- Two vectors per joint, the real part followed by the dual part
+			muBoneDualQuat = (RVec4) addUniform(SkeletalAnimationShaderVar.U_BONE_DUAL_QUAT);
+			muBoneDualQuat.isArray(mNumJoints * 2);
+		} else {
+			muBoneMatrix = (RMat4) addUniform(SkeletalAnimationShaderVar.U_BONE_MATRIX);
+			muBoneMatrix.isArray(mNumJoints);
+		}
 		
 		maBoneIndex1 = (RVec4) addAttribute(SkeletalAnimationShaderVar.A_BONE_INDEX1);
 		maBoneWeight1 = (RVec4) addAttribute(SkeletalAnimationShaderVar.A_BONE_WEIGHT1);
@@ -73,6 +91,10 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 
 	@Override
 	public void main() {
+		if (mSkinningMode == SkinningMode.DUAL_QUATERNION) {
+			dualQuaternionMain();
+			return;
+		}
 		//
 		// -- mat4 transformedMatrix = 
 		//
@@ -127,10 +149,111 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 		}
 	}
 	
+	/**
+	 * Blends the dual quaternions of the joints and converts the result into the bone
+	 * transformation matrix which the vertex shader applies. Blending dual quaternions
+	 * keeps the volume of twisted joints, which blending matrices collapses.
+	 */
+	private void dualQuaternionMain() {
+		mNumBlendedJoints = 0;
+		RVec4 firstReal = new RVec4("dqFirstReal");
+		RVec4 blendReal = new RVec4("dqBlendReal");
+		RVec4 blendDual = new RVec4("dqBlendDual");
+		
+		//
+		// -- blendReal = aBoneWeight1.x * uBoneDualQuat[int(aBoneIndex1.x) * 2];
+		// -- blendDual = aBoneWeight1.x * uBoneDualQuat[int(aBoneIndex1.x) * 2 + 1];
+		//
+		firstReal.assign(realPartAt(maBoneIndex1.x()));
+		blendReal.assign(maBoneWeight1.x().multiply(firstReal));
+		blendDual.assign(maBoneWeight1.x().multiply(dualPartAt(maBoneIndex1.x())));
+		
+		blendJoint(maBoneIndex1.y(), maBoneWeight1.y(), firstReal, blendReal, blendDual);
+		blendJoint(maBoneIndex1.z(), maBoneWeight1.z(), firstReal, blendReal, blendDual);
+		blendJoint(maBoneIndex1.w(), maBoneWeight1.w(), firstReal, blendReal, blendDual);
+		if(mVertexWeight > 4)
+		{
+			blendJoint(maBoneIndex2.x(), maBoneWeight2.x(), firstReal, blendReal, blendDual);
+			blendJoint(maBoneIndex2.y(), maBoneWeight2.y(), firstReal, blendReal, blendDual);
+			blendJoint(maBoneIndex2.z(), maBoneWeight2.z(), firstReal, blendReal, blendDual);
+			blendJoint(maBoneIndex2.w(), maBoneWeight2.w(), firstReal, blendReal, blendDual);
+		}
+		
+		//
+		// -- normalize the blended dual quaternion
+		//
+		RFloat invLength = new RFloat("dqInvLength");
+		invLength.assign(inversesqrt(dot(blendReal, blendReal)));
+		blendReal.assignMultiply(invLength);
+		blendDual.assignMultiply(invLength);
+		
+		RVec3 r = new RVec3("dqR");
+		RFloat w = new RFloat("dqW");
+		RVec3 d = new RVec3("dqD");
+		r.assign(blendReal.xyz());
+		w.assign(blendReal.w());
+		d.assign(blendDual.xyz());
+		
+		//
+		// -- translation = 2.0 * (w * d - dual.w * r + cross(r, d))
+		//
+		RVec3 translation = new RVec3("dqTranslation");
+		translation.assign(enclose(w.multiply(d).subtract(blendDual.w().multiply(r)).add(cross(r, d))).multiply(2.0f));
+		
+		//
+		// -- rotation matrix terms: 2x², 2y², 2z², (2xy, 2xz, 2yz) and 2w(x, y, z)
+		//
+		RVec3 r2 = new RVec3("dqR2");
+		RVec3 rr = new RVec3("dqRR");
+		RVec3 rc = new RVec3("dqRC");
+		RVec3 rw = new RVec3("dqRW");
+		r2.assign(r.multiply(2.0f));
+		rr.assign(r.multiply(r2));
+		rc.assign(castVec3(r.x(), r.x(), r.y()).multiply(castVec3(r2.y(), r2.z(), r2.z())));
+		rw.assign(r2.multiply(w));
+		
+		mgBoneTransfMatrix.elementAt(0).assign(castVec4(subtract(1.0f, enclose(rr.y().add(rr.z()))),
+				rc.x().add(rw.z()), rc.y().subtract(rw.y()), 0.0f));
+		mgBoneTransfMatrix.elementAt(1).assign(castVec4(rc.x().subtract(rw.z()),
+				subtract(1.0f, enclose(rr.x().add(rr.z()))), rc.z().add(rw.x()), 0.0f));
+		mgBoneTransfMatrix.elementAt(2).assign(castVec4(rc.y().add(rw.y()), rc.z().subtract(rw.x()),
+				subtract(1.0f, enclose(rr.x().add(rr.y()))), 0.0f));
+		mgBoneTransfMatrix.elementAt(3).assign(castVec4(translation, 1.0f));
+	}
+	
+	/**
+	 * Adds a weighted joint to the blend. The joint is negated when it lies in the opposite
+	 * hemisphere of the first joint, so that the blend takes the shortest path.
+	 */
+	private void blendJoint(ShaderVar index, ShaderVar weight, RVec4 firstReal, RVec4 blendReal, RVec4 blendDual) {
+		ShaderVar real = realPartAt(index);
+		RFloat signedWeight = new RFloat("dqWeight" + mNumBlendedJoints++);
+		
+		signedWeight.assign(weight.multiply(sign(dot(firstReal, real))));
+		blendReal.assignAdd(signedWeight.multiply(real));
+		blendDual.assignAdd(signedWeight.multiply(dualPartAt(index)));
+	}
+	
+	private ShaderVar realPartAt(ShaderVar index) {
+		return muBoneDualQuat.elementAt(castInt(index).getName() + " * 2");
+	}
+	
+	private ShaderVar dualPartAt(ShaderVar index) {
+		return muBoneDualQuat.elementAt(castInt(index).getName() + " * 2 + 1");
+	}
+	
+	private ShaderVar castVec4(ShaderVar x, ShaderVar y, ShaderVar z, float w) {
+		return castVec4(x.getName() + ", " + y.getName() + ", " + z.getName() + ", " + Float.toString(w));
+	}
+	
 	@Override
 	public void setLocations(final int programHandle) {
-		muBoneMatrixHandle = getUniformLocation(programHandle, SkeletalAnimationShaderVar.U_BONE_MATRIX);
-		
+		if (mSkinningMode == SkinningMode.DUAL_QUATERNION) {
+			muBoneDualQuatHandle = getUniformLocation(programHandle, SkeletalAnimationShaderVar.U_BONE_DUAL_QUAT);
+		} else {
+			muBoneMatrixHandle = getUniformLocation(programHandle, SkeletalAnimationShaderVar.U_BONE_MATRIX);
+		}
+
 		maBoneIndex1Handle = getAttribLocation(programHandle, SkeletalAnimationShaderVar.A_BONE_INDEX1);
 		maBoneWeight1Handle = getAttribLocation(programHandle, SkeletalAnimationShaderVar.A_BONE_WEIGHT1);
 		if(mVertexWeight > 4)
@@ -141,25 +264,25 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 	}
 	
 	public void setBone1Indices(final int boneIndex1BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex1BufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex1BufferHandle);
 		GLES20.glEnableVertexAttribArray(maBoneIndex1Handle);
 		GLES20.glVertexAttribPointer(maBoneIndex1Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setBone2Indices(final int boneIndex2BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex2BufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, boneIndex2BufferHandle);
 		GLES20.glEnableVertexAttribArray(maBoneIndex2Handle);
 		GLES20.glVertexAttribPointer(maBoneIndex2Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setBone1Weights(final int boneWeights1BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights1BufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights1BufferHandle);
 		GLES20.glEnableVertexAttribArray(maBoneWeight1Handle);
 		GLES20.glVertexAttribPointer(maBoneWeight1Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
 
 	public void setBone2Weights(final int boneWeights2BufferHandle) {
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights2BufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, boneWeights2BufferHandle);
 		GLES20.glEnableVertexAttribArray(maBoneWeight2Handle);
 		GLES20.glVertexAttribPointer(maBoneWeight2Handle, 4, GLES20.GL_FLOAT, false, 0, 0);
 	}
@@ -171,6 +294,24 @@ public class SkeletalAnimationVertexShaderFragment extends AShader implements IS
 		GLES20.glUniformMatrix4fv(muBoneMatrixHandle, mNumJoints, false, 
 				ArrayUtils.convertDoublesToFloats(boneMatrix, mTempBoneArray), 0);
 	}
+	
+	public void setBoneMatrix(float[] boneMatrix) {
+		GLES20.glUniformMatrix4fv(muBoneMatrixHandle, mNumJoints, false, boneMatrix, 0);
+	}
+	
+	/**
+	 * Uploads the joint dual quaternions. Only used in {@link SkinningMode#DUAL_QUATERNION} mode.
+	 * 
+	 * @param boneDualQuat float[] The dual quaternions, 8 floats per joint. The real part x, y, z, w
+	 * followed by the dual part x, y, z, w.
+	 */
+	public void setBoneDualQuaternions(float[] boneDualQuat) {
+		GLES20.glUniform4fv(muBoneDualQuatHandle, mNumJoints * 2, boneDualQuat, 0);
+	}
+	
+	public SkinningMode getSkinningMode() {
+		return mSkinningMode;
+	}
 <<<<<<< HEAD
 =======
 	
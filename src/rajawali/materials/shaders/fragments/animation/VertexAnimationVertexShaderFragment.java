@@ -15,6 +15,7 @@ package rajawali.materials.shaders.fragments.animation;
 import rajawali.materials.plugins.VertexAnimationMaterialPlugin.VertexAnimationShaderVar;
 import rajawali.materials.shaders.AShader;
 import rajawali.materials.shaders.IShaderFragment;
+import rajawali.renderer.GLStateManager;
 import android.opengl.GLES20;
 
 public class VertexAnimationVertexShaderFragment extends AShader implements IShaderFragment {
@@ -76,7 +77,7 @@ public class VertexAnimationVertexShaderFragment extends AShader implements ISha
 
 	public void setNextFrameVertices(final int vertexBufferHandle)
 	{
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, vertexBufferHandle);
 		GLES20.glEnableVertexAttribArray(maNextFramePositionHandle);
 		GLES20.glVertexAttribPointer(maNextFramePositionHandle, 3, GLES20.GL_FLOAT,
 				false, 0, 0);
@@ -84,7 +85,7 @@ public class VertexAnimationVertexShaderFragment extends AShader implements ISha
 
 	public void setNextFrameNormals(final int normalBufferHandle)
 	{
-		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
+		GLStateManager.getInstance().bindBuffer(GLES20.GL_ARRAY_BUFFER, normalBufferHandle);
 		GLES20.glEnableVertexAttribArray(maNextFrameNormalHandle);
 		GLES20.glVertexAttribPointer(maNextFrameNormalHandle, 3, GLES20.GL_FLOAT,
 				false, 0, 0);
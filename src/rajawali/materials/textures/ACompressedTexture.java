@@ -14,6 +14,7 @@ package rajawali.materials.textures;
 
 import java.nio.ByteBuffer;
 
+import rajawali.renderer.GLStateManager;
 import android.opengl.GLES20;
 
 public abstract class ACompressedTexture extends ATexture {
@@ -130,9 +131,10 @@ public abstract class ACompressedTexture extends ATexture {
 		int[] textures = new int[1];
 		GLES20.glGenTextures(1, textures, 0);
 		int textureId = textures[0];
+		GLStateManager.getInstance().invalidateTexture(textureId);
 		if (textureId > 0)
 		{
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+			GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
 			if (mFilterType == FilterType.LINEAR)
 				GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
@@ -174,7 +176,7 @@ public abstract class ACompressedTexture extends ATexture {
 			}
 		}
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void remove() throws TextureException
@@ -16,6 +16,7 @@ import java.nio.ByteBuffer;
 
 import rajawali.materials.textures.ATexture.FilterType;
 import rajawali.materials.textures.ATexture.WrapType;
+import rajawali.renderer.GLStateManager;
 
 import android.content.Context;
 import android.graphics.Bitmap;
@@ -143,10 +144,11 @@ public abstract class ASingleTexture extends ATexture
 		int[] genTextureNames = new int[1];
 		GLES20.glGenTextures(1, genTextureNames, 0);
 		int textureId = genTextureNames[0];
+		GLStateManager.getInstance().invalidateTexture(textureId);
 
 		if (textureId > 0)
 		{
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+			GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
 			if (isMipmap())
 			{
@@ -207,7 +209,7 @@ public abstract class ASingleTexture extends ATexture
 			}
 		}
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 
 	void remove() throws TextureException
@@ -233,7 +235,7 @@ public abstract class ASingleTexture extends ATexture
 		if (mBitmap == null && (mByteBuffer == null || mByteBuffer.limit() == 0))
 			throw new TextureException("Texture could not be replaced because there is no Bitmap or ByteBuffer set.");
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+		GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
 
 		if (mBitmap != null)
 		{
@@ -254,7 +256,7 @@ public abstract class ASingleTexture extends ATexture
 		if (mMipmap)
 			GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
 
-		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+		GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, 0);
 	}
 	
 	void reset() throws TextureException
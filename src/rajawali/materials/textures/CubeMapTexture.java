@@ -14,6 +14,7 @@ package rajawali.materials.textures;
 
 import java.nio.ByteBuffer;
 
+import rajawali.renderer.GLStateManager;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.opengl.GLES20;
@@ -87,10 +88,11 @@ public class CubeMapTexture extends AMultiTexture {
 
 		int[] genTextureNames = new int[1];
 		GLES20.glGenTextures(1, genTextureNames, 0);
-		int textureId = genTextureNames[0];		
+		int textureId = genTextureNames[0];
+		GLStateManager.getInstance().invalidateTexture(textureId);
 		
 		if(textureId > 0) {
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, textureId);
+			GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_CUBE_MAP, textureId);
 
 			if (isMipmap())
 			{
@@ -151,7 +153,7 @@ public class CubeMapTexture extends AMultiTexture {
 			mByteBuffers = null;
 		}
         
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 0);
+        GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 0);
 	}
 
 	@Override
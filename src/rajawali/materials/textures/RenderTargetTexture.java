@@ -12,6 +12,7 @@
  */
 package rajawali.materials.textures;
 
+import rajawali.renderer.GLStateManager;
 import android.opengl.GLES20;
 
 public class RenderTargetTexture extends ATexture {
@@ -98,9 +99,10 @@ public class RenderTargetTexture extends ATexture {
 		int[] textures = new int[1];
 		GLES20.glGenTextures(1, textures, 0);
 		int textureId = textures[0];
+		GLStateManager.getInstance().invalidateTexture(textureId);
 
 		if (textureId > 0) {
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+			GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
 			if (isMipmap())
 			{
@@ -135,7 +137,7 @@ public class RenderTargetTexture extends ATexture {
 			if (isMipmap())
 				GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
 
-			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+			GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, 0);
 			setTextureId(textureId);
 		}
 	}
@@ -14,6 +14,7 @@ package rajawali.materials.textures;
 
 import java.io.IOException;
 
+import rajawali.renderer.GLStateManager;
 import android.graphics.SurfaceTexture;
 import android.hardware.Camera;
 import android.media.MediaPlayer;
@@ -57,7 +58,8 @@ public class VideoTexture extends ATexture {
 		int[] textures = new int[1];
 		GLES20.glGenTextures(1, textures, 0);
 		int textureId = textures[0];
-		GLES20.glBindTexture(GL_TEXTURE_EXTERNAL_OES, textureId);
+		GLStateManager.getInstance().invalidateTexture(textureId);
+		GLStateManager.getInstance().bindTexture(GL_TEXTURE_EXTERNAL_OES, textureId);
 		GLES20.glTexParameterf(GL_TEXTURE_EXTERNAL_OES,
 				GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
 		GLES20.glTexParameterf(GL_TEXTURE_EXTERNAL_OES,
@@ -12,6 +12,8 @@
  */
 package rajawali.math;
 
+import java.nio.FloatBuffer;
+
 import rajawali.math.vector.Vector3;
 import rajawali.math.vector.Vector3.Axis;
 import rajawali.util.ArrayUtils;
@@ -273,6 +275,43 @@ public final class Matrix4 {
         return this;
     }
 	
+	/**
+	 * Inverts this {@link Matrix4}, which must be affine. That is, its bottom row must be
+	 * (0, 0, 0, 1) as it is for any combination of translations, rotations and scales. This
+	 * is considerably cheaper than {@link #inverse()}. If the matrix is singular it is left unchanged.
+	 * 
+	 * @return A reference to this {@link Matrix4} to facilitate chaining.
+	 */
+	public Matrix4 inverseAffine() {
+		final double[] m = this.m;
+		final double a00 = m[M00], a01 = m[M01], a02 = m[M02];
+		final double a10 = m[M10], a11 = m[M11], a12 = m[M12];
+		final double a20 = m[M20], a21 = m[M21], a22 = m[M22];
+		final double c00 = a11 * a22 - a12 * a21;
+		final double c01 = a12 * a20 - a10 * a22;
+		final double c02 = a10 * a21 - a11 * a20;
+		final double det = a00 * c00 + a01 * c01 + a02 * c02;
+		if (det == 0) return this;
+		final double invDet = 1.0 / det;
+		
+		final double i00 = c00 * invDet;
+		final double i01 = (a02 * a21 - a01 * a22) * invDet;
+		final double i02 = (a01 * a12 - a02 * a11) * invDet;
+		final double i10 = c01 * invDet;
+		final double i11 = (a00 * a22 - a02 * a20) * invDet;
+		final double i12 = (a02 * a10 - a00 * a12) * invDet;
+		final double i20 = c02 * invDet;
+		final double i21 = (a01 * a20 - a00 * a21) * invDet;
+		final double i22 = (a00 * a11 - a01 * a10) * invDet;
+		final double tx = m[M03], ty = m[M13], tz = m[M23];
+		
+		m[M00] = i00; m[M01] = i01; m[M02] = i02; m[M03] = -(i00 * tx + i01 * ty + i02 * tz);
+		m[M10] = i10; m[M11] = i11; m[M12] = i12; m[M13] = -(i10 * tx + i11 * ty + i12 * tz);
+		m[M20] = i20; m[M21] = i21; m[M22] = i22; m[M23] = -(i20 * tx + i21 * ty + i22 * tz);
+		m[M30] = 0; m[M31] = 0; m[M32] = 0; m[M33] = 1;
+		return this;
+	}
+	
 	/**
 	 * Transposes this {@link Matrix4}.
 	 * 
@@ -344,6 +383,36 @@ public final class Matrix4 {
 		return this;
 	}
 	
+	/**
+	 * Multiplies this {@link Matrix4} with the given one, storing the result in this {@link Matrix}.
+	 * Both matrices must be affine, which allows the projective row to be skipped.
+	 * <pre>
+	 * A.multiplyAffine(B) results in A = AB.
+	 * </pre>
+	 * 
+	 * @param matrix {@link Matrix4} The RHS {@link Matrix4}.
+	 * @return A reference to this {@link Matrix4} to facilitate chaining.
+	 */
+	public Matrix4 multiplyAffine(final Matrix4 matrix) {
+		multiplyAffine(m, 0, matrix.m, 0, m, 0);
+		return this;
+	}
+	
+	/**
+	 * Left multiplies this {@link Matrix4} with the given one, storing the result in this {@link Matrix}.
+	 * Both matrices must be affine, which allows the projective row to be skipped.
+	 * <pre>
+	 * A.leftMultiplyAffine(B) results in A = BA.
+	 * </pre>
+	 * 
+	 * @param matrix {@link Matrix4} The LHS {@link Matrix4}.
+	 * @return A reference to this {@link Matrix4} to facilitate chaining.
+	 */
+	public Matrix4 leftMultiplyAffine(final Matrix4 matrix) {
+		multiplyAffine(matrix.m, 0, m, 0, m, 0);
+		return this;
+	}
+	
 	/**
 	 * Multiplies each element of this {@link Matrix4} by the provided factor.
 	 * 
@@ -887,6 +956,73 @@ public final class Matrix4 {
 		return setAll(mVec2, mVec3, mVec1, position);
 	}
 	
+	/**
+	 * Sets this {@link Matrix4} to a translation, scale and rotation in a single pass. The result is
+	 * the same as 
+	 * <pre>
+	 * identity().translate(position).scale(scale).multiply(quat.toRotationMatrix())
+	 * </pre>
+	 * which is how the model matrix of an object is composed.
+	 * 
+	 * @param position {@link Vector3} The translation.
+	 * @param quat {@link Quaternion} The rotation.
+	 * @param scale {@link Vector3} The scaling on each axis.
+	 * @return A reference to this {@link Matrix4} to facilitate chaining.
+	 */
+	public Matrix4 setToTRS(final Vector3 position, final Quaternion quat, final Vector3 scale) {
+		final double x = quat.x, y = quat.y, z = quat.z, w = quat.w;
+		final double x2 = x * x, y2 = y * y, z2 = z * z;
+		final double xy = x * y, xz = x * z, yz = y * z;
+		final double wx = w * x, wy = w * y, wz = w * z;
+		final double sx = scale.x, sy = scale.y, sz = scale.z;
+		final double[] m = this.m;
+		
+		m[M00] = sx * (1.0 - 2.0 * (y2 + z2));
+		m[M10] = sy * 2.0 * (xy - wz);
+		m[M20] = sz * 2.0 * (xz + wy);
+		m[M30] = 0;
+		
+		m[M01] = sx * 2.0 * (xy + wz);
+		m[M11] = sy * (1.0 - 2.0 * (x2 + z2));
+		m[M21] = sz * 2.0 * (yz - wx);
+		m[M31] = 0;
+		
+		m[M02] = sx * 2.0 * (xz - wy);
+		m[M12] = sy * 2.0 * (yz + wx);
+		m[M22] = sz * (1.0 - 2.0 * (x2 + y2));
+		m[M32] = 0;
+		
+		m[M03] = position.x;
+		m[M13] = position.y;
+		m[M23] = position.z;
+		m[M33] = 1;
+		return this;
+	}
+	
+	/**
+	 * Sets this {@link Matrix4} to a translation, scale and rotation in a single pass. The result is
+	 * the same as 
+	 * <pre>
+	 * identity().translate(position).scale(scale).multiply(rotation)
+	 * </pre>
+	 * 
+	 * @param position {@link Vector3} The translation.
+	 * @param rotation {@link Matrix4} The rotation. Only its upper 3x3 part is used.
+	 * @param scale {@link Vector3} The scaling on each axis.
+	 * @return A reference to this {@link Matrix4} to facilitate chaining.
+	 */
+	public Matrix4 setToTRS(final Vector3 position, final Matrix4 rotation, final Vector3 scale) {
+		final double[] r = rotation.m;
+		final double sx = scale.x, sy = scale.y, sz = scale.z;
+		final double[] m = this.m;
+		
+		m[M00] = sx * r[M00]; m[M01] = sx * r[M01]; m[M02] = sx * r[M02]; m[M03] = position.x;
+		m[M10] = sy * r[M10]; m[M11] = sy * r[M11]; m[M12] = sy * r[M12]; m[M13] = position.y;
+		m[M20] = sz * r[M20]; m[M21] = sz * r[M21]; m[M22] = sz * r[M22]; m[M23] = position.z;
+		m[M30] = 0; m[M31] = 0; m[M32] = 0; m[M33] = 1;
+		return this;
+	}
+	
 
 	
     //--------------------------------------------------
@@ -903,6 +1039,17 @@ public final class Matrix4 {
     	return new Vector3(m[M03], m[M13], m[M23]);
     }
     
+    /**
+     * Sets the components of the provided {@link Vector3} representing the translation component
+     * of this {@link Matrix4}.
+     * 
+     * @param vec {@link Vector3} to store the result in.
+     * @return {@link Vector3} representing the translation.
+     */
+    public Vector3 getTranslation(final Vector3 vec) {
+    	return vec.setAll(m[M03], m[M13], m[M23]);
+    }
+    
     /**
      * Creates a new {@link Vector3} representing the scaling component
      * of this {@link Matrix4}.
@@ -1037,6 +1184,115 @@ public final class Matrix4 {
     
     
     
+    //--------------------------------------------------
+    // Batch methods
+    //--------------------------------------------------
+    
+    /**
+     * Multiplies two affine column major matrices stored in arrays, out = a * b. The bottom rows
+     * of both are assumed to be (0, 0, 0, 1). The output may be the same storage as either input.
+     * 
+     * @param a double[] The LHS matrix.
+     * @param aOffset int The index of the first element of a.
+     * @param b double[] The RHS matrix.
+     * @param bOffset int The index of the first element of b.
+     * @param out double[] Receives the result.
+     * @param outOffset int The index of the first element of out.
+     */
+    public static void multiplyAffine(final double[] a, int aOffset, final double[] b, int bOffset,
+    		final double[] out, int outOffset) {
+    	final double a00 = a[aOffset + M00], a01 = a[aOffset + M01], a02 = a[aOffset + M02], a03 = a[aOffset + M03];
+    	final double a10 = a[aOffset + M10], a11 = a[aOffset + M11], a12 = a[aOffset + M12], a13 = a[aOffset + M13];
+    	final double a20 = a[aOffset + M20], a21 = a[aOffset + M21], a22 = a[aOffset + M22], a23 = a[aOffset + M23];
+    	final double b00 = b[bOffset + M00], b01 = b[bOffset + M01], b02 = b[bOffset + M02], b03 = b[bOffset + M03];
+    	final double b10 = b[bOffset + M10], b11 = b[bOffset + M11], b12 = b[bOffset + M12], b13 = b[bOffset + M13];
+    	final double b20 = b[bOffset + M20], b21 = b[bOffset + M21], b22 = b[bOffset + M22], b23 = b[bOffset + M23];
+    	
+    	out[outOffset + M00] = a00 * b00 + a01 * b10 + a02 * b20;
+    	out[outOffset + M01] = a00 * b01 + a01 * b11 + a02 * b21;
+    	out[outOffset + M02] = a00 * b02 + a01 * b12 + a02 * b22;
+    	out[outOffset + M03] = a00 * b03 + a01 * b13 + a02 * b23 + a03;
+    	out[outOffset + M10] = a10 * b00 + a11 * b10 + a12 * b20;
+    	out[outOffset + M11] = a10 * b01 + a11 * b11 + a12 * b21;
+    	out[outOffset + M12] = a10 * b02 + a11 * b12 + a12 * b22;
+    	out[outOffset + M13] = a10 * b03 + a11 * b13 + a12 * b23 + a13;
+    	out[outOffset + M20] = a20 * b00 + a21 * b10 + a22 * b20;
+    	out[outOffset + M21] = a20 * b01 + a21 * b11 + a22 * b21;
+    	out[outOffset + M22] = a20 * b02 + a21 * b12 + a22 * b22;
+    	out[outOffset + M23] = a20 * b03 + a21 * b13 + a22 * b23 + a23;
+    	out[outOffset + M30] = 0;
+    	out[outOffset + M31] = 0;
+    	out[outOffset + M32] = 0;
+    	out[outOffset + M33] = 1;
+    }
+    
+    /**
+     * Left multiplies a run of packed affine matrices by the same affine matrix, out[i] = lhs * matrices[i].
+     * This is used to move many local matrices, such as the joints of a skeleton, into a common space.
+     * 
+     * @param lhs double[] The LHS matrix.
+     * @param lhsOffset int The index of the first element of lhs.
+     * @param matrices double[] The packed RHS matrices, 16 elements each.
+     * @param offset int The index of the first element of the first RHS matrix.
+     * @param out double[] Receives the packed results. May be the same array as matrices.
+     * @param outOffset int The index of the first element of the first result.
+     * @param count int The number of matrices.
+     */
+    public static void multiplyAffine(final double[] lhs, int lhsOffset, final double[] matrices, int offset,
+    		final double[] out, int outOffset, int count) {
+    	for (int i = 0; i < count; ++i, offset += 16, outOffset += 16)
+    		multiplyAffine(lhs, lhsOffset, matrices, offset, out, outOffset);
+    }
+    
+    /**
+     * Transforms packed 3 component points by an affine column major matrix, including its translation.
+     * 
+     * @param matrix double[] The matrix.
+     * @param src float[] The points to transform.
+     * @param srcOffset int The index of the first component to read.
+     * @param dst float[] Receives the transformed points. May be the same array as src.
+     * @param dstOffset int The index of the first component to write.
+     * @param count int The number of points.
+     */
+    public static void transformPoints(final double[] matrix, final float[] src, int srcOffset, 
+    		final float[] dst, int dstOffset, int count) {
+    	transform(matrix, true, src, srcOffset, dst, dstOffset, count);
+    }
+    
+    /**
+     * Transforms packed 3 component directions by the upper 3x3 part of a column major matrix,
+     * ignoring its translation.
+     * 
+     * @param matrix double[] The matrix.
+     * @param src float[] The directions to transform.
+     * @param srcOffset int The index of the first component to read.
+     * @param dst float[] Receives the transformed directions. May be the same array as src.
+     * @param dstOffset int The index of the first component to write.
+     * @param count int The number of directions.
+     */
+    public static void transformDirections(final double[] matrix, final float[] src, int srcOffset, 
+    		final float[] dst, int dstOffset, int count) {
+    	transform(matrix, false, src, srcOffset, dst, dstOffset, count);
+    }
+    
+    private static void transform(final double[] m, boolean translate, final float[] src, int srcOffset, 
+    		final float[] dst, int dstOffset, int count) {
+    	final double m00 = m[M00], m01 = m[M01], m02 = m[M02];
+    	final double m10 = m[M10], m11 = m[M11], m12 = m[M12];
+    	final double m20 = m[M20], m21 = m[M21], m22 = m[M22];
+    	final double tx = translate ? m[M03] : 0;
+    	final double ty = translate ? m[M13] : 0;
+    	final double tz = translate ? m[M23] : 0;
+    	for (int i = srcOffset, j = dstOffset, n = srcOffset + count * 3; i < n; i += 3, j += 3) {
+    		final double x = src[i], y = src[i + 1], z = src[i + 2];
+    		dst[j] = (float) (m00 * x + m01 * y + m02 * z + tx);
+    		dst[j + 1] = (float) (m10 * x + m11 * y + m12 * z + ty);
+    		dst[j + 2] = (float) (m20 * x + m21 * y + m22 * z + tz);
+    	}
+    }
+    
+    
+    
     //--------------------------------------------------
     // Utility methods
     //--------------------------------------------------
@@ -1048,7 +1304,7 @@ public final class Matrix4 {
      * by this {@link Matrix4} and is subject to change as the implementation sees fit.
      */
     public float[] getFloatValues() {
-    	ArrayUtils.convertDoublesToFloats(m, mFloat);
+    	toFloatArray(mFloat, 0);
     	return mFloat;
     }
     
@@ -1082,11 +1338,68 @@ public final class Matrix4 {
 		System.arraycopy(m, 0, doubleArray, 0, 16);
 	}
 	
+	/**
+	 * Copies the backing array of this {@link Matrix4} into the provided float array.
+	 * 
+	 * @param floatArray float array to store the copy in. Must be at least 16 elements long. 
+	 * Entries will be placed starting at the 0 index.
+	 */
 	public void toFloatArray(float[] floatArray) {
-		floatArray[0] = (float)m[0];	floatArray[1] = (float)m[1];	floatArray[2] = (float)m[2];	floatArray[3] = (float)m[3];
-		floatArray[4] = (float)m[4];	floatArray[5] = (float)m[5];	floatArray[6] = (float)m[6];	floatArray[7] = (float)m[7];
-		floatArray[8] = (float)m[8];	floatArray[9] = (float)m[9];	floatArray[10] = (float)m[10];	floatArray[11] = (float)m[11];
-		floatArray[12] = (float)m[12];	floatArray[13] = (float)m[13];	floatArray[14] = (float)m[14];	floatArray[15] = (float)m[15];		
+		toFloatArray(floatArray, 0);
+	}
+	
+	/**
+	 * Copies the backing array of this {@link Matrix4} into the provided float array at the given
+	 * offset. This is used to pack several matrices into one array for an array uniform.
+	 * 
+	 * @param floatArray float array to store the copy in. Must have at least offset + 16 elements.
+	 * @param offset int The index of the first entry to write.
+	 */
+	public void toFloatArray(float[] floatArray, int offset) {
+		final double[] m = this.m;
+		floatArray[offset] = (float)m[0];		floatArray[offset + 1] = (float)m[1];	floatArray[offset + 2] = (float)m[2];	floatArray[offset + 3] = (float)m[3];
+		floatArray[offset + 4] = (float)m[4];	floatArray[offset + 5] = (float)m[5];	floatArray[offset + 6] = (float)m[6];	floatArray[offset + 7] = (float)m[7];
+		floatArray[offset + 8] = (float)m[8];	floatArray[offset + 9] = (float)m[9];	floatArray[offset + 10] = (float)m[10];	floatArray[offset + 11] = (float)m[11];
+		floatArray[offset + 12] = (float)m[12];	floatArray[offset + 13] = (float)m[13];	floatArray[offset + 14] = (float)m[14];	floatArray[offset + 15] = (float)m[15];
+	}
+	
+	/**
+	 * Writes the 16 values of this {@link Matrix4} into the provided {@link FloatBuffer} at its current
+	 * position, advancing the position by 16.
+	 * 
+	 * @param buffer {@link FloatBuffer} to write to. Must have at least 16 elements remaining.
+	 */
+	public void toFloatBuffer(FloatBuffer buffer) {
+		final double[] m = this.m;
+		for (int i = 0; i < 16; ++i)
+			buffer.put((float) m[i]);
+	}
+	
+	/**
+	 * Copies the upper left 3x3 part of this {@link Matrix4} into the provided float array in column
+	 * major order. This is used to upload a normal matrix without converting the full matrix first.
+	 * 
+	 * @param floatArray float array to store the copy in. Must be at least 9 elements long.
+	 */
+	public void toFloat3x3Array(float[] floatArray) {
+		final double[] m = this.m;
+		floatArray[0] = (float)m[0];	floatArray[1] = (float)m[1];	floatArray[2] = (float)m[2];
+		floatArray[3] = (float)m[4];	floatArray[4] = (float)m[5];	floatArray[5] = (float)m[6];
+		floatArray[6] = (float)m[8];	floatArray[7] = (float)m[9];	floatArray[8] = (float)m[10];
+	}
+	
+	/**
+	 * Packs the first count matrices of the provided array into one float array, 16 floats per matrix.
+	 * 
+	 * @param matrices {@link Matrix4} array of the matrices to pack.
+	 * @param count int The number of matrices to pack.
+	 * @param floatArray float array to store the result in. Must have at least count * 16 elements.
+	 * @return float[] a reference to floatArray. Returned for convenience.
+	 */
+	public static float[] toFloatArray(Matrix4[] matrices, int count, float[] floatArray) {
+		for (int i = 0, offset = 0; i < count; ++i, offset += 16)
+			matrices[i].toFloatArray(floatArray, offset);
+		return floatArray;
 	}
 	
 	/**
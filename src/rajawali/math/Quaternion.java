@@ -41,6 +41,7 @@ public final class Quaternion {
 	private Vector3 mTmpVec3 = new Vector3();
 	private static final Quaternion sTmp1 = new Quaternion(0, 0, 0, 0);
 	private static final Quaternion sTmp2 = new Quaternion(0, 0, 0, 0);
+	private static final int[] NEXT_AXIS = new int[] { 1, 2, 0 };
 	
 	//--------------------------------------------------
 	// Constructors
@@ -257,8 +258,7 @@ public final class Quaternion {
 	 * @return A reference to this {@link Quaternion} to facilitate chaining.
 	 */
 	public Quaternion fromMatrix(Matrix4 matrix) {
-		double[] value = new double[16];
-		matrix.toArray(value);
+		final double[] value = matrix.getDoubleValues();
 		fromAxes(value[Matrix4.M00], value[Matrix4.M01], value[Matrix4.M02],
 				value[Matrix4.M10], value[Matrix4.M11], value[Matrix4.M12],
 				value[Matrix4.M20], value[Matrix4.M21], value[Matrix4.M22]);
@@ -322,30 +322,48 @@ public final class Quaternion {
 			z = (rotMatrix[4] - rotMatrix[1]) * fRoot;
 		} else {
 			// |w| <= 1/2
-			int[] s_iNext = new int[] { 1, 2, 0 };
 			int i = 0;
 			if (rotMatrix[5] > rotMatrix[0])
 				i = 1;
 			if (rotMatrix[10] > rotMatrix[(i * 4) + i])
 				i = 2;
-			int j = s_iNext[i];
-			int k = s_iNext[j];
+			int j = NEXT_AXIS[i];
+			int k = NEXT_AXIS[j];
 
 			fRoot = Math.sqrt(rotMatrix[(i * 4) + i] - rotMatrix[(j * 4) + j] - rotMatrix[(k * 4) + k] + 1.0f);
-			double apkQuat[] = new double[] { x, y, z };
-			apkQuat[i] = 0.5 * fRoot;
+			final double qi = 0.5 * fRoot;
 			fRoot = 0.5 / fRoot;
 			w = (rotMatrix[(k * 4) + j] - rotMatrix[(j * 4) + k]) * fRoot;
-			apkQuat[j] = (rotMatrix[(j * 4) + i] + rotMatrix[(i * 4) + j]) * fRoot;
-			apkQuat[k] = (rotMatrix[(k * 4) + i] + rotMatrix[(i * 4) + k]) * fRoot;
+			final double qj = (rotMatrix[(j * 4) + i] + rotMatrix[(i * 4) + j]) * fRoot;
+			final double qk = (rotMatrix[(k * 4) + i] + rotMatrix[(i * 4) + k]) * fRoot;
 
-			x = apkQuat[0];
-			y = apkQuat[1];
-			z = apkQuat[2];
+			setAxisComponent(i, qi);
+			setAxisComponent(j, qj);
+			setAxisComponent(k, qk);
 		}
 		return this;
 	}
 	
+	/**
+	 * Sets the x, y or z component of this {@link Quaternion} by index.
+	 * 
+	 * @param index int 0 for x, 1 for y and 2 for z.
+	 * @param value double The new value of the component.
+	 */
+	private void setAxisComponent(int index, double value) {
+		switch (index) {
+		case 0:
+			x = value;
+			break;
+		case 1:
+			y = value;
+			break;
+		default:
+			z = value;
+			break;
+		}
+	}
+	
 	/**
 	 * Set this {@link Quaternion}'s components to the rotation between the given
 	 * two {@link Vector3}s.
@@ -468,8 +486,8 @@ public final class Quaternion {
 	 */
 	public Vector3 multiply(final Vector3 vector) {
 		mTmpVec3.setAll(x, y, z);
-		mTmpVec1 = Vector3.crossAndCreate(mTmpVec3, vector);
-		mTmpVec2 = Vector3.crossAndCreate(mTmpVec3, mTmpVec1);
+		mTmpVec1.crossAndSet(mTmpVec3, vector);
+		mTmpVec2.crossAndSet(mTmpVec3, mTmpVec1);
 		mTmpVec1.multiply(2.0 * w);
 		mTmpVec2.multiply(2.0);
 
@@ -479,6 +497,27 @@ public final class Quaternion {
 		return mTmpVec1;
 	}
 
+	/**
+	 * Multiplies this {@link Quaternion} by a {@link Vector3} and stores the
+	 * result in the provided {@link Vector3}. The result may be the same
+	 * object as the input vector.
+	 * 
+	 * @param vector {@link Vector3} to multiply by.
+	 * @param result {@link Vector3} to store the result in.
+	 * @return {@link Vector3} A reference to result to facilitate chaining.
+	 */
+	public Vector3 multiply(final Vector3 vector, final Vector3 result) {
+		// vector + 2w(vector x q) + 2((vector x q) x q), the same as multiply(Vector3)
+		final double cx = vector.y * z - vector.z * y;
+		final double cy = vector.z * x - vector.x * z;
+		final double cz = vector.x * y - vector.y * x;
+		final double ccx = cy * z - cz * y;
+		final double ccy = cz * x - cx * z;
+		final double ccz = cx * y - cy * x;
+		return result.setAll(vector.x + 2.0 * (w * cx + ccx), vector.y + 2.0 * (w * cy + ccy),
+				vector.z + 2.0 * (w * cz + ccz));
+	}
+
 	/**
 	 * Multiplies this {@link Quaternion} with another in the form of quat * this.
 	 * 
@@ -575,6 +614,16 @@ public final class Quaternion {
 	 * @return {@link Vector3} The x axis of this {@link Quaternion}.
 	 */
 	public Vector3 getXAxis() {
+		return getXAxis(new Vector3());
+	}
+	
+	/**
+	 * Sets the provided {@link Vector3} to the x axis of this {@link Quaternion}.
+	 * 
+	 * @param vec {@link Vector3} to store the result in.
+	 * @return {@link Vector3} The x axis of this {@link Quaternion}.
+	 */
+	public Vector3 getXAxis(Vector3 vec) {
 		double fTy = 2.0 * y;
 		double fTz = 2.0 * z;
 		double fTwy = fTy * w;
@@ -584,7 +633,7 @@ public final class Quaternion {
 		double fTyy = fTy * y;
 		double fTzz = fTz * z;
 
-		return new Vector3(1 - (fTyy + fTzz), fTxy + fTwz, fTxz - fTwy);
+		return vec.setAll(1 - (fTyy + fTzz), fTxy + fTwz, fTxz - fTwy);
 	}
 
 	/**
@@ -593,6 +642,16 @@ public final class Quaternion {
 	 * @return {@link Vector3} The y axis of this {@link Quaternion}.
 	 */
 	public Vector3 getYAxis() {
+		return getYAxis(new Vector3());
+	}
+	
+	/**
+	 * Sets the provided {@link Vector3} to the y axis of this {@link Quaternion}.
+	 * 
+	 * @param vec {@link Vector3} to store the result in.
+	 * @return {@link Vector3} The y axis of this {@link Quaternion}.
+	 */
+	public Vector3 getYAxis(Vector3 vec) {
 		double fTx = 2.0 * x;
 		double fTy = 2.0 * y;
 		double fTz = 2.0 * z;
@@ -603,7 +662,7 @@ public final class Quaternion {
 		double fTyz = fTz * y;
 		double fTzz = fTz * z;
 
-		return new Vector3(fTxy - fTwz, 1 - (fTxx + fTzz), fTyz + fTwx);
+		return vec.setAll(fTxy - fTwz, 1 - (fTxx + fTzz), fTyz + fTwx);
 	}
 
 	/**
@@ -612,6 +671,16 @@ public final class Quaternion {
 	 * @return {@link Vector3} The z axis of this {@link Quaternion}.
 	 */
 	public Vector3 getZAxis() {
+		return getZAxis(new Vector3());
+	}
+	
+	/**
+	 * Sets the provided {@link Vector3} to the z axis of this {@link Quaternion}.
+	 * 
+	 * @param vec {@link Vector3} to store the result in.
+	 * @return {@link Vector3} The z axis of this {@link Quaternion}.
+	 */
+	public Vector3 getZAxis(Vector3 vec) {
 		double fTx = 2.0 * x;
 		double fTy = 2.0 * y;
 		double fTz = 2.0 * z;
@@ -622,7 +691,7 @@ public final class Quaternion {
 		double fTyy = fTy * y;
 		double fTyz = fTz * y;
 
-		return new Vector3(fTxz + fTwy, fTyz - fTwx, 1 - (fTxx + fTyy));
+		return vec.setAll(fTxz + fTwy, fTyz - fTwx, 1 - (fTxx + fTyy));
 	}
 	
 	/**
@@ -814,11 +883,14 @@ public final class Quaternion {
         double result = (q1.x * q2.x) + (q1.y * q2.y) + (q1.z * q2.z)
                 + (q1.w * q2.w);
 
+        // -- Take the shorter path by interpolating towards -q2. q2 itself is left untouched, so
+        // -- shared key frames can be interpolated from several threads at once.
+        double q2x = q2.x, q2y = q2.y, q2z = q2.z, q2w = q2.w;
         if (result < 0.0f) {
-            q2.x = -q2.x;
-            q2.y = -q2.y;
-            q2.z = -q2.z;
-            q2.w = -q2.w;
+            q2x = -q2x;
+            q2y = -q2y;
+            q2z = -q2z;
+            q2w = -q2w;
             result = -result;
         }
 
@@ -833,10 +905,10 @@ public final class Quaternion {
             scale1 = Math.sin((t * theta)) * invSinTheta;
         }
 
-        x = (scale0 * q1.x) + (scale1 * q2.x);
-        y = (scale0 * q1.y) + (scale1 * q2.y);
-        z = (scale0 * q1.z) + (scale1 * q2.z);
-        w = (scale0 * q1.w) + (scale1 * q2.w);
+        x = (scale0 * q1.x) + (scale1 * q2x);
+        y = (scale0 * q1.y) + (scale1 * q2y);
+        z = (scale0 * q1.z) + (scale1 * q2z);
+        w = (scale0 * q1.w) + (scale1 * q2w);
         return this;
     }
 	
@@ -1022,7 +1094,7 @@ public final class Quaternion {
 	
 	/**
 	 * Sets this {@link Quaternion} to be oriented to a target {@link Vector3}.
-	 * It is safe to use the input vectors for other things as they are cloned internally.
+	 * The input vectors are not modified.
 	 * 
 	 * @param lookAt {@link Vector3} The point to look at.
 	 * @param upDirection {@link Vector3} to use as the up direction.
@@ -1030,14 +1102,12 @@ public final class Quaternion {
 	 * @return A reference to this {@link Quaternion} to facilitate chaining.
 	 */
 	public Quaternion lookAt(Vector3 lookAt, Vector3 upDirection, boolean isCamera) {
-		Vector3 forward = lookAt.clone(); 
-		Vector3 up = upDirection.clone();
-		Vector3[] vecs = new Vector3[2];
-		vecs[0] = forward; 
-		vecs[1] = up;
-
-		Vector3.orthoNormalize(vecs);
-		Vector3 right = Vector3.crossAndCreate(forward, up);
+		// Gram-Schmidt ortho-normalization of the forward and up vectors
+		final Vector3 forward = mTmpVec1.setAll(lookAt);
+		final Vector3 up = mTmpVec2.setAll(upDirection);
+		forward.normalize();
+		up.subtract(mTmpVec3.setAll(forward).project(up)).normalize();
+		final Vector3 right = mTmpVec3.crossAndSet(forward, up);
 		fromAxes(right, up, forward);
 		if (isCamera) {
 			return this;
@@ -538,12 +538,18 @@ public class Vector3 {
 	 */
 	public static void orthoNormalize(Vector3[] vecs) {
 		for (int i = 0; i < vecs.length; ++ i) {
-			Vector3 accum = new Vector3(0.0, 0.0, 0.0);
-	
-			for(int j = 0; j < i; ++ j)
-				accum.add(Vector3.projectAndCreate(vecs[i], vecs[j]));
-	
-			vecs[i].subtract(accum).normalize();
+			final Vector3 v = vecs[i];
+			double ax = 0, ay = 0, az = 0;
+	
+			for(int j = 0; j < i; ++ j) {
+				final Vector3 u = vecs[j];
+				final double d = v.dot(u) / u.length2();
+				ax += u.x * d;
+				ay += u.y * d;
+				az += u.z * d;
+			}
+	
+			v.subtract(ax, ay, az).normalize();
 		}
 	}
 	
@@ -810,6 +816,20 @@ public class Vector3 {
 		return v2.clone().multiply(d_div);
 	}
 	
+	/**
+	 * Projects {@link Vector3} v1 onto {@link Vector3} v2 and sets this {@link Vector3}
+	 * to the result.
+	 * 
+	 * @param v1 {@link Vector3} to be projected.
+	 * @param v2 {@link Vector3} the {@link Vector3} to be projected on.
+	 * @return A reference to this {@link Vector3} to facilitate chaining.
+	 */
+	public Vector3 projectAndSet(Vector3 v1, Vector3 v2) {
+		double d = v1.dot(v2);
+		double d_div = d / v2.length2();
+		return setAll(v2.x * d_div, v2.y * d_div, v2.z * d_div);
+	}
+	
 	/**
 	 * Transforms this {@link Vector3} using the given {@link Quaternion}.
 	 * 
@@ -817,12 +837,15 @@ public class Vector3 {
 	 * @return {@link Vector3} The transformed {@link Vector3}. This is the same as the parameter v.
 	 */
 	public Vector3 transform(Quaternion quat) {
-		Quaternion tmp = new Quaternion(quat);
-		Quaternion tmp2 = new Quaternion(0, x, y, z);
-		tmp.conjugate();
-		tmp.multiplyLeft(tmp2.multiplyLeft(quat));
-
-		return setAll(tmp.x, tmp.y, tmp.z);
+		// quat * (0, v) * conjugate(quat), expanded the way Quaternion.multiplyLeft() computes
+		// it so no scratch quaternions are needed
+		final double pw = -quat.x * x + quat.y * y - quat.z * z;
+		final double px = quat.w * x + quat.y * z - quat.z * y;
+		final double py = quat.w * y + quat.z * x - quat.x * z;
+		final double pz = quat.w * z + quat.x * y - quat.y * x;
+		return setAll(-pw * quat.x + px * quat.w - py * quat.z + pz * quat.y,
+				-pw * quat.y + py * quat.w - pz * quat.x + px * quat.z,
+				-pw * quat.z + pz * quat.w - px * quat.y + py * quat.x);
 	}
 	
 	/**
@@ -942,8 +965,20 @@ public class Vector3 {
 	 * @return {@link Quaternion} The {@link Quaternion} representing the rotation.
 	 */
 	public Quaternion getRotationTo(Vector3 direction) {
+		return getRotationTo(direction, new Quaternion());
+	}
+	
+	/**
+	 * Sets the provided {@link Quaternion} to the rotation from this {@link Vector3}
+	 * to the provided {@link Vector3}.
+	 * 
+	 * @param direction {@link Vector3} The direction to rotate to.
+	 * @param q {@link Quaternion} to store the result in.
+	 * @return {@link Quaternion} The {@link Quaternion} representing the rotation.
+	 */
+	public Quaternion getRotationTo(Vector3 direction, Quaternion q) {
 		// Based on Stan Melax's article in Game Programming Gems
-		Quaternion q = new Quaternion();
+		if (mTemp == null) mTemp = new Vector3();
 		// Copy, since cannot modify local
 		Vector3 v0 = this;
 		Vector3 v1 = direction;
@@ -957,16 +992,16 @@ public class Vector3 {
 		}
 		if (d < 0.000001 - 1.0) {
 			// Generate an axis
-			Vector3 axis = Vector3.crossAndCreate(Vector3.getAxisVector(Axis.X), this);
+			Vector3 axis = mTemp.crossAndSet(Vector3.getAxisVector(Axis.X), this);
 			if (axis.length() == 0) // pick another if colinear
-				axis = Vector3.crossAndCreate(Vector3.getAxisVector(Axis.Y), this);
+				axis.crossAndSet(Vector3.getAxisVector(Axis.Y), this);
 			axis.normalize();
 			q.fromAngleAxis(axis, MathUtil.radiansToDegrees(MathUtil.PI));
 		} else {
 			double s = Math.sqrt((1 + d) * 2);
 			double invs = 1 / s;
 
-			Vector3 c = Vector3.crossAndCreate(v0, v1);
+			Vector3 c = mTemp.crossAndSet(v0, v1);
 
 			q.x = c.x * invs;
 			q.y = c.y * invs;
@@ -13,10 +13,14 @@
 package rajawali.parser;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Map;
 
 import rajawali.Object3D;
 import rajawali.materials.textures.TextureManager;
 import rajawali.renderer.RajawaliRenderer;
+import rajawali.util.RajLog;
+import rajawali.util.exporter.MeshCacheExporter;
 import android.content.res.Resources;
 
 public abstract class AMeshLoader extends ALoader implements IMeshLoader {
@@ -25,6 +29,8 @@ public abstract class AMeshLoader extends ALoader implements IMeshLoader {
 
 	protected Object3D mRootObject;
 
+	protected File mCacheFile;
+
 	public AMeshLoader(File file) {
 		super(file);
 		mRootObject = new Object3D();
@@ -60,6 +66,65 @@ public abstract class AMeshLoader extends ALoader implements IMeshLoader {
 		return mRootObject;
 	}
 
+	/**
+	 * Sets a file in which the parsed model is cached. If the cache exists and is not older than
+	 * the model file, loaders which support caching load the cache with the
+	 * {@link LoaderMeshCache} instead of parsing the model. Otherwise the cache is written after
+	 * the model has been parsed. The cache of a model in a resource is never considered stale,
+	 * delete it when the application is updated.
+	 * 
+	 * @param cacheFile {@link File} The cache file, or null to disable caching.
+	 */
+	public void setCacheFile(File cacheFile) {
+		mCacheFile = cacheFile;
+	}
+
+	public File getCacheFile() {
+		return mCacheFile;
+	}
+
+	/**
+	 * Loads the cache file if it is valid and sets the root object to the cached model.
+	 * 
+	 * @return {@link LoaderMeshCache} The loader of the cache, or null if the model has to be parsed.
+	 */
+	protected LoaderMeshCache loadCache() {
+		if (mCacheFile == null || !LoaderMeshCache.isValid(mCacheFile))
+			return null;
+		if (mFile != null && mCacheFile.lastModified() < mFile.lastModified())
+			return null;
+		try {
+			final LoaderMeshCache cache = new LoaderMeshCache(mCacheFile).parse();
+			mRootObject = cache.getParsedObject();
+			return cache;
+		} catch (ParsingException e) {
+			RajLog.w("[" + getClass().getCanonicalName() + "] Ignoring the mesh cache " + mCacheFile.getPath() + ": "
+					+ e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the parsed model to the cache file, if one is set. Failing to write the cache
+	 * does not fail the parse.
+	 * 
+	 * @param materialNames {@link Map} The material name of each object, may be null.
+	 * @param materialLibrary {@link String} The material library, may be null.
+	 */
+	protected void writeCache(Map<Object3D, String> materialNames, String materialLibrary) {
+		if (mCacheFile == null)
+			return;
+		try {
+			MeshCacheExporter.write(mRootObject, mCacheFile, materialNames, materialLibrary);
+		} catch (IOException e) {
+			RajLog.e("[" + getClass().getCanonicalName() + "] Could not write the mesh cache " + mCacheFile.getPath()
+					+ ": " + e.getMessage());
+		} catch (IllegalArgumentException e) {
+			RajLog.e("[" + getClass().getCanonicalName() + "] Could not write the mesh cache " + mCacheFile.getPath()
+					+ ": " + e.getMessage());
+		}
+	}
+
 	protected class MaterialDef {
 
 		public String name;
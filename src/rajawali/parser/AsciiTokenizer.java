@@ -0,0 +1,495 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Splits a text file into lines and whitespace separated tokens without creating a String per
+ * line or token. The file is read in large blocks into a byte buffer, and tokens are compared
+ * and converted to numbers directly in that buffer. Only ASCII whitespace separates tokens, so
+ * the file may be in any ASCII compatible encoding, such as UTF-8.
+ * 
+ * <pre><code>
+ * AsciiTokenizer tokenizer = new AsciiTokenizer(stream);
+ * while (tokenizer.nextLine()) {
+ * 	if (!tokenizer.nextToken()) continue;
+ * 	if (tokenizer.tokenEquals("v")) {
+ * 		tokenizer.nextToken();
+ * 		float x = tokenizer.parseFloat();
+ * 		...
+ * </code></pre>
+ * 
+ * Numbers are parsed without allocating as well. Floats are rounded exactly like
+ * {@link Float#parseFloat(String)} does.
+ */
+public class AsciiTokenizer {
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The powers of ten which are exactly representable as a double.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final int MAX_MANTISSA_DIGITS = 18;
+
+	private final InputStream mInput;
+	private byte[] mBuffer;
+	private int mBufferEnd;
+	private boolean mEndOfStream;
+
+	private int mLineStart;
+	private int mLineEnd;
+	private int mNextLine;
+	private int mLineNumber;
+	private int mPosition;
+
+	private int mTokenStart;
+	private int mTokenEnd;
+
+	/**
+	 * @param input {@link InputStream} The stream to read. It is not buffered any further, so
+	 * there is no need to wrap it in a {@link java.io.BufferedInputStream}.
+	 */
+	public AsciiTokenizer(InputStream input) {
+		this(input, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param input {@link InputStream} The stream to read.
+	 * @param bufferSize int The size of the read buffer. It grows when a single line is longer.
+	 */
+	public AsciiTokenizer(InputStream input, int bufferSize) {
+		mInput = input;
+		mBuffer = new byte[Math.max(16, bufferSize)];
+	}
+
+	/**
+	 * Advances to the next line. Lines end with a line feed, a carriage return or both.
+	 * 
+	 * @return boolean False when the end of the stream was reached.
+	 * @throws IOException
+	 */
+	public boolean nextLine() throws IOException {
+		int start = mNextLine;
+		int scan = start;
+		while (true) {
+			final byte[] buffer = mBuffer;
+			for (int i = scan, j = mBufferEnd; i < j; ++i) {
+				final byte b = buffer[i];
+				if (b == '\n' || b == '\r') {
+					// -- Treat \r\n as a single line break
+					if (b == '\r' && i + 1 == j && !mEndOfStream) {
+						scan = i;
+						break;
+					}
+					setLine(start, i, b == '\r' && i + 1 < j && buffer[i + 1] == '\n' ? i + 2 : i + 1);
+					return true;
+				}
+				scan = i + 1;
+			}
+			if (mEndOfStream) {
+				if (start < mBufferEnd) {
+					setLine(start, mBufferEnd, mBufferEnd);
+					return true;
+				}
+				return false;
+			}
+
+			// -- Move the incomplete line to the front and read the next block behind it
+			final int remaining = mBufferEnd - start;
+			if (start > 0)
+				System.arraycopy(mBuffer, start, mBuffer, 0, remaining);
+			else if (remaining == mBuffer.length) {
+				final byte[] grown = new byte[mBuffer.length * 2];
+				System.arraycopy(mBuffer, 0, grown, 0, remaining);
+				mBuffer = grown;
+			}
+			scan -= start;
+			start = 0;
+			mBufferEnd = remaining;
+			final int read = mInput.read(mBuffer, mBufferEnd, mBuffer.length - mBufferEnd);
+			if (read < 0)
+				mEndOfStream = true;
+			else
+				mBufferEnd += read;
+		}
+	}
+
+	private void setLine(int start, int end, int next) {
+		mLineStart = start;
+		mLineEnd = end;
+		mNextLine = next;
+		mPosition = start;
+		mTokenStart = mTokenEnd = start;
+		++mLineNumber;
+	}
+
+	/**
+	 * Returns the number of the current line, starting at 1.
+	 * 
+	 * @return int The line number.
+	 */
+	public int getLineNumber() {
+		return mLineNumber;
+	}
+
+	/**
+	 * Advances to the next token of the current line.
+	 * 
+	 * @return boolean False when there are no more tokens on this line.
+	 */
+	public boolean nextToken() {
+		final byte[] buffer = mBuffer;
+		int p = mPosition;
+		while (p < mLineEnd && isWhitespace(buffer[p]))
+			++p;
+		mTokenStart = p;
+		while (p < mLineEnd && !isWhitespace(buffer[p]))
+			++p;
+		mTokenEnd = mPosition = p;
+		return mTokenEnd > mTokenStart;
+	}
+
+	/**
+	 * Advances to the next token of the current line which ends at the given separator, such as
+	 * a comma. Whitespace around the token is not part of it, and a token may be empty when two
+	 * separators follow each other. A token which starts with a double quote extends to the
+	 * closing quote, so it may contain separators, and anything between the closing quote and
+	 * the next separator is skipped.
+	 *
+	 * @param separator char An ASCII character.
+	 * @return boolean False when there are no more tokens on this line.
+	 */
+	public boolean nextToken(char separator) {
+		final byte[] buffer = mBuffer;
+		int p = mPosition;
+		while (p < mLineEnd && isWhitespace(buffer[p]))
+			++p;
+		if (p == mLineEnd) {
+			mTokenStart = mTokenEnd = mPosition = p;
+			return false;
+		}
+		mTokenStart = p;
+		int end;
+		if (buffer[p] == '"') {
+			++p;
+			while (p < mLineEnd && buffer[p] != '"')
+				++p;
+			if (p < mLineEnd) ++p;
+			end = p;
+			while (p < mLineEnd && buffer[p] != separator)
+				++p;
+		} else {
+			while (p < mLineEnd && buffer[p] != separator)
+				++p;
+			end = p;
+			while (end > mTokenStart && isWhitespace(buffer[end - 1]))
+				--end;
+		}
+		mTokenEnd = end;
+		mPosition = p < mLineEnd ? p + 1 : p;
+		return true;
+	}
+
+	/**
+	 * Removes the double quotes around the current token, if it has them.
+	 */
+	public void unquoteToken() {
+		if (mTokenEnd - mTokenStart >= 2 && mBuffer[mTokenStart] == '"' && mBuffer[mTokenEnd - 1] == '"') {
+			++mTokenStart;
+			--mTokenEnd;
+		}
+	}
+
+	/**
+	 * Indicates whether the first character of the current line, ignoring whitespace, is the
+	 * given one. Does not advance.
+	 *
+	 * @param c char An ASCII character.
+	 * @return boolean True if the line starts with the character.
+	 */
+	public boolean lineStartsWith(char c) {
+		int p = mLineStart;
+		while (p < mLineEnd && isWhitespace(mBuffer[p]))
+			++p;
+		return p < mLineEnd && mBuffer[p] == c;
+	}
+
+	/**
+	 * Indicates whether the last character of the current line, ignoring whitespace, is the
+	 * given one. Does not advance.
+	 *
+	 * @param c char An ASCII character.
+	 * @return boolean True if the line ends with the character.
+	 */
+	public boolean lineEndsWith(char c) {
+		int p = mLineEnd;
+		while (p > mLineStart && isWhitespace(mBuffer[p - 1]))
+			--p;
+		return p > mLineStart && mBuffer[p - 1] == c;
+	}
+
+	/**
+	 * Counts the tokens between the current token and the end of the line without advancing.
+	 * 
+	 * @return int The number of remaining tokens.
+	 */
+	public int countRemainingTokens() {
+		final byte[] buffer = mBuffer;
+		int count = 0;
+		boolean inToken = false;
+		for (int i = mPosition; i < mLineEnd; ++i) {
+			final boolean whitespace = isWhitespace(buffer[i]);
+			if (!whitespace && !inToken)
+				++count;
+			inToken = !whitespace;
+		}
+		return count;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\f' || b == 0x0b;
+	}
+
+	/**
+	 * Indicates whether the current token equals a string of ASCII characters.
+	 * 
+	 * @param value {@link String} The string to compare with.
+	 * @return boolean True if the token equals the string.
+	 */
+	public boolean tokenEquals(String value) {
+		final int length = mTokenEnd - mTokenStart;
+		if (value.length() != length)
+			return false;
+		for (int i = 0; i < length; ++i)
+			if (mBuffer[mTokenStart + i] != value.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Indicates whether the current token starts with the given character.
+	 * 
+	 * @param c char An ASCII character.
+	 * @return boolean True if the token starts with the character.
+	 */
+	public boolean tokenStartsWith(char c) {
+		return mTokenEnd > mTokenStart && mBuffer[mTokenStart] == c;
+	}
+
+	/**
+	 * Indicates whether the current line contains a string of ASCII characters.
+	 * 
+	 * @param value {@link String} The string to search for.
+	 * @return boolean True if the line contains the string.
+	 */
+	public boolean lineContains(String value) {
+		final int length = value.length();
+		search:
+		for (int i = mLineStart, j = mLineEnd - length; i <= j; ++i) {
+			for (int k = 0; k < length; ++k)
+				if (mBuffer[i + k] != value.charAt(k))
+					continue search;
+			return true;
+		}
+		return false;
+	}
+
+	public int getTokenStart() {
+		return mTokenStart;
+	}
+
+	public int getTokenEnd() {
+		return mTokenEnd;
+	}
+
+	/**
+	 * Returns a byte of the current line. Valid positions are the ones between the start of the
+	 * line and the end of the current token.
+	 * 
+	 * @param position int The position in the buffer, as returned by {@link #getTokenStart()}.
+	 * @return byte The byte.
+	 */
+	public byte getByte(int position) {
+		return mBuffer[position];
+	}
+
+	/**
+	 * Returns the current token as a String. Unlike the other methods this allocates.
+	 * 
+	 * @return {@link String} The token.
+	 */
+	public String getToken() {
+		return getString(mTokenStart, mTokenEnd);
+	}
+
+	/**
+	 * Returns everything after the current token up to the end of the line as a String, without
+	 * leading and trailing whitespace. Does not advance.
+	 * 
+	 * @return {@link String} The rest of the line, which may be empty.
+	 */
+	public String getRestOfLine() {
+		int start = mPosition;
+		int end = mLineEnd;
+		while (start < end && isWhitespace(mBuffer[start]))
+			++start;
+		while (end > start && isWhitespace(mBuffer[end - 1]))
+			--end;
+		return getString(start, end);
+	}
+
+	/**
+	 * Returns a part of the current line as a String.
+	 * 
+	 * @param start int The position of the first byte.
+	 * @param end int The position after the last byte.
+	 * @return {@link String} The text.
+	 */
+	public String getString(int start, int end) {
+		return new String(mBuffer, start, end - start, UTF8);
+	}
+
+	/**
+	 * Parses the current token as a float.
+	 * 
+	 * @return float The value.
+	 * @throws NumberFormatException If the token is not a number.
+	 */
+	public float parseFloat() {
+		return parseFloat(mTokenStart, mTokenEnd);
+	}
+
+	/**
+	 * Parses the current token as an int.
+	 * 
+	 * @return int The value.
+	 * @throws NumberFormatException If the token is not an integer.
+	 */
+	public int parseInt() {
+		return parseInt(mTokenStart, mTokenEnd);
+	}
+
+	/**
+	 * Parses a part of the current line as a float. The result is the same as the one of
+	 * {@link Float#parseFloat(String)}. Plain decimal numbers with up to 15 significant digits
+	 * and an exponent which keeps them within about 22 orders of magnitude are converted in
+	 * place, which covers the numbers model exporters write. Anything else, such as
+	 * hexadecimal notation or "NaN", is handed to {@link Float#parseFloat(String)}.
+	 * 
+	 * @param start int The position of the first byte.
+	 * @param end int The position after the last byte.
+	 * @return float The value.
+	 * @throws NumberFormatException If the text is not a number.
+	 */
+	public float parseFloat(int start, int end) {
+		final byte[] buffer = mBuffer;
+		int p = start;
+		boolean negative = false;
+		if (p < end && (buffer[p] == '-' || buffer[p] == '+'))
+			negative = buffer[p++] == '-';
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		for (; p < end && buffer[p] >= '0' && buffer[p] <= '9'; ++p) {
+			hasDigits = true;
+			mantissa = mantissa * 10 + (buffer[p] - '0');
+			if (mantissa != 0) ++digits;
+		}
+		if (p < end && buffer[p] == '.') {
+			for (++p; p < end && buffer[p] >= '0' && buffer[p] <= '9'; ++p) {
+				hasDigits = true;
+				mantissa = mantissa * 10 + (buffer[p] - '0');
+				if (mantissa != 0) ++digits;
+				--exponent;
+			}
+		}
+		if (hasDigits && p < end && (buffer[p] == 'e' || buffer[p] == 'E')) {
+			++p;
+			boolean negativeExponent = false;
+			if (p < end && (buffer[p] == '-' || buffer[p] == '+'))
+				negativeExponent = buffer[p++] == '-';
+			int value = 0;
+			boolean hasExponentDigits = false;
+			for (; p < end && buffer[p] >= '0' && buffer[p] <= '9'; ++p) {
+				hasExponentDigits = true;
+				if (value < 10000) value = value * 10 + (buffer[p] - '0');
+			}
+			if (!hasExponentDigits)
+				return parseFloatSlow(start, end);
+			exponent += negativeExponent ? -value : value;
+		}
+		if (!hasDigits || p != end || digits > MAX_MANTISSA_DIGITS)
+			return parseFloatSlow(start, end);
+		if (mantissa == 0)
+			return negative ? -0f : 0f;
+		if (mantissa >= MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22)
+			return parseFloatSlow(start, end);
+
+		// -- Both operands are exact, so the double is the correctly rounded value
+		final double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+		final float result = (float) value;
+		if (result != value) {
+			// -- Rounding to float again is only wrong when the double lies exactly halfway
+			// between two floats, because the exact value might not
+			final float neighbour = Math.nextAfter(result, value);
+			if (((double) result + (double) neighbour) * 0.5 == value)
+				return parseFloatSlow(start, end);
+		}
+		return negative ? -result : result;
+	}
+
+	private float parseFloatSlow(int start, int end) {
+		return Float.parseFloat(getString(start, end));
+	}
+
+	/**
+	 * Parses a part of the current line as an int.
+	 * 
+	 * @param start int The position of the first byte.
+	 * @param end int The position after the last byte.
+	 * @return int The value.
+	 * @throws NumberFormatException If the text is not an integer.
+	 */
+	public int parseInt(int start, int end) {
+		final byte[] buffer = mBuffer;
+		int p = start;
+		boolean negative = false;
+		if (p < end && (buffer[p] == '-' || buffer[p] == '+'))
+			negative = buffer[p++] == '-';
+		if (p == end)
+			throw new NumberFormatException("Invalid int: \"" + getString(start, end) + "\"");
+		long value = 0;
+		for (; p < end; ++p) {
+			final int digit = buffer[p] - '0';
+			if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE)
+				throw new NumberFormatException("Invalid int: \"" + getString(start, end) + "\"");
+			value = value * 10 + digit;
+		}
+		if (negative) value = -value;
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw new NumberFormatException("Invalid int: \"" + getString(start, end) + "\"");
+		return (int) value;
+	}
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.parser;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rajawali.Capabilities;
+import rajawali.Geometry3D;
+import rajawali.materials.MaterialManager;
+import rajawali.materials.textures.TextureManager;
+import rajawali.renderer.BufferUploadTask;
+import rajawali.renderer.RajawaliRenderer;
+import android.os.Process;
+
+/**
+ * Parses models on a pool of background threads so that loading does not block the GL thread.
+ * Several models are parsed at the same time, one per thread.
+ * <p>
+ * While a model is parsed its geometries only prepare their buffers, see
+ * {@link Geometry3D#beginDeferredBufferCreation()}. Once parsing is done the buffers are queued
+ * as a {@link BufferUploadTask}, which the renderer uploads over as many frames as its buffer
+ * upload budget requires (see {@link RajawaliRenderer#setBufferUploadBudget(double)}). The
+ * model is complete when the last buffer is uploaded:
+ * 
+ * <pre><code>
+ * LoaderOBJ loader = new LoaderOBJ(mContext.getResources(), mTextureManager, R.raw.myobject_obj);
+ * AsyncLoader.getInstance().load(this, loader, new IAsyncLoaderListener() {
+ * 	public void onLoadComplete(ILoader loader) {
+ * 		addChild(((LoaderOBJ) loader).getParsedObject());
+ * 	}
+ * 
+ * 	public void onLoadFailed(ILoader loader, ParsingException e) {
+ * 		RajLog.e(e.getMessage());
+ * 	}
+ * });
+ * </code></pre>
+ * 
+ * The listener is called on the GL thread. Alternatively the returned {@link Future} can be
+ * waited on from any thread but the GL thread, which would wait for itself. Models must only
+ * be loaded after the surface has been created, for instance from
+ * {@link RajawaliRenderer#initScene()}, and a loader must not be used for more than one load.
+ * <p>
+ * Only geometry buffers are deferred. Materials and textures created by a loader are safe as
+ * long as they are merely configured: {@link TextureManager} and {@link MaterialManager} queue
+ * their GL work on the renderer and materials only touch GL when they are rendered. Anything
+ * else that issues GL calls, such as rendering, adding a texture directly, compiling shader
+ * programs or creating render targets, must not be done by a loader. {@link Geometry3D} and
+ * {@link Capabilities} throw an {@link IllegalStateException} when a loader reaches a GL call
+ * they cannot defer.
+ */
+public final class AsyncLoader {
+	private static AsyncLoader instance = null;
+
+	private ExecutorService mExecutor;
+	private int mThreadCount;
+
+	private AsyncLoader() {
+		mThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	}
+
+	public static AsyncLoader getInstance() {
+		if(instance == null)
+		{
+			instance = new AsyncLoader();
+		}
+		return instance;
+	}
+
+	/**
+	 * Sets the number of models which are parsed at the same time. Defaults to the number of
+	 * processors minus one. Loads which are already queued are not affected.
+	 * 
+	 * @param threads int The number of loader threads.
+	 */
+	public synchronized void setThreadCount(int threads) {
+		mThreadCount = Math.max(1, threads);
+		shutdown();
+	}
+
+	public synchronized int getThreadCount() {
+		return mThreadCount;
+	}
+
+	/**
+	 * Parses a model in the background and uploads its buffers on the GL thread.
+	 * 
+	 * @param renderer {@link RajawaliRenderer} The renderer which uploads the buffers.
+	 * @param loader {@link ILoader} The loader to parse with.
+	 * @param listener {@link IAsyncLoaderListener} Receives the result on the GL thread. May be null.
+	 * @return {@link Future} Returns the loader once the model is loaded. Cancelling it discards
+	 * the model.
+	 */
+	public synchronized Future<ILoader> load(RajawaliRenderer renderer, ILoader loader, IAsyncLoaderListener listener) {
+		if (mExecutor == null)
+			mExecutor = Executors.newFixedThreadPool(mThreadCount, new LoaderFactory("AsyncLoader-"));
+		final LoadTask task = new LoadTask(renderer, loader, listener);
+		mExecutor.execute(task);
+		return task;
+	}
+
+	/**
+	 * Stops the loader threads once the queued loads are parsed. They are started again by the
+	 * next load.
+	 */
+	public synchronized void shutdown() {
+		if (mExecutor != null) {
+			mExecutor.shutdown();
+			mExecutor = null;
+		}
+	}
+
+	private static final class LoadTask implements Runnable, Future<ILoader> {
+		private final RajawaliRenderer mRenderer;
+		private final ILoader mLoader;
+		private final IAsyncLoaderListener mListener;
+		private final CountDownLatch mDone = new CountDownLatch(1);
+		private boolean mCancelled; // Guarded by this
+		private ParsingException mError; // Guarded by this
+
+		LoadTask(RajawaliRenderer renderer, ILoader loader, IAsyncLoaderListener listener) {
+			mRenderer = renderer;
+			mLoader = loader;
+			mListener = listener;
+		}
+
+		public void run() {
+			if (isCancelled())
+				return;
+
+			ParsingException error = null;
+			List<Geometry3D> geometries;
+			Geometry3D.beginDeferredBufferCreation();
+			try {
+				mLoader.parse();
+			} catch (ParsingException e) {
+				error = e;
+			} catch (Throwable e) {
+				// -- Errors are reported too, otherwise the future and the listener would wait forever
+				error = new ParsingException(e);
+			} finally {
+				geometries = Geometry3D.endDeferredBufferCreation();
+			}
+
+			if (error != null || isCancelled())
+				geometries = Collections.emptyList();
+			final ParsingException failure = error;
+			final List<Geometry3D> uploads = geometries;
+			mRenderer.queueAddTask(new BufferUploadTask(uploads) {
+				@Override
+				protected void onUploadComplete() {
+					finish(uploads, failure);
+				}
+			});
+		}
+
+		/**
+		 * Called on the GL thread once the buffers are uploaded.
+		 */
+		private void finish(List<Geometry3D> geometries, ParsingException error) {
+			synchronized (this) {
+				if (mCancelled) {
+					// -- Nobody is going to use the model anymore, so give back its buffers
+					for (int i = 0, j = geometries.size(); i < j; ++i)
+						geometries.get(i).destroy();
+					return;
+				}
+				mError = error;
+				mDone.countDown();
+			}
+			if (mListener == null)
+				return;
+			if (error == null)
+				mListener.onLoadComplete(mLoader);
+			else
+				mListener.onLoadFailed(mLoader, error);
+		}
+
+		public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+			if (mDone.getCount() == 0)
+				return false;
+			mCancelled = true;
+			mDone.countDown();
+			return true;
+		}
+
+		public synchronized boolean isCancelled() {
+			return mCancelled;
+		}
+
+		public boolean isDone() {
+			return mDone.getCount() == 0;
+		}
+
+		public ILoader get() throws InterruptedException, ExecutionException {
+			mDone.await();
+			return getResult();
+		}
+
+		public ILoader get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+				TimeoutException {
+			if (!mDone.await(timeout, unit))
+				throw new TimeoutException();
+			return getResult();
+		}
+
+		private synchronized ILoader getResult() throws ExecutionException {
+			if (mCancelled)
+				throw new CancellationException();
+			if (mError != null)
+				throw new ExecutionException(mError);
+			return mLoader;
+		}
+	}
+
+	/**
+	 * Creates daemon threads with background priority.
+	 */
+	static final class LoaderFactory implements ThreadFactory {
+		private final AtomicInteger mCount = new AtomicInteger();
+		private final String mName;
+
+		LoaderFactory(String name) {
+			mName = name;
+		}
+
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(new Runnable() {
+				public void run() {
+					// -- Keep the loaders from competing with the GL thread
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, mName + mCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.parser;
+
+/**
+ * Receives the result of a model which is loaded by the {@link AsyncLoader}. Both methods are
+ * called on the GL thread.
+ */
+public interface IAsyncLoaderListener {
+
+	/**
+	 * Called once the model is parsed and all its buffers are uploaded. The parsed object can
+	 * be added to a scene right away.
+	 * 
+	 * @param loader {@link ILoader} The loader which parsed the model.
+	 */
+	public void onLoadComplete(ILoader loader);
+
+	/**
+	 * Called when the model could not be parsed.
+	 * 
+	 * @param loader {@link ILoader} The loader which failed.
+	 * @param e {@link ParsingException} The cause.
+	 */
+	public void onLoadFailed(ILoader loader, ParsingException e);
+}
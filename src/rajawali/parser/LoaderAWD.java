@@ -1,13 +1,27 @@
 package rajawali.parser;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import rajawali.Geometry3D;
 import rajawali.Object3D;
 import rajawali.materials.textures.TextureManager;
 import rajawali.parser.awd.ABlockParser;
@@ -42,6 +56,7 @@ import rajawali.parser.awd.exceptions.NotImplementedParsingException;
 import rajawali.renderer.RajawaliRenderer;
 import rajawali.scene.RajawaliScene;
 import rajawali.util.LittleEndianDataInputStream;
+import rajawali.util.LzmaInputStream;
 import rajawali.util.RajLog;
 import android.content.res.Resources;
 import android.os.SystemClock;
@@ -51,8 +66,9 @@ import android.util.SparseArray;
  * AWD File parser written using the AWD File Format specification. All future additions to the format should adhere to
  * all specification requirements for maximum forward and backward compatibility.
  * <p>
- * Currently compression is not supported, files will need to be formatted with compression off. This is an option in
- * MAX and should be an option using other exporters.
+ * Bodies compressed with ZLIB or LZMA are decompressed while the blocks are read, without holding the uncompressed
+ * file in memory. LZMA bodies are expected in the .lzma format written by Flash and the LZMA SDK, see
+ * {@link LzmaInputStream}. Uncompressed files load fastest, compressed files are smaller to ship and read from flash.
  * <p>
  * 
  * <b>Example AWD parsing</b>
@@ -95,7 +111,15 @@ public class LoaderAWD extends AMeshLoader {
 	protected final List<Object3D> baseObjects = new ArrayList<Object3D>();
 	protected final SparseArray<BlockHeader> blockDataList = new SparseArray<BlockHeader>();
 
+	/**
+	 * The most block data which is copied for the worker threads at a time.
+	 */
+	protected static final long MAX_BUFFERED_BYTES = 16 * 1024 * 1024;
+
+	private static ExecutorService sBlockExecutor;
+
 	private final List<IBlockParser> blockParsers = new ArrayList<IBlockParser>();
+	private final SparseArray<BlockParserRegistration> blockParserFactories = new SparseArray<BlockParserRegistration>();
 	private final SparseArray<Class<? extends ABlockParser>> blockParserClassesMap = new SparseArray<Class<? extends ABlockParser>>();
 
 	protected int awdHeaderVersion;
@@ -107,12 +131,18 @@ public class LoaderAWD extends AMeshLoader {
 	protected boolean awdHeaderAccuracyGeo;
 	protected boolean awdHeaderAccuracyProps;
 	protected boolean mAlwaysUseContainer;
+	protected boolean mParallelParsing = true;
 
 	public LoaderAWD(RajawaliRenderer renderer, File file) {
 		super(renderer, file);
 		init();
 	}
 
+	public LoaderAWD(File file) {
+		super(file);
+		init();
+	}
+
 	public LoaderAWD(Resources resources, TextureManager textureManager, int resourceId) {
 		super(resources, textureManager, resourceId);
 		init();
@@ -124,45 +154,183 @@ public class LoaderAWD extends AMeshLoader {
 	}
 
 	protected void init() {
-		// Blocks are identified in the AWD documentation under the title 'Block Types'
-		blockParserClassesMap.put(getClassID(NS_AWD, 1), BlockTriangleGeometry.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 11), BlockPrimitiveGeometry.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 21), BlockScene.class); // Not yet supported in the specification.
-		blockParserClassesMap.put(getClassID(NS_AWD, 22), BlockContainer.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 23), BlockMeshInstance.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 31), BlockSkybox.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 41), BlockLight.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 42), BlockCamera.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 43), BlockTextureProjector.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 51), BlockLightPicker.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 81), BlockSimpleMaterial.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 82), BlockBitmapTexture.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 83), BlockCubeTexture.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 91), BlockSharedMethod.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 92), BlockShadowMethod.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 101), BlockSkeleton.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 102), BlockSkeletonPose.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 103), BlockSkeletonAnimation.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 111), BlockMeshPose.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 112), BlockMeshPoseAnimation.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 113), BlockAnimationSet.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 121), BlockUVAnimation.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 122), BlockAnimator.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 253), BlockCommand.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 254), BlockNamespace.class);
-		blockParserClassesMap.put(getClassID(NS_AWD, 255), BlockMetaData.class);
+		// Blocks are identified in the AWD documentation under the title 'Block Types'. Geometry and texture blocks
+		// do not refer to other blocks and are parsed in parallel.
+		registerBlockParser(NS_AWD, 1, true, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockTriangleGeometry();
+			}
+		});
+		registerBlockParser(NS_AWD, 11, true, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockPrimitiveGeometry();
+			}
+		});
+		registerBlockParser(NS_AWD, 21, false, new IBlockParserFactory() { // Not yet supported in the specification.
+			public ABlockParser createBlockParser() {
+				return new BlockScene();
+			}
+		});
+		registerBlockParser(NS_AWD, 22, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockContainer();
+			}
+		});
+		registerBlockParser(NS_AWD, 23, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockMeshInstance();
+			}
+		});
+		registerBlockParser(NS_AWD, 31, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockSkybox();
+			}
+		});
+		registerBlockParser(NS_AWD, 41, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockLight();
+			}
+		});
+		registerBlockParser(NS_AWD, 42, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockCamera();
+			}
+		});
+		registerBlockParser(NS_AWD, 43, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockTextureProjector();
+			}
+		});
+		registerBlockParser(NS_AWD, 51, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockLightPicker();
+			}
+		});
+		registerBlockParser(NS_AWD, 81, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockSimpleMaterial();
+			}
+		});
+		registerBlockParser(NS_AWD, 82, true, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockBitmapTexture();
+			}
+		});
+		registerBlockParser(NS_AWD, 83, true, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockCubeTexture();
+			}
+		});
+		registerBlockParser(NS_AWD, 91, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockSharedMethod();
+			}
+		});
+		registerBlockParser(NS_AWD, 92, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockShadowMethod();
+			}
+		});
+		registerBlockParser(NS_AWD, 101, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockSkeleton();
+			}
+		});
+		registerBlockParser(NS_AWD, 102, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockSkeletonPose();
+			}
+		});
+		registerBlockParser(NS_AWD, 103, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockSkeletonAnimation();
+			}
+		});
+		registerBlockParser(NS_AWD, 111, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockMeshPose();
+			}
+		});
+		registerBlockParser(NS_AWD, 112, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockMeshPoseAnimation();
+			}
+		});
+		registerBlockParser(NS_AWD, 113, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockAnimationSet();
+			}
+		});
+		registerBlockParser(NS_AWD, 121, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockUVAnimation();
+			}
+		});
+		registerBlockParser(NS_AWD, 122, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockAnimator();
+			}
+		});
+		registerBlockParser(NS_AWD, 253, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockCommand();
+			}
+		});
+		registerBlockParser(NS_AWD, 254, false, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockNamespace();
+			}
+		});
+		registerBlockParser(NS_AWD, 255, true, new IBlockParserFactory() {
+			public ABlockParser createBlockParser() {
+				return new BlockMetaData();
+			}
+		});
 	}
 
+	/**
+	 * Registers the parser of a block type. Replaces the parser registered for the type before.
+	 * 
+	 * @param namespace
+	 *            The namespace of the block type, 0 for the types of the AWD specification.
+	 * @param type
+	 *            The type of the block within the namespace.
+	 * @param independent
+	 *            True if blocks of this type do not refer to other blocks, which allows them to be parsed in parallel.
+	 *            Blocks which refer to other blocks are parsed in file order once all earlier blocks are parsed.
+	 * @param factory
+	 *            Creates a parser for each block of the type.
+	 */
+	public void registerBlockParser(int namespace, int type, boolean independent, IBlockParserFactory factory) {
+		blockParserFactories.put(getClassID(namespace, type), new BlockParserRegistration(factory, independent));
+	}
+
+	/**
+	 * Enables or disables parsing independent blocks in parallel. Enabled by default.
+	 * 
+	 * @param parallel
+	 */
+	public void setParallelParsing(boolean parallel) {
+		mParallelParsing = parallel;
+	}
+
+	public boolean isParallelParsing() {
+		return mParallelParsing;
+	}
+
+	@SuppressWarnings("deprecation")
 	@Override
 	public AMeshLoader parse() throws ParsingException {
 		super.parse();
 
 		onRegisterBlockClasses(blockParserClassesMap);
+		for (int i = 0, j = blockParserClassesMap.size(); i < j; ++i)
+			blockParserFactories.put(blockParserClassesMap.keyAt(i), new BlockParserRegistration(new ClassFactory(
+					blockParserClassesMap.valueAt(i)), false));
 
 		long startTime = SystemClock.elapsedRealtime();
 
 		// Open the file or resource for reading
-		// TODO Compare parsing speeds at different buffer sizes.
 		final AWDLittleEndianDataInputStream dis;
 		try {
 			dis = getLittleEndianInputStream(8192);
@@ -170,11 +338,12 @@ public class LoaderAWD extends AMeshLoader {
 			throw new ParsingException(e);
 		}
 
-		// Verify the header
+		final List<ScannedBlock> scannedBlocks = new ArrayList<ScannedBlock>();
+		FileChannel channel = null;
 		try {
 			// Header should begin with AWD, immediately throw exception if this is not true
 			final byte[] buf = new byte[3];
-			dis.read(buf);
+			dis.readFully(buf);
 			if (!new String(buf).equals("AWD"))
 				throw new ParsingException("Invalid header designation: " + new String(buf));
 
@@ -213,96 +382,264 @@ public class LoaderAWD extends AMeshLoader {
 				throw new ParsingException(
 						"AWD Body length not provided which indicates model is streaming or corrupt.");
 
-			// Compression is not supported as this is unnecessary overhead given the limited resources on mobile
-			if (getCompression() != Compression.NONE)
-				throw new ParsingException("Compression is not currently supported. Document compressed as: "
-						+ getCompression());
+			// The blocks of a compressed body are decompressed while they are read. The uncompressed length is not
+			// known in advance, so blocks are read until the end of the body.
+			final BufferedInputStream body;
+			final AWDLittleEndianDataInputStream blocks;
+			switch (getCompression()) {
+			case ZLIB:
+				body = new BufferedInputStream(new InflaterInputStream(dis, new Inflater(), 8192), 8192);
+				blocks = new AWDLittleEndianDataInputStream(body);
+				break;
+			case LZMA:
+				body = new BufferedInputStream(new LzmaInputStream(dis), 8192);
+				blocks = new AWDLittleEndianDataInputStream(body);
+				break;
+			default:
+				body = null;
+				blocks = dis;
+				break;
+			}
+
+			// The worker threads read the independent blocks of an uncompressed file again from the file, so these
+			// need not be kept in memory
+			if (body == null && mFile != null && mParallelParsing)
+				channel = new FileInputStream(mFile).getChannel();
 
-			// Read file blocks
 			try {
-				do {
-					// Read header data
-					final BlockHeader blockHeader = new BlockHeader();
-					blockHeader.blockHeaders = blockDataList;
-					blockHeader.awdVersion = awdHeaderVersion;
-					blockHeader.awdRevision = awdHeaderRevision;
-					blockHeader.id = dis.readInt();
-					blockHeader.namespace = dis.read();
-					blockHeader.type = dis.read();
-					blockHeader.flags = dis.read();
-					blockHeader.dataLength = dis.readUnsignedInt();
-					blockHeader.globalPrecisionGeo = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_GEO) == BlockHeader.FLAG_ACCURACY_GEO;
-					blockHeader.globalPrecisionMatrix = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_MATRIX) == BlockHeader.FLAG_ACCURACY_MATRIX;
-					blockHeader.globalPrecisionProps = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_PROPS) == BlockHeader.FLAG_ACCURACY_PROPS;
-					blockHeader.blockEnd = dis.getPosition() + blockHeader.dataLength;
-
-					// Flag the input stream with the correct property precision flag
-					dis.setPropertyPrecision(blockHeader.globalPrecisionProps);
-
-					// Add the block to the list of blocks for reference. Id of 0 indicates no references will be made
-					// to the block.
-					if (blockHeader.id != 0)
-						blockDataList.put(blockHeader.id, blockHeader);
-
-					// Debug
-					RajLog.d(blockHeader.toString());
-
-					// Look for the Block Parser class.
-					final Class<? extends ABlockParser> blockClass = (Class<? extends ABlockParser>) blockParserClassesMap
-							.get(getClassID(
-									blockHeader.namespace, blockHeader.type));
-
-					// Skip unknown blocks
-					if (blockClass == null) {
-						RajLog.d(" Skipping unknown block " + blockHeader.namespace + " " + blockHeader.type);
-						dis.skip(blockHeader.dataLength);
-						continue;
-					}
+				parseBlocks(blocks, body, endOfFile, channel, scannedBlocks);
+			} catch (IOException e) {
+				throw new ParsingException("Buffer overrun; unexpected end of file.", e);
+			} finally {
+				blocks.close();
+			}
+		} catch (ParsingException e) {
+			throw e;
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new ParsingException("Unexpected error. File is not in a supported AWD format.", e);
+		} finally {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					RajLog.e("Could not close " + mFile);
+				}
+			}
+		}
 
-					// Instantiate the block parser
-					final ABlockParser parser = (ABlockParser) Class.forName(blockClass.getName()).getConstructor()
-							.newInstance();
+		for (int i = 0, j = scannedBlocks.size(); i < j; ++i)
+			blockParsers.add(scannedBlocks.get(i).parser);
+		onBlockParsingFinished(blockParsers);
 
-					if (blockHeader.id != 0)
-						blockHeader.parser = parser;
+		RajLog.d("Finished Parsing in " + (SystemClock.elapsedRealtime() - startTime));
 
-					// Add the parser to the list of block parsers
-					blockParsers.add(parser);
+		return this;
+	}
 
-					RajLog.d(" Parsing block with: " + parser.getClass().getSimpleName());
+	/**
+	 * Reads and parses the blocks in file order. Blocks which refer to other blocks are parsed right from the stream
+	 * once all blocks before them are parsed. When parallel parsing is enabled, independent blocks are handed to the
+	 * worker threads instead, either as a position in the file or, for compressed bodies and resources, as a copy of
+	 * their data. At most {@link #MAX_BUFFERED_BYTES} are copied at a time, larger blocks are parsed from the stream.
+	 * Unknown blocks are skipped.
+	 * 
+	 * @param blocks
+	 *            The stream of blocks.
+	 * @param body
+	 *            The decompressed body, or null if the body is not compressed.
+	 * @param endOfFile
+	 *            The end of an uncompressed body.
+	 * @param channel
+	 *            The file the worker threads read independent blocks from, or null to copy their data.
+	 * @param scannedBlocks
+	 *            Receives the blocks which are parsed, in file order.
+	 * @throws Exception
+	 */
+	private void parseBlocks(AWDLittleEndianDataInputStream blocks, BufferedInputStream body, long endOfFile,
+			final FileChannel channel, List<ScannedBlock> scannedBlocks) throws Exception {
+		// Blocks before this index are parsed
+		int finished = 0;
+		long bufferedBytes = 0;
+		try {
+			do {
+				// Read header data
+				final BlockHeader blockHeader = new BlockHeader();
+				blockHeader.blockHeaders = blockDataList;
+				blockHeader.awdVersion = awdHeaderVersion;
+				blockHeader.awdRevision = awdHeaderRevision;
+				blockHeader.id = blocks.readInt();
+				blockHeader.namespace = blocks.read();
+				blockHeader.type = blocks.read();
+				blockHeader.flags = blocks.read();
+				blockHeader.dataLength = blocks.readUnsignedInt();
+				blockHeader.globalPrecisionGeo = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_GEO) == BlockHeader.FLAG_ACCURACY_GEO;
+				blockHeader.globalPrecisionMatrix = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_MATRIX) == BlockHeader.FLAG_ACCURACY_MATRIX;
+				blockHeader.globalPrecisionProps = (blockHeader.flags & BlockHeader.FLAG_ACCURACY_PROPS) == BlockHeader.FLAG_ACCURACY_PROPS;
+				blockHeader.blockEnd = blocks.getPosition() + blockHeader.dataLength;
+
+				// Add the block to the list of blocks for reference. Id of 0 indicates no references will be made
+				// to the block.
+				if (blockHeader.id != 0)
+					blockDataList.put(blockHeader.id, blockHeader);
+
+				// Debug
+				RajLog.d(blockHeader.toString());
+
+				// Look for the block parser
+				final BlockParserRegistration registration = blockParserFactories.get(getClassID(
+						blockHeader.namespace, blockHeader.type));
+
+				// Skip unknown blocks
+				if (registration == null) {
+					RajLog.d(" Skipping unknown block " + blockHeader.namespace + " " + blockHeader.type);
+					blocks.skip(blockHeader.dataLength);
+					continue;
+				}
 
-					// Begin parsing
-					try {
-						parser.parseBlock(dis, blockHeader);
-					} catch (NotImplementedParsingException e) {
-						RajLog.d(" Skipping block as not implemented.");
-						dis.skip(blockHeader.blockEnd - dis.getPosition());
+				final ScannedBlock block = new ScannedBlock(blockHeader, registration.independent);
+				block.parser = registration.factory.createBlockParser();
+				block.dataStart = blocks.getPosition();
+				if (blockHeader.id != 0)
+					blockHeader.parser = block.parser;
+				scannedBlocks.add(block);
+
+				if (mParallelParsing && block.independent) {
+					if (channel != null) {
+						if (blocks.skip(blockHeader.dataLength) != blockHeader.dataLength)
+							throw new EOFException();
+						submitBlock(block, channel);
+						continue;
 					}
 
-					// Validate block end
-					if (blockHeader.blockEnd != dis.getPosition())
-						throw new ParsingException("Block did not end in the correct location. Expected : "
-								+ blockHeader.blockEnd
-								+ " Ended : " + dis.getPosition());
+					// Release the copies of the blocks which are done to make room for this one
+					if (bufferedBytes + blockHeader.dataLength > MAX_BUFFERED_BYTES) {
+						for (final int current = scannedBlocks.size() - 1; finished < current; ++finished)
+							awaitBlock(scannedBlocks.get(finished));
+						bufferedBytes = 0;
+					}
 
-				} while (dis.getPosition() < endOfFile);
+					if (blockHeader.dataLength <= MAX_BUFFERED_BYTES) {
+						block.data = new byte[(int) blockHeader.dataLength];
+						blocks.readFully(block.data);
+						bufferedBytes += blockHeader.dataLength;
+						submitBlock(block, null);
+						continue;
+					}
+				}
 
-				// End of blocks reached
-				RajLog.d("End of blocks reached.");
-			} catch (IOException e) {
-				throw new ParsingException("Buffer overrun; unexpected end of file.", e);
+				// References only point to earlier blocks
+				for (final int current = scannedBlocks.size() - 1; finished < current; ++finished)
+					awaitBlock(scannedBlocks.get(finished));
+				bufferedBytes = 0;
+				parseBlock(block, blocks);
+				++finished;
+			} while (body == null ? blocks.getPosition() < endOfFile : hasMoreData(body));
+
+			RajLog.d("End of blocks reached.");
+
+			for (final int numBlocks = scannedBlocks.size(); finished < numBlocks; ++finished)
+				awaitBlock(scannedBlocks.get(finished));
+		} finally {
+			// Do not leave workers reading from a closed file
+			for (int i = finished, j = scannedBlocks.size(); i < j; ++i) {
+				final Future<List<Geometry3D>> future = scannedBlocks.get(i).future;
+				if (future != null && !future.cancel(false)) {
+					try {
+						future.get();
+					} catch (ExecutionException e) {
+						// The first failure is already being reported
+					}
+				}
 			}
+		}
+	}
 
-		} catch (Exception e) {
-			e.printStackTrace();
-			throw new ParsingException("Unexpected error. File is not in a supported AWD format.", e);
+	/**
+	 * Hands an independent block to the worker threads.
+	 * 
+	 * @param block
+	 * @param channel
+	 *            The file to read the block data from, or null if the data of the block was copied.
+	 */
+	private void submitBlock(final ScannedBlock block, final FileChannel channel) {
+		block.future = getBlockExecutor().submit(new Callable<List<Geometry3D>>() {
+			public List<Geometry3D> call() throws Exception {
+				byte[] data = block.data;
+				block.data = null;
+				if (data == null) {
+					// Positional reads do not interfere with each other
+					data = new byte[(int) block.header.dataLength];
+					final ByteBuffer buffer = ByteBuffer.wrap(data);
+					while (buffer.hasRemaining()) {
+						if (channel.read(buffer, block.dataStart + buffer.position()) < 0)
+							throw new EOFException();
+					}
+				}
+
+				// Worker threads have no GL context, the buffers are created once the block is done
+				final List<Geometry3D> geometries;
+				Geometry3D.beginDeferredBufferCreation();
+				try {
+					parseBlock(block, new AWDLittleEndianDataInputStream(new ByteArrayInputStream(data),
+							block.dataStart));
+				} finally {
+					geometries = Geometry3D.endDeferredBufferCreation();
+				}
+				return geometries;
+			}
+		});
+	}
+
+	/**
+	 * Waits for a block which is parsed by a worker thread and creates the buffers of its geometries.
+	 */
+	private void awaitBlock(ScannedBlock block) throws Exception {
+		if (block.future == null)
+			return;
+		final List<Geometry3D> geometries;
+		try {
+			geometries = block.future.get();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			throw e;
 		}
+		Geometry3D.deferBufferCreation(geometries);
+	}
 
-		onBlockParsingFinished(blockParsers);
+	/**
+	 * Parses a block from a stream which is positioned at the start of the block data.
+	 */
+	private void parseBlock(ScannedBlock block, AWDLittleEndianDataInputStream dis) throws Exception {
+		final BlockHeader blockHeader = block.header;
 
-		RajLog.d("Finished Parsing in " + (SystemClock.elapsedRealtime() - startTime));
+		// Flag the input stream with the correct property precision flag
+		dis.setPropertyPrecision(blockHeader.globalPrecisionProps);
 
-		return this;
+		RajLog.d(" Parsing block " + blockHeader.id + " with: " + block.parser.getClass().getSimpleName());
+
+		// Begin parsing
+		try {
+			block.parser.parseBlock(dis, blockHeader);
+		} catch (NotImplementedParsingException e) {
+			RajLog.d(" Skipping block as not implemented.");
+			dis.skip(blockHeader.blockEnd - dis.getPosition());
+		}
+
+		// Validate block end
+		if (blockHeader.blockEnd != dis.getPosition())
+			throw new ParsingException("Block did not end in the correct location. Expected : "
+					+ blockHeader.blockEnd
+					+ " Ended : " + dis.getPosition());
+	}
+
+	private static synchronized ExecutorService getBlockExecutor() {
+		if (sBlockExecutor == null)
+			sBlockExecutor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()),
+					new AsyncLoader.LoaderFactory("LoaderAWD-"));
+		return sBlockExecutor;
 	}
 
 	/**
@@ -332,6 +669,20 @@ public class LoaderAWD extends AMeshLoader {
 		return new AWDLittleEndianDataInputStream(getBufferedInputStream(size));
 	}
 
+	/**
+	 * Checks whether a stream has more data without consuming it.
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static boolean hasMoreData(BufferedInputStream in) throws IOException {
+		in.mark(1);
+		final boolean hasMore = in.read() >= 0;
+		in.reset();
+		return hasMore;
+	}
+
 	/**
 	 * Get the block header for the given block id. Block id is determined by the AWD file and dependencies must be
 	 * parsed before referencing is possible.
@@ -401,10 +752,13 @@ public class LoaderAWD extends AMeshLoader {
 	}
 
 	/**
-	 * If necessary, register additional {@link ABlockParser} classes here.
+	 * If necessary, register additional {@link ABlockParser} classes here. The classes are instantiated by reflection
+	 * and parsed in file order.
 	 * 
 	 * @param blockParserClassesMap
+	 * @deprecated Use {@link #registerBlockParser(int, int, boolean, IBlockParserFactory)}.
 	 */
+	@Deprecated
 	protected void onRegisterBlockClasses(SparseArray<Class<? extends ABlockParser>> blockParserClassesMap) {}
 
 	/**
@@ -416,6 +770,60 @@ public class LoaderAWD extends AMeshLoader {
 		void parseBlock(AWDLittleEndianDataInputStream dis, BlockHeader blockHeader) throws Exception;
 	}
 
+	/**
+	 * Creates the parsers of a block type, see {@link LoaderAWD#registerBlockParser(int, int, boolean, IBlockParserFactory)}.
+	 * Parsers of independent blocks are used on worker threads.
+	 */
+	public interface IBlockParserFactory {
+		ABlockParser createBlockParser();
+	}
+
+	private static final class BlockParserRegistration {
+		final IBlockParserFactory factory;
+		final boolean independent;
+
+		BlockParserRegistration(IBlockParserFactory factory, boolean independent) {
+			this.factory = factory;
+			this.independent = independent;
+		}
+	}
+
+	/**
+	 * Instantiates the classes registered with {@link LoaderAWD#onRegisterBlockClasses(SparseArray)}.
+	 */
+	private static final class ClassFactory implements IBlockParserFactory {
+		private final Class<? extends ABlockParser> mClass;
+
+		ClassFactory(Class<? extends ABlockParser> blockClass) {
+			mClass = blockClass;
+		}
+
+		public ABlockParser createBlockParser() {
+			try {
+				return mClass.newInstance();
+			} catch (Exception e) {
+				throw new RuntimeException("Could not instantiate " + mClass.getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * A block which is read from the file and parsed, possibly by a worker thread.
+	 */
+	private static final class ScannedBlock {
+		final BlockHeader header;
+		final boolean independent;
+		ABlockParser parser;
+		long dataStart;
+		byte[] data;
+		Future<List<Geometry3D>> future;
+
+		ScannedBlock(BlockHeader header, boolean independent) {
+			this.header = header;
+			this.independent = independent;
+		}
+	}
+
 	/**
 	 * Block headers are consistent across all blocks and hold useful information that various blocks need for parsing
 	 * purposes.
@@ -510,6 +918,17 @@ public class LoaderAWD extends AMeshLoader {
 			super(in);
 		}
 
+		/**
+		 * Reads data which starts at the given position of a file, so that positions are relative to the file.
+		 * 
+		 * @param in
+		 * @param position
+		 */
+		public AWDLittleEndianDataInputStream(InputStream in, long position) {
+			super(in);
+			mPosition = position;
+		}
+
 		public void setPropertyPrecision(boolean flag) {
 			mPropPrecision = flag;
 		}
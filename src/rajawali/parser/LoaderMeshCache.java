@@ -0,0 +1,396 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+
+import rajawali.Object3D;
+import rajawali.animation.mesh.VertexAnimationFrame;
+import rajawali.animation.mesh.VertexAnimationObject3D;
+import rajawali.bounds.BoundingBox;
+import rajawali.math.Quaternion;
+import rajawali.math.vector.Vector3;
+import rajawali.renderer.RajawaliRenderer;
+import rajawali.util.RajLog;
+import rajawali.util.exporter.MeshCacheExporter;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+
+/**
+ * Loads a binary mesh cache written by {@link MeshCacheExporter}. The file is memory mapped and
+ * the vertex data is handed to {@link rajawali.Geometry3D} as views of the mapping, so nothing
+ * is parsed or copied before the data is uploaded to the GPU. Loading a large model from a
+ * cache takes milliseconds where parsing a text format takes seconds.
+ * <p>
+ * A cache can be written explicitly with the {@link MeshCacheExporter} or automatically by
+ * a loader which supports it, see {@link AMeshLoader#setCacheFile(File)}. Raw resources can
+ * only be mapped when they are stored uncompressed in the APK, otherwise they are read into
+ * memory.
+ * <p>
+ * The geometry buffers of a loaded model are read only. The object hierarchy, names,
+ * transformations, vertex animation frames and bounding boxes are restored, materials are not.
+ * 
+ * <h3>File format</h3>
+ * All values are little endian. The file starts with a header of {@link #HEADER_SIZE} bytes:
+ * 
+ * <pre>
+ * int magic             {@link #MAGIC}
+ * int version           {@link #VERSION}
+ * int numMeshes
+ * int numSections
+ * int materialLibrary   string index, or -1
+ * int[3] reserved
+ * </pre>
+ * 
+ * The mesh table follows, {@link #MESH_RECORD_SIZE} bytes per object in depth first order.
+ * The first object is the root:
+ * 
+ * <pre>
+ * int parent            mesh index, or -1 for the root
+ * int flags             {@link #FLAG_CONTAINER}, {@link #FLAG_SHORT_INDICES}
+ * int numVertices
+ * int numIndices
+ * int numFrames         number of vertex animation frames
+ * int name              string index, or -1
+ * int material          string index of the material name, or -1
+ * int reserved
+ * float[3] position
+ * float[4] orientation  w, x, y, z
+ * float[3] scale
+ * </pre>
+ * 
+ * Then the section table, {@link #SECTION_RECORD_SIZE} bytes per section:
+ * 
+ * <pre>
+ * int mesh              mesh index, or -1 for sections of the whole file
+ * int type              {@link #SECTION_VERTICES} etc.
+ * int offset            from the start of the file, a multiple of {@link #SECTION_ALIGNMENT}
+ * int length            in bytes
+ * </pre>
+ * 
+ * Vertices, normals, texture coordinates and colours are float arrays, indices are ints or,
+ * with {@link #FLAG_SHORT_INDICES}, unsigned shorts. Bounds are the minimum and maximum corner
+ * of the bounding box as six floats. The vertices and normals of all animation frames are stored
+ * one frame after the other, frame names as one string index per frame. The string section
+ * holds the number of strings followed by the byte length and UTF-8 bytes of every string.
+ */
+public class LoaderMeshCache extends AMeshLoader {
+	public static final int MAGIC = 0x434d4a52; // "RJMC"
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 32;
+	public static final int MESH_RECORD_SIZE = 72;
+	public static final int SECTION_RECORD_SIZE = 16;
+	public static final int SECTION_ALIGNMENT = 16;
+
+	public static final int FLAG_CONTAINER = 1;
+	public static final int FLAG_SHORT_INDICES = 2;
+
+	public static final int SECTION_VERTICES = 1;
+	public static final int SECTION_NORMALS = 2;
+	public static final int SECTION_TEXTURE_COORDS = 3;
+	public static final int SECTION_COLORS = 4;
+	public static final int SECTION_INDICES = 5;
+	public static final int SECTION_BOUNDS = 6;
+	public static final int SECTION_FRAME_VERTICES = 7;
+	public static final int SECTION_FRAME_NORMALS = 8;
+	public static final int SECTION_FRAME_NAMES = 9;
+	public static final int SECTION_STRINGS = 10;
+
+	private static final boolean NATIVE_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+	private final HashMap<Object3D, String> mMaterialNames = new HashMap<Object3D, String>();
+	private String mMaterialLibrary;
+
+	public LoaderMeshCache(File file) {
+		super(file);
+	}
+
+	public LoaderMeshCache(RajawaliRenderer renderer, File file) {
+		super(renderer, file);
+	}
+
+	public LoaderMeshCache(Resources resources, int resourceId) {
+		super(resources, null, resourceId);
+	}
+
+	@Override
+	public LoaderMeshCache parse() throws ParsingException {
+		super.parse();
+		final ByteBuffer data;
+		try {
+			data = map();
+		} catch (IOException e) {
+			RajLog.e("[" + getClass().getCanonicalName() + "] Could not read the mesh cache.");
+			throw new ParsingException(e);
+		}
+		data.order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			read(data);
+		} catch (BufferUnderflowException e) {
+			throw new ParsingException("The mesh cache is truncated.", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new ParsingException("The mesh cache is corrupt.", e);
+		} catch (IllegalArgumentException e) {
+			throw new ParsingException("The mesh cache is corrupt.", e);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the name of the material the object had when the cache was written.
+	 * 
+	 * @param object {@link Object3D} A parsed object.
+	 * @return {@link String} The material name, or null.
+	 */
+	public String getMaterialName(Object3D object) {
+		return mMaterialNames.get(object);
+	}
+
+	/**
+	 * Returns the material library the model referred to when the cache was written, for
+	 * instance the .mtl file of an OBJ model.
+	 * 
+	 * @return {@link String} The material library, or null.
+	 */
+	public String getMaterialLibrary() {
+		return mMaterialLibrary;
+	}
+
+	/**
+	 * Checks whether a file starts with the header of a mesh cache of the current version.
+	 * 
+	 * @param file {@link File} The file to check.
+	 * @return boolean True if the file can be loaded.
+	 */
+	public static boolean isValid(File file) {
+		if (!file.isFile() || file.length() < HEADER_SIZE)
+			return false;
+		try {
+			final FileInputStream in = new FileInputStream(file);
+			try {
+				final ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+				in.getChannel().read(header, 0);
+				return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private ByteBuffer map() throws IOException {
+		if (mFile != null) {
+			final FileInputStream in = new FileInputStream(mFile);
+			try {
+				final FileChannel channel = in.getChannel();
+				// -- The mapping stays valid after the channel is closed
+				return channel.map(MapMode.READ_ONLY, 0, channel.size());
+			} finally {
+				in.close();
+			}
+		}
+
+		final AssetFileDescriptor descriptor = mResources.openRawResourceFd(mResourceId);
+		if (descriptor != null) {
+			final FileInputStream in = new FileInputStream(descriptor.getFileDescriptor());
+			try {
+				return in.getChannel().map(MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getLength());
+			} finally {
+				in.close();
+				descriptor.close();
+			}
+		}
+
+		// -- Compressed resources can not be mapped
+		final InputStream in = mResources.openRawResource(mResourceId);
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] block = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(block)) > 0)
+				out.write(block, 0, read);
+			final ByteBuffer data = ByteBuffer.allocateDirect(out.size());
+			data.put(out.toByteArray()).position(0);
+			return data;
+		} finally {
+			in.close();
+		}
+	}
+
+	private void read(ByteBuffer data) throws ParsingException {
+		if (data.getInt(0) != MAGIC)
+			throw new ParsingException("Not a mesh cache.");
+		if (data.getInt(4) != VERSION)
+			throw new ParsingException("Unsupported mesh cache version " + data.getInt(4) + ".");
+		final int numMeshes = data.getInt(8);
+		final int numSections = data.getInt(12);
+		final int materialLibrary = data.getInt(16);
+		if (numMeshes < 1)
+			throw new ParsingException("The mesh cache is empty.");
+
+		final int meshTable = HEADER_SIZE;
+		final int sectionTable = meshTable + numMeshes * MESH_RECORD_SIZE;
+
+		// -- Collect the sections per mesh
+		final ByteBuffer[][] sections = new ByteBuffer[numMeshes][SECTION_STRINGS + 1];
+		String[] strings = new String[0];
+		for (int i = 0; i < numSections; ++i) {
+			final int record = sectionTable + i * SECTION_RECORD_SIZE;
+			final int mesh = data.getInt(record);
+			final int type = data.getInt(record + 4);
+			final ByteBuffer section = slice(data, data.getInt(record + 8), data.getInt(record + 12));
+			if (mesh == -1 && type == SECTION_STRINGS)
+				strings = readStrings(section);
+			else if (mesh >= 0 && mesh < numMeshes && type > 0 && type < SECTION_STRINGS)
+				sections[mesh][type] = section;
+		}
+		mMaterialLibrary = getString(strings, materialLibrary);
+
+		final Object3D[] objects = new Object3D[numMeshes];
+		for (int i = 0; i < numMeshes; ++i) {
+			final int record = meshTable + i * MESH_RECORD_SIZE;
+			final int parent = data.getInt(record);
+			final int flags = data.getInt(record + 4);
+			final int numFrames = data.getInt(record + 16);
+			final ByteBuffer[] meshSections = sections[i];
+
+			final Object3D object = numFrames > 0 ? new VertexAnimationObject3D() : new Object3D();
+			object.setName(getString(strings, data.getInt(record + 20)));
+			final String material = getString(strings, data.getInt(record + 24));
+			if (material != null)
+				mMaterialNames.put(object, material);
+			object.setPosition(data.getFloat(record + 32), data.getFloat(record + 36), data.getFloat(record + 40));
+			object.setOrientation(new Quaternion(data.getFloat(record + 44), data.getFloat(record + 48),
+					data.getFloat(record + 52), data.getFloat(record + 56)));
+			object.setScale(data.getFloat(record + 60), data.getFloat(record + 64), data.getFloat(record + 68));
+
+			if ((flags & FLAG_CONTAINER) == 0) {
+				final ByteBuffer indices = meshSections[SECTION_INDICES];
+				final Buffer indexBuffer;
+				if (indices == null)
+					indexBuffer = null;
+				else if ((flags & FLAG_SHORT_INDICES) != 0)
+					indexBuffer = NATIVE_LITTLE_ENDIAN ? indices.asShortBuffer() : copyShorts(indices).asShortBuffer();
+				else
+					indexBuffer = NATIVE_LITTLE_ENDIAN ? indices.asIntBuffer() : copy(indices).asIntBuffer();
+				object.setData(asFloats(meshSections[SECTION_VERTICES]), asFloats(meshSections[SECTION_NORMALS]),
+						asFloats(meshSections[SECTION_TEXTURE_COORDS]), asFloats(meshSections[SECTION_COLORS]),
+						indexBuffer);
+			}
+
+			final ByteBuffer bounds = meshSections[SECTION_BOUNDS];
+			if (bounds != null) {
+				final Vector3[] corners = new Vector3[8];
+				corners[0] = new Vector3(bounds.getFloat(0), bounds.getFloat(4), bounds.getFloat(8));
+				corners[1] = new Vector3(bounds.getFloat(12), bounds.getFloat(16), bounds.getFloat(20));
+				final BoundingBox box = new BoundingBox(corners);
+				box.calculatePoints();
+				object.getGeometry().setBoundingBox(box);
+			}
+
+			if (numFrames > 0)
+				readFrames((VertexAnimationObject3D) object, numFrames, data.getInt(record + 8), meshSections, strings);
+
+			objects[i] = object;
+			if (parent >= 0 && parent < i)
+				objects[parent].addChild(object);
+		}
+		mRootObject = objects[0];
+	}
+
+	private void readFrames(VertexAnimationObject3D object, int numFrames, int numVertices, ByteBuffer[] sections,
+			String[] strings) throws ParsingException {
+		final ByteBuffer vertices = sections[SECTION_FRAME_VERTICES];
+		final ByteBuffer normals = sections[SECTION_FRAME_NORMALS];
+		final ByteBuffer names = sections[SECTION_FRAME_NAMES];
+		if (vertices == null || normals == null)
+			throw new ParsingException("The mesh cache is missing the animation frames of " + object.getName() + ".");
+		final int frameSize = numVertices * 3 * 4;
+		for (int i = 0; i < numFrames; ++i) {
+			final VertexAnimationFrame frame = new VertexAnimationFrame();
+			frame.getGeometry().setBuffers(asFloats(slice(vertices, i * frameSize, frameSize)),
+					asFloats(slice(normals, i * frameSize, frameSize)), null, null, null);
+			frame.getGeometry().createVertexAndNormalBuffersOnly();
+			if (names != null)
+				frame.setName(getString(strings, names.getInt(i * 4)));
+			object.addFrame(frame);
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer data, int offset, int length) {
+		final ByteBuffer section = data.duplicate();
+		section.limit(offset + length).position(offset);
+		return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Views a section as floats. On big endian devices the section is copied into native order,
+	 * which OpenGL expects.
+	 */
+	private static FloatBuffer asFloats(ByteBuffer section) {
+		if (section == null)
+			return null;
+		return NATIVE_LITTLE_ENDIAN ? section.asFloatBuffer() : copy(section).asFloatBuffer();
+	}
+
+	/**
+	 * Copies a little endian section of 32 bit values into native order.
+	 */
+	private static ByteBuffer copy(ByteBuffer section) {
+		final ByteBuffer copy = ByteBuffer.allocateDirect(section.capacity()).order(ByteOrder.nativeOrder());
+		copy.asIntBuffer().put(section.asIntBuffer());
+		return copy;
+	}
+
+	/**
+	 * Copies a little endian section of 16 bit values into native order.
+	 */
+	private static ByteBuffer copyShorts(ByteBuffer section) {
+		final ByteBuffer copy = ByteBuffer.allocateDirect(section.capacity()).order(ByteOrder.nativeOrder());
+		copy.asShortBuffer().put(section.asShortBuffer());
+		return copy;
+	}
+
+	private static String[] readStrings(ByteBuffer section) {
+		final int count = section.getInt(0);
+		final String[] strings = new String[count];
+		int position = 4;
+		for (int i = 0; i < count; ++i) {
+			final int length = section.getInt(position);
+			final byte[] bytes = new byte[length];
+			section.position(position + 4);
+			section.get(bytes);
+			strings[i] = new String(bytes, MeshCacheExporter.UTF8);
+			position += 4 + length;
+		}
+		return strings;
+	}
+
+	private static String getString(String[] strings, int index) {
+		return index >= 0 && index < strings.length ? strings[index] : null;
+	}
+}
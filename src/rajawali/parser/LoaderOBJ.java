@@ -14,12 +14,15 @@ package rajawali.parser;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Stack;
 import java.util.StringTokenizer;
 
@@ -33,6 +36,8 @@ import rajawali.materials.textures.SpecularMapTexture;
 import rajawali.materials.textures.Texture;
 import rajawali.materials.textures.TextureManager;
 import rajawali.renderer.RajawaliRenderer;
+import rajawali.util.FloatList;
+import rajawali.util.IntList;
 import rajawali.util.RajLog;
 import rajawali.wallpaper.Wallpaper;
 import android.content.res.Resources;
@@ -89,6 +94,13 @@ public class LoaderOBJ extends AMeshLoader {
     protected final String NEW_MATERIAL = "newmtl";
     protected final String DIFFUSE_COLOR = "Kd";
     protected final String DIFFUSE_TEX_MAP = "map_Kd";
+    
+    private static final int[] QUAD_TRIANGLES = new int[] { 0, 1, 2, 0, 2, 3 };
+    private static final int MAX_SHORT_INDEX = 0xffff;
+    
+    private boolean mWeldVertices = true;
+    private int mFieldStart;
+    private int mFieldEnd;
 	
     public LoaderOBJ(RajawaliRenderer renderer, String fileOnSDCard) {
     	super(renderer, fileOnSDCard);
@@ -106,119 +118,134 @@ public class LoaderOBJ extends AMeshLoader {
 		super(renderer, file);
 	}
 	
+	public LoaderOBJ(File file) {
+		super(file);
+	}
+	
+	/**
+	 * Sets whether face corners with the same position, texture coordinate and normal share a
+	 * single vertex. Welding typically shrinks the vertex buffers of a closed mesh to a sixth,
+	 * and the triangles are the same either way. Enabled by default.
+	 * 
+	 * @param weld
+	 */
+	public void setWeldVertices(boolean weld) {
+		mWeldVertices = weld;
+	}
+	
+	public boolean getWeldVertices() {
+		return mWeldVertices;
+	}
+	
 	@Override
 	public LoaderOBJ parse() throws ParsingException {
 		super.parse();
-		BufferedReader buffer = null;
+		LoaderMeshCache cache = loadCache();
+		if(cache != null) {
+			MaterialLib matLib = new MaterialLib();
+			if(cache.getMaterialLibrary() != null)
+				parseMaterialLib(matLib, cache.getMaterialLibrary());
+			try {
+				setCachedMaterials(mRootObject, cache, matLib);
+			} catch(TextureException tme) {
+				throw new ParsingException(tme);
+			}
+			return this;
+		}
+		
+		InputStream fileIn = null;
 		if(mFile == null) {
-			InputStream fileIn = mResources.openRawResource(mResourceId);
-			buffer = new BufferedReader(new InputStreamReader(fileIn));
+			fileIn = mResources.openRawResource(mResourceId);
 		} else {
 			try {
-				buffer = new BufferedReader(new FileReader(mFile));
+				fileIn = new FileInputStream(mFile);
 			} catch (FileNotFoundException e) {
 				RajLog.e("["+getClass().getCanonicalName()+"] Could not find file.");
-				e.printStackTrace();
+				throw new ParsingException(e);
 			}
 		}
-		String line;
+		AsciiTokenizer tokenizer = new AsciiTokenizer(fileIn);
 		ObjIndexData currObjIndexData = new ObjIndexData(new Object3D());
 		ArrayList<ObjIndexData> objIndices = new ArrayList<ObjIndexData>();
 				
-		ArrayList<Float> vertices = new ArrayList<Float>();
-		ArrayList<Float> texCoords = new ArrayList<Float>();
-		ArrayList<Float> normals = new ArrayList<Float>();
+		FloatList vertices = new FloatList(3 * 1024);
+		FloatList texCoords = new FloatList(2 * 1024);
+		FloatList normals = new FloatList(3 * 1024);
 		MaterialLib matLib = new MaterialLib();
+		String materialLibPath = null;
+		
+		int[] cornerVertices = new int[4];
+		int[] cornerTexCoords = new int[4];
+		int[] cornerNormals = new int[4];
 		
 		try {
-			while((line = buffer.readLine()) != null) {
+			while(tokenizer.nextLine()) {
 				// Skip comments and empty lines.
-				if(line.length() == 0 || line.charAt(0) == '#')
-					continue;
-				StringTokenizer parts = new StringTokenizer(line, " ");
-				int numTokens = parts.countTokens();
-				
-				if(numTokens == 0)
+				if(!tokenizer.nextToken() || tokenizer.tokenStartsWith('#'))
 					continue;
-				String type = parts.nextToken();
 				
-				if(type.equals(VERTEX)) {
-					vertices.add(Float.parseFloat(parts.nextToken()));
-					vertices.add(Float.parseFloat(parts.nextToken()));
-					vertices.add(Float.parseFloat(parts.nextToken()));
-				} else if(type.equals(FACE)) {
-					boolean isQuad = numTokens == 5;
-					int[] quadvids = new int[4];
-					int[] quadtids = new int[4];
-					int[] quadnids = new int[4];
-					
-                    boolean emptyVt = line.indexOf("//") > -1;
-                    if(emptyVt) line = line.replace("//", "/");
+				if(tokenizer.tokenEquals(VERTEX)) {
+					vertices.add(nextFloat(tokenizer));
+					vertices.add(nextFloat(tokenizer));
+					vertices.add(nextFloat(tokenizer));
+				} else if(tokenizer.tokenEquals(FACE)) {
+                    boolean emptyVt = tokenizer.lineContains("//");
+                    boolean hasuv = false;
+                    boolean hasn = false;
+                    int numCorners = 0;
                     
-                    parts = new StringTokenizer(line);
-                    
-                    parts.nextToken();
-                    StringTokenizer subParts = new StringTokenizer(parts.nextToken(), "/");
-                    int partLength = subParts.countTokens();
-                    
-                    boolean hasuv = partLength >= 2 && !emptyVt;
-                    boolean hasn = partLength == 3 || (partLength == 2 && emptyVt);
-                    int idx;
-                    
-                    for (int i = 1; i < numTokens; i++) {
-                    	if(i > 1)
-                    		subParts = new StringTokenizer(parts.nextToken(), "/");
-                    	idx = Integer.parseInt(subParts.nextToken());
-
-                    	if(idx < 0) idx = (vertices.size() / 3) + idx;
-                    	else idx -= 1;
-                        if(!isQuad)
-                        	currObjIndexData.vertexIndices.add(idx);
-                        else 
-                        	quadvids[i-1] = idx;
-                        if (hasuv)
-                        {
-                        	idx = Integer.parseInt(subParts.nextToken());
-                        	if(idx < 0) idx = (texCoords.size() / 2) + idx;
-                        	else idx -= 1;
-                        	if(!isQuad)
-                        		currObjIndexData.texCoordIndices.add(idx);
-                        	else 
-                            	quadtids[i-1] = idx;
-                        }
-                        if (hasn)
-                        {
-                        	idx = Integer.parseInt(subParts.nextToken());
-                        	if(idx < 0) idx = (normals.size() / 3) + idx;
-                        	else idx -= 1;
-                        	if(!isQuad)
-                        		currObjIndexData.normalIndices.add(idx);
-                        	else 
-                            	quadnids[i-1] = idx;
-                        }
+                    while(tokenizer.nextToken()) {
+                    	if(numCorners == cornerVertices.length) {
+                    		cornerVertices = Arrays.copyOf(cornerVertices, numCorners * 2);
+                    		cornerTexCoords = Arrays.copyOf(cornerTexCoords, numCorners * 2);
+                    		cornerNormals = Arrays.copyOf(cornerNormals, numCorners * 2);
+                    	}
+                    	int end = tokenizer.getTokenEnd();
+                    	if(numCorners == 0) {
+                    		// The first corner decides which indices all corners have
+                    		int partLength = 0;
+                    		mFieldEnd = tokenizer.getTokenStart();
+                    		while(nextField(tokenizer, end))
+                    			++partLength;
+                    		hasuv = partLength >= 2 && !emptyVt;
+                    		hasn = partLength == 3 || (partLength == 2 && emptyVt);
+                    	}
+                    	
+                    	mFieldEnd = tokenizer.getTokenStart();
+                    	cornerVertices[numCorners] = nextIndex(tokenizer, end, vertices.size() / 3);
+                    	cornerTexCoords[numCorners] = hasuv ? nextIndex(tokenizer, end, texCoords.size() / 2) : 0;
+                    	cornerNormals[numCorners] = hasn ? nextIndex(tokenizer, end, normals.size() / 3) : 0;
+                    	++numCorners;
                     }
                     
-                    if(isQuad) {
-                    	int[] indices = new int[] { 0, 1, 2, 0, 2, 3 };
-                    	
+                    if(numCorners == 4) {
                     	for(int i=0; i<6; ++i) {
-                    		int index = indices[i];
-                        	currObjIndexData.vertexIndices.add(quadvids[index]);
-                        	currObjIndexData.texCoordIndices.add(quadtids[index]);
-                        	currObjIndexData.normalIndices.add(quadnids[index]);
+                    		int index = QUAD_TRIANGLES[i];
+                        	currObjIndexData.vertexIndices.add(cornerVertices[index]);
+                        	currObjIndexData.texCoordIndices.add(cornerTexCoords[index]);
+                        	currObjIndexData.normalIndices.add(cornerNormals[index]);
+                    	}
+                    } else {
+                    	for(int i=0; i<numCorners; ++i) {
+                    		currObjIndexData.vertexIndices.add(cornerVertices[i]);
+                    		if(hasuv)
+                    			currObjIndexData.texCoordIndices.add(cornerTexCoords[i]);
+                    		if(hasn)
+                    			currObjIndexData.normalIndices.add(cornerNormals[i]);
                     	}
                     }
-				} else if(type.equals(TEXCOORD)) {
-					texCoords.add(Float.parseFloat(parts.nextToken()));
-                    texCoords.add(1f - Float.parseFloat(parts.nextToken()));
-				} else if(type.equals(NORMAL)) {
-					normals.add(Float.parseFloat(parts.nextToken()));
-                    normals.add(Float.parseFloat(parts.nextToken()));
-                    normals.add(Float.parseFloat(parts.nextToken()));
-				} else if(type.equals(OBJECT) || type.equals(GROUP)) {
-					String objName = parts.hasMoreTokens() ? parts.nextToken() : "Object" + (int)(Math.random() * 10000);
+				} else if(tokenizer.tokenEquals(TEXCOORD)) {
+					texCoords.add(nextFloat(tokenizer));
+                    texCoords.add(1f - nextFloat(tokenizer));
+				} else if(tokenizer.tokenEquals(NORMAL)) {
+					normals.add(nextFloat(tokenizer));
+                    normals.add(nextFloat(tokenizer));
+                    normals.add(nextFloat(tokenizer));
+				} else if(tokenizer.tokenEquals(OBJECT) || tokenizer.tokenEquals(GROUP)) {
+					boolean isObject = tokenizer.tokenEquals(OBJECT);
+					String objName = tokenizer.nextToken() ? tokenizer.getToken() : "Object" + (int)(Math.random() * 10000);
 					
-					if(type.equals(OBJECT))
+					if(isObject)
 					{
 						RajLog.i("Parsing object: " + objName);
 						if(currObjIndexData.targetObj.getName() != null)
@@ -226,7 +253,7 @@ public class LoaderOBJ extends AMeshLoader {
 						else
 							currObjIndexData.targetObj.setName(objName);
 						objIndices.add(currObjIndexData);
-					} else if(type.equals(GROUP)) {
+					} else {
 						RajLog.i("Parsing group: " + objName);
 						Object3D group = mRootObject.getChildByName(objName);
 						if(group == null)
@@ -236,19 +263,19 @@ public class LoaderOBJ extends AMeshLoader {
 						}
 						group.addChild(currObjIndexData.targetObj);
 					}
-				} else if(type.equals(MATERIAL_LIB)) {
-					if(!parts.hasMoreTokens()) continue;
-					String materialLibPath = parts.nextToken().replace(".", "_");
-					Log.d(Wallpaper.TAG, "Found Material Lib: " + materialLibPath);
-					if(mFile != null)
-						matLib.parse(materialLibPath, null, null);
-					else
-						matLib.parse(materialLibPath, mResources.getResourceTypeName(mResourceId), mResources.getResourcePackageName(mResourceId));
-				} else if(type.equals(USE_MATERIAL)) {
-					currObjIndexData.materialName = parts.nextToken();
+				} else if(tokenizer.tokenEquals(MATERIAL_LIB)) {
+					if(!tokenizer.nextToken()) continue;
+					String path = tokenizer.getToken().replace(".", "_");
+					Log.d(Wallpaper.TAG, "Found Material Lib: " + path);
+					parseMaterialLib(matLib, path);
+					if(materialLibPath == null)
+						materialLibPath = path;
+				} else if(tokenizer.tokenEquals(USE_MATERIAL)) {
+					if(tokenizer.nextToken())
+						currObjIndexData.materialName = tokenizer.getToken();
 				}
 			}
-			buffer.close();
+			fileIn.close();
 			
 			if(objIndices.size() == 0) {
 				objIndices.add(currObjIndexData);
@@ -257,60 +284,24 @@ public class LoaderOBJ extends AMeshLoader {
 			throw new ParsingException(e);
 		}
 		
-		
 		int numObjects = objIndices.size();
+		HashMap<Object3D, String> materialNames = new HashMap<Object3D, String>();
 		
 		for(int j=0; j<numObjects; ++j) {
 			ObjIndexData oid = objIndices.get(j);
 			
-			int i;
-			float[] aVertices 	= new float[oid.vertexIndices.size() * 3];
-			float[] aTexCoords 	= new float[oid.texCoordIndices.size() * 2];
-			float[] aNormals 	= new float[oid.normalIndices.size() * 3];
-			float[] aColors		= new float[oid.colorIndices.size() * 4];
-			int[] aIndices 		= new int[oid.vertexIndices.size()];
-			
-			for(i=0; i<oid.vertexIndices.size(); ++i) {
-				int faceIndex = oid.vertexIndices.get(i) * 3;
-				int vertexIndex = i * 3;
-				try {
-					aVertices[vertexIndex] = vertices.get(faceIndex);
-					aVertices[vertexIndex+1] = vertices.get(faceIndex + 1);
-					aVertices[vertexIndex+2] = vertices.get(faceIndex + 2);
-					aIndices[i] = i;
-				} catch(ArrayIndexOutOfBoundsException e) {
-					Log.d("Rajawali", "ERREUR!! " + vertexIndex + ", " + faceIndex);
-				}
-			}
-			if(texCoords != null && texCoords.size() > 0) {
-				for(i=0; i<oid.texCoordIndices.size(); ++i) {
-					int texCoordIndex = oid.texCoordIndices.get(i) * 2;
-					int ti = i * 2;
-					aTexCoords[ti] = texCoords.get(texCoordIndex);
-					aTexCoords[ti + 1] = texCoords.get(texCoordIndex + 1);
-				}
-			}
-			for(i=0; i<oid.colorIndices.size(); ++i) {
-				int colorIndex = oid.colorIndices.get(i) * 4;
-				int ti = i * 4;
-				aTexCoords[ti] = texCoords.get(colorIndex);
-				aTexCoords[ti + 1] = texCoords.get(colorIndex + 1);
-				aTexCoords[ti + 2] = texCoords.get(colorIndex + 2);
-				aTexCoords[ti + 3] = texCoords.get(colorIndex + 3);
-			}
-			for(i=0; i<oid.normalIndices.size(); ++i){
-				int normalIndex = oid.normalIndices.get(i) * 3;
-				int ni = i * 3;
-				if(normals.size() == 0) {
-					RajLog.e("["+getClass().getName()+"] There are no normals specified for this model. Please re-export with normals.");
-					throw new ParsingException("["+getClass().getName()+"] There are no normals specified for this model. Please re-export with normals.");
-				}
-				aNormals[ni] = normals.get(normalIndex);
-				aNormals[ni+1] = normals.get(normalIndex + 1);
-				aNormals[ni+2] = normals.get(normalIndex + 2);
+			try {
+				int numCorners = oid.vertexIndices.size();
+				boolean canWeld = (oid.texCoordIndices.size() == 0 || oid.texCoordIndices.size() == numCorners)
+						&& (oid.normalIndices.size() == 0 || oid.normalIndices.size() == numCorners);
+				if(mWeldVertices && canWeld)
+					setWeldedData(oid, vertices, texCoords, normals);
+				else
+					setCornerData(oid, vertices, texCoords, normals);
+			} catch(IndexOutOfBoundsException e) {
+				throw new ParsingException("["+getClass().getName()+"] A face refers to a vertex, texture coordinate or normal which does not exist.", e);
 			}
-			
-			oid.targetObj.setData(aVertices, aNormals, aTexCoords, aColors, aIndices);
+			materialNames.put(oid.targetObj, oid.materialName);
 			try {
 				matLib.setMaterial(oid.targetObj, oid.materialName);
 			} catch(TextureException tme) {
@@ -323,25 +314,166 @@ public class LoaderOBJ extends AMeshLoader {
 		if(mRootObject.getNumChildren() == 1 && !mRootObject.getChildAt(0).isContainer())
 			mRootObject = mRootObject.getChildAt(0);
 		
+		writeCache(materialNames, materialLibPath);
 		return this;
 	}
 	
+	private void parseMaterialLib(MaterialLib matLib, String materialLibPath) {
+		if(mFile != null)
+			matLib.parse(materialLibPath, null, null);
+		else
+			matLib.parse(materialLibPath, mResources.getResourceTypeName(mResourceId), mResources.getResourcePackageName(mResourceId));
+	}
+	
+	/**
+	 * Assigns the materials to a model which was loaded from the mesh cache.
+	 */
+	private void setCachedMaterials(Object3D object, LoaderMeshCache cache, MaterialLib matLib) throws TextureException {
+		if(!object.isContainer())
+			matLib.setMaterial(object, cache.getMaterialName(object));
+		for(int i=0; i<object.getNumChildren(); ++i)
+			setCachedMaterials(object.getChildAt(i), cache, matLib);
+	}
+	
+	/**
+	 * Emits a vertex for every face corner.
+	 */
+	private void setCornerData(ObjIndexData oid, FloatList vertices, FloatList texCoords, FloatList normals) throws ParsingException {
+		int i;
+		float[] aVertices 	= new float[oid.vertexIndices.size() * 3];
+		float[] aTexCoords 	= new float[oid.texCoordIndices.size() * 2];
+		float[] aNormals 	= new float[oid.normalIndices.size() * 3];
+		int[] aIndices 		= new int[oid.vertexIndices.size()];
+		
+		for(i=0; i<oid.vertexIndices.size(); ++i) {
+			copy(vertices, oid.vertexIndices.get(i), aVertices, i, 3);
+			aIndices[i] = i;
+		}
+		if(texCoords.size() > 0) {
+			for(i=0; i<oid.texCoordIndices.size(); ++i)
+				copy(texCoords, oid.texCoordIndices.get(i), aTexCoords, i, 2);
+		}
+		if(oid.normalIndices.size() > 0)
+			checkNormals(normals);
+		for(i=0; i<oid.normalIndices.size(); ++i)
+			copy(normals, oid.normalIndices.get(i), aNormals, i, 3);
+		
+		setObjectData(oid.targetObj, aVertices, aNormals, aTexCoords, aIndices);
+	}
+	
+	/**
+	 * Emits a vertex for every distinct combination of position, texture coordinate and normal.
+	 */
+	private void setWeldedData(ObjIndexData oid, FloatList vertices, FloatList texCoords, FloatList normals) throws ParsingException {
+		int numCorners = oid.vertexIndices.size();
+		boolean hasTexCoords = oid.texCoordIndices.size() > 0;
+		boolean hasNormals = oid.normalIndices.size() > 0;
+		int[] vertexIndices = oid.vertexIndices.getArray();
+		int[] texCoordIndices = oid.texCoordIndices.getArray();
+		int[] normalIndices = oid.normalIndices.getArray();
+		
+		VertexWelder welder = new VertexWelder(numCorners);
+		int[] aIndices = new int[numCorners];
+		for(int i=0; i<numCorners; ++i) {
+			aIndices[i] = welder.weld(vertexIndices[i], hasTexCoords ? texCoordIndices[i] : -1,
+					hasNormals ? normalIndices[i] : -1);
+		}
+		
+		int numVertices = welder.getNumVertices();
+		float[] aVertices = new float[numVertices * 3];
+		float[] aTexCoords = new float[hasTexCoords ? numVertices * 2 : 0];
+		float[] aNormals = new float[hasNormals ? numVertices * 3 : 0];
+		for(int i=0; i<numVertices; ++i)
+			copy(vertices, welder.getPositionIndex(i), aVertices, i, 3);
+		if(hasTexCoords && texCoords.size() > 0) {
+			for(int i=0; i<numVertices; ++i)
+				copy(texCoords, welder.getTexCoordIndex(i), aTexCoords, i, 2);
+		}
+		if(hasNormals) {
+			checkNormals(normals);
+			for(int i=0; i<numVertices; ++i)
+				copy(normals, welder.getNormalIndex(i), aNormals, i, 3);
+		}
+		
+		setObjectData(oid.targetObj, aVertices, aNormals, aTexCoords, aIndices);
+	}
+	
+	private void setObjectData(Object3D object, float[] vertices, float[] normals, float[] texCoords, int[] indices) {
+		// Small meshes get 16 bit indices
+		if(vertices.length / 3 <= MAX_SHORT_INDEX + 1)
+			object.getGeometry().setOnlyShortBuffersSupported(true);
+		object.setData(vertices, normals, texCoords, new float[0], indices);
+	}
+	
+	private void checkNormals(FloatList normals) throws ParsingException {
+		if(normals.size() == 0) {
+			RajLog.e("["+getClass().getName()+"] There are no normals specified for this model. Please re-export with normals.");
+			throw new ParsingException("["+getClass().getName()+"] There are no normals specified for this model. Please re-export with normals.");
+		}
+	}
+	
+	private static void copy(FloatList from, int index, float[] to, int toIndex, int size) {
+		int offset = index * size;
+		if(index < 0 || offset + size > from.size())
+			throw new IndexOutOfBoundsException();
+		System.arraycopy(from.getArray(), offset, to, toIndex * size, size);
+	}
+	
+	private float nextFloat(AsciiTokenizer tokenizer) throws ParsingException {
+		tokenizer.nextToken();
+		try {
+			return tokenizer.parseFloat();
+		} catch(NumberFormatException e) {
+			throw new ParsingException("Invalid number on line " + tokenizer.getLineNumber(), e);
+		}
+	}
+	
+	/**
+	 * Parses the next index of a face corner like 1/2/3 and makes it zero based. Negative indices
+	 * count back from the given number of elements.
+	 */
+	private int nextIndex(AsciiTokenizer tokenizer, int end, int count) throws ParsingException {
+		if(!nextField(tokenizer, end))
+			throw new ParsingException("Missing face index on line " + tokenizer.getLineNumber());
+		int idx;
+		try {
+			idx = tokenizer.parseInt(mFieldStart, mFieldEnd);
+		} catch(NumberFormatException e) {
+			throw new ParsingException("Invalid face index on line " + tokenizer.getLineNumber(), e);
+		}
+		return idx < 0 ? count + idx : idx - 1;
+	}
+	
+	/**
+	 * Advances to the next non empty, slash separated field of a face corner.
+	 */
+	private boolean nextField(AsciiTokenizer tokenizer, int end) {
+		int p = mFieldEnd;
+		while(p < end && tokenizer.getByte(p) == '/')
+			++p;
+		if(p >= end)
+			return false;
+		mFieldStart = p;
+		while(p < end && tokenizer.getByte(p) != '/')
+			++p;
+		mFieldEnd = p;
+		return true;
+	}
+	
 	protected class ObjIndexData {
 		public Object3D targetObj;
 		
-		public ArrayList<Integer> vertexIndices;
-		public ArrayList<Integer> texCoordIndices;
-		public ArrayList<Integer> colorIndices;
-		public ArrayList<Integer> normalIndices;
+		public IntList vertexIndices;
+		public IntList texCoordIndices;
+		public IntList normalIndices;
 		
 		public String materialName;
 		
 		public ObjIndexData(Object3D targetObj) {
 			this.targetObj = targetObj;
-			vertexIndices = new ArrayList<Integer>();
-			texCoordIndices = new ArrayList<Integer>();
-			colorIndices = new ArrayList<Integer>();
-			normalIndices = new ArrayList<Integer>();
+			vertexIndices = new IntList(1024);
+			texCoordIndices = new IntList(1024);
+			normalIndices = new IntList(1024);
 		}
 	}
 	
@@ -64,6 +64,10 @@ public class LoaderSTL extends AMeshLoader {
 		super(renderer, file);
 	}
 
+	public LoaderSTL(File file) {
+		super(file);
+	}
+
 	@Override
 	public AMeshLoader parse() throws ParsingException {
 		return parse(StlType.UNKNOWN);
@@ -71,6 +75,9 @@ public class LoaderSTL extends AMeshLoader {
 
 	public AMeshLoader parse(StlType type) throws ParsingException {
 		super.parse();
+		if (loadCache() != null)
+			return this;
+
 		try {
 
 			// Open the file
@@ -124,6 +131,7 @@ public class LoaderSTL extends AMeshLoader {
 			throw new ParsingException("Unexpected exception occured.", e);
 		}
 
+		writeCache(null, null);
 		return this;
 	}
 
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.parser;
+
+import java.util.Arrays;
+
+import rajawali.util.IntList;
+
+/**
+ * Merges face corners which refer to the same position, texture coordinate and normal into a
+ * single vertex. File formats like OBJ index the attributes of each face corner separately,
+ * whereas OpenGL needs one index per vertex. Emitting every corner as a vertex of its own
+ * repeats a vertex for every face it belongs to, which is about six times for a closed
+ * triangle mesh. The welder keeps an open addressing hash table of the attribute index
+ * combinations which were seen, so the shared vertices are found without boxing.
+ * 
+ * <pre><code>
+ * VertexWelder welder = new VertexWelder(numCorners);
+ * for (int i = 0; i &lt; numCorners; ++i)
+ * 	indices[i] = welder.weld(positionIndex[i], texCoordIndex[i], normalIndex[i]);
+ * for (int v = 0; v &lt; welder.getNumVertices(); ++v)
+ * 	// copy the attributes of welder.getPositionIndex(v) etc.
+ * </code></pre>
+ * 
+ * Attributes which a mesh does not have can be passed as -1.
+ */
+public class VertexWelder {
+	private static final int EMPTY = -1;
+
+	private final IntList mKeys;
+	private int[] mTable;
+	private int mMask;
+	private int mNumVertices;
+
+	/**
+	 * @param expectedCorners int The number of corners which are going to be welded, used to
+	 * size the hash table.
+	 */
+	public VertexWelder(int expectedCorners) {
+		int capacity = 16;
+		while (capacity < expectedCorners * 2 && capacity < (1 << 30))
+			capacity <<= 1;
+		mKeys = new IntList(Math.max(16, expectedCorners * 3 / 4));
+		allocateTable(capacity);
+	}
+
+	/**
+	 * Returns the vertex for a combination of attribute indices, which is added when the
+	 * combination is new. Vertices are numbered in the order in which they were added.
+	 * 
+	 * @param position int The index of the position.
+	 * @param texCoord int The index of the texture coordinate, or -1.
+	 * @param normal int The index of the normal, or -1.
+	 * @return int The index of the welded vertex.
+	 */
+	public int weld(int position, int texCoord, int normal) {
+		final int[] keys = mKeys.getArray();
+		int slot = hash(position, texCoord, normal) & mMask;
+		int vertex;
+		while ((vertex = mTable[slot]) != EMPTY) {
+			final int k = vertex * 3;
+			if (keys[k] == position && keys[k + 1] == texCoord && keys[k + 2] == normal)
+				return vertex;
+			slot = (slot + 1) & mMask;
+		}
+
+		vertex = mNumVertices++;
+		mKeys.add(position);
+		mKeys.add(texCoord);
+		mKeys.add(normal);
+		mTable[slot] = vertex;
+		if (mNumVertices * 2 > mTable.length)
+			rehash();
+		return vertex;
+	}
+
+	public int getNumVertices() {
+		return mNumVertices;
+	}
+
+	public int getPositionIndex(int vertex) {
+		return mKeys.get(vertex * 3);
+	}
+
+	public int getTexCoordIndex(int vertex) {
+		return mKeys.get(vertex * 3 + 1);
+	}
+
+	public int getNormalIndex(int vertex) {
+		return mKeys.get(vertex * 3 + 2);
+	}
+
+	private void rehash() {
+		final int[] keys = mKeys.getArray();
+		allocateTable(mTable.length * 2);
+		for (int vertex = 0; vertex < mNumVertices; ++vertex) {
+			final int k = vertex * 3;
+			int slot = hash(keys[k], keys[k + 1], keys[k + 2]) & mMask;
+			while (mTable[slot] != EMPTY)
+				slot = (slot + 1) & mMask;
+			mTable[slot] = vertex;
+		}
+	}
+
+	private void allocateTable(int capacity) {
+		mTable = new int[capacity];
+		Arrays.fill(mTable, EMPTY);
+		mMask = capacity - 1;
+	}
+
+	private static int hash(int position, int texCoord, int normal) {
+		int h = position * 0x9E3779B1;
+		h ^= texCoord * 0x85EBCA6B;
+		h ^= normal * 0xC2B2AE35;
+		return h ^ (h >>> 16);
+	}
+}
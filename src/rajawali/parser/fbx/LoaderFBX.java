@@ -12,17 +12,11 @@
  */
 package rajawali.parser.fbx;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 import java.util.Stack;
 
@@ -37,106 +31,144 @@ import rajawali.materials.methods.DiffuseMethod;
 import rajawali.materials.methods.SpecularMethod;
 import rajawali.materials.textures.ATexture.TextureException;
 import rajawali.materials.textures.Texture;
-import rajawali.math.vector.Vector2;
 import rajawali.math.vector.Vector3;
 import rajawali.parser.AMeshLoader;
+import rajawali.parser.AsciiTokenizer;
 import rajawali.parser.ParsingException;
+import rajawali.parser.VertexWelder;
 import rajawali.parser.fbx.FBXValues.Connections.Connect;
-import rajawali.parser.fbx.FBXValues.FBXColor4;
 import rajawali.parser.fbx.FBXValues.FBXFloatBuffer;
 import rajawali.parser.fbx.FBXValues.FBXIntBuffer;
-import rajawali.parser.fbx.FBXValues.FBXMatrix;
 import rajawali.parser.fbx.FBXValues.Objects.FBXMaterial;
 import rajawali.parser.fbx.FBXValues.Objects.Model;
 import rajawali.renderer.RajawaliRenderer;
+import rajawali.util.FloatList;
+import rajawali.util.IntList;
 import rajawali.util.RajLog;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Color;
+
+/**
+ * Loads the meshes, materials, textures, lights and camera of an FBX 6 ASCII file.
+ * <p>
+ * The file is read line by line with an {@link AsciiTokenizer}. Only the nodes which are used
+ * to build the scene are read, and all other nodes are skipped by counting their braces, so
+ * their contents are never converted to Strings or numbers. Arrays such as the vertices are
+ * parsed straight into primitive arrays, and the polygon corners which share a position, normal
+ * and texture coordinate are welded into a single vertex.
+ */
 public class LoaderFBX extends AMeshLoader {
 	private static final char COMMENT = ';';
-	private static final String OBJECT_TYPE = "ObjectType:";
+	private static final char SEPARATOR = ',';
+	private static final char OPEN = '{';
+	private static final char CLOSE = '}';
+	
+	private static final String OBJECTS = "Objects:";
+	private static final String CONNECTIONS = "Connections:";
+	private static final String CONNECT = "Connect:";
 	private static final String MODEL = "Model:";
-	private static final String PROPERTIES = "Properties";
-	private static final String LAYER_ELEMENT = "LayerElement";
-	private static final String LAYER = "Layer:";
-	private static final String PROPERTY = "Property:";
-	private static final String TYPE_VECTOR3D = "Vector3D";
-	private static final String TYPE_VECTOR = "Vector";
-	private static final String TYPE_COLOR = "Color";
-	private static final String TYPE_COLOR_RGB = "ColorRGB";
-	private static final String TYPE_LCL_TRANSLATION = "LclTranslation";
-	private static final String TYPE_LCL_ROTATION = "LclRotation";
-	private static final String TYPE_LCL_SCALING = "LclScaling";
 	private static final String MATERIAL = "Material:";
-	private static final String POSE = "Pose:";
-	private static final String POSE_NODE = "PoseNode:";
-	private static final String CONNECT = "Connect:";
 	private static final String TEXTURE = "Texture:";
-	private static final String FBX_U = "FBX";
-	private static final String FBX_L = FBX_U.toLowerCase();
+	private static final String PROPERTIES = "Properties60:";
+	private static final String PROPERTY = "Property:";
+	private static final String VERTICES = "Vertices:";
+	private static final String POLYGON_VERTEX_INDEX = "PolygonVertexIndex:";
+	private static final String LAYER_ELEMENT_NORMAL = "LayerElementNormal:";
+	private static final String LAYER_ELEMENT_UV = "LayerElementUV:";
+	private static final String MAPPING_INFORMATION_TYPE = "MappingInformationType:";
+	private static final String NORMALS = "Normals:";
+	private static final String UV = "UV:";
+	private static final String UV_INDEX = "UVIndex:";
+	private static final String HIDDEN = "Hidden:";
+	private static final String POSITION = "Position:";
+	private static final String UP = "Up:";
+	private static final String LOOK_AT = "LookAt:";
+	private static final String SHADING_MODEL = "ShadingModel:";
+	private static final String FILE_NAME = "FileName:";
+	private static final String RELATIVE_FILENAME = "RelativeFilename:";
 	
-	private static final String REGEX_CLEAN = "\\s|\\t|\\n";
-	private static final String REGEX_NO_SPACE_NO_QUOTE = "\\\"|\\s";
-	private static final String REGEX_NO_QUOTE = "\\\"";
-	private static final String REGEX_NO_FUNNY_CHARS = "\\W";
-	private static final String REPLACE_EMPTY = "";
+	// -- Property names, compared without spaces
+	private static final String LCL_TRANSLATION = "LclTranslation";
+	private static final String LCL_ROTATION = "LclRotation";
+	private static final String LCL_SCALING = "LclScaling";
+	private static final String COLOR = "Color";
+	private static final String INTENSITY = "Intensity";
+	private static final String LIGHT_TYPE = "LightType";
+	private static final String CONE_ANGLE = "Coneangle";
+	private static final String FIELD_OF_VIEW = "FieldOfView";
+	private static final String NEAR_PLANE = "NearPlane";
+	private static final String FAR_PLANE = "FarPlane";
+	private static final String DIFFUSE_COLOR = "DiffuseColor";
+	private static final String AMBIENT_COLOR = "AmbientColor";
+	private static final String AMBIENT_FACTOR = "AmbientFactor";
+	private static final String SPECULAR_COLOR = "SpecularColor";
+	private static final String SHININESS = "Shininess";
+	
+	private static final String BY_POLYGON_VERTEX = "ByPolygonVertex";
+	private static final int MAX_SHORT_INDEX = 0xffff;
 	
 	private FBXValues mFbx;
-	private Stack<Object> mObjStack;
 	private RajawaliRenderer mRenderer;
 	
+	private final FloatList mFloats = new FloatList(3 * 1024);
+	private final IntList mInts = new IntList(3 * 1024);
+	private boolean mStatementPending;
+	private int mNameStart;
+	private int mNameEnd;
+	
 	public LoaderFBX(RajawaliRenderer renderer, String fileOnSDCard) {
 		super(renderer, fileOnSDCard);
 		mRenderer = renderer;
-		mObjStack = new Stack<Object>();
 		mFbx = new FBXValues();
-		mObjStack.add(mFbx);
 	}
 	
 	public LoaderFBX(RajawaliRenderer renderer, File file) {
 		super(renderer, file);
 		mRenderer = renderer;
-		mObjStack = new Stack<Object>();
 		mFbx = new FBXValues();
-		mObjStack.add(mFbx);
 	}
 	
 	public LoaderFBX(RajawaliRenderer renderer, int resourceId) {
 		super(renderer.getContext().getResources(), renderer.getTextureManager(), resourceId);
 		mRenderer = renderer;
-		mObjStack = new Stack<Object>();
 		mFbx = new FBXValues();
-		mObjStack.add(mFbx);
+	}
+	
+	/**
+	 * Loads a file without a renderer. The camera of the file is not applied.
+	 * 
+	 * @param file {@link File} The FBX file.
+	 */
+	public LoaderFBX(File file) {
+		super(file);
+		mFbx = new FBXValues();
 	}
 	
 	@Override
 	public LoaderFBX parse() throws ParsingException {
 		super.parse();
-		BufferedReader buffer = null;
+		InputStream fileIn = null;
 		if(mFile == null) {
-			InputStream fileIn = mResources.openRawResource(mResourceId);
-			buffer = new BufferedReader(new InputStreamReader(fileIn));
+			fileIn = mResources.openRawResource(mResourceId);
 		} else {
 			try {
-				buffer = new BufferedReader(new FileReader(mFile));
+				fileIn = new FileInputStream(mFile);
 			} catch (FileNotFoundException e) {
 				RajLog.e("["+getClass().getCanonicalName()+"] Could not find file.");
 				throw new ParsingException(e);
 			}
 		}
-		String line;
 		try {
-			while((line = buffer.readLine()) != null) {
-				String repl = line.replaceAll(REGEX_CLEAN, REPLACE_EMPTY);
-				if(repl.length() == 0 || repl.charAt(0) == COMMENT)
-					continue;
-				
-				readLine(buffer, line);
-			}
-			buffer.close();
-		} catch(Exception e) {
+			readDocument(new AsciiTokenizer(fileIn));
+		} catch(IOException e) {
 			throw new ParsingException(e);
+		} finally {
+			try {
+				fileIn.close();
+			} catch(IOException e) {
+				RajLog.e("["+getClass().getCanonicalName()+"] Could not close file.");
+			}
 		}
 		
 		// -- get lights
@@ -199,7 +231,7 @@ public class LoaderFBX extends AMeshLoader {
 			}
 		}
 
-		if(camera != null) { //TODO: FIX
+		if(camera != null && mRenderer != null) { //TODO: FIX
 			Camera cam = mRenderer.getCurrentCamera();
 			cam.setPosition(camera.position);
 			cam.setX(mRenderer.getCurrentCamera().getX() * -1);
@@ -215,6 +247,7 @@ public class LoaderFBX extends AMeshLoader {
 		return this;
 	}
 	
+	
 	private ALight buildLight(Model l){
 		int m = l.properties.lightType != null ? l.properties.lightType:ALight.POINT_LIGHT;
 		switch (m){
@@ -260,143 +293,82 @@ public class LoaderFBX extends AMeshLoader {
 	
 	private void buildMesh(Model model, Stack<ALight> lights) throws TextureException, ParsingException {
 		Object3D o = new Object3D(model.name);
-		boolean hasUVs = model.layerElementUV.uVIndex != null;
+		if(model.vertices == null || model.polygonVertexIndex == null)
+			throw new ParsingException("["+getClass().getName()+"] Model " + model.name + " has no vertices.");
+		if(model.layerElementNormal.normals == null)
+			throw new ParsingException("["+getClass().getName()+"] Model " + model.name + " has no normals. Please re-export with normals.");
 		
 		int[] vidx 					= model.polygonVertexIndex.data;
-		int[] uvidx 				= null;
 		float[] modelVerts 			= model.vertices.data;
 		float[] modelNorm			= model.layerElementNormal.normals.data;
-		float[] modelUv		 		= null;
-
-		ArrayList<Integer> indices 	= new ArrayList<Integer>();
-		ArrayList<Float> vertices 	= new ArrayList<Float>();
-		ArrayList<Float> normals	= new ArrayList<Float>();
-		ArrayList<Float> uvs 		= null;
+		boolean normalsPerCorner 	= BY_POLYGON_VERTEX.equals(model.layerElementNormal.mappingInformationType);
+		boolean hasUVs 				= model.layerElementUV.uVIndex != null && model.layerElementUV.uV != null;
+		int[] uvidx 				= hasUVs ? model.layerElementUV.uVIndex.data : null;
+		float[] modelUv		 		= hasUVs ? model.layerElementUV.uV.data : null;
 		
-		if(hasUVs) {
-			uvs = new ArrayList<Float>();
-			uvidx = model.layerElementUV.uVIndex.data;
-			modelUv = model.layerElementUV.uV.data;
-		}
+		// -- The last corner of each polygon has a negative index. Polygons are split into
+		// -- triangle fans, and corners with the same attributes become the same vertex.
+		VertexWelder welder = new VertexWelder(vidx.length);
+		IntList indices = new IntList(vidx.length * 2);
+		IntList polygon = new IntList(8);
+		float[] vertices, normals, uvs;
 		
-		int count = 0;
-		int indexCount = 0;
-		int[] triIds = new int[3];
-		int[] quadIds = new int[6];
-		int i = 0, j = 0, k = 0;
-		int vidxLen = vidx.length;
+		// -- Per corner normals repeat the normal of a smooth vertex for every polygon around it.
+		// -- They are identified by value so that these corners still weld into one vertex.
+		VertexWelder normalValues = normalsPerCorner ? new VertexWelder(vidx.length) : null;
+		int[] nidx = normalsPerCorner ? new int[vidx.length] : null;
 		
-		for(i=0; i<vidxLen; ++i) {
-			count++;
-			
-			if(vidx[i] < 0) {
-				if(count==3) {
-					int index1 = vidx[i-2],
-						index2 = vidx[i-1],
-						index3 = (vidx[i] * -1) - 1;
-
-					indices.add(indexCount++);
-					indices.add(indexCount++);
-					indices.add(indexCount++);
-
-					triIds[0] = index1 * 3;
-					triIds[1] = index2 * 3;
-					triIds[2] = index3 * 3;
-					
-					for(j=0; j<3; ++j)
-					{
-						int cid = triIds[j];
-						for(k=0; k<3; ++k) {
-							vertices.add(modelVerts[cid+k]);
-							int dir = i==0 ? -1 : 1; 
-							normals.add(modelNorm[cid+k] * dir);
-						}
-					}
-					
-					if(hasUVs) {
-						int uvIndex3 = uvidx[i] * 2;
-						int uvIndex2 = uvidx[i-1] * 2;
-						int uvIndex1 = uvidx[i-2] * 2;
-
-						uvs.add(modelUv[uvIndex1+0]);
-						uvs.add(1f-modelUv[uvIndex1+1]);
-						
-						uvs.add(modelUv[uvIndex2+0]);
-						uvs.add(1f-modelUv[uvIndex2+1]);
-						
-						uvs.add(modelUv[uvIndex3+0]);
-						uvs.add(1f-modelUv[uvIndex3+1]);
+		try {
+			if(normalsPerCorner) {
+				for(int i=0; i<vidx.length; ++i) {
+					int n = i * 3;
+					nidx[i] = normalValues.weld(floatKey(modelNorm[n]), floatKey(modelNorm[n+1]), floatKey(modelNorm[n+2]));
+				}
+			}
+			for(int i=0; i<vidx.length; ++i) {
+				boolean last = vidx[i] < 0;
+				int position = last ? -vidx[i] - 1 : vidx[i];
+				polygon.add(welder.weld(position, hasUVs ? uvidx[i] : -1, normalsPerCorner ? nidx[i] : -1));
+				if(last) {
+					for(int j=1; j<polygon.size()-1; ++j) {
+						indices.add(polygon.get(0));
+						indices.add(polygon.get(j));
+						indices.add(polygon.get(j+1));
 					}
+					polygon.clear();
+				}
+			}
+			
+			int numVertices = welder.getNumVertices();
+			vertices = new float[numVertices * 3];
+			normals = new float[numVertices * 3];
+			uvs = hasUVs ? new float[numVertices * 2] : null;
+			for(int i=0; i<numVertices; ++i) {
+				int position = welder.getPositionIndex(i);
+				System.arraycopy(modelVerts, position * 3, vertices, i * 3, 3);
+				if(normalsPerCorner) {
+					int normal = welder.getNormalIndex(i);
+					normals[i * 3] = Float.intBitsToFloat(normalValues.getPositionIndex(normal));
+					normals[i * 3 + 1] = Float.intBitsToFloat(normalValues.getTexCoordIndex(normal));
+					normals[i * 3 + 2] = Float.intBitsToFloat(normalValues.getNormalIndex(normal));
 				} else {
-					int index1 = vidx[i-3];
-					int index2 = vidx[i-2];
-					int index3 = vidx[i-1];
-					int index4 = (vidx[i] * -1)-1;
-					
-					indices.add(indexCount++);
-					indices.add(indexCount++);
-					indices.add(indexCount++);
-					indices.add(indexCount++);
-					indices.add(indexCount++);
-					indices.add(indexCount++);
-					
-					quadIds[0] = index1 * 3;
-					quadIds[1] = index2 * 3;
-					quadIds[2] = index3 * 3;
-					quadIds[3] = index4 * 3;
-					quadIds[4] = index1 * 3;
-					quadIds[5] = index3 * 3;
-					
-					for(j=0; j<6; ++j)
-					{
-						int cid = quadIds[j];
-						for(k=0; k<3; ++k) {
-							vertices.add(modelVerts[cid+k]);
-							normals.add(modelNorm[cid+k]);
-						}
-					}					
-					
-					if(hasUVs) {
-						int uvIndex1 = uvidx[i-3] * 2;
-						int uvIndex2 = uvidx[i-2] * 2;
-						int uvIndex3 = uvidx[i-1] * 2;
-						int uvIndex4 = uvidx[i] * 2;
-						
-						quadIds[0] = uvIndex1;
-						quadIds[1] = uvIndex2;
-						quadIds[2] = uvIndex3;
-						quadIds[3] = uvIndex4;
-						quadIds[4] = uvIndex1;
-						quadIds[5] = uvIndex3;
-						
-						for(j=0; j<6; ++j) {
-							int cid = quadIds[j];
-							for(k=0; k<2; ++k) {
-								if(k==0)
-									uvs.add(modelUv[cid + k]);
-								else
-									uvs.add(1f-modelUv[cid + k]);
-							}
-						}
-						
-					}
+					System.arraycopy(modelNorm, position * 3, normals, i * 3, 3);
+				}
+				if(hasUVs) {
+					int uv = welder.getTexCoordIndex(i) * 2;
+					uvs[i * 2] = modelUv[uv];
+					uvs[i * 2 + 1] = 1f - modelUv[uv + 1];
 				}
-				count = 0;
 			}
+		} catch(IndexOutOfBoundsException e) {
+			throw new ParsingException("["+getClass().getName()+"] Model " + model.name + " refers to a vertex, normal or texture coordinate which does not exist.", e);
 		}
 		
-		o.setData(convertFloats(vertices), convertFloats(normals), hasUVs ? convertFloats(uvs) : null, null, convertIntegers(indices));
+		// Small meshes get 16 bit indices
+		if(vertices.length / 3 <= MAX_SHORT_INDEX + 1)
+			o.getGeometry().setOnlyShortBuffersSupported(true);
+		o.setData(vertices, normals, uvs, null, indices.toArray());
 		
-		vertices.clear();
-		vertices = null;
-		normals.clear();
-		normals = null;
-		if(hasUVs) {
-			uvs.clear();
-			uvs = null;
-		}
-		indices.clear();
-		indices = null;
 		o.setMaterial(getMaterialForMesh(o, model.name));
 		setMeshTextures(o, model.name);
 		
@@ -409,26 +381,11 @@ public class LoaderFBX extends AMeshLoader {
 		mRootObject.addChild(o);
 	}
 	
-	public static int[] convertIntegers(List<Integer> integers)
-	{
-	    int[] ret = new int[integers.size()];
-	    int len = ret.length;
-	    for (int i=0; i < len; ++i)
-	    {
-	        ret[i] = integers.get(i).intValue();
-	    }
-	    return ret;
-	}
-	
-	public static float[] convertFloats(List<Float> floats)
-	{
-	    float[] ret = new float[floats.size()];
-	    int len = ret.length;
-	    for (int i=0; i < len; ++i)
-	    {
-	        ret[i] = floats.get(i).floatValue();
-	    }
-	    return ret;
+	/**
+	 * Bits of a float which are equal for equal values. Adding zero turns -0 into 0.
+	 */
+	private static int floatKey(float value) {
+		return Float.floatToIntBits(value + 0f);
 	}
 	
 	private void setMeshTextures(Object3D o, String name) throws TextureException, ParsingException {
@@ -518,200 +475,317 @@ public class LoaderFBX extends AMeshLoader {
 		return mat;
 	}
 	
-	private void readLine(BufferedReader buffer, String line) throws IllegalArgumentException, SecurityException, IllegalAccessException, InvocationTargetException, NoSuchMethodException, IOException {
-		if(line.replaceAll(REGEX_CLEAN, REPLACE_EMPTY).length() == 0) return;
-		if(line.contains("{")) {
-			
-			// -- found new object
-			
-			Object last = mObjStack.peek();
-
-			if(line.contains(":")) {
-				if(line.contains(OBJECT_TYPE)) {
-					String val = line.split(":")[1].replaceAll(REGEX_NO_FUNNY_CHARS, REPLACE_EMPTY);
-					Object ot = last.getClass().getDeclaredMethod("addObjectType", String.class).invoke(last, val);
-					mObjStack.push(ot);
-					return;
-				} else if(line.contains(MODEL)) {
-					String[] vals = line.split(",");
-					if(vals.length < 2) {
-						// TODO add model object for Take
-						mObjStack.push(new Object());
-						return;
-					}
-					vals[0] = vals[0].split(": ")[1].replaceAll(REGEX_NO_QUOTE, REPLACE_EMPTY);
-					vals[1] = vals[1].replaceAll(REGEX_NO_FUNNY_CHARS, REPLACE_EMPTY);
-					
-					Object mo = last.getClass().getDeclaredMethod("addModel", String.class, String.class).invoke(last, vals[0], vals[1]);
-					mObjStack.push(mo);
-					return;
-				} else if(line.contains(MATERIAL) && !line.contains(LAYER_ELEMENT)) {
-					String[] vals = line.split(": ")[1].split(",");
-					vals[0] = vals[0].replaceAll(REGEX_NO_SPACE_NO_QUOTE, REPLACE_EMPTY);
-					
-					Object ma = last.getClass().getDeclaredMethod("addMaterial", String.class).invoke(last, vals[0]);
-					mObjStack.push(ma);
-					return;
-				} else if(line.contains(POSE_NODE)) {
-					Object pn = last.getClass().getDeclaredMethod("addPoseNode").invoke(last);
-					mObjStack.push(pn);
-					return;
-				} else if(line.contains(PROPERTIES)) {
-					line = "Properties";
-				} else if(line.contains(LAYER_ELEMENT)) {
-					line = line.replaceAll("\\W|\\d", REPLACE_EMPTY);
-				} else if(line.contains(LAYER)) {
-					line = LAYER;
-				} else if(line.contains(POSE)) {
-					String val = line.split(":")[1];
-					String[] vals = val.split(",");
-					last.getClass().getDeclaredMethod("setPoseName", String.class).invoke(last, vals[0].replaceAll(REGEX_NO_FUNNY_CHARS, REPLACE_EMPTY));
-					line = POSE;
-				} else if(line.contains(TEXTURE)) {
-					String val = line.split(": ")[1];
-					String[] vals = val.split(",");
-					Object te = last.getClass().getDeclaredMethod("addTexture", String.class, String.class).invoke(last, vals[0].replaceAll(REGEX_NO_QUOTE, REPLACE_EMPTY), vals[1].replace(REGEX_NO_QUOTE, REPLACE_EMPTY));
-					mObjStack.push(te);					
-					return;
-				}
+	
+	private void readDocument(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		while(nextStatement(tokenizer)) {
+			if(isNode(tokenizer, OBJECTS))
+				readObjects(tokenizer);
+			else if(isNode(tokenizer, CONNECTIONS))
+				readConnections(tokenizer);
+			else
+				skipNode(tokenizer);
+		}
+	}
+	
+	private void readObjects(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(isNode(tokenizer, MODEL))
+				readModel(tokenizer);
+			else if(isNode(tokenizer, MATERIAL))
+				readMaterial(tokenizer);
+			else if(isNode(tokenizer, TEXTURE))
+				readTexture(tokenizer);
+			else
+				skipNode(tokenizer);
+		}
+	}
+	
+	private void readModel(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		String name = nextString(tokenizer);
+		String type = nextString(tokenizer);
+		if(name == null || type == null) {
+			skipNode(tokenizer);
+			return;
+		}
+		
+		Model model = mFbx.objects.addModel(name, type);
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(tokenizer.tokenEquals(VERTICES))
+				model.vertices = new FBXFloatBuffer(readFloats(tokenizer));
+			else if(tokenizer.tokenEquals(POLYGON_VERTEX_INDEX))
+				model.polygonVertexIndex = new FBXIntBuffer(readInts(tokenizer));
+			else if(isNode(tokenizer, LAYER_ELEMENT_NORMAL) && model.layerElementNormal.normals == null)
+				readNormals(tokenizer, model.layerElementNormal);
+			else if(isNode(tokenizer, LAYER_ELEMENT_UV) && model.layerElementUV.uV == null)
+				readUVs(tokenizer, model.layerElementUV);
+			else if(isNode(tokenizer, PROPERTIES))
+				readModelProperties(tokenizer, model.properties);
+			else if(tokenizer.tokenEquals(HIDDEN))
+				model.hidden = nextString(tokenizer);
+			else if(tokenizer.tokenEquals(POSITION))
+				model.position = nextVector3(tokenizer);
+			else if(tokenizer.tokenEquals(UP))
+				model.up = nextVector3(tokenizer);
+			else if(tokenizer.tokenEquals(LOOK_AT))
+				model.lookAt = nextVector3(tokenizer);
+			else
+				skipNode(tokenizer);
+		}
+	}
+	
+	private void readNormals(AsciiTokenizer tokenizer, Model.LayerElementNormal element) throws IOException, ParsingException {
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(tokenizer.tokenEquals(NORMALS))
+				element.normals = new FBXFloatBuffer(readFloats(tokenizer));
+			else if(tokenizer.tokenEquals(MAPPING_INFORMATION_TYPE))
+				element.mappingInformationType = nextString(tokenizer);
+			else
+				skipNode(tokenizer);
+		}
+	}
+	
+	private void readUVs(AsciiTokenizer tokenizer, Model.LayerElementUV element) throws IOException, ParsingException {
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(tokenizer.tokenEquals(UV))
+				element.uV = new FBXFloatBuffer(readFloats(tokenizer));
+			else if(tokenizer.tokenEquals(UV_INDEX))
+				element.uVIndex = new FBXIntBuffer(readInts(tokenizer));
+			else
+				skipNode(tokenizer);
+		}
+	}
+	
+	private void readModelProperties(AsciiTokenizer tokenizer, Model.Properties properties) throws IOException, ParsingException {
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(!tokenizer.tokenEquals(PROPERTY) || !nextPropertyName(tokenizer))
+				skipNode(tokenizer);
+			else if(propertyIs(tokenizer, LCL_TRANSLATION))
+				properties.lclTranslation = nextVector3(tokenizer);
+			else if(propertyIs(tokenizer, LCL_ROTATION))
+				properties.lclRotation = nextVector3(tokenizer);
+			else if(propertyIs(tokenizer, LCL_SCALING))
+				properties.lclScaling = nextVector3(tokenizer);
+			else if(propertyIs(tokenizer, COLOR))
+				properties.color = nextVector3(tokenizer);
+			else if(propertyIs(tokenizer, INTENSITY))
+				properties.intensity = nextFloat(tokenizer);
+			else if(propertyIs(tokenizer, LIGHT_TYPE))
+				properties.lightType = (int) nextFloat(tokenizer);
+			else if(propertyIs(tokenizer, CONE_ANGLE))
+				properties.coneangle = nextFloat(tokenizer);
+			else if(propertyIs(tokenizer, FIELD_OF_VIEW))
+				properties.fieldOfView = nextFloat(tokenizer);
+			else if(propertyIs(tokenizer, NEAR_PLANE))
+				properties.nearPlane = nextFloat(tokenizer);
+			else if(propertyIs(tokenizer, FAR_PLANE))
+				properties.farPlane = nextFloat(tokenizer);
+		}
+	}
+	
+	private void readMaterial(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		String name = nextString(tokenizer);
+		if(name == null) {
+			skipNode(tokenizer);
+			return;
+		}
+		
+		FBXMaterial material = mFbx.objects.addMaterial(name);
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(tokenizer.tokenEquals(SHADING_MODEL))
+				material.shadingModel = nextString(tokenizer);
+			else if(isNode(tokenizer, PROPERTIES))
+				readMaterialProperties(tokenizer, material.properties);
+			else
+				skipNode(tokenizer);
+		}
+	}
+	
+	private void readMaterialProperties(AsciiTokenizer tokenizer, FBXMaterial.Properties properties) throws IOException, ParsingException {
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(!tokenizer.tokenEquals(PROPERTY) || !nextPropertyName(tokenizer))
+				skipNode(tokenizer);
+			else if(propertyIs(tokenizer, DIFFUSE_COLOR))
+				properties.diffuseColor = nextVector3(tokenizer);
+			else if(propertyIs(tokenizer, AMBIENT_COLOR))
+				properties.ambientColor = nextVector3(tokenizer);
+			else if(propertyIs(tokenizer, AMBIENT_FACTOR))
+				properties.ambientFactor = nextFloat(tokenizer);
+			else if(propertyIs(tokenizer, SPECULAR_COLOR))
+				properties.specularColor = nextVector3(tokenizer);
+			else if(propertyIs(tokenizer, SHININESS))
+				properties.shininess = nextFloat(tokenizer);
+		}
+	}
+	
+	private void readTexture(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		String name = nextString(tokenizer);
+		String type = nextString(tokenizer);
+		if(name == null || type == null) {
+			skipNode(tokenizer);
+			return;
+		}
+		
+		FBXValues.Objects.Texture texture = mFbx.objects.addTexture(name, type);
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(tokenizer.tokenEquals(FILE_NAME))
+				texture.fileName = nextString(tokenizer);
+			else if(tokenizer.tokenEquals(RELATIVE_FILENAME))
+				texture.relativeFilename = nextString(tokenizer);
+			else
+				skipNode(tokenizer);
+		}
+	}
+	
+	private void readConnections(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		while(nextStatement(tokenizer) && !tokenizer.tokenStartsWith(CLOSE)) {
+			if(tokenizer.tokenEquals(CONNECT)) {
+				String type = nextString(tokenizer);
+				String object1 = nextString(tokenizer);
+				String object2 = nextString(tokenizer);
+				if(object2 != null)
+					mFbx.connections.addConnection(type, object1, object2);
+			} else {
+				skipNode(tokenizer);
 			}
-			
-			line = line.replaceAll(REGEX_NO_FUNNY_CHARS, REPLACE_EMPTY);
-			line = line.replaceAll(FBX_U, FBX_L);
-			line = line.substring(0,1).toLowerCase() + line.substring(1);
-			
-			try {
-				Field field = last.getClass().getField(line);
-				mObjStack.push(field.get(last));
-			} catch(NoSuchFieldException e) {
-				// -- create a generic object
-				mObjStack.push(new Object());
-				return;
+		}
+	}
+	
+	/**
+	 * Advances to the next line which is not empty or a comment and reads its first token, which
+	 * is the name of a property or node, or the closing brace of a node.
+	 */
+	private boolean nextStatement(AsciiTokenizer tokenizer) throws IOException {
+		while(mStatementPending || tokenizer.nextLine()) {
+			mStatementPending = false;
+			if(tokenizer.nextToken() && !tokenizer.tokenStartsWith(COMMENT))
+				return true;
+		}
+		return false;
+	}
+	
+	private static boolean isNode(AsciiTokenizer tokenizer, String name) {
+		return tokenizer.tokenEquals(name) && tokenizer.lineEndsWith(OPEN);
+	}
+	
+	/**
+	 * Skips the node which starts on the current line, including all nodes inside of it. Only
+	 * the braces at the ends of the lines are looked at. A line which does not start a node is
+	 * skipped by moving on to the next statement.
+	 */
+	private void skipNode(AsciiTokenizer tokenizer) throws IOException {
+		if(!tokenizer.lineEndsWith(OPEN))
+			return;
+		int depth = 1;
+		while(depth > 0 && tokenizer.nextLine()) {
+			if(tokenizer.lineEndsWith(OPEN))
+				++depth;
+			else if(tokenizer.lineStartsWith(CLOSE))
+				--depth;
+		}
+	}
+	
+	/**
+	 * Reads the comma separated numbers which follow the name of a property. The numbers may
+	 * continue on the following lines, which then start with a comma.
+	 */
+	private float[] readFloats(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		mFloats.clear();
+		do {
+			while(tokenizer.nextToken(SEPARATOR)) {
+				if(tokenizer.getTokenEnd() > tokenizer.getTokenStart())
+					mFloats.add(parseFloat(tokenizer));
 			}
-		} else if(line.contains("}")) {
-			
-			// -- end of object
-			
-			mObjStack.pop();
-		} else {
-
-			// -- found property
-			
-			Object last = mObjStack.peek();			
-			String[] spl = line.split(": ");
-			if(spl.length == 0) return;
-			String prop = spl[0].replaceAll(REGEX_NO_FUNNY_CHARS, REPLACE_EMPTY);
-			prop = prop.replaceAll(FBX_U, FBX_L);
-			prop = prop.substring(0,1).toLowerCase() + prop.substring(1);
-			boolean processNextLine = false;
-			
-			Object obj = mObjStack.peek();
-			try {
-				if(spl.length < 2) return;
-				String val = spl[1];
-				
-				if(line.contains(PROPERTY)) {
-					String[] vals = val.split(",");
-					prop = vals[0].replaceAll(REGEX_NO_FUNNY_CHARS, REPLACE_EMPTY);
-					prop = prop.substring(0,1).toLowerCase() + prop.substring(1);
-					String type = vals[1].replaceAll(REGEX_NO_FUNNY_CHARS, REPLACE_EMPTY);
-				
-					if(type.equals(TYPE_VECTOR3D) || type.equals(TYPE_COLOR) || type.equals(TYPE_COLOR_RGB) || type.equals(TYPE_LCL_ROTATION) 
-							|| type.equals(TYPE_LCL_SCALING) || type.equals(TYPE_LCL_TRANSLATION) || type.equals(TYPE_VECTOR)) {
-						val = vals[3] +","+vals[4]+","+vals[5];
-					} else {
-						if(vals.length < 4)
-							return;
-						val = vals[3].replaceAll(REGEX_NO_QUOTE, REPLACE_EMPTY);
-					}
-				} else if(line.contains(CONNECT)) {
-					String[] vals = line.substring(line.indexOf(':')).split(",");
-					
-					last.getClass().getDeclaredMethod("addConnection", String.class, String.class, String.class)
-					.invoke(last, vals[0].replaceAll(REGEX_NO_SPACE_NO_QUOTE, REPLACE_EMPTY), vals[1].replaceAll(REGEX_NO_SPACE_NO_QUOTE, REPLACE_EMPTY), vals[2].replaceAll(REGEX_NO_SPACE_NO_QUOTE, REPLACE_EMPTY));
-					return;
-				}
-
-				Field field = obj.getClass().getField(prop);
-				Class<?> clazz = field.getType();
-				
-				if(clazz.equals(Integer.class))
-				{
-					// TODO investigate why there are multiple values in TextureId sometimes
-					if(val.split(",").length > 0) val = val.split(",")[0];
-					field.set(obj, Integer.valueOf(val.replaceAll(REGEX_NO_SPACE_NO_QUOTE, REPLACE_EMPTY)));
-				}
-				else if(clazz.equals(String.class))
-					field.set(obj, val.replaceAll(REGEX_NO_QUOTE, REPLACE_EMPTY));
-				else if(clazz.equals(Long.class))
-					field.set(obj, Long.valueOf(val.replaceAll(REGEX_NO_SPACE_NO_QUOTE, REPLACE_EMPTY)));		
-				else if(clazz.equals(Float.class))
-					field.set(obj, Float.valueOf(val.replaceAll(REGEX_NO_SPACE_NO_QUOTE, REPLACE_EMPTY)));		
-				else if(clazz.equals(Vector3.class)) {
-					field.set(obj, new Vector3(val.split(",")));
-				}
-				else if(clazz.equals(FBXFloatBuffer.class))
-				{
-					StringBuffer sb = new StringBuffer(val);
-					String noSpace;
-					while((line = buffer.readLine()) != null) {
-						noSpace = line.replaceAll("\\s", REPLACE_EMPTY);
-						if(noSpace.length() > 0 && noSpace.charAt(0) == ',')
-							sb.append(noSpace);
-						else
-						{
-							processNextLine = true;
-							break;
-						}							
-					}
-					field.set(obj, new FBXFloatBuffer(sb.toString()));
-				}
-				else if(clazz.equals(FBXIntBuffer.class))
-				{
-					StringBuffer sb = new StringBuffer(val);
-					String noSpace;
-					while((line = buffer.readLine()) != null) {
-						noSpace = line.replaceAll("\\s", REPLACE_EMPTY);
-						if(noSpace.length() > 0 && noSpace.charAt(0) == ',')
-							sb.append(noSpace);
-						else
-						{
-							processNextLine = true;
-							break;
-						}							
-					}
-					field.set(obj, new FBXIntBuffer(sb.toString()));
-				}
-				else if(clazz.equals(FBXMatrix.class))
-				{
-					StringBuffer sb = new StringBuffer(val);
-					String noSpace;
-					while((line = buffer.readLine()) != null) {
-						noSpace = line.replaceAll(REGEX_CLEAN, REPLACE_EMPTY);
-						if(noSpace.length() > 0 && noSpace.charAt(0) == ',')
-							sb.append(noSpace);
-						else
-						{
-							processNextLine = true;
-							break;
-						}							
-					}
-					field.set(obj, new FBXMatrix(sb.toString()));
-				}
-				else if(clazz.equals(FBXColor4.class))
-				{
-					field.set(obj, new FBXColor4(val));
-				}
-				else if(clazz.equals(Vector2.class))
-				{
-					field.set(obj, new Vector2(val.replaceAll("\\s", REPLACE_EMPTY).split(",")));
-				}
-				
-				if(processNextLine && line.replaceAll(REGEX_CLEAN, REPLACE_EMPTY).length() > 0)
-					readLine(buffer, line);
-			} catch(NoSuchFieldException e) {
-				return;
+		} while(nextArrayLine(tokenizer));
+		return mFloats.toArray();
+	}
+	
+	private int[] readInts(AsciiTokenizer tokenizer) throws IOException, ParsingException {
+		mInts.clear();
+		do {
+			while(tokenizer.nextToken(SEPARATOR)) {
+				if(tokenizer.getTokenEnd() > tokenizer.getTokenStart())
+					mInts.add(parseInt(tokenizer));
 			}
+		} while(nextArrayLine(tokenizer));
+		return mInts.toArray();
+	}
+	
+	/**
+	 * Advances to the next line if it continues an array. Otherwise the line is left for
+	 * {@link #nextStatement(AsciiTokenizer)}.
+	 */
+	private boolean nextArrayLine(AsciiTokenizer tokenizer) throws IOException {
+		boolean continued = tokenizer.lineEndsWith(SEPARATOR);
+		if(!tokenizer.nextLine())
+			return false;
+		if(continued || tokenizer.lineStartsWith(SEPARATOR))
+			return true;
+		mStatementPending = true;
+		return false;
+	}
+	
+	/**
+	 * Reads the name, type and flags of a Property line. The values follow them.
+	 */
+	private boolean nextPropertyName(AsciiTokenizer tokenizer) {
+		if(!tokenizer.nextToken(SEPARATOR))
+			return false;
+		tokenizer.unquoteToken();
+		mNameStart = tokenizer.getTokenStart();
+		mNameEnd = tokenizer.getTokenEnd();
+		return tokenizer.nextToken(SEPARATOR) && tokenizer.nextToken(SEPARATOR);
+	}
+	
+	/**
+	 * Compares the name of the current Property line with a name, ignoring everything but
+	 * letters and digits. "Lcl Translation" is the same as LclTranslation.
+	 */
+	private boolean propertyIs(AsciiTokenizer tokenizer, String name) {
+		int length = name.length();
+		int j = 0;
+		for(int i=mNameStart; i<mNameEnd; ++i) {
+			byte b = tokenizer.getByte(i);
+			if(!((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')))
+				continue;
+			if(j == length || b != name.charAt(j++))
+				return false;
+		}
+		return j == length;
+	}
+	
+	private String nextString(AsciiTokenizer tokenizer) {
+		if(!tokenizer.nextToken(SEPARATOR))
+			return null;
+		tokenizer.unquoteToken();
+		return tokenizer.getToken();
+	}
+	
+	private Vector3 nextVector3(AsciiTokenizer tokenizer) throws ParsingException {
+		float x = nextFloat(tokenizer);
+		float y = nextFloat(tokenizer);
+		float z = nextFloat(tokenizer);
+		return new Vector3(x, y, z);
+	}
+	
+	private float nextFloat(AsciiTokenizer tokenizer) throws ParsingException {
+		if(!tokenizer.nextToken(SEPARATOR))
+			throw new ParsingException("Missing value on line " + tokenizer.getLineNumber());
+		return parseFloat(tokenizer);
+	}
+	
+	private float parseFloat(AsciiTokenizer tokenizer) throws ParsingException {
+		try {
+			return tokenizer.parseFloat();
+		} catch(NumberFormatException e) {
+			throw new ParsingException("Invalid number on line " + tokenizer.getLineNumber(), e);
+		}
+	}
+	
+	private int parseInt(AsciiTokenizer tokenizer) throws ParsingException {
+		try {
+			return tokenizer.parseInt();
+		} catch(NumberFormatException e) {
+			throw new ParsingException("Invalid index on line " + tokenizer.getLineNumber(), e);
 		}
 	}
-}
\ No newline at end of file
+}
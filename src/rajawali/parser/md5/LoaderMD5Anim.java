@@ -22,6 +22,7 @@ import java.util.StringTokenizer;
 import rajawali.animation.mesh.IAnimationSequence;
 import rajawali.animation.mesh.SkeletalAnimationFrame;
 import rajawali.animation.mesh.SkeletalAnimationFrame.Skeleton;
+import rajawali.animation.mesh.SkeletalAnimationClip;
 import rajawali.animation.mesh.SkeletalAnimationFrame.SkeletonJoint;
 import rajawali.animation.mesh.SkeletalAnimationSequence;
 import rajawali.math.vector.Vector3;
@@ -50,6 +51,9 @@ public class LoaderMD5Anim extends ALoader implements IAnimationSequenceLoader {
 	private SkeletonJoint[] mJoints;
 	private int mNumJoints;
 	private int mNumAnimatedComponents;
+	private boolean mCompress;
+	private double mPositionTolerance;
+	private double mRotationTolerance;
 	
 	public LoaderMD5Anim(String animationName, RajawaliRenderer renderer, String fileOnSDCard)
 	{
@@ -63,6 +67,20 @@ public class LoaderMD5Anim extends ALoader implements IAnimationSequenceLoader {
 		mAnimationName = animationName;
 	}
 
+	/**
+	 * Stores the parsed sequence as a {@link SkeletalAnimationClip} instead of a skeleton per
+	 * frame. Must be called before {@link #parse()}.
+	 * 
+	 * @param positionTolerance double The maximum error of a joint position, in model units.
+	 * @param rotationTolerance double The maximum error of a joint rotation, in radians.
+	 * @see SkeletalAnimationSequence#compress(double, double)
+	 */
+	public void setCompression(double positionTolerance, double rotationTolerance) {
+		mCompress = true;
+		mPositionTolerance = positionTolerance;
+		mRotationTolerance = rotationTolerance;
+	}
+
 	public LoaderMD5Anim parse() throws ParsingException {
 		super.parse();
 		
@@ -122,6 +140,8 @@ public class LoaderMD5Anim extends ALoader implements IAnimationSequenceLoader {
 		}
 		
 		mSequence.setFrames(frames);
+		if (mCompress && frames != null)
+			mSequence.compress(mPositionTolerance, mRotationTolerance);
 		
 		return this;
 	}
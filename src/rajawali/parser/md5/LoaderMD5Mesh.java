@@ -29,6 +29,7 @@ import rajawali.animation.mesh.SkeletalAnimationObject3D.SkeletalAnimationExcept
 import rajawali.materials.Material;
 import rajawali.materials.methods.DiffuseMethod;
 import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin;
+import rajawali.materials.plugins.SkeletalAnimationMaterialPlugin.SkinningMode;
 import rajawali.materials.textures.ATexture.TextureException;
 import rajawali.materials.textures.Texture;
 import rajawali.materials.textures.TextureManager;
@@ -69,6 +70,8 @@ public class LoaderMD5Mesh extends AMeshLoader implements IAnimatedMeshLoader {
 
 	public double[] mBindPoseMatrix;
 	public double[][] mInverseBindPoseMatrix;
+	
+	private SkinningMode mSkinningMode = SkinningMode.LINEAR_BLEND;
 
 	public LoaderMD5Mesh(RajawaliRenderer renderer, String fileOnSDCard) {
 		super(renderer, fileOnSDCard);
@@ -82,6 +85,19 @@ public class LoaderMD5Mesh extends AMeshLoader implements IAnimatedMeshLoader {
 		super(resources, textureManager, resourceId);
 	}
 
+	/**
+	 * Sets the {@link SkinningMode} of the parsed model. Must be called before {@link #parse()}.
+	 * 
+	 * @param skinningMode {@link SkinningMode} The skinning mode.
+	 */
+	public void setSkinningMode(SkinningMode skinningMode) {
+		mSkinningMode = skinningMode;
+	}
+	
+	public SkinningMode getSkinningMode() {
+		return mSkinningMode;
+	}
+
 	public AAnimationObject3D getParsedAnimationObject() {
 		return (AAnimationObject3D) mRootObject;
 	}
@@ -415,6 +431,7 @@ public class LoaderMD5Mesh extends AMeshLoader implements IAnimatedMeshLoader {
 		root.uBoneMatrix = mBindPoseMatrix;
 		root.mInverseBindPoseMatrix = mInverseBindPoseMatrix;
 		root.setJoints(mJoints);
+		root.setSkinningMode(mSkinningMode);
 		mRootObject = root;
 		for (int i = 0; i < mNumMeshes; ++i) {
 			SkeletonMeshData mesh = mMeshes[i];
@@ -435,7 +452,7 @@ public class LoaderMD5Mesh extends AMeshLoader implements IAnimatedMeshLoader {
 			boolean hasTexture = mesh.textureName != null && mesh.textureName.length() > 0;
 
 			Material mat = new Material();
-			mat.addPlugin(new SkeletalAnimationMaterialPlugin(mNumJoints, mesh.maxBoneWeightsPerVertex));
+			mat.addPlugin(new SkeletalAnimationMaterialPlugin(mNumJoints, mesh.maxBoneWeightsPerVertex, mSkinningMode));
 			mat.enableLighting(true);
 			mat.setDiffuseMethod(new DiffuseMethod.Lambert());
 			o.setMaterial(mat);
@@ -26,6 +26,8 @@ import rajawali.primitives.ScreenQuad;
 import rajawali.primitives.Sphere;
 import rajawali.renderer.RajawaliRenderer;
 import rajawali.renderer.RenderTarget;
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Stage;
 import rajawali.scene.RajawaliScene;
 import rajawali.scenegraph.IGraphNode.GRAPH_TYPE;
 import rajawali.util.RajLog;
@@ -182,6 +184,7 @@ public class PostProcessingManager {
 	}
 
 	public void render(double deltaTime) {
+		FrameProfiler.getInstance().begin(Stage.POST_PROCESSING);
 		if(mComponentsDirty == true)
 		{
 			updatePassesList();
@@ -226,6 +229,7 @@ public class PostProcessingManager {
 			
 			RajLog.i("________________ END PASS");
 		}
+		FrameProfiler.getInstance().end(Stage.POST_PROCESSING);
 	}
 	
 	private void updatePassesList()
@@ -1,6 +1,8 @@
 package rajawali.postprocessing.passes;
 
 import rajawali.framework.R;
+import rajawali.materials.shaders.ProgramLocations;
+import android.opengl.GLES20;
 
 /*
  * BlurFilter initially authored by Andrew Jo (andrewjo@gmail.com)
@@ -46,19 +48,30 @@ public class BlurPass extends EffectPass {
 	public void setShaderParams()
 	{
 		super.setShaderParams();
-		mFragmentShader.setUniform1i("uBlurAmount", mBlurAmount);
-		mFragmentShader.setUniform1f("uBlurScale", mBlurScale);
-		mFragmentShader.setUniform1f("uBlurStrength", mBlurStrength);
+		GLES20.glUniform1i(muBlurAmountHandle, mBlurAmount);
+		GLES20.glUniform1f(muBlurScaleHandle, mBlurScale);
+		GLES20.glUniform1f(muBlurStrengthHandle, mBlurStrength);
 		switch (mOrientation) {
 			case HORIZONTAL:
-				mFragmentShader.setUniform1i("uOrientation", 0);
+				GLES20.glUniform1i(muOrientationHandle, 0);
 				break;
 			case VERTICAL:
-				mFragmentShader.setUniform1i("uOrientation", 1);
+				GLES20.glUniform1i(muOrientationHandle, 1);
 				break;
 		}
-		mFragmentShader.setUniform1f("uScreenHeight", mScreenHeight);
-		mFragmentShader.setUniform1f("uScreenWidth", mScreenHeight);
+		GLES20.glUniform1f(muScreenHeightHandle, mScreenHeight);
+		GLES20.glUniform1f(muScreenWidthHandle, mScreenHeight);
+	}
+	
+	protected void resolveLocations(ProgramLocations locations)
+	{
+		super.resolveLocations(locations);
+		muBlurAmountHandle = locations.getUniformLocation("uBlurAmount");
+		muBlurScaleHandle = locations.getUniformLocation("uBlurScale");
+		muBlurStrengthHandle = locations.getUniformLocation("uBlurStrength");
+		muOrientationHandle = locations.getUniformLocation("uOrientation");
+		muScreenHeightHandle = locations.getUniformLocation("uScreenHeight");
+		muScreenWidthHandle = locations.getUniformLocation("uScreenWidth");
 	}
 
 	
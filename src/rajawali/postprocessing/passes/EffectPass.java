@@ -14,12 +14,14 @@ package rajawali.postprocessing.passes;
 
 import rajawali.materials.Material;
 import rajawali.materials.shaders.FragmentShader;
+import rajawali.materials.shaders.ProgramLocations;
 import rajawali.materials.shaders.VertexShader;
 import rajawali.postprocessing.APass;
 import rajawali.primitives.ScreenQuad;
 import rajawali.renderer.RajawaliRenderer;
 import rajawali.renderer.RenderTarget;
 import rajawali.scene.RajawaliScene;
+import android.opengl.GLES20;
 
 
 public class EffectPass extends APass {
@@ -32,6 +34,9 @@ public class EffectPass extends APass {
 	protected RenderTarget mReadTarget;
 	protected RenderTarget mWriteTarget;
 	protected float mOpacity = 1.0f;
+	protected int muOpacityHandle;
+	protected int muTextureHandle;
+	private ProgramLocations mLocations;
 	
 	public EffectPass()
 	{
@@ -63,8 +68,27 @@ public class EffectPass extends APass {
 	
 	public void setShaderParams()
 	{
-		mFragmentShader.setUniform1f(PARAM_OPACITY, mOpacity);
-		mMaterial.bindTextureByName(PARAM_TEXTURE, 0, mReadTarget.getTexture());
+		final ProgramLocations locations = ProgramLocations.get(mMaterial.getProgramHandle());
+		if (locations != mLocations)
+		{
+			mLocations = locations;
+			resolveLocations(locations);
+		}
+		GLES20.glUniform1f(muOpacityHandle, mOpacity);
+		mMaterial.bindTexture(muTextureHandle, 0, mReadTarget.getTexture());
+	}
+	
+	/**
+	 * Resolves the uniform handles used by {@link #setShaderParams()}. Called on the first
+	 * frame and again whenever the material's program was relinked, so subclasses which
+	 * set their own uniforms should resolve them here.
+	 * 
+	 * @param locations {@link ProgramLocations} The locations of the material's program.
+	 */
+	protected void resolveLocations(ProgramLocations locations)
+	{
+		muOpacityHandle = locations.getUniformLocation(PARAM_OPACITY);
+		muTextureHandle = locations.getUniformLocation(PARAM_TEXTURE);
 	}
 	
 	public void render(RajawaliScene scene, RajawaliRenderer renderer, ScreenQuad screenQuad, RenderTarget writeTarget, RenderTarget readTarget, double deltaTime) {
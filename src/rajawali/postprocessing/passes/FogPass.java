@@ -1,13 +1,19 @@
 package rajawali.postprocessing.passes;
 
-import android.graphics.Color;
 import rajawali.framework.R;
+import rajawali.materials.shaders.ProgramLocations;
+import android.graphics.Color;
+import android.opengl.GLES20;
 
 
 public class FogPass extends EffectPass {
 	private float mFogNear;
 	private float mFogFar;
 	private float[] mFogColor = new float[3];
+	private int muFogNearHandle;
+	private int muFogFarHandle;
+	private int muFogColorHandle;
+	private int muDepthTextureHandle;
 	
 	public FogPass()
 	{
@@ -26,10 +32,19 @@ public class FogPass extends EffectPass {
 	public void setShaderParams()
 	{
 		super.setShaderParams();
-		mFragmentShader.setUniform1f("uFogNear", mFogNear);
-		mFragmentShader.setUniform1f("uFogFar", mFogFar);
-		mFragmentShader.setUniform3fv("uFogColor", mFogColor);
-		mMaterial.bindTextureByName(PARAM_DEPTH_TEXTURE, 1, mReadTarget.getDepthTexture());
+		GLES20.glUniform1f(muFogNearHandle, mFogNear);
+		GLES20.glUniform1f(muFogFarHandle, mFogFar);
+		GLES20.glUniform3fv(muFogColorHandle, 1, mFogColor, 0);
+		mMaterial.bindTexture(muDepthTextureHandle, 1, mReadTarget.getDepthTexture());
+	}
+	
+	protected void resolveLocations(ProgramLocations locations)
+	{
+		super.resolveLocations(locations);
+		muFogNearHandle = locations.getUniformLocation("uFogNear");
+		muFogFarHandle = locations.getUniformLocation("uFogFar");
+		muFogColorHandle = locations.getUniformLocation("uFogColor");
+		muDepthTextureHandle = locations.getUniformLocation(PARAM_DEPTH_TEXTURE);
 	}
 	
 	public void setFogNear(final float fogNear)
@@ -17,6 +17,7 @@ package rajawali.postprocessing.passes;
  */
 import rajawali.postprocessing.APass;
 import rajawali.primitives.ScreenQuad;
+import rajawali.renderer.GLStateManager;
 import rajawali.renderer.RajawaliRenderer;
 import rajawali.renderer.RenderTarget;
 import rajawali.scene.RajawaliScene;
@@ -59,7 +60,7 @@ public class MaskPass extends APass {
 	public void render(RajawaliScene scene, RajawaliRenderer render, ScreenQuad screenQuad, RenderTarget writeBuffer, RenderTarget readBuffer, double deltaTime) {
 		// Do not update color or depth.
 		GLES20.glColorMask(false, false, false, false);
-		GLES20.glDepthMask(false);
+		GLStateManager.getInstance().depthMask(false);
 		
 		// Set up stencil.
 		int writeValue, clearValue;
@@ -83,7 +84,7 @@ public class MaskPass extends APass {
 		
 		// Re-enable color and depth.
 		GLES20.glColorMask(true, true, true, true);
-		GLES20.glDepthMask(true);
+		GLStateManager.getInstance().depthMask(true);
 		
 		// Only render where stencil is set to 1.
 		GLES20.glStencilFunc(GLES20.GL_EQUAL, 1, 0xffffffff);
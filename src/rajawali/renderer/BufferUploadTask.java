@@ -0,0 +1,83 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.renderer;
+
+import java.util.List;
+
+import rajawali.Geometry3D;
+
+/**
+ * Uploads the buffers of geometries which were prepared while buffer creation was deferred,
+ * see {@link Geometry3D#beginDeferredBufferCreation()}. The task is queued with
+ * {@link RajawaliRenderer#queueAddTask(AFrameTask)}, after which the renderer uploads the
+ * buffers at the start of every frame until the time budget of the frame is used up. Large
+ * models are therefore uploaded over several frames instead of stalling a single one.
+ * <p>
+ * {@link #onUploadComplete()} is called on the GL thread once all buffers are uploaded.
+ */
+public class BufferUploadTask extends AFrameTask {
+	private final List<Geometry3D> mGeometries;
+	private int mCurrentGeometry;
+	private int mNumUploadedBytes;
+
+	/**
+	 * @param geometries {@link List} The geometries whose pending buffers are uploaded, in order.
+	 */
+	public BufferUploadTask(List<Geometry3D> geometries) {
+		mGeometries = geometries;
+	}
+
+	/**
+	 * Uploads at least one pending buffer and then keeps uploading until all buffers are uploaded
+	 * or the deadline has passed. The deadline is checked after every buffer, so a buffer is
+	 * always uploaded as a whole.
+	 * 
+	 * @param deadline long The value of {@link System#nanoTime()} after which no further buffer is uploaded.
+	 * @return boolean True when all buffers are uploaded.
+	 */
+	public boolean upload(long deadline) {
+		boolean uploaded = false;
+		while (mCurrentGeometry < mGeometries.size()) {
+			final Geometry3D geometry = mGeometries.get(mCurrentGeometry);
+			if (geometry.getNumPendingBuffers() == 0) {
+				++mCurrentGeometry;
+				continue;
+			}
+			if (uploaded && System.nanoTime() >= deadline)
+				return false;
+			mNumUploadedBytes += geometry.uploadPendingBuffer();
+			uploaded = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of bytes which were uploaded so far.
+	 * 
+	 * @return int The uploaded size in bytes.
+	 */
+	public int getNumUploadedBytes() {
+		return mNumUploadedBytes;
+	}
+
+	/**
+	 * Called on the GL thread once all buffers are uploaded. Does nothing by default.
+	 */
+	protected void onUploadComplete() {
+	}
+
+	@Override
+	public TYPE getFrameTaskType() {
+		return AFrameTask.TYPE.BUFFER_UPLOAD;
+	}
+}
@@ -0,0 +1,346 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.renderer;
+
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Counter;
+import android.opengl.GLES20;
+
+/**
+ * Shadows the OpenGL state which is changed while drawing objects and skips
+ * calls which would not change anything. The current program, buffer bindings,
+ * texture bindings per unit, and blend, depth and cull state are tracked.
+ *
+ * All state changes made while rendering should go through this class. Code which
+ * changes tracked state directly through {@link GLES20} (such as renderer plugins)
+ * must call {@link #invalidate()} afterwards so the shadowed state is re-synchronized.
+ * Newly generated buffer, texture and program names must be reported through
+ * {@link #invalidateBuffer(int)}, {@link #invalidateTexture(int)} and
+ * {@link #invalidateProgram(int)} since the driver may hand out recycled names.
+ *
+ * This class must only be used from the GL thread. It is owned by the {@link RajawaliRenderer}
+ * which invalidates it whenever the GL context is (re)created.
+ */
+public final class GLStateManager {
+	/**
+	 * The maximum number of texture units which are tracked. Units beyond
+	 * this are passed straight through to the driver.
+	 */
+	public static final int MAX_TRACKED_TEXTURE_UNITS = 32;
+
+	private static final int UNKNOWN = -1;
+	private static final int DISABLED = 0;
+	private static final int ENABLED = 1;
+
+	private static GLStateManager instance = null;
+
+	private int mProgram;
+	private int mArrayBuffer;
+	private int mElementArrayBuffer;
+	private int mActiveTexture;
+	private final int[] mTexture2D = new int[MAX_TRACKED_TEXTURE_UNITS];
+	private final int[] mTextureCubeMap = new int[MAX_TRACKED_TEXTURE_UNITS];
+
+	private int mBlend;
+	private int mBlendSFactor;
+	private int mBlendDFactor;
+	private int mDepthTest;
+	private int mDepthFunc;
+	private int mDepthMask;
+	private int mCullFace;
+	private int mCullFaceMode;
+	private int mFrontFace;
+
+	private int mIssuedCalls;
+	private int mSkippedCalls;
+	private int mLastIssuedCalls;
+	private int mLastSkippedCalls;
+
+	private final FrameProfiler mProfiler = FrameProfiler.getInstance();
+
+	private GLStateManager() {
+		invalidate();
+	}
+
+	public static GLStateManager getInstance() {
+		if(instance == null)
+		{
+			instance = new GLStateManager();
+		}
+		return instance;
+	}
+
+	/**
+	 * Forgets all shadowed state. The next call to each setter will be issued
+	 * to the driver regardless of its value.
+	 */
+	public void invalidate() {
+		mProgram = UNKNOWN;
+		mArrayBuffer = UNKNOWN;
+		mElementArrayBuffer = UNKNOWN;
+		mActiveTexture = UNKNOWN;
+		for (int i = 0; i < MAX_TRACKED_TEXTURE_UNITS; ++i) {
+			mTexture2D[i] = UNKNOWN;
+			mTextureCubeMap[i] = UNKNOWN;
+		}
+		mBlend = UNKNOWN;
+		mBlendSFactor = UNKNOWN;
+		mBlendDFactor = UNKNOWN;
+		mDepthTest = UNKNOWN;
+		mDepthFunc = UNKNOWN;
+		mDepthMask = UNKNOWN;
+		mCullFace = UNKNOWN;
+		mCullFaceMode = UNKNOWN;
+		mFrontFace = UNKNOWN;
+	}
+
+	/**
+	 * Forgets any binding of the given buffer name. Must be called for freshly generated
+	 * buffer names since the driver may recycle the name of a deleted buffer.
+	 *
+	 * @param buffer int The buffer name.
+	 */
+	public void invalidateBuffer(int buffer) {
+		if (mArrayBuffer == buffer) mArrayBuffer = UNKNOWN;
+		if (mElementArrayBuffer == buffer) mElementArrayBuffer = UNKNOWN;
+	}
+
+	/**
+	 * Forgets any binding of the given texture name. Must be called for freshly generated
+	 * texture names since the driver may recycle the name of a deleted texture.
+	 *
+	 * @param texture int The texture name.
+	 */
+	public void invalidateTexture(int texture) {
+		for (int i = 0; i < MAX_TRACKED_TEXTURE_UNITS; ++i) {
+			if (mTexture2D[i] == texture) mTexture2D[i] = UNKNOWN;
+			if (mTextureCubeMap[i] == texture) mTextureCubeMap[i] = UNKNOWN;
+		}
+	}
+
+	/**
+	 * Forgets the current program if it has the given name. Must be called for freshly
+	 * created program names since the driver may recycle the name of a deleted program.
+	 *
+	 * @param program int The program name.
+	 */
+	public void invalidateProgram(int program) {
+		if (mProgram == program) mProgram = UNKNOWN;
+	}
+
+	/**
+	 * Marks the start of a new frame. The call counters of the previous frame
+	 * become available through {@link #getNumIssuedCalls()} and {@link #getNumSkippedCalls()}.
+	 */
+	public void beginFrame() {
+		mLastIssuedCalls = mIssuedCalls;
+		mLastSkippedCalls = mSkippedCalls;
+		mIssuedCalls = 0;
+		mSkippedCalls = 0;
+	}
+
+	/**
+	 * Retrieve the number of state changing calls which were passed to the driver in the last frame.
+	 *
+	 * @return int The issued call count.
+	 */
+	public int getNumIssuedCalls() {
+		return mLastIssuedCalls;
+	}
+
+	/**
+	 * Retrieve the number of state changing calls which were skipped as redundant in the last frame.
+	 *
+	 * @return int The skipped call count.
+	 */
+	public int getNumSkippedCalls() {
+		return mLastSkippedCalls;
+	}
+
+	public void useProgram(int program) {
+		if (mProgram == program) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glUseProgram(program);
+		mProgram = program;
+		++mIssuedCalls;
+		mProfiler.count(Counter.PROGRAM_SWITCHES);
+	}
+
+	public void bindBuffer(int target, int buffer) {
+		if (target == GLES20.GL_ARRAY_BUFFER) {
+			if (mArrayBuffer == buffer) {
+				++mSkippedCalls;
+				return;
+			}
+			mArrayBuffer = buffer;
+		} else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+			if (mElementArrayBuffer == buffer) {
+				++mSkippedCalls;
+				return;
+			}
+			mElementArrayBuffer = buffer;
+		}
+		GLES20.glBindBuffer(target, buffer);
+		++mIssuedCalls;
+	}
+
+	/**
+	 * Selects the active texture unit.
+	 *
+	 * @param texture int The texture unit, e.g. {@link GLES20#GL_TEXTURE0} + index.
+	 */
+	public void activeTexture(int texture) {
+		if (mActiveTexture == texture) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glActiveTexture(texture);
+		mActiveTexture = texture;
+		++mIssuedCalls;
+	}
+
+	/**
+	 * Binds a texture to the currently active texture unit. Only 2D and cube map
+	 * targets are tracked, other targets are passed straight through.
+	 *
+	 * @param target int The texture target.
+	 * @param texture int The texture name.
+	 */
+	public void bindTexture(int target, int texture) {
+		final int unit = mActiveTexture - GLES20.GL_TEXTURE0;
+		final int[] bindings = target == GLES20.GL_TEXTURE_2D ? mTexture2D
+				: (target == GLES20.GL_TEXTURE_CUBE_MAP ? mTextureCubeMap : null);
+		if (bindings == null || mActiveTexture == UNKNOWN || unit < 0 || unit >= MAX_TRACKED_TEXTURE_UNITS) {
+			GLES20.glBindTexture(target, texture);
+			++mIssuedCalls;
+			mProfiler.count(Counter.TEXTURE_SWITCHES);
+			return;
+		}
+		if (bindings[unit] == texture) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glBindTexture(target, texture);
+		bindings[unit] = texture;
+		++mIssuedCalls;
+		mProfiler.count(Counter.TEXTURE_SWITCHES);
+	}
+
+	/**
+	 * Enables a server side capability. {@link GLES20#GL_BLEND}, {@link GLES20#GL_DEPTH_TEST}
+	 * and {@link GLES20#GL_CULL_FACE} are tracked, other capabilities are passed straight through.
+	 *
+	 * @param cap int The capability.
+	 */
+	public void enable(int cap) {
+		setCapability(cap, true);
+	}
+
+	/**
+	 * Disables a server side capability. {@link GLES20#GL_BLEND}, {@link GLES20#GL_DEPTH_TEST}
+	 * and {@link GLES20#GL_CULL_FACE} are tracked, other capabilities are passed straight through.
+	 *
+	 * @param cap int The capability.
+	 */
+	public void disable(int cap) {
+		setCapability(cap, false);
+	}
+
+	private void setCapability(int cap, boolean enabled) {
+		final int value = enabled ? ENABLED : DISABLED;
+		switch (cap) {
+		case GLES20.GL_BLEND:
+			if (mBlend == value) {
+				++mSkippedCalls;
+				return;
+			}
+			mBlend = value;
+			break;
+		case GLES20.GL_DEPTH_TEST:
+			if (mDepthTest == value) {
+				++mSkippedCalls;
+				return;
+			}
+			mDepthTest = value;
+			break;
+		case GLES20.GL_CULL_FACE:
+			if (mCullFace == value) {
+				++mSkippedCalls;
+				return;
+			}
+			mCullFace = value;
+			break;
+		default:
+			break;
+		}
+		if (enabled)
+			GLES20.glEnable(cap);
+		else
+			GLES20.glDisable(cap);
+		++mIssuedCalls;
+	}
+
+	public void blendFunc(int sFactor, int dFactor) {
+		if (mBlendSFactor == sFactor && mBlendDFactor == dFactor) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glBlendFunc(sFactor, dFactor);
+		mBlendSFactor = sFactor;
+		mBlendDFactor = dFactor;
+		++mIssuedCalls;
+	}
+
+	public void depthFunc(int func) {
+		if (mDepthFunc == func) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glDepthFunc(func);
+		mDepthFunc = func;
+		++mIssuedCalls;
+	}
+
+	public void depthMask(boolean flag) {
+		final int value = flag ? ENABLED : DISABLED;
+		if (mDepthMask == value) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glDepthMask(flag);
+		mDepthMask = value;
+		++mIssuedCalls;
+	}
+
+	public void cullFace(int mode) {
+		if (mCullFaceMode == mode) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glCullFace(mode);
+		mCullFaceMode = mode;
+		++mIssuedCalls;
+	}
+
+	public void frontFace(int mode) {
+		if (mFrontFace == mode) {
+			++mSkippedCalls;
+			return;
+		}
+		GLES20.glFrontFace(mode);
+		mFrontFace = mode;
+		++mIssuedCalls;
+	}
+}
@@ -34,11 +34,15 @@ import rajawali.Object3D;
 import rajawali.animation.Animation3D;
 import rajawali.materials.Material;
 import rajawali.materials.MaterialManager;
+import rajawali.materials.ShaderProgramCache;
+import rajawali.materials.shaders.ProgramLocations;
 import rajawali.materials.textures.ATexture;
 import rajawali.materials.textures.TextureManager;
 import rajawali.math.Matrix;
 import rajawali.math.vector.Vector3;
 import rajawali.renderer.plugins.Plugin;
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Stage;
 import rajawali.scene.RajawaliScene;
 import rajawali.util.GLU;
 import rajawali.util.ObjectColorPicker;
@@ -69,6 +73,8 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 	
 	protected TextureManager mTextureManager; //Texture manager for ALL textures across ALL scenes.
 	protected MaterialManager mMaterialManager; //Material manager for ALL materials across ALL scenes.
+	protected GLStateManager mGLStateManager; //Shadowed GL state, used to skip redundant state changes.
+	protected final FrameProfiler mFrameProfiler = FrameProfiler.getInstance(); //Per frame timings and counters
 	
 	protected ScheduledExecutorService mTimer; //Timer used to schedule drawing
 	protected double mFrameRate; //Target frame rate to render at
@@ -112,6 +118,18 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 	 */
 	private LinkedList<AFrameTask> mSceneQueue;
 	
+	/**
+	 * Buffer uploads which are spread over several frames. Only accessed
+	 * from the GL thread.
+	 */
+	private final LinkedList<BufferUploadTask> mBufferUploads = new LinkedList<BufferUploadTask>();
+	private double mBufferUploadBudget = DEFAULT_BUFFER_UPLOAD_BUDGET;
+	
+	/**
+	 * The default time in milliseconds which is spent on buffer uploads per frame.
+	 */
+	public static final double DEFAULT_BUFFER_UPLOAD_BUDGET = 2;
+	
 	private List<RajawaliScene> mScenes; //List of all scenes this renderer is aware of.
 	private List<RenderTarget> mRenderTargets;
 	
@@ -471,7 +489,12 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 	 * @see android.opengl.GLSurfaceView.Renderer#onDrawFrame(javax.microedition.khronos.opengles.GL10)
 	 */
 	public void onDrawFrame(GL10 glUnused) {
+		mFrameProfiler.beginFrame();
+		mGLStateManager.beginFrame();
+		mFrameProfiler.begin(Stage.FRAME_TASKS);
 		performFrameTasks(); //Execute any pending frame tasks
+		performBufferUploads();
+		mFrameProfiler.end(Stage.FRAME_TASKS);
 		synchronized (mNextSceneLock) { 
 			//Check if we need to switch the scene, and if so, do it.
 			if (mNextScene != null) {
@@ -484,6 +507,7 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 		mLastRender = SystemClock.elapsedRealtime();
 		
 		onRender(deltaTime);
+		mFrameProfiler.endFrame();
 		
 		++mFrameCount;
 		if (mFrameCount % 50 == 0) {
@@ -536,6 +560,7 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 	public void onSurfaceChanged(GL10 gl, int width, int height) {
 		mViewportWidth = width;
 		mViewportHeight = height;
+		mGLStateManager.invalidate();
 		
 		if (!mSceneInitialized) {
 			mTextureManager = TextureManager.getInstance();
@@ -591,6 +616,10 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 	public void onSurfaceCreated(GL10 gl, EGLConfig config) {
 		RajLog.setGL10(gl);
 		Capabilities.getInstance();
+		mGLStateManager = GLStateManager.getInstance();
+		mGLStateManager.invalidate(); //A new context starts with the default state
+		ProgramLocations.clear(); //Program names of a previous context are meaningless
+		ShaderProgramCache.getInstance().clear(); //Programs of a previous context died with it
 		
 		String[] versionString = (gl.glGetString(GL10.GL_VERSION)).split(" ");
 		if (versionString.length >= 3) {
@@ -768,6 +797,40 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 	public TextureManager getTextureManager() {
 		return mTextureManager;
 	}
+
+	/**
+	 * Retrieve the {@link GLStateManager} which shadows the GL state. Its call counters
+	 * show how many state changes were issued and skipped in the last frame.
+	 * 
+	 * @return {@link GLStateManager} The state manager, or null if the surface has not been created yet.
+	 */
+	public GLStateManager getGLStateManager() {
+		return mGLStateManager;
+	}
+	
+	/**
+	 * Retrieve the {@link FrameProfiler} which times the stages of each frame. It is
+	 * disabled by default.
+	 * 
+	 * @return {@link FrameProfiler} The frame profiler.
+	 */
+	public FrameProfiler getFrameProfiler() {
+		return mFrameProfiler;
+	}
+	
+	/**
+	 * Sets the time which is spent on uploading the buffers of {@link BufferUploadTask}s
+	 * per frame. At least one buffer is uploaded per frame, regardless of its size.
+	 * 
+	 * @param milliseconds double The budget in milliseconds.
+	 */
+	public void setBufferUploadBudget(double milliseconds) {
+		mBufferUploadBudget = milliseconds;
+	}
+	
+	public double getBufferUploadBudget() {
+		return mBufferUploadBudget;
+	}
 	
 	/**
 	 * Adds a task to the frame task queue.
@@ -826,6 +889,22 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 		}
 	}	
 	
+	/**
+	 * Internal method for uploading the buffers of queued {@link BufferUploadTask}s
+	 * within the per frame budget. The tasks are worked off in the order in which
+	 * they were queued.
+	 */
+	private void performBufferUploads() {
+		if (mBufferUploads.isEmpty()) return;
+		final long deadline = System.nanoTime() + (long) (mBufferUploadBudget * 1.0e6);
+		do {
+			BufferUploadTask upload = mBufferUploads.peek();
+			if (!upload.upload(deadline)) break;
+			mBufferUploads.poll();
+			upload.onUploadComplete();
+		} while (!mBufferUploads.isEmpty() && System.nanoTime() < deadline);
+	}
+	
 	/**
 	 * Internal method for handling replacement tasks.
 	 * 
@@ -864,6 +943,9 @@ public class RajawaliRenderer implements GLSurfaceView.Renderer, INode {
 		case RENDER_TARGET:
 			internalAddRenderTarget((RenderTarget) task);
 			break;
+		case BUFFER_UPLOAD:
+			mBufferUploads.add((BufferUploadTask) task);
+			break;
 		default:
 			break;
 		}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import rajawali.Object3D;
+import rajawali.materials.Material;
+import rajawali.materials.textures.ATexture;
+import rajawali.math.Matrix4;
+
+/**
+ * Collects the objects of a frame into an opaque and a transparent bucket and sorts them
+ * before they are submitted for drawing.
+ *
+ * Opaque objects are sorted by a packed 64 bit key made up of the shader program, the
+ * first texture and the view depth, in that order of significance. This groups objects
+ * sharing state so the {@link GLStateManager} can skip program and texture switches, and
+ * draws objects sharing state front to back to reduce overdraw. Transparent objects are
+ * sorted back to front by view depth so they blend correctly.
+ *
+ * Objects flagged with {@link Object3D#setForcedDepth(boolean)} get a view depth of zero.
+ *
+ * This class is only used from the GL thread.
+ */
+public class RenderQueue {
+	private static final int PROGRAM_BITS = 16;
+	private static final int TEXTURE_BITS = 24;
+	private static final int DEPTH_BITS = 24;
+	private static final long PROGRAM_MASK = (1L << PROGRAM_BITS) - 1;
+	private static final long TEXTURE_MASK = (1L << TEXTURE_BITS) - 1;
+	private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+	private static final Comparator<Entry> OPAQUE_ORDER = new Comparator<Entry>() {
+		public int compare(Entry lhs, Entry rhs) {
+			return lhs.key < rhs.key ? -1 : (lhs.key == rhs.key ? 0 : 1);
+		}
+	};
+
+	private static final Comparator<Entry> TRANSPARENT_ORDER = new Comparator<Entry>() {
+		public int compare(Entry lhs, Entry rhs) {
+			return Double.compare(rhs.depth, lhs.depth);
+		}
+	};
+
+	/**
+	 * A queued object along with its sort key and view depth. Entries are pooled
+	 * and reused from frame to frame.
+	 */
+	private static final class Entry {
+		Object3D object;
+		long key;
+		double depth;
+	}
+
+	private final ArrayList<Entry> mPool = new ArrayList<Entry>();
+	private Entry[] mOpaque = new Entry[16];
+	private Entry[] mTransparent = new Entry[16];
+	private int mNumOpaque;
+	private int mNumTransparent;
+	private int mNumUsed;
+
+	/**
+	 * Empties both buckets. The objects are released but the entries are kept for reuse.
+	 */
+	public void clear() {
+		for (int i = 0; i < mNumUsed; ++i)
+			mPool.get(i).object = null;
+		for (int i = 0; i < mNumOpaque; ++i)
+			mOpaque[i] = null;
+		for (int i = 0; i < mNumTransparent; ++i)
+			mTransparent[i] = null;
+		mNumOpaque = 0;
+		mNumTransparent = 0;
+		mNumUsed = 0;
+	}
+
+	/**
+	 * Adds an object to the queue. Objects with blending enabled go into the transparent bucket,
+	 * all others into the opaque one.
+	 *
+	 * @param object {@link Object3D} The object to queue. Its model matrix must be up to date.
+	 * @param vMatrix {@link Matrix4} The view matrix of the camera the object will be drawn with.
+	 * @param farPlane double The far plane distance used to quantize the view depth.
+	 */
+	public void add(Object3D object, Matrix4 vMatrix, double farPlane) {
+		final Entry entry = obtainEntry();
+		entry.object = object;
+		entry.depth = object.isForcedDepth() ? 0 : getViewDepth(object.getModelMatrix(), vMatrix);
+		if (object.isBlendingEnabled() || object.isTransparent()) {
+			entry.key = 0;
+			if (mNumTransparent == mTransparent.length)
+				mTransparent = Arrays.copyOf(mTransparent, mNumTransparent * 2);
+			mTransparent[mNumTransparent++] = entry;
+		} else {
+			entry.key = createKey(object.getMaterial(), entry.depth, farPlane);
+			if (mNumOpaque == mOpaque.length)
+				mOpaque = Arrays.copyOf(mOpaque, mNumOpaque * 2);
+			mOpaque[mNumOpaque++] = entry;
+		}
+	}
+
+	/**
+	 * Sorts both buckets. Must be called after all objects were added and before they are retrieved.
+	 */
+	public void sort() {
+		Arrays.sort(mOpaque, 0, mNumOpaque, OPAQUE_ORDER);
+		Arrays.sort(mTransparent, 0, mNumTransparent, TRANSPARENT_ORDER);
+	}
+
+	/**
+	 * Retrieve the number of queued objects. Opaque objects come first, followed by transparent ones.
+	 *
+	 * @return int The object count.
+	 */
+	public int size() {
+		return mNumOpaque + mNumTransparent;
+	}
+
+	/**
+	 * Retrieve the number of queued opaque objects.
+	 *
+	 * @return int The opaque object count.
+	 */
+	public int getNumOpaque() {
+		return mNumOpaque;
+	}
+
+	/**
+	 * Retrieve the number of queued transparent objects.
+	 *
+	 * @return int The transparent object count.
+	 */
+	public int getNumTransparent() {
+		return mNumTransparent;
+	}
+
+	/**
+	 * Retrieve a queued object in draw order.
+	 *
+	 * @param index int The index in draw order, between 0 and {@link #size()}.
+	 * @return {@link Object3D} The object to draw at this position.
+	 */
+	public Object3D get(int index) {
+		return index < mNumOpaque ? mOpaque[index].object : mTransparent[index - mNumOpaque].object;
+	}
+
+	/**
+	 * Packs the state of an opaque object into a sort key. The program occupies the top
+	 * 16 bits, the first texture the next 24 bits and the quantized view depth the lowest
+	 * 24 bits.
+	 *
+	 * @param material {@link Material} The material of the object. May be null.
+	 * @param depth double The view depth of the object.
+	 * @param farPlane double The far plane distance.
+	 * @return long The sort key.
+	 */
+	public static long createKey(Material material, double depth, double farPlane) {
+		long program = 0;
+		long texture = 0;
+		if (material != null) {
+			program = material.getProgramHandle() & PROGRAM_MASK;
+			final ArrayList<ATexture> textures = material.getTextureList();
+			if (textures.size() > 0)
+				texture = textures.get(0).getTextureId() & TEXTURE_MASK;
+		}
+		double normalized = farPlane > 0 ? depth / farPlane : 0;
+		if (normalized < 0) normalized = 0;
+		else if (normalized > 1) normalized = 1;
+		final long quantized = (long) (normalized * DEPTH_MASK);
+		return (program << (TEXTURE_BITS + DEPTH_BITS)) | (texture << DEPTH_BITS) | quantized;
+	}
+
+	/**
+	 * Calculates the distance in front of the camera of the origin of a model matrix.
+	 *
+	 * @param modelMatrix {@link Matrix4} The model matrix.
+	 * @param vMatrix {@link Matrix4} The view matrix.
+	 * @return double The view depth. Positive in front of the camera.
+	 */
+	private static double getViewDepth(Matrix4 modelMatrix, Matrix4 vMatrix) {
+		final double[] m = modelMatrix.getDoubleValues();
+		final double[] v = vMatrix.getDoubleValues();
+		return -(v[Matrix4.M20] * m[Matrix4.M03] + v[Matrix4.M21] * m[Matrix4.M13]
+				+ v[Matrix4.M22] * m[Matrix4.M23] + v[Matrix4.M23]);
+	}
+
+	private Entry obtainEntry() {
+		if (mNumUsed == mPool.size())
+			mPool.add(new Entry());
+		return mPool.get(mNumUsed++);
+	}
+}
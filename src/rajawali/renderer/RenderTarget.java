@@ -339,8 +339,10 @@ public class RenderTarget extends AFrameTask {
 		{
 			int[] tex = new int[2];
 			GLES20.glGenTextures(2, tex, 0);
+			GLStateManager.getInstance().invalidateTexture(tex[0]);
+			GLStateManager.getInstance().invalidateTexture(tex[1]);
 			
-			  GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, tex[0]);
+			  GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, tex[0]);
 			  GLES20.glTexImage2D(
 			      GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, mWidth, mHeight,
 			      0, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
@@ -351,14 +353,14 @@ public class RenderTarget extends AFrameTask {
 			  GLES20.glFramebufferTexture2D(
 			      GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, tex[0], 0);
 			  
-			  GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, tex[1]);
+			  GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, tex[1]);
 			  GLES20.glTexImage2D(
 				      GLES20.GL_TEXTURE_2D, 0, GLES20.GL_DEPTH_COMPONENT16, mWidth, mHeight,
 				      0, GLES20.GL_DEPTH_COMPONENT, GLES20.GL_UNSIGNED_INT, null);
 			  GLES20.glFramebufferTexture2D(
 			      GLES20.GL_FRAMEBUFFER, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_TEXTURE_2D, tex[1], 0);
 
-			  GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+			  GLStateManager.getInstance().bindTexture(GLES20.GL_TEXTURE_2D, 0);
 
 			  mTexture.setTextureId(tex[0]);
 			  mDepthTexture.setTextureId(tex[1]);
@@ -13,7 +13,9 @@
 package rajawali.renderer.plugins;
 
 import rajawali.Geometry3D;
+import rajawali.materials.shaders.ProgramLocations;
 import rajawali.renderer.AFrameTask;
+import rajawali.renderer.GLStateManager;
 import rajawali.renderer.RajawaliRenderer;
 import rajawali.util.RajLog;
 import android.opengl.GLES20;
@@ -58,6 +60,7 @@ public abstract class Plugin extends AFrameTask implements IRendererPlugin {
 
 		int program = GLES20.glCreateProgram();
 		if (program != 0) {
+			GLStateManager.getInstance().invalidateProgram(program);
 			GLES20.glAttachShader(program, mVShaderHandle);
 			GLES20.glAttachShader(program, mFShaderHandle);
 			GLES20.glLinkProgram(program);
@@ -73,6 +76,8 @@ public abstract class Plugin extends AFrameTask implements IRendererPlugin {
 				RajLog.d(mFragmentShader);
 				GLES20.glDeleteProgram(program);
 				program = 0;
+			} else {
+				ProgramLocations.resolve(program);
 			}
 		}
 		return program;
@@ -83,11 +88,11 @@ public abstract class Plugin extends AFrameTask implements IRendererPlugin {
 	}
 	
 	protected int getUniformLocation(String name) {
-		return GLES20.glGetUniformLocation(mProgram, name);
+		return ProgramLocations.get(mProgram).getUniformLocation(name);
 	}
 
 	protected int getAttribLocation(String name) {
-		return GLES20.glGetAttribLocation(mProgram, name);
+		return ProgramLocations.get(mProgram).getAttribLocation(name);
 	}
 	
 	/**
@@ -149,6 +154,7 @@ public abstract class Plugin extends AFrameTask implements IRendererPlugin {
 		GLES20.glDeleteShader(mVShaderHandle);
 		GLES20.glDeleteShader(mFShaderHandle);
 		GLES20.glDeleteProgram(mProgram);
+		ProgramLocations.remove(mProgram);
 	}
 	
 	protected void useProgram(int programHandle) {
@@ -156,7 +162,7 @@ public abstract class Plugin extends AFrameTask implements IRendererPlugin {
 			reload();
 		}
 		// Signal that we'll be using the shader program.
-		GLES20.glUseProgram(programHandle);
+		GLStateManager.getInstance().useProgram(programHandle);
 	}
 	
 	public AFrameTask.TYPE getFrameTaskType() {
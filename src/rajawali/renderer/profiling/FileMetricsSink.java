@@ -0,0 +1,103 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.renderer.profiling;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import rajawali.renderer.profiling.FrameProfiler.Counter;
+import rajawali.renderer.profiling.FrameProfiler.Stage;
+import rajawali.util.RajLog;
+
+/**
+ * Appends the frame statistics to a comma separated file, one line per report. A header line
+ * is written when the file is empty. Writing stops after the first error.
+ */
+public class FileMetricsSink implements IMetricsSink {
+	private final File mFile;
+	private BufferedWriter mWriter;
+	private boolean mFailed;
+
+	/**
+	 * @param file {@link File} The file to append to. Created if needed.
+	 */
+	public FileMetricsSink(File file) {
+		mFile = file;
+	}
+
+	public void onFrameStats(FrameStats stats) {
+		if (mFailed) return;
+		try {
+			if (mWriter == null) {
+				final boolean writeHeader = !mFile.exists() || mFile.length() == 0;
+				mWriter = new BufferedWriter(new FileWriter(mFile, true));
+				if (writeHeader)
+					writeHeader();
+			}
+			mWriter.write(Long.toString(System.currentTimeMillis()));
+			write(stats.getNumFrames());
+			write(stats.getFrameTimeP50());
+			write(stats.getFrameTimeP95());
+			write(stats.getFrameTimeP99());
+			write(stats.getFrameTimeMax());
+			write(stats.getFrameIntervalP50());
+			write(stats.getFrameIntervalP99());
+			for (Stage stage : Stage.values()) {
+				write(stats.getStageMean(stage));
+				write(stats.getStageP95(stage));
+			}
+			for (Counter counter : Counter.values()) {
+				write(stats.getCounterMean(counter));
+				write(stats.getCounterMax(counter));
+			}
+			mWriter.newLine();
+			mWriter.flush();
+		} catch (IOException e) {
+			RajLog.e("[" + getClass().getName() + "] Could not write frame statistics: " + e.getMessage());
+			mFailed = true;
+			close();
+		}
+	}
+
+	/**
+	 * Closes the file. It is opened again by the next report.
+	 */
+	public void close() {
+		if (mWriter == null) return;
+		try {
+			mWriter.close();
+		} catch (IOException e) {
+		}
+		mWriter = null;
+	}
+
+	private void writeHeader() throws IOException {
+		mWriter.write("time,frames,frame_p50,frame_p95,frame_p99,frame_max,interval_p50,interval_p99");
+		for (Stage stage : Stage.values()) {
+			final String name = stage.name().toLowerCase();
+			mWriter.write("," + name + "_mean," + name + "_p95");
+		}
+		for (Counter counter : Counter.values()) {
+			final String name = counter.name().toLowerCase();
+			mWriter.write("," + name + "_mean," + name + "_max");
+		}
+		mWriter.newLine();
+	}
+
+	private void write(double value) throws IOException {
+		mWriter.write(',');
+		mWriter.write(Double.toString(value));
+	}
+}
@@ -0,0 +1,315 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.renderer.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Measures how long each stage of a frame takes on the CPU and counts the work done per frame.
+ * The last frames are kept in a ring buffer and summarized into {@link FrameStats}, which are
+ * handed to an {@link IMetricsSink} at a fixed frame interval. Percentiles of the frame time
+ * show hitches which an averaged frame rate hides.
+ * <p>
+ * Stages are timed with matching {@link #begin(Stage)} and {@link #end(Stage)} calls. Stages may
+ * be nested, in which case the time of the inner stage is also part of the outer stage. A stage
+ * which is entered again while it is already running, for instance by a recursive call, is only
+ * timed once.
+ *
+ * <pre><code>
+ * FrameProfiler profiler = FrameProfiler.getInstance();
+ * profiler.setSink(new LogMetricsSink());
+ * profiler.setEnabled(true);
+ * </code></pre>
+ *
+ * The profiler is disabled by default, in which case every call returns right away. This class
+ * must only be used from the GL thread. It is driven by the {@link rajawali.renderer.RajawaliRenderer}.
+ */
+public final class FrameProfiler {
+	/**
+	 * The stages of a frame which are timed.
+	 */
+	public static enum Stage {
+		FRAME_TASKS, ANIMATIONS, TRANSFORMS, CULLING, DRAW, POST_PROCESSING, PLUGINS
+	}
+
+	/**
+	 * The work which is counted per frame.
+	 */
+	public static enum Counter {
+		DRAW_CALLS, TRIANGLES, PROGRAM_SWITCHES, TEXTURE_SWITCHES, BUFFER_UPLOADS, ANIMATION_UPDATES,
+		ANIMATION_UPDATES_SKIPPED
+	}
+
+	public static final int DEFAULT_HISTORY_SIZE = 300;
+	public static final int DEFAULT_REPORT_INTERVAL = 300;
+
+	private static final Stage[] STAGES = Stage.values();
+	private static final Counter[] COUNTERS = Counter.values();
+
+	private static FrameProfiler instance = null;
+
+	private boolean mEnabled;
+	private IMetricsSink mSink;
+	private int mReportInterval = DEFAULT_REPORT_INTERVAL;
+	private int mFramesSinceReport;
+
+	// -- The frame in progress
+	private boolean mInFrame;
+	private long mFrameStart;
+	private long mLastFrameStart;
+	private final long[] mStageStart = new long[STAGES.length];
+	private final int[] mStageDepth = new int[STAGES.length];
+	private final long[] mStageTime = new long[STAGES.length];
+	private final int[] mCounters = new int[COUNTERS.length];
+
+	// -- Ring buffer of completed frames
+	private int mHistorySize;
+	private int mNumFrames;
+	private int mHead;
+	private long[] mFrameTimes;
+	private long[] mFrameIntervals;
+	private long[][] mStageHistory;
+	private int[][] mCounterHistory;
+
+	private long[] mSortBuffer;
+	private FrameStats mStats;
+
+	private FrameProfiler() {
+		setHistorySize(DEFAULT_HISTORY_SIZE);
+	}
+
+	public static FrameProfiler getInstance() {
+		if(instance == null)
+		{
+			instance = new FrameProfiler();
+		}
+		return instance;
+	}
+
+	/**
+	 * Enables or disables profiling. The recorded history is discarded either way.
+	 *
+	 * @param enabled boolean True to start profiling.
+	 */
+	public void setEnabled(boolean enabled) {
+		mEnabled = enabled;
+		reset();
+	}
+
+	public boolean isEnabled() {
+		return mEnabled;
+	}
+
+	/**
+	 * Sets the sink which receives the frame statistics.
+	 *
+	 * @param sink {@link IMetricsSink} The sink, or null to only collect statistics for {@link #getStats()}.
+	 */
+	public void setSink(IMetricsSink sink) {
+		mSink = sink;
+	}
+
+	public IMetricsSink getSink() {
+		return mSink;
+	}
+
+	/**
+	 * Sets the number of frames between two reports to the sink.
+	 *
+	 * @param frames int The report interval in frames.
+	 */
+	public void setReportInterval(int frames) {
+		mReportInterval = Math.max(1, frames);
+	}
+
+	public int getReportInterval() {
+		return mReportInterval;
+	}
+
+	/**
+	 * Sets the number of frames the statistics are calculated over. Discards the recorded history.
+	 *
+	 * @param frames int The number of frames to keep.
+	 */
+	public void setHistorySize(int frames) {
+		mHistorySize = Math.max(1, frames);
+		mFrameTimes = new long[mHistorySize];
+		mFrameIntervals = new long[mHistorySize];
+		mStageHistory = new long[STAGES.length][mHistorySize];
+		mCounterHistory = new int[COUNTERS.length][mHistorySize];
+		mSortBuffer = new long[mHistorySize];
+		mStats = new FrameStats(STAGES.length, COUNTERS.length);
+		reset();
+	}
+
+	public int getHistorySize() {
+		return mHistorySize;
+	}
+
+	/**
+	 * Discards the recorded history.
+	 */
+	public void reset() {
+		mNumFrames = 0;
+		mHead = 0;
+		mFramesSinceReport = 0;
+		mLastFrameStart = 0;
+		mInFrame = false;
+	}
+
+	/**
+	 * Marks the start of a frame.
+	 */
+	public void beginFrame() {
+		if (!mEnabled) return;
+		mFrameStart = System.nanoTime();
+		for (int i = 0; i < mStageTime.length; ++i) {
+			mStageTime[i] = 0;
+			mStageDepth[i] = 0;
+		}
+		for (int i = 0; i < mCounters.length; ++i)
+			mCounters[i] = 0;
+		mInFrame = true;
+	}
+
+	/**
+	 * Marks the end of a frame. The frame is added to the history and the statistics are
+	 * reported to the sink once the report interval has passed.
+	 */
+	public void endFrame() {
+		if (!mEnabled || !mInFrame) return;
+		mInFrame = false;
+		final long now = System.nanoTime();
+
+		mFrameTimes[mHead] = now - mFrameStart;
+		mFrameIntervals[mHead] = mLastFrameStart == 0 ? now - mFrameStart : mFrameStart - mLastFrameStart;
+		mLastFrameStart = mFrameStart;
+		for (int i = 0; i < STAGES.length; ++i)
+			mStageHistory[i][mHead] = mStageTime[i];
+		for (int i = 0; i < COUNTERS.length; ++i)
+			mCounterHistory[i][mHead] = mCounters[i];
+		mHead = (mHead + 1) % mHistorySize;
+		if (mNumFrames < mHistorySize) ++mNumFrames;
+
+		if (mSink != null && ++mFramesSinceReport >= mReportInterval) {
+			mFramesSinceReport = 0;
+			mSink.onFrameStats(getStats());
+		}
+	}
+
+	/**
+	 * Starts timing a stage.
+	 *
+	 * @param stage {@link Stage} The stage.
+	 */
+	public void begin(Stage stage) {
+		if (!mInFrame) return;
+		final int i = stage.ordinal();
+		if (mStageDepth[i]++ == 0)
+			mStageStart[i] = System.nanoTime();
+	}
+
+	/**
+	 * Stops timing a stage. Must match a call to {@link #begin(Stage)}.
+	 *
+	 * @param stage {@link Stage} The stage.
+	 */
+	public void end(Stage stage) {
+		if (!mInFrame) return;
+		final int i = stage.ordinal();
+		if (mStageDepth[i] > 0 && --mStageDepth[i] == 0)
+			mStageTime[i] += System.nanoTime() - mStageStart[i];
+	}
+
+	/**
+	 * Increments a counter by one.
+	 *
+	 * @param counter {@link Counter} The counter.
+	 */
+	public void count(Counter counter) {
+		if (mInFrame) ++mCounters[counter.ordinal()];
+	}
+
+	/**
+	 * Increments a counter.
+	 *
+	 * @param counter {@link Counter} The counter.
+	 * @param amount int The amount to add.
+	 */
+	public void count(Counter counter, int amount) {
+		if (mInFrame) mCounters[counter.ordinal()] += amount;
+	}
+
+	/**
+	 * Calculates the statistics of the recorded history. The returned object is reused by
+	 * the next call.
+	 *
+	 * @return {@link FrameStats} The statistics.
+	 */
+	public FrameStats getStats() {
+		final FrameStats stats = mStats;
+		final int n = mNumFrames;
+		stats.mNumFrames = n;
+		if (n == 0) return stats;
+
+		sort(mFrameTimes, n);
+		stats.mFrameTimeP50 = percentile(n, 50);
+		stats.mFrameTimeP95 = percentile(n, 95);
+		stats.mFrameTimeP99 = percentile(n, 99);
+		stats.mFrameTimeMax = toMillis(mSortBuffer[n - 1]);
+
+		sort(mFrameIntervals, n);
+		stats.mFrameIntervalP50 = percentile(n, 50);
+		stats.mFrameIntervalP99 = percentile(n, 99);
+
+		for (int i = 0; i < STAGES.length; ++i) {
+			sort(mStageHistory[i], n);
+			long total = 0;
+			for (int j = 0; j < n; ++j)
+				total += mSortBuffer[j];
+			stats.mStageMean[i] = toMillis(total) / n;
+			stats.mStageP95[i] = percentile(n, 95);
+		}
+
+		for (int i = 0; i < COUNTERS.length; ++i) {
+			final int[] history = mCounterHistory[i];
+			long total = 0;
+			int max = 0;
+			for (int j = 0; j < n; ++j) {
+				total += history[j];
+				if (history[j] > max) max = history[j];
+			}
+			stats.mCounterMean[i] = (double) total / n;
+			stats.mCounterMax[i] = max;
+		}
+		return stats;
+	}
+
+	private void sort(long[] values, int n) {
+		System.arraycopy(values, 0, mSortBuffer, 0, n);
+		Arrays.sort(mSortBuffer, 0, n);
+	}
+
+	/**
+	 * Nearest rank percentile of the first n values of the sort buffer.
+	 */
+	private double percentile(int n, int percent) {
+		int rank = (int) Math.ceil(percent / 100.0 * n) - 1;
+		if (rank < 0) rank = 0;
+		return toMillis(mSortBuffer[rank]);
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1.0e6;
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.renderer.profiling;
+
+import rajawali.renderer.profiling.FrameProfiler.Counter;
+import rajawali.renderer.profiling.FrameProfiler.Stage;
+
+/**
+ * Statistics over the frames recorded by the {@link FrameProfiler}. All times are in milliseconds.
+ * <p>
+ * The frame time is the CPU time spent between the start and the end of a frame. The frame
+ * interval is the time between the starts of two consecutive frames, which includes the time
+ * spent waiting for the display.
+ */
+public final class FrameStats {
+	int mNumFrames;
+	double mFrameTimeP50;
+	double mFrameTimeP95;
+	double mFrameTimeP99;
+	double mFrameTimeMax;
+	double mFrameIntervalP50;
+	double mFrameIntervalP99;
+	final double[] mStageMean;
+	final double[] mStageP95;
+	final double[] mCounterMean;
+	final int[] mCounterMax;
+
+	FrameStats(int numStages, int numCounters) {
+		mStageMean = new double[numStages];
+		mStageP95 = new double[numStages];
+		mCounterMean = new double[numCounters];
+		mCounterMax = new int[numCounters];
+	}
+
+	public int getNumFrames() {
+		return mNumFrames;
+	}
+
+	public double getFrameTimeP50() {
+		return mFrameTimeP50;
+	}
+
+	public double getFrameTimeP95() {
+		return mFrameTimeP95;
+	}
+
+	public double getFrameTimeP99() {
+		return mFrameTimeP99;
+	}
+
+	public double getFrameTimeMax() {
+		return mFrameTimeMax;
+	}
+
+	public double getFrameIntervalP50() {
+		return mFrameIntervalP50;
+	}
+
+	public double getFrameIntervalP99() {
+		return mFrameIntervalP99;
+	}
+
+	public double getStageMean(Stage stage) {
+		return mStageMean[stage.ordinal()];
+	}
+
+	public double getStageP95(Stage stage) {
+		return mStageP95[stage.ordinal()];
+	}
+
+	public double getCounterMean(Counter counter) {
+		return mCounterMean[counter.ordinal()];
+	}
+
+	public int getCounterMax(Counter counter) {
+		return mCounterMax[counter.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Frames: ").append(mNumFrames)
+			.append(" frame time p50: ").append(format(mFrameTimeP50))
+			.append(" p95: ").append(format(mFrameTimeP95))
+			.append(" p99: ").append(format(mFrameTimeP99))
+			.append(" max: ").append(format(mFrameTimeMax))
+			.append(" interval p50: ").append(format(mFrameIntervalP50))
+			.append(" p99: ").append(format(mFrameIntervalP99));
+		for (Stage stage : Stage.values()) {
+			sb.append("\n").append(stage.name())
+				.append(" mean: ").append(format(getStageMean(stage)))
+				.append(" p95: ").append(format(getStageP95(stage)));
+		}
+		for (Counter counter : Counter.values()) {
+			sb.append("\n").append(counter.name())
+				.append(" mean: ").append(format(getCounterMean(counter)))
+				.append(" max: ").append(getCounterMax(counter));
+		}
+		return sb.toString();
+	}
+
+	private static String format(double value) {
+		return Double.toString(Math.round(value * 100) / 100.0);
+	}
+}
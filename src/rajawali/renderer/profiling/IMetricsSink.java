@@ -0,0 +1,26 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.renderer.profiling;
+
+/**
+ * Receives the frame statistics collected by the {@link FrameProfiler}.
+ */
+public interface IMetricsSink {
+	/**
+	 * Called on the GL thread once every report interval. The statistics object is reused,
+	 * so its values have to be copied if they are needed later.
+	 *
+	 * @param stats {@link FrameStats} The statistics of the recorded frames.
+	 */
+	public void onFrameStats(FrameStats stats);
+}
@@ -22,6 +22,9 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import rajawali.Camera;
 import rajawali.Object3D;
 import rajawali.animation.Animation3D;
+import rajawali.animation.mesh.SkeletalAnimationObject3D;
+import rajawali.animation.mesh.SkeletalPoseUpdater;
+import rajawali.animation.mesh.VertexAnimationObject3D;
 import rajawali.lights.ALight;
 import rajawali.materials.Material;
 <<<<<<< HEAD
@@ -40,11 +43,15 @@ import rajawali.postprocessing.materials.ShadowMapMaterial;
 import rajawali.primitives.Cube;
 import rajawali.renderer.AFrameTask;
 import rajawali.renderer.EmptyTask;
+import rajawali.renderer.GLStateManager;
 import rajawali.renderer.GroupTask;
 import rajawali.renderer.RajawaliRenderer;
+import rajawali.renderer.RenderQueue;
 import rajawali.renderer.RenderTarget;
 import rajawali.renderer.plugins.IRendererPlugin;
 import rajawali.renderer.plugins.Plugin;
+import rajawali.renderer.profiling.FrameProfiler;
+import rajawali.renderer.profiling.FrameProfiler.Stage;
 import rajawali.scenegraph.IGraphNode;
 import rajawali.scenegraph.IGraphNode.GRAPH_TYPE;
 import rajawali.scenegraph.IGraphNodeMember;
@@ -54,6 +61,7 @@ import rajawali.util.ObjectColorPicker.ColorPickerInfo;
 import rajawali.util.ObjectColorPicker.ObjectColorPickerException;
 import android.graphics.Color;
 import android.opengl.GLES20;
+import android.os.SystemClock;
 
 /**
  * This is the container class for scenes in Rajawali.
@@ -76,6 +84,8 @@ public class RajawaliScene extends AFrameTask {
 	protected Matrix4 mPMatrix = new Matrix4();
 	protected Matrix4 mVPMatrix = new Matrix4();
 	protected Matrix4 mInvVPMatrix = new Matrix4();
+	//Scratch matrix for the debug camera frustums, reused every frame
+	protected final Matrix4 mDebugVPMatrix = new Matrix4();
 	
 	protected float mRed, mBlue, mGreen, mAlpha;
 	protected Cube mSkybox;
@@ -130,6 +140,34 @@ public class RajawaliScene extends AFrameTask {
 	protected boolean mDisplaySceneGraph = false;
 	protected IGraphNode mSceneGraph; //The scenegraph for this scene
 	protected GRAPH_TYPE mSceneGraphType = GRAPH_TYPE.NONE; //The type of graph type for this scene.
+	protected boolean mSceneGraphCulling = false; //Should the scene graph be used for frustum culling
+	protected boolean mRenderQueueSorting = false; //Should the children be sorted by state and depth before drawing
+	
+	/**
+	 * Scratch list for the members found visible by the scene graph. Only
+	 * used by the GL thread.
+	 */
+	private final List<IGraphNodeMember> mVisibleMembers = new ArrayList<IGraphNodeMember>();
+	
+	/**
+	 * Queue used to sort the children before drawing them when render queue
+	 * sorting is enabled. Only used by the GL thread.
+	 */
+	private final RenderQueue mRenderQueue = new RenderQueue();
+	
+	/**
+	 * Scratch list for the playing skeletons among the children, whose poses
+	 * are evaluated at the start of the frame. Only used by the GL thread.
+	 */
+	private final List<SkeletalAnimationObject3D> mPlayingSkeletons = new ArrayList<SkeletalAnimationObject3D>();
+	/**
+	 * Scratch list for the playing vertex animations among the children, whose frames
+	 * advance at the start of the frame. Only used by the GL thread.
+	 */
+	private final List<VertexAnimationObject3D> mPlayingVertexAnimations = new ArrayList<VertexAnimationObject3D>();
+	private int mNumNodesVisited;
+	private int mNumObjectsCulled;
+	private int mNumObjectsDrawn;
 	
 	public RajawaliScene(RajawaliRenderer renderer) {
 		mRenderer = renderer;
@@ -650,11 +688,12 @@ public class RajawaliScene extends AFrameTask {
 	 * to change this default behavior can override this method.
 	 */
 	public void resetGLState() {
-		GLES20.glEnable(GLES20.GL_CULL_FACE);
-		GLES20.glCullFace(GLES20.GL_BACK);
-		GLES20.glFrontFace(GLES20.GL_CCW);
-		GLES20.glDisable(GLES20.GL_BLEND);
-		GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+		final GLStateManager glState = GLStateManager.getInstance();
+		glState.enable(GLES20.GL_CULL_FACE);
+		glState.cullFace(GLES20.GL_BACK);
+		glState.frontFace(GLES20.GL_CCW);
+		glState.disable(GLES20.GL_BLEND);
+		glState.enable(GLES20.GL_DEPTH_TEST);
 	}
 	
 	public void render(double deltaTime, RenderTarget renderTarget) {
@@ -662,7 +701,10 @@ public class RajawaliScene extends AFrameTask {
 	}
 	
 	public void render(double deltaTime, RenderTarget renderTarget, Material sceneMaterial) {
+		final FrameProfiler profiler = FrameProfiler.getInstance();
+		profiler.begin(Stage.FRAME_TASKS);
 		performFrameTasks(); //Handle the task queue
+		profiler.end(Stage.FRAME_TASKS);
 		synchronized (mNextSkyboxLock) {
 			//Check if we need to switch the skybox, and if so, do it.
 			if (mNextSkybox != null) {
@@ -679,6 +721,7 @@ public class RajawaliScene extends AFrameTask {
 		}
 		
 		int clearMask = mAlwaysClearColorBuffer? GLES20.GL_COLOR_BUFFER_BIT : 0;
+		final GLStateManager glState = GLStateManager.getInstance();
 
 		ColorPickerInfo pickerInfo = mPickerInfo;
 		
@@ -702,9 +745,9 @@ public class RajawaliScene extends AFrameTask {
 
 		if (mEnableDepthBuffer) {
 			clearMask |= GLES20.GL_DEPTH_BUFFER_BIT;
-			GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthFunc(GLES20.GL_LESS);
-			GLES20.glDepthMask(true);
+			glState.enable(GLES20.GL_DEPTH_TEST);
+			glState.depthFunc(GLES20.GL_LESS);
+			glState.depthMask(true);
 			GLES20.glClearDepthf(1.0f);
 		}
 		if (mUsesCoverageAa) {
@@ -720,24 +763,43 @@ public class RajawaliScene extends AFrameTask {
 		mVMatrix = mCamera.getViewMatrix();
 		mPMatrix = mCamera.getProjectionMatrix();
 		//Pre-multiply View and Projection matricies once for speed
-		mVPMatrix = mPMatrix.clone().multiply(mVMatrix);
+		mVPMatrix.setAll(mPMatrix).multiply(mVMatrix);
 		mInvVPMatrix.setAll(mVPMatrix).inverse();
+		mCamera.updateViewProjectionVersion(mVMatrix, mVPMatrix);
 
 		if (mSkybox != null) {
-			GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-			GLES20.glDepthMask(false);
+			glState.disable(GLES20.GL_DEPTH_TEST);
+			glState.depthMask(false);
 
 			mSkybox.setPosition(mCamera.getX(), mCamera.getY(), mCamera.getZ());
 			mSkybox.render(mCamera, mVPMatrix, mPMatrix, mVMatrix, null);
 
 			if (mEnableDepthBuffer) {
-				GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-				GLES20.glDepthMask(true);
+				glState.enable(GLES20.GL_DEPTH_TEST);
+				glState.depthMask(true);
 			}
 		}
 
 		mCamera.updateFrustum(mInvVPMatrix); //update frustum plane
 		
+		// Evaluate the poses of the playing skeletons of this scene, shared with the worker threads.
+		// Vertex animations advance their frames on the GL thread meanwhile. The update is joined
+		// before the animations run since they and their listeners may change the sequences the
+		// workers read.
+		profiler.begin(Stage.ANIMATIONS);
+		synchronized (mChildren) {
+			for (int i = 0, j = mChildren.size(); i < j; ++i)
+				collectPlayingAnimations(mChildren.get(i));
+		}
+		final SkeletalPoseUpdater poseUpdater = SkeletalPoseUpdater.getInstance();
+		poseUpdater.beginUpdate(mCamera, mPlayingSkeletons);
+		mPlayingSkeletons.clear();
+		final long now = SystemClock.uptimeMillis();
+		for (int i = 0, j = mPlayingVertexAnimations.size(); i < j; ++i)
+			mPlayingVertexAnimations.get(i).updateFrame(mCamera, now);
+		mPlayingVertexAnimations.clear();
+		poseUpdater.finishUpdate();
+		
 		// Update all registered animations
 		synchronized (mAnimations) {
 			for (int i = 0, j = mAnimations.size(); i < j; ++i) {
@@ -746,6 +808,7 @@ public class RajawaliScene extends AFrameTask {
 					anim.update(deltaTime);
 			}
 		}
+		profiler.end(Stage.ANIMATIONS);
 		
 		Material sceneMat = pickerInfo == null ? sceneMaterial : pickerInfo.getPicker().getMaterial();
 		
@@ -754,28 +817,49 @@ public class RajawaliScene extends AFrameTask {
 			sceneMat.bindTextures();
 		}		
 
-		synchronized (mChildren) {			
-			for (int i = 0, j = mChildren.size(); i < j; ++i) {
-				Object3D child = mChildren.get(i);
-				boolean blendingEnabled = child.isBlendingEnabled();
-				if(pickerInfo != null && child.isPickingEnabled()) {
-					child.setBlendingEnabled(false);
-					pickerInfo.getPicker().getMaterial().setColor(child.getPickingColor());
+		profiler.begin(Stage.DRAW);
+		synchronized (mChildren) {
+			if (mSceneGraphCulling && mSceneGraph != null) {
+				//Let the scene graph reject whole regions, then draw only what survived
+				mVisibleMembers.clear();
+				profiler.begin(Stage.CULLING);
+				mNumNodesVisited = mSceneGraph.cullFromFrustum(mCamera.getFrustum(), mVisibleMembers);
+				profiler.end(Stage.CULLING);
+				mNumObjectsCulled = mSceneGraph.getObjectCount() - mVisibleMembers.size();
+				mNumObjectsDrawn = 0;
+				for (int i = 0, j = mVisibleMembers.size(); i < j; ++i) {
+					IGraphNodeMember member = mVisibleMembers.get(i);
+					if (!(member instanceof Object3D)) continue;
+					submitChild((Object3D) member, pickerInfo, sceneMat);
+					++mNumObjectsDrawn;
+				}
+				mVisibleMembers.clear();
+			} else {
+				for (int i = 0, j = mChildren.size(); i < j; ++i) {
+					submitChild(mChildren.get(i), pickerInfo, sceneMat);
+				}
+				mNumNodesVisited = 0;
+				mNumObjectsCulled = 0;
+				mNumObjectsDrawn = mChildren.size();
+			}
+			if (mRenderQueue.size() > 0) {
+				mRenderQueue.sort();
+				for (int i = 0, j = mRenderQueue.size(); i < j; ++i) {
+					renderChild(mRenderQueue.get(i), pickerInfo, sceneMat);
 				}
-				child.render(mCamera, mVPMatrix, mPMatrix, mVMatrix, sceneMat);
-				child.setBlendingEnabled(blendingEnabled);
+				mRenderQueue.clear();
 			}
 		}
+		profiler.end(Stage.DRAW);
 		
 		if(mDebugCameras) {
-			for(Camera camera : mCameras) {
+			for (int i = 0, j = mCameras.size(); i < j; ++i) {
+				Camera camera = mCameras.get(i);
 				if(camera == mCamera) continue;
 				camera.setProjectionMatrix(mRenderer.getCurrentViewportWidth(), mRenderer.getCurrentViewportHeight());
-				Matrix4 viewMatrix = camera.getViewMatrix();
-				Matrix4 projectionMatrix = camera.getProjectionMatrix();
-				Matrix4 viewProjectionMatrix = projectionMatrix.clone().multiply(viewMatrix);
-				viewProjectionMatrix.inverse();
-				camera.updateFrustum(viewProjectionMatrix);
+				mDebugVPMatrix.setAll(camera.getProjectionMatrix()).multiply(camera.getViewMatrix());
+				mDebugVPMatrix.inverse();
+				camera.updateFrustum(mDebugVPMatrix);
 				camera.drawFrustum(mCamera, mVPMatrix, mPMatrix, mVMatrix, null);
 			}
 		}
@@ -796,10 +880,15 @@ public class RajawaliScene extends AFrameTask {
 			render(deltaTime, renderTarget, sceneMaterial); //TODO Possible timing error here
 		}
 
+		profiler.begin(Stage.PLUGINS);
 		synchronized (mPlugins) {
 			for (int i = 0, j = mPlugins.size(); i < j; i++)
 				mPlugins.get(i).render();
+			//Plugins change GL state directly, so the shadowed state can no longer be trusted
+			if (mPlugins.size() > 0)
+				glState.invalidate();
 		}
+		profiler.end(Stage.PLUGINS);
 		
 		if(renderTarget != null)
 		{
@@ -807,6 +896,40 @@ public class RajawaliScene extends AFrameTask {
 		}
 	}
 	
+	/**
+	 * Queues a top level child for sorting, or renders it right away when the render queue is
+	 * not sorted.
+	 * 
+	 * @param child {@link Object3D} to submit.
+	 * @param pickerInfo {@link ColorPickerInfo} for this pass. May be null.
+	 * @param sceneMat {@link Material} overriding the child's material. May be null.
+	 */
+	private void submitChild(Object3D child, ColorPickerInfo pickerInfo, Material sceneMat) {
+		if (mRenderQueueSorting) {
+			child.calculateModelMatrix(null);
+			mRenderQueue.add(child, mVMatrix, mCamera.getFarPlane());
+		} else {
+			renderChild(child, pickerInfo, sceneMat);
+		}
+	}
+
+	/**
+	 * Renders a single top level child, applying the color picking state if needed.
+	 * 
+	 * @param child {@link Object3D} to render.
+	 * @param pickerInfo {@link ColorPickerInfo} for this pass. May be null.
+	 * @param sceneMat {@link Material} overriding the child's material. May be null.
+	 */
+	private void renderChild(Object3D child, ColorPickerInfo pickerInfo, Material sceneMat) {
+		boolean blendingEnabled = child.isBlendingEnabled();
+		if(pickerInfo != null && child.isPickingEnabled()) {
+			child.setBlendingEnabled(false);
+			pickerInfo.getPicker().getMaterial().setColor(child.getPickingColor());
+		}
+		child.render(mCamera, mVPMatrix, mPMatrix, mVMatrix, sceneMat);
+		child.setBlendingEnabled(blendingEnabled);
+	}
+	
 	/**
 	 * Queue an addition task. The added object will be placed
 	 * at the end of the renderer's list.
@@ -1535,6 +1658,21 @@ public class RajawaliScene extends AFrameTask {
 		}
 	}
 	
+	/**
+	 * Adds the playing {@link SkeletalAnimationObject3D}s and {@link VertexAnimationObject3D}s
+	 * in the hierarchy of an object to the animations which are updated this frame.
+	 * 
+	 * @param object {@link Object3D} The root of the hierarchy.
+	 */
+	private void collectPlayingAnimations(Object3D object) {
+		if (object instanceof SkeletalAnimationObject3D && ((SkeletalAnimationObject3D) object).isPlaying())
+			mPlayingSkeletons.add((SkeletalAnimationObject3D) object);
+		else if (object instanceof VertexAnimationObject3D && ((VertexAnimationObject3D) object).isPlaying())
+			mPlayingVertexAnimations.add((VertexAnimationObject3D) object);
+		for (int i = 0, j = object.getNumChildren(); i < j; ++i)
+			collectPlayingAnimations(object.getChildAt(i));
+	}
+	
 	/**
 	 * Internal method for removing all {@link Object3D} children.
 	 * Should only be called through {@link #handleRemoveAllTask(AFrameTask)}
@@ -1798,6 +1936,81 @@ public class RajawaliScene extends AFrameTask {
 		mDisplaySceneGraph = display;
 	}
 
+	/**
+	 * Set if the scene graph should be used to frustum cull the children of this
+	 * scene. When enabled, only the children the scene graph reports as inside the
+	 * camera frustum are rendered, in the order the graph returns them. This has
+	 * no effect if the scene was created without a scene graph.
+	 * 
+	 * Note that children are culled by their own bounds only, so the children of
+	 * a culled object are culled along with it.
+	 * 
+	 * @param cull If true, the scene graph will be used for culling.
+	 */
+	public void setSceneGraphCulling(boolean cull) {
+		mSceneGraphCulling = cull;
+	}
+	
+	/**
+	 * Is the scene graph being used for frustum culling?
+	 * 
+	 * @return boolean True if scene graph culling is enabled.
+	 */
+	public boolean isSceneGraphCulling() {
+		return mSceneGraphCulling;
+	}
+	
+	/**
+	 * Set if the children of this scene should be sorted before they are drawn. When enabled,
+	 * opaque children are grouped by shader program and texture and drawn front to back, and
+	 * transparent children (those with blending enabled) are drawn back to front after all
+	 * opaque ones. When disabled, children are drawn in the order they were added.
+	 * 
+	 * Only the children of the scene are sorted. The children of an {@link Object3D} are
+	 * still drawn together with their parent.
+	 * 
+	 * @param sort If true, the children will be sorted by a {@link RenderQueue}.
+	 */
+	public void setRenderQueueSorting(boolean sort) {
+		mRenderQueueSorting = sort;
+	}
+	
+	/**
+	 * Are the children of this scene sorted before they are drawn?
+	 * 
+	 * @return boolean True if render queue sorting is enabled.
+	 */
+	public boolean isRenderQueueSorting() {
+		return mRenderQueueSorting;
+	}
+	
+	/**
+	 * Retrieve the number of scene graph nodes visited while culling the last frame.
+	 * 
+	 * @return int the node count. Zero if scene graph culling is disabled.
+	 */
+	public int getNumNodesVisited() {
+		return mNumNodesVisited;
+	}
+	
+	/**
+	 * Retrieve the number of scene graph members rejected while culling the last frame.
+	 * 
+	 * @return int the culled object count. Zero if scene graph culling is disabled.
+	 */
+	public int getNumObjectsCulled() {
+		return mNumObjectsCulled;
+	}
+	
+	/**
+	 * Retrieve the number of top level children submitted for rendering in the last frame.
+	 * 
+	 * @return int the drawn object count.
+	 */
+	public int getNumObjectsDrawn() {
+		return mNumObjectsDrawn;
+	}
+
 	/**
 	 * Retrieve the number of triangles this scene contains, recursive method
 	 * 
@@ -18,13 +18,13 @@ import java.util.List;
 
 import rajawali.ATransformable3D;
 import rajawali.Camera;
+import rajawali.Frustum;
 import rajawali.bounds.BoundingBox;
 import rajawali.bounds.BoundingSphere;
 import rajawali.bounds.IBoundingVolume;
 import rajawali.math.Matrix4;
 import rajawali.math.vector.Vector3;
 import rajawali.util.RajLog;
-import android.util.Log;
 
 /**
  * Generic Axis Aligned Bounding Box based tree sorting hierarchy. Subclasses
@@ -629,9 +629,10 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * (non-Javadoc)
 	 * @see rajawali.scenegraph.IGraphNode#addObjects(java.util.Collection)
 	 */
-	public void addObjects(Collection<IGraphNodeMember> objects) {
-		// TODO Auto-generated method stub
-		
+	public synchronized void addObjects(Collection<IGraphNodeMember> objects) {
+		for (IGraphNodeMember object : objects) {
+			addObject(object);
+		}
 	}
 
 	/*
@@ -645,6 +646,10 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 		IGraphNode container = object.getGraphNode();
 		if (container == null) {
 			mOutside.remove(object);
+		} else if (!object.isInGraph()) {
+			//Objects outside the root are held by the root's outside list
+			((A_nAABBTree) container).mOutside.remove(object);
+			object.setGraphNode(null, false);
 		} else {
 			if (container == this) {
 				//If this is the container, process the removal
@@ -666,9 +671,10 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * (non-Javadoc)
 	 * @see rajawali.scenegraph.IGraphNode#removeObjects(java.util.Collection)
 	 */
-	public void removeObjects(Collection<IGraphNodeMember> objects) {
-		// TODO Auto-generated method stub
-		
+	public synchronized void removeObjects(Collection<IGraphNodeMember> objects) {
+		for (IGraphNodeMember object : objects) {
+			removeObject(object);
+		}
 	}
 
 	/*
@@ -684,7 +690,6 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 		}
 		IGraphNode container = object.getGraphNode(); //Get the container node
 		handleRecursiveUpdate((A_nAABBTree) container, object);
-		Log.e("Rajawali", "Node: " + this + " Object Container: " + container);
 	}
 
 	/**
@@ -695,12 +700,10 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 	 * @param object IGraphNodeMember which is being updated.
 	 */
 	protected void handleRecursiveUpdate(final A_nAABBTree container, IGraphNodeMember object) {
-		//Log.i("Rajawali", "Handling recursive update potential.");
 		A_nAABBTree local_container = container;
 		boolean updated = false;
 		while (!updated) {
 			if (local_container.contains(object.getTransformedBoundingVolume())) {
-				Log.v("Rajawali", "INSIDE");
 				int fits_in_child = -1;
 				if (mSplit) {
 					for (int j = 0; j < CHILD_COUNT; ++j) {
@@ -716,36 +719,28 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 						}
 					}
 					if (fits_in_child >= 0) { //If a single child was marked
-						Log.i("Rajawali", "Fits in a single child.");
 						local_container.removeFromMembers(object);
 						mChildren[fits_in_child].internalAddObject(object);
 						updated = true;
-					} else { //TODO: WORKS
-						Log.i("Rajwali", "Fits in multiple children, leaving in place.");
+					} else {
+						//Fits in multiple children, leave it in place
 						updated = true;
 					}
 				} else {
-					Log.i("Rajawali", "No children so we are leaving in same node.");
 					if (!object.isInGraph()) {
-						Log.i("Rajawali", "Removing from outside graph and moving to inside root.");
 						local_container.mOutside.remove(object);
 						local_container.internalAddObject(object);
 					}
 					updated = true;
 				}
 			} else {
-				//Log.v("Rajawali", "OUTSIDE");
-				if (local_container.mParent == null) { //TODO: WORKS
-					//Log.v("Rajawali", "OUTSIDE");
-					//Log.i("Rajawali", "Container is root node. Adding to outside.");
+				if (local_container.mParent == null) {
 					if (object.isInGraph()) {
 						local_container.removeFromMembers(object);
 						local_container.addToOutside(object);
 					}
-					//Log.e("Rajawali", "Node after addToOutside: " + object.getGraphNode());
 					updated = true;
 				} else {
-					Log.i("Rajawali", "Container is not root (" + local_container + "). Moving search up a level.");
 					local_container = local_container.mParent;
 				}
 			}
@@ -785,6 +780,70 @@ public abstract class A_nAABBTree extends BoundingBox implements IGraphNode {
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see rajawali.scenegraph.IGraphNode#cullFromFrustum(rajawali.Frustum, java.util.List)
+	 */
+	public synchronized int cullFromFrustum(Frustum frustum, List<IGraphNodeMember> visible) {
+		if (mParent == null) {
+			//Objects outside the root are not covered by any node and must be tested individually
+			for (int i = 0, j = mOutside.size(); i < j; ++i) {
+				IGraphNodeMember member = mOutside.get(i);
+				if (isMemberInFrustum(frustum, member)) visible.add(member);
+			}
+		}
+		return internalCullFromFrustum(frustum, visible, false);
+	}
+
+	/**
+	 * Recursively collects the visible members of this node and its children. Nodes which are
+	 * completely outside the frustum are rejected along with all of their descendants, and nodes
+	 * which are completely inside have all of their members accepted without further testing.
+	 * 
+	 * @param frustum {@link Frustum} to test visibility against.
+	 * @param visible {@link List} the visible members will be appended to.
+	 * @param inside boolean indicating if an ancestor was already found to be fully inside the frustum.
+	 * @return int The number of nodes visited.
+	 */
+	protected int internalCullFromFrustum(Frustum frustum, List<IGraphNodeMember> visible, boolean inside) {
+		if (!inside) {
+			int result = frustum.classifyBounds(mTransformedMin, mTransformedMax);
+			if (result == Frustum.OUTSIDE) return 1;
+			inside = (result == Frustum.INSIDE);
+		}
+		int visited = 1;
+		for (int i = 0, j = mMembers.size(); i < j; ++i) {
+			IGraphNodeMember member = mMembers.get(i);
+			if (inside || isMemberInFrustum(frustum, member)) visible.add(member);
+		}
+		if (mSplit) {
+			for (int i = 0; i < CHILD_COUNT; ++i) {
+				visited += mChildren[i].internalCullFromFrustum(frustum, visible, inside);
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * Tests an individual member against the frustum. Members without a bounding
+	 * volume are always considered visible.
+	 * 
+	 * @param frustum {@link Frustum} to test visibility against.
+	 * @param member {@link IGraphNodeMember} to test.
+	 * @return boolean True if the member is (even partially) inside the frustum.
+	 */
+	protected boolean isMemberInFrustum(Frustum frustum, IGraphNodeMember member) {
+		IBoundingVolume volume = member.getTransformedBoundingVolume();
+		if (volume instanceof BoundingBox) {
+			BoundingBox box = (BoundingBox) volume;
+			return frustum.classifyBounds(box.getTransformedMin(), box.getTransformedMax()) != Frustum.OUTSIDE;
+		} else if (volume instanceof BoundingSphere) {
+			BoundingSphere sphere = (BoundingSphere) volume;
+			return frustum.sphereInFrustum(sphere.getPosition(), sphere.getScaledRadius());
+		}
+		return true;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see rajawali.scenegraph.IGraphNode#displayGraph(boolean)
@@ -13,8 +13,10 @@
 package rajawali.scenegraph;
 
 import java.util.Collection;
+import java.util.List;
 
 import rajawali.Camera;
+import rajawali.Frustum;
 import rajawali.bounds.IBoundingVolume;
 import rajawali.math.Matrix4;
 import rajawali.math.vector.Vector3;
@@ -120,6 +122,17 @@ public interface IGraphNode {
 	 */
 	public void cullFromBoundingVolume(IBoundingVolume volume);
 	
+	/**
+	 * Called to collect the members of the scene graph which are (even partially)
+	 * inside the provided frustum. Implementations are expected to reject whole
+	 * regions of the graph where possible rather than testing every member.
+	 * 
+	 * @param frustum {@link Frustum} to test visibility against.
+	 * @param visible {@link List} the visible members will be appended to. It is not cleared.
+	 * @return int The number of graph nodes which were visited.
+	 */
+	public int cullFromFrustum(Frustum frustum, List<IGraphNodeMember> visible);
+	
 	/**
 	 * Call this in the renderer to cause the scene graph to be
 	 * displayed. It is up to the implementation to determine 
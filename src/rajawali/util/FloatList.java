@@ -0,0 +1,80 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive floats. Unlike an {@code ArrayList<Float>} it does not box its
+ * values, which keeps large meshes from creating millions of objects while they are parsed.
+ */
+public class FloatList {
+	private float[] mValues;
+	private int mSize;
+
+	public FloatList() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity int The number of values which can be added before the list grows.
+	 */
+	public FloatList(int capacity) {
+		mValues = new float[Math.max(1, capacity)];
+	}
+
+	public void add(float value) {
+		if (mSize == mValues.length)
+			mValues = Arrays.copyOf(mValues, mSize * 2);
+		mValues[mSize++] = value;
+	}
+
+	public float get(int index) {
+		if (index >= mSize)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+		return mValues[index];
+	}
+
+	public void set(int index, float value) {
+		if (index >= mSize)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+		mValues[index] = value;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public void clear() {
+		mSize = 0;
+	}
+
+	/**
+	 * Returns the array which backs this list. Only the first {@link #size()} values are valid
+	 * and the array is replaced when the list grows.
+	 * 
+	 * @return float[] The values.
+	 */
+	public float[] getArray() {
+		return mValues;
+	}
+
+	/**
+	 * Copies the values into a new array of the exact size.
+	 * 
+	 * @return float[] The values.
+	 */
+	public float[] toArray() {
+		return Arrays.copyOf(mValues, mSize);
+	}
+}
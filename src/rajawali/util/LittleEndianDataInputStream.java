@@ -118,8 +118,10 @@ public class LittleEndianDataInputStream extends InputStream implements DataInpu
 	}
 
 	public final int read(byte b[], int off, int len) throws IOException {
-		mPosition += len;
-		return in.read(b, off, len);
+		final int read = in.read(b, off, len);
+		if (read > 0)
+			mPosition += read;
+		return read;
 	}
 
 	public final void readFully(byte b[]) throws IOException {
@@ -132,9 +134,29 @@ public class LittleEndianDataInputStream extends InputStream implements DataInpu
 		d.readFully(b, off, len);
 	}
 	
+	/**
+	 * Skips n bytes. Unlike {@link InputStream#skip(long)} this only skips less when the end of the stream is
+	 * reached, which matters for buffered and decompressing streams.
+	 */
 	public final long skip(int n) throws IOException {
-		mPosition += n;
-		return d.skip(n);
+		return skip((long) n);
+	}
+
+	@Override
+	public final long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n) {
+			long count = in.skip(n - skipped);
+			if (count <= 0) {
+				// -- Some streams only skip what they have buffered, read to tell the end of the stream apart
+				if (in.read() < 0)
+					break;
+				count = 1;
+			}
+			skipped += count;
+		}
+		mPosition += skipped;
+		return skipped;
 	}
 
 	public final int skipBytes(int n) throws IOException {
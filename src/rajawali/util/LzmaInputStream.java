@@ -0,0 +1,452 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses LZMA data in the .lzma format of the LZMA SDK, which is also what Flash writes with
+ * ByteArray.compress(CompressionAlgorithm.LZMA). The stream starts with a 13 byte header holding the
+ * coder properties, the dictionary size and the uncompressed size, which is -1 when the data ends with
+ * an end marker.
+ * <p>
+ * Data is decoded on demand as it is read, so only the dictionary is kept in memory and not the whole
+ * uncompressed data. The decoder follows the reference decoder of the LZMA SDK, which is public domain.
+ */
+public class LzmaInputStream extends InputStream {
+	private static final int HEADER_SIZE = 13;
+	private static final int MIN_DICTIONARY_SIZE = 1 << 12;
+
+	private static final int NUM_BIT_MODEL_TOTAL_BITS = 11;
+	private static final int BIT_MODEL_TOTAL = 1 << NUM_BIT_MODEL_TOTAL_BITS;
+	private static final int NUM_MOVE_BITS = 5;
+	private static final int PROB_INIT = BIT_MODEL_TOTAL / 2;
+	private static final int TOP_VALUE = 1 << 24;
+
+	private static final int NUM_STATES = 12;
+	private static final int NUM_POS_BITS_MAX = 4;
+	private static final int NUM_LEN_TO_POS_STATES = 4;
+	private static final int NUM_ALIGN_BITS = 4;
+	private static final int START_POS_MODEL_INDEX = 4;
+	private static final int END_POS_MODEL_INDEX = 14;
+	private static final int NUM_FULL_DISTANCES = 1 << (END_POS_MODEL_INDEX >>> 1);
+	private static final int MATCH_MIN_LEN = 2;
+
+	private final InputStream mIn;
+	private final byte[] mSingle = new byte[1];
+
+	// -- Properties
+	private final int mLc;
+	private final int mLp;
+	private final int mPb;
+	private long mRemaining;
+	private final boolean mSizeKnown;
+
+	// -- Sliding dictionary
+	private final byte[] mDictionary;
+	private int mDictionaryPos;
+	private boolean mDictionaryFull;
+	private long mTotalPos;
+
+	// -- Range decoder
+	private int mRange;
+	private int mCode;
+
+	// -- Probability models
+	private final short[] mLiteralProbs;
+	private final short[] mIsMatch = new short[NUM_STATES << NUM_POS_BITS_MAX];
+	private final short[] mIsRep = new short[NUM_STATES];
+	private final short[] mIsRepG0 = new short[NUM_STATES];
+	private final short[] mIsRepG1 = new short[NUM_STATES];
+	private final short[] mIsRepG2 = new short[NUM_STATES];
+	private final short[] mIsRep0Long = new short[NUM_STATES << NUM_POS_BITS_MAX];
+	private final short[][] mPosSlot = new short[NUM_LEN_TO_POS_STATES][1 << 6];
+	private final short[] mPosDecoders = new short[1 + NUM_FULL_DISTANCES - END_POS_MODEL_INDEX];
+	private final short[] mAlign = new short[1 << NUM_ALIGN_BITS];
+	private final LengthDecoder mLenDecoder = new LengthDecoder();
+	private final LengthDecoder mRepLenDecoder = new LengthDecoder();
+
+	// -- Decoder state
+	private int mState;
+	private int mRep0, mRep1, mRep2, mRep3;
+	private int mUnread;
+	private boolean mFinished;
+
+	/**
+	 * Reads the header and prepares decoding. The given stream is read in small amounts, so it
+	 * should be buffered.
+	 * 
+	 * @param in {@link InputStream} The compressed data, starting with the .lzma header.
+	 * @throws IOException If the header is invalid.
+	 */
+	public LzmaInputStream(InputStream in) throws IOException {
+		mIn = in;
+		final byte[] header = new byte[HEADER_SIZE];
+		for (int read = 0; read < HEADER_SIZE;) {
+			final int count = in.read(header, read, HEADER_SIZE - read);
+			if (count < 0)
+				throw new EOFException("Missing LZMA header.");
+			read += count;
+		}
+
+		int properties = header[0] & 0xFF;
+		if (properties >= 9 * 5 * 5)
+			throw new IOException("Invalid LZMA properties.");
+		mLc = properties % 9;
+		properties /= 9;
+		mLp = properties % 5;
+		mPb = properties / 5;
+
+		int dictionarySize = 0;
+		for (int i = 0; i < 4; ++i)
+			dictionarySize |= (header[1 + i] & 0xFF) << (8 * i);
+		long size = 0;
+		for (int i = 0; i < 8; ++i)
+			size |= (long) (header[5 + i] & 0xFF) << (8 * i);
+		mSizeKnown = size != -1;
+		mRemaining = size;
+		if (mSizeKnown && size < 0)
+			throw new IOException("Invalid LZMA uncompressed size.");
+
+		if (dictionarySize < 0)
+			throw new IOException("LZMA dictionary too large.");
+		dictionarySize = Math.max(dictionarySize, MIN_DICTIONARY_SIZE);
+		// -- A dictionary larger than the data is never filled
+		if (mSizeKnown && size < dictionarySize)
+			dictionarySize = (int) Math.max(size, MIN_DICTIONARY_SIZE);
+		mDictionary = new byte[dictionarySize];
+
+		mLiteralProbs = new short[0x300 << (mLc + mLp)];
+		init(mLiteralProbs);
+		init(mIsMatch);
+		init(mIsRep);
+		init(mIsRepG0);
+		init(mIsRepG1);
+		init(mIsRepG2);
+		init(mIsRep0Long);
+		for (int i = 0; i < NUM_LEN_TO_POS_STATES; ++i)
+			init(mPosSlot[i]);
+		init(mPosDecoders);
+		init(mAlign);
+
+		if (readByte() != 0)
+			throw new IOException("Invalid LZMA stream.");
+		for (int i = 0; i < 4; ++i)
+			mCode = (mCode << 8) | readByte();
+		mRange = 0xFFFFFFFF;
+		if (mCode == mRange)
+			throw new IOException("Invalid LZMA stream.");
+		mFinished = mSizeKnown && mRemaining == 0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		return read(mSingle, 0, 1) < 0 ? -1 : mSingle[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		int read = 0;
+		while (read < length) {
+			if (mUnread > 0) {
+				read += copyOut(buffer, offset + read, Math.min(mUnread, length - read));
+				continue;
+			}
+			if (mFinished || !decode())
+				break;
+		}
+		return read == 0 && mFinished ? -1 : read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		final byte[] buffer = new byte[(int) Math.min(n, 4096)];
+		long skipped = 0;
+		while (skipped < n) {
+			final int count = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+			if (count < 0)
+				break;
+			skipped += count;
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return mUnread;
+	}
+
+	@Override
+	public void close() throws IOException {
+		mIn.close();
+	}
+
+	/**
+	 * Decodes the next literal or match into the dictionary. The decoded bytes are handed out by
+	 * {@link #read(byte[], int, int)} from there, a match is never longer than the smallest
+	 * dictionary.
+	 * 
+	 * @return boolean False if the end of the data was reached.
+	 */
+	private boolean decode() throws IOException {
+		if (mSizeKnown && mRemaining == 0) {
+			mFinished = true;
+			return false;
+		}
+		final int posState = (int) mTotalPos & ((1 << mPb) - 1);
+
+		if (decodeBit(mIsMatch, (mState << NUM_POS_BITS_MAX) + posState) == 0) {
+			decodeLiteral();
+			mState = mState < 4 ? 0 : mState < 10 ? mState - 3 : mState - 6;
+			return true;
+		}
+
+		int length;
+		if (decodeBit(mIsRep, mState) != 0) {
+			if (mTotalPos == 0)
+				throw new IOException("Corrupt LZMA stream.");
+			if (decodeBit(mIsRepG0, mState) == 0) {
+				if (decodeBit(mIsRep0Long, (mState << NUM_POS_BITS_MAX) + posState) == 0) {
+					mState = mState < 7 ? 9 : 11;
+					copyMatch(1);
+					return true;
+				}
+			} else {
+				final int distance;
+				if (decodeBit(mIsRepG1, mState) == 0) {
+					distance = mRep1;
+				} else {
+					if (decodeBit(mIsRepG2, mState) == 0) {
+						distance = mRep2;
+					} else {
+						distance = mRep3;
+						mRep3 = mRep2;
+					}
+					mRep2 = mRep1;
+				}
+				mRep1 = mRep0;
+				mRep0 = distance;
+			}
+			length = mRepLenDecoder.decode(posState);
+			mState = mState < 7 ? 8 : 11;
+		} else {
+			mRep3 = mRep2;
+			mRep2 = mRep1;
+			mRep1 = mRep0;
+			length = mLenDecoder.decode(posState);
+			mState = mState < 7 ? 7 : 10;
+			mRep0 = decodeDistance(length);
+			if (mRep0 == 0xFFFFFFFF) {
+				// -- End marker
+				mFinished = true;
+				return false;
+			}
+			if (mRep0 < 0 || mRep0 >= mDictionary.length || !mDictionaryFull && mRep0 >= mDictionaryPos)
+				throw new IOException("Corrupt LZMA stream.");
+		}
+		copyMatch(length + MATCH_MIN_LEN);
+		return true;
+	}
+
+	private void decodeLiteral() throws IOException {
+		final int prevByte = mTotalPos == 0 ? 0 : getByte(1);
+		final int litState = (((int) mTotalPos & ((1 << mLp) - 1)) << mLc) + (prevByte >>> (8 - mLc));
+		final int base = 0x300 * litState;
+		final short[] probs = mLiteralProbs;
+
+		int symbol = 1;
+		if (mState >= 7) {
+			int matchByte = getByte(mRep0 + 1);
+			do {
+				final int matchBit = (matchByte >>> 7) & 1;
+				matchByte <<= 1;
+				final int bit = decodeBit(probs, base + ((1 + matchBit) << 8) + symbol);
+				symbol = (symbol << 1) | bit;
+				if (matchBit != bit)
+					break;
+			} while (symbol < 0x100);
+		}
+		while (symbol < 0x100)
+			symbol = (symbol << 1) | decodeBit(probs, base + symbol);
+
+		consume(1);
+		putByte((byte) symbol);
+		mUnread = 1;
+	}
+
+	/**
+	 * Repeats length bytes at distance rep0 + 1.
+	 */
+	private void copyMatch(int length) throws IOException {
+		consume(length);
+		final byte[] dictionary = mDictionary;
+		final int size = dictionary.length;
+		int from = mDictionaryPos - mRep0 - 1;
+		if (from < 0)
+			from += size;
+		for (int i = 0; i < length; ++i) {
+			putByte(dictionary[from]);
+			if (++from == size)
+				from = 0;
+		}
+		mUnread = length;
+	}
+
+	private int copyOut(byte[] buffer, int offset, int count) {
+		final int size = mDictionary.length;
+		int from = mDictionaryPos - mUnread;
+		if (from < 0)
+			from += size;
+		final int first = Math.min(count, size - from);
+		System.arraycopy(mDictionary, from, buffer, offset, first);
+		if (first < count)
+			System.arraycopy(mDictionary, 0, buffer, offset + first, count - first);
+		mUnread -= count;
+		return count;
+	}
+
+	private void consume(int length) throws IOException {
+		if (mSizeKnown) {
+			if (mRemaining < length)
+				throw new IOException("Corrupt LZMA stream, the data is longer than its uncompressed size.");
+			mRemaining -= length;
+		}
+	}
+
+	private void putByte(byte b) {
+		mDictionary[mDictionaryPos] = b;
+		if (++mDictionaryPos == mDictionary.length) {
+			mDictionaryPos = 0;
+			mDictionaryFull = true;
+		}
+		++mTotalPos;
+	}
+
+	private int getByte(int distance) {
+		int from = mDictionaryPos - distance;
+		if (from < 0)
+			from += mDictionary.length;
+		return mDictionary[from] & 0xFF;
+	}
+
+	private int decodeDistance(int length) throws IOException {
+		final int lenState = Math.min(length, NUM_LEN_TO_POS_STATES - 1);
+		final int posSlot = decodeBitTree(mPosSlot[lenState], 0, 6);
+		if (posSlot < START_POS_MODEL_INDEX)
+			return posSlot;
+		final int numDirectBits = (posSlot >>> 1) - 1;
+		int distance = (2 | (posSlot & 1)) << numDirectBits;
+		if (posSlot < END_POS_MODEL_INDEX) {
+			distance += decodeReverseBitTree(mPosDecoders, distance - posSlot, numDirectBits);
+		} else {
+			distance += decodeDirectBits(numDirectBits - NUM_ALIGN_BITS) << NUM_ALIGN_BITS;
+			distance += decodeReverseBitTree(mAlign, 0, NUM_ALIGN_BITS);
+		}
+		return distance;
+	}
+
+	private int readByte() throws IOException {
+		final int b = mIn.read();
+		if (b < 0)
+			throw new EOFException("Unexpected end of LZMA stream.");
+		return b;
+	}
+
+	private int decodeBit(short[] probs, int index) throws IOException {
+		final int prob = probs[index];
+		final int bound = (mRange >>> NUM_BIT_MODEL_TOTAL_BITS) * prob;
+		final int bit;
+		if ((mCode ^ 0x80000000) < (bound ^ 0x80000000)) {
+			probs[index] = (short) (prob + ((BIT_MODEL_TOTAL - prob) >>> NUM_MOVE_BITS));
+			mRange = bound;
+			bit = 0;
+		} else {
+			probs[index] = (short) (prob - (prob >>> NUM_MOVE_BITS));
+			mCode -= bound;
+			mRange -= bound;
+			bit = 1;
+		}
+		if ((mRange ^ 0x80000000) < (TOP_VALUE ^ 0x80000000)) {
+			mRange <<= 8;
+			mCode = (mCode << 8) | readByte();
+		}
+		return bit;
+	}
+
+	private int decodeDirectBits(int numBits) throws IOException {
+		int result = 0;
+		for (int i = 0; i < numBits; ++i) {
+			mRange >>>= 1;
+			mCode -= mRange;
+			final int t = 0 - (mCode >>> 31);
+			mCode += mRange & t;
+			if (mCode == mRange)
+				throw new IOException("Corrupt LZMA stream.");
+			if ((mRange ^ 0x80000000) < (TOP_VALUE ^ 0x80000000)) {
+				mRange <<= 8;
+				mCode = (mCode << 8) | readByte();
+			}
+			result = (result << 1) + (t + 1);
+		}
+		return result;
+	}
+
+	private int decodeBitTree(short[] probs, int offset, int numBits) throws IOException {
+		int m = 1;
+		for (int i = 0; i < numBits; ++i)
+			m = (m << 1) + decodeBit(probs, offset + m);
+		return m - (1 << numBits);
+	}
+
+	private int decodeReverseBitTree(short[] probs, int offset, int numBits) throws IOException {
+		int m = 1;
+		int symbol = 0;
+		for (int i = 0; i < numBits; ++i) {
+			final int bit = decodeBit(probs, offset + m);
+			m = (m << 1) + bit;
+			symbol |= bit << i;
+		}
+		return symbol;
+	}
+
+	private static void init(short[] probs) {
+		for (int i = 0; i < probs.length; ++i)
+			probs[i] = PROB_INIT;
+	}
+
+	private final class LengthDecoder {
+		private final short[] mChoice = new short[2];
+		private final short[] mLow = new short[(1 << NUM_POS_BITS_MAX) << 3];
+		private final short[] mMid = new short[(1 << NUM_POS_BITS_MAX) << 3];
+		private final short[] mHigh = new short[1 << 8];
+
+		LengthDecoder() {
+			init(mChoice);
+			init(mLow);
+			init(mMid);
+			init(mHigh);
+		}
+
+		int decode(int posState) throws IOException {
+			if (decodeBit(mChoice, 0) == 0)
+				return decodeBitTree(mLow, posState << 3, 3);
+			if (decodeBit(mChoice, 1) == 0)
+				return 8 + decodeBitTree(mMid, posState << 3, 3);
+			return 16 + decodeBitTree(mHigh, 0, 8);
+		}
+	}
+}
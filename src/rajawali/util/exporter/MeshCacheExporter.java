@@ -0,0 +1,322 @@
+/**
+ * Copyright 2013 Dennis Ippel
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package rajawali.util.exporter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rajawali.Geometry3D;
+import rajawali.Object3D;
+import rajawali.animation.mesh.VertexAnimationFrame;
+import rajawali.animation.mesh.VertexAnimationObject3D;
+import rajawali.bounds.BoundingBox;
+import rajawali.math.Quaternion;
+import rajawali.math.vector.Vector3;
+import rajawali.parser.LoaderMeshCache;
+import rajawali.util.RajLog;
+
+/**
+ * Writes an object and its children to a binary mesh cache which can be loaded with the
+ * {@link LoaderMeshCache}. See there for a description of the format.
+ */
+public class MeshCacheExporter extends AExporter {
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	@Override
+	public void export() throws Exception {
+		try {
+			write(mObject, exportFile, null, null);
+			RajLog.i("Successfully wrote the mesh cache " + exportFile.getCanonicalPath());
+		} catch (IOException e) {
+			RajLog.e("Writing the mesh cache " + exportFile.getName() + " was unsuccessful.");
+			throw e;
+		}
+	}
+
+	@Override
+	public String getExtension() {
+		return "rmc";
+	}
+
+	/**
+	 * Writes an object and its children to a mesh cache. The file is written under a temporary
+	 * name first and renamed once it is complete, so that a reader never sees a partial file.
+	 * 
+	 * @param root {@link Object3D} The object to write.
+	 * @param file {@link File} The cache file.
+	 * @param materialNames {@link Map} The material name of each object, may be null.
+	 * @param materialLibrary {@link String} The material library the materials are defined in, may be null.
+	 * @throws IOException
+	 */
+	public static void write(Object3D root, File file, Map<Object3D, String> materialNames, String materialLibrary)
+			throws IOException {
+		final List<Object3D> objects = new ArrayList<Object3D>();
+		final List<Integer> parents = new ArrayList<Integer>();
+		flatten(root, -1, objects, parents);
+
+		final StringTable strings = new StringTable();
+		final int materialLibraryIndex = strings.add(materialLibrary);
+		final List<Section> sections = new ArrayList<Section>();
+		final ByteBuffer meshTable = ByteBuffer.allocate(objects.size() * LoaderMeshCache.MESH_RECORD_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		final Quaternion orientation = new Quaternion();
+
+		for (int i = 0; i < objects.size(); ++i) {
+			final Object3D object = objects.get(i);
+			final Geometry3D geometry = object.getGeometry();
+			final boolean container = object.isContainer() || geometry.getVertices() == null;
+			final int numVertices = container ? 0 : geometry.getNumVertices();
+			int flags = 0;
+			int numIndices = 0;
+			int numFrames = 0;
+
+			if (container) {
+				flags |= LoaderMeshCache.FLAG_CONTAINER;
+			} else {
+				sections.add(new Section(i, LoaderMeshCache.SECTION_VERTICES, geometry.getVertices()));
+				addSection(sections, i, LoaderMeshCache.SECTION_NORMALS, geometry.getNormals());
+				addSection(sections, i, LoaderMeshCache.SECTION_TEXTURE_COORDS, geometry.getTextureCoords());
+				addSection(sections, i, LoaderMeshCache.SECTION_COLORS, geometry.getColors());
+				final Buffer indices = geometry.getIndices();
+				if (indices != null) {
+					numIndices = indices.capacity();
+					final Section section = new Section(i, LoaderMeshCache.SECTION_INDICES, indices);
+					if (indices instanceof ShortBuffer || numVertices <= 65536) {
+						section.mShortIndices = true;
+						section.mLength = numIndices * 2;
+						flags |= LoaderMeshCache.FLAG_SHORT_INDICES;
+					}
+					sections.add(section);
+				}
+				final BoundingBox box = geometry.getBoundingBox();
+				final Vector3 min = box.getMin();
+				final Vector3 max = box.getMax();
+				sections.add(new Section(i, LoaderMeshCache.SECTION_BOUNDS, FloatBuffer.wrap(new float[] {
+						(float) min.x, (float) min.y, (float) min.z, (float) max.x, (float) max.y, (float) max.z })));
+
+				if (object instanceof VertexAnimationObject3D)
+					numFrames = addFrames(sections, i, (VertexAnimationObject3D) object, numVertices, strings);
+			}
+
+			meshTable.putInt(parents.get(i));
+			meshTable.putInt(flags);
+			meshTable.putInt(numVertices);
+			meshTable.putInt(numIndices);
+			meshTable.putInt(numFrames);
+			meshTable.putInt(strings.add(object.getName()));
+			meshTable.putInt(strings.add(materialNames == null ? null : materialNames.get(object)));
+			meshTable.putInt(0);
+			final Vector3 position = object.getPosition();
+			meshTable.putFloat((float) position.x).putFloat((float) position.y).putFloat((float) position.z);
+			object.getOrientation(orientation);
+			meshTable.putFloat((float) orientation.w).putFloat((float) orientation.x)
+					.putFloat((float) orientation.y).putFloat((float) orientation.z);
+			final Vector3 scale = object.getScale();
+			meshTable.putFloat((float) scale.x).putFloat((float) scale.y).putFloat((float) scale.z);
+		}
+		sections.add(strings.toSection());
+
+		// -- Lay out the data sections behind the tables
+		final int numSections = sections.size();
+		int offset = align(LoaderMeshCache.HEADER_SIZE + meshTable.capacity() + numSections
+				* LoaderMeshCache.SECTION_RECORD_SIZE);
+		final ByteBuffer tables = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+		tables.putInt(LoaderMeshCache.MAGIC);
+		tables.putInt(LoaderMeshCache.VERSION);
+		tables.putInt(objects.size());
+		tables.putInt(numSections);
+		tables.putInt(materialLibraryIndex);
+		tables.position(LoaderMeshCache.HEADER_SIZE);
+		meshTable.flip();
+		tables.put(meshTable);
+		for (int i = 0; i < numSections; ++i) {
+			final Section section = sections.get(i);
+			section.mOffset = offset;
+			tables.putInt(section.mMesh);
+			tables.putInt(section.mType);
+			tables.putInt(offset);
+			tables.putInt(section.mLength);
+			offset = align(offset + section.mLength);
+		}
+		tables.position(0);
+
+		final File temp = new File(file.getPath() + ".tmp");
+		final FileOutputStream out = new FileOutputStream(temp);
+		boolean complete = false;
+		try {
+			final FileChannel channel = out.getChannel();
+			writeFully(channel, tables);
+			final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			for (int i = 0; i < numSections; ++i) {
+				final Section section = sections.get(i);
+				// -- Pad up to the aligned start of the section
+				for (long padding = section.mOffset - channel.position(); padding > 0; --padding)
+					block.put((byte) 0);
+				block.flip();
+				writeFully(channel, block);
+				section.write(channel, block);
+			}
+			complete = true;
+		} finally {
+			out.close();
+			if (!complete)
+				temp.delete();
+		}
+		if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Could not replace " + file.getPath());
+		}
+	}
+
+	private static void flatten(Object3D object, int parent, List<Object3D> objects, List<Integer> parents) {
+		final int index = objects.size();
+		objects.add(object);
+		parents.add(parent);
+		for (int i = 0; i < object.getNumChildren(); ++i)
+			flatten(object.getChildAt(i), index, objects, parents);
+	}
+
+	private static void addSection(List<Section> sections, int mesh, int type, Buffer data) {
+		if (data != null && data.capacity() > 0)
+			sections.add(new Section(mesh, type, data));
+	}
+
+	private static int addFrames(List<Section> sections, int mesh, VertexAnimationObject3D object, int numVertices,
+			StringTable strings) {
+		final int numFrames = object.getNumFrames();
+		if (numFrames == 0)
+			return 0;
+		final FloatBuffer[] vertices = new FloatBuffer[numFrames];
+		final FloatBuffer[] normals = new FloatBuffer[numFrames];
+		final IntBuffer names = IntBuffer.allocate(numFrames);
+		for (int i = 0; i < numFrames; ++i) {
+			final VertexAnimationFrame frame = (VertexAnimationFrame) object.getFrame(i);
+			vertices[i] = frame.getGeometry().getVertices();
+			normals[i] = frame.getGeometry().getNormals();
+			if (vertices[i].capacity() != numVertices * 3 || normals[i].capacity() != numVertices * 3)
+				throw new IllegalArgumentException("The frames of " + object.getName()
+						+ " do not have the same number of vertices as the object.");
+			names.put(strings.add(frame.getName()));
+		}
+		sections.add(new Section(mesh, LoaderMeshCache.SECTION_FRAME_VERTICES, vertices));
+		sections.add(new Section(mesh, LoaderMeshCache.SECTION_FRAME_NORMALS, normals));
+		sections.add(new Section(mesh, LoaderMeshCache.SECTION_FRAME_NAMES, names));
+		return numFrames;
+	}
+
+	private static int align(int offset) {
+		final int mask = LoaderMeshCache.SECTION_ALIGNMENT - 1;
+		return (offset + mask) & ~mask;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+		while (data.hasRemaining())
+			channel.write(data);
+		data.clear();
+	}
+
+	private static final class Section {
+		final int mMesh;
+		final int mType;
+		final Buffer[] mData;
+		int mLength;
+		int mOffset;
+		boolean mShortIndices;
+
+		Section(int mesh, int type, Buffer... data) {
+			mMesh = mesh;
+			mType = type;
+			mData = data;
+			for (Buffer buffer : data) {
+				if (buffer instanceof ByteBuffer)
+					mLength += buffer.capacity();
+				else if (buffer instanceof ShortBuffer)
+					mLength += buffer.capacity() * 2;
+				else
+					mLength += buffer.capacity() * 4;
+			}
+		}
+
+		void write(FileChannel channel, ByteBuffer block) throws IOException {
+			for (Buffer buffer : mData) {
+				final int count = buffer.capacity();
+				for (int i = 0; i < count; ++i) {
+					if (block.remaining() < 4)
+						flush(channel, block);
+					if (buffer instanceof FloatBuffer)
+						block.putFloat(((FloatBuffer) buffer).get(i));
+					else if (buffer instanceof IntBuffer && mShortIndices)
+						block.putShort((short) ((IntBuffer) buffer).get(i));
+					else if (buffer instanceof IntBuffer)
+						block.putInt(((IntBuffer) buffer).get(i));
+					else if (buffer instanceof ShortBuffer)
+						block.putShort(((ShortBuffer) buffer).get(i));
+					else
+						block.put(((ByteBuffer) buffer).get(i));
+				}
+			}
+			flush(channel, block);
+		}
+
+		private static void flush(FileChannel channel, ByteBuffer block) throws IOException {
+			block.flip();
+			writeFully(channel, block);
+		}
+	}
+
+	/**
+	 * Collects the strings of a cache. Every string is stored once.
+	 */
+	private static final class StringTable {
+		private final HashMap<String, Integer> mIndices = new HashMap<String, Integer>();
+		private final List<byte[]> mStrings = new ArrayList<byte[]>();
+		private int mLength = 4;
+
+		int add(String string) {
+			if (string == null)
+				return -1;
+			Integer index = mIndices.get(string);
+			if (index == null) {
+				final byte[] bytes = string.getBytes(UTF8);
+				index = mStrings.size();
+				mIndices.put(string, index);
+				mStrings.add(bytes);
+				mLength += 4 + bytes.length;
+			}
+			return index;
+		}
+
+		Section toSection() {
+			final ByteBuffer data = ByteBuffer.allocate(mLength).order(ByteOrder.LITTLE_ENDIAN);
+			data.putInt(mStrings.size());
+			for (byte[] bytes : mStrings)
+				data.putInt(bytes.length).put(bytes);
+			return new Section(-1, LoaderMeshCache.SECTION_STRINGS, data);
+		}
+	}
+}
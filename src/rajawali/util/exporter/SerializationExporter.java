@@ -22,6 +22,10 @@ import rajawali.animation.mesh.VertexAnimationFrame;
 import rajawali.animation.mesh.VertexAnimationObject3D;
 import rajawali.util.RajLog;
 
+/**
+ * @deprecated Use the {@link MeshCacheExporter}, whose files can be memory mapped.
+ */
+@Deprecated
 public class SerializationExporter extends AExporter {
 
 	@Override